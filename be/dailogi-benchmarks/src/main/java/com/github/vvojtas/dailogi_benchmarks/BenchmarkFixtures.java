@@ -0,0 +1,61 @@
+package com.github.vvojtas.dailogi_benchmarks;
+
+import com.github.vvojtas.dailogi_server.model.character.response.CharacterDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueCharacterConfigDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueMessageDTO;
+import com.github.vvojtas.dailogi_server.model.llm.response.LLMDTO;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Realistic inputs shared by the benchmarks, sized like the data of a typical dialogue.
+ */
+final class BenchmarkFixtures {
+
+    static final long DIALOGUE_ID = 42L;
+
+    /**
+     * About the length of one generated utterance (the default template asks for ~5 sentences)
+     */
+    static final String UTTERANCE = "Nie sądzę, żeby to był dobry pomysł. Spójrz tylko, co stało się ostatnim razem, "
+            + "kiedy zaufaliśmy obcemu przy tym stole. Karty nie kłamią, ale ludzie owszem. "
+            + "Zanim cokolwiek postanowimy, chcę usłyszeć, co ma do powiedzenia kapitan. "
+            + "A potem zdecydujemy razem, tak jak zawsze.";
+
+    private BenchmarkFixtures() {
+    }
+
+    static CharacterDTO character(long id, String name) {
+        OffsetDateTime now = OffsetDateTime.now();
+        return new CharacterDTO(id, name,
+                "Krótki opis postaci " + name,
+                "Pełny opis postaci " + name + ". " + UTTERANCE + " " + UTTERANCE,
+                false, null, true, 1L, now, now);
+    }
+
+    static List<DialogueCharacterConfigDTO> characterConfigs() {
+        LLMDTO llm = new LLMDTO(1L, "Benchmark LLM", "openai/gpt-4o-mini", 3000, null);
+        return List.of(
+                new DialogueCharacterConfigDTO(character(1L, "Kapitan"), llm),
+                new DialogueCharacterConfigDTO(character(2L, "Kartograf"), llm),
+                new DialogueCharacterConfigDTO(character(3L, "Kucharz"), llm));
+    }
+
+    /**
+     * @param historyLength Messages already in the dialogue, spoken in turn by its characters
+     */
+    static DialogueDTO dialogue(int historyLength) {
+        List<DialogueCharacterConfigDTO> configs = characterConfigs();
+        List<DialogueMessageDTO> messages = new ArrayList<>(historyLength);
+        for (int i = 0; i < historyLength; i++) {
+            long speaker = configs.get(i % configs.size()).character().id();
+            messages.add(new DialogueMessageDTO((long) i + 1, i / configs.size() + 1, speaker, UTTERANCE));
+        }
+        OffsetDateTime now = OffsetDateTime.now();
+        return new DialogueDTO(DIALOGUE_ID, "Benchmark dialogue",
+                "Wieczór w tawernie portowej, załoga kłóci się o kurs statku.", "IN_PROGRESS", now, now, configs, messages, null);
+    }
+}
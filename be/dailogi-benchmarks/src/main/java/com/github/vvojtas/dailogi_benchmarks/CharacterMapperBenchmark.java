@@ -0,0 +1,59 @@
+package com.github.vvojtas.dailogi_benchmarks;
+
+import com.github.vvojtas.dailogi_server.db.entity.Character;
+import com.github.vvojtas.dailogi_server.model.character.mapper.CharacterMapper;
+import com.github.vvojtas.dailogi_server.model.character.response.CharacterDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CharacterMapper#toDTO}, run for every character of every listing. Characters with an
+ * avatar also build the avatar URL through a HATEOAS link to the avatar controller.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class CharacterMapperBenchmark {
+
+    @Param({"false", "true"})
+    public boolean withAvatar;
+
+    private final CharacterMapper characterMapper = new CharacterMapper();
+    private Character character;
+
+    @Setup
+    public void setUp() {
+        OffsetDateTime now = OffsetDateTime.now();
+        character = Character.builder()
+                .id(7L)
+                .name("Kapitan")
+                .shortDescription("Stary wilk morski")
+                .description(BenchmarkFixtures.UTTERANCE)
+                .avatarId(withAvatar ? 3L : null)
+                .isGlobal(true)
+                .defaultLlmId(1L)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+
+    @Benchmark
+    public CharacterDTO toDTO() {
+        return characterMapper.toDTO(character);
+    }
+}
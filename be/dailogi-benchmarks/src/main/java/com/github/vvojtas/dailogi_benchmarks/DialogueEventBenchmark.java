@@ -0,0 +1,86 @@
+package com.github.vvojtas.dailogi_benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.TokenEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.DialogueEventSequence;
+import com.github.vvojtas.dailogi_server.model.dialogue.mapper.DialogueEventMapper;
+import com.github.vvojtas.dailogi_server.model.dialogue.request.CharacterConfigDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-token work of a dialogue stream: the event ID, mapping the token event to its response DTO
+ * and writing it as an SSE frame the way {@link SseEmitter} and the Jackson message converter do.
+ * Also compares the per-dialogue sequence IDs with the random UUIDs they replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class DialogueEventBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DialogueEventMapper eventMapper = new DialogueEventMapper();
+    private final ByteArrayOutputStream frame = new ByteArrayOutputStream(256);
+    private DialogueEventSequence sequence;
+    private CharacterConfigDTO characterConfig;
+
+    @Setup
+    public void setUp() {
+        sequence = new DialogueEventSequence(BenchmarkFixtures.DIALOGUE_ID);
+        characterConfig = new CharacterConfigDTO(1L, 1L);
+    }
+
+    @Benchmark
+    public String sequenceEventId() {
+        return sequence.next();
+    }
+
+    @Benchmark
+    public String randomUuidEventId() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public Object mapTokenEvent() {
+        return eventMapper.toTokenEventDto(new TokenEventDto(characterConfig, " pomysł", sequence.next()));
+    }
+
+    @Benchmark
+    public int mapAndSerializeTokenEvent() throws IOException {
+        var event = eventMapper.toTokenEventDto(new TokenEventDto(characterConfig, " pomysł", sequence.next()));
+        Set<ResponseBodyEmitter.DataWithMediaType> parts = SseEmitter.event()
+                .id(event.id())
+                .name("token")
+                .data(event)
+                .build();
+        frame.reset();
+        for (ResponseBodyEmitter.DataWithMediaType part : parts) {
+            if (part.getData() instanceof String text) {
+                frame.write(text.getBytes(StandardCharsets.UTF_8));
+            } else {
+                objectMapper.writeValue(frame, part.getData());
+            }
+        }
+        return frame.size();
+    }
+}
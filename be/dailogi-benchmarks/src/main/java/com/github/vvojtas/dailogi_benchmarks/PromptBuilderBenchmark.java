@@ -0,0 +1,85 @@
+package com.github.vvojtas.dailogi_benchmarks;
+
+import com.github.vvojtas.dailogi_server.generation.api.ChatMessage;
+import com.github.vvojtas.dailogi_server.generation.application.OpenRouterPromptBuilder;
+import com.github.vvojtas.dailogi_server.generation.application.PromptContext;
+import com.github.vvojtas.dailogi_server.generation.application.PromptTemplate;
+import com.github.vvojtas.dailogi_server.generation.application.PromptTemplateRegistry;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueCharacterConfigDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueDTO;
+import com.github.vvojtas.dailogi_server.properties.PromptTemplateProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prompt construction for one turn: the full rebuild of {@link OpenRouterPromptBuilder#buildDialogueMessages}
+ * against the incremental {@link PromptContext}, and the template rendering both depend on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class PromptBuilderBenchmark {
+
+    @Param({"0", "10", "50", "200"})
+    public int historyLength;
+
+    private OpenRouterPromptBuilder promptBuilder;
+    private PromptTemplate template;
+    private Map<String, String> templateValues;
+    private DialogueDTO dialogue;
+    private DialogueCharacterConfigDTO activeCharacter;
+    private PromptContext context;
+
+    @Setup
+    public void setUp() {
+        PromptTemplateRegistry registry = new PromptTemplateRegistry(new PromptTemplateProperties());
+        registry.init();
+        promptBuilder = new OpenRouterPromptBuilder(registry);
+        template = registry.getDefault();
+
+        dialogue = BenchmarkFixtures.dialogue(historyLength);
+        activeCharacter = dialogue.characterConfigs().get(historyLength % dialogue.characterConfigs().size());
+        context = promptBuilder.createContext(dialogue);
+
+        templateValues = new HashMap<>();
+        templateValues.put("character_name", activeCharacter.character().name());
+        templateValues.put("character_description", activeCharacter.character().description());
+        templateValues.put("other_characters", "Kartograf : Krótki opis postaci Kartograf, Kucharz : Krótki opis postaci Kucharz");
+        templateValues.put("scene_description", dialogue.sceneDescription());
+    }
+
+    @Benchmark
+    public List<ChatMessage> buildDialogueMessages() {
+        return promptBuilder.buildDialogueMessages(dialogue, activeCharacter);
+    }
+
+    /**
+     * What a turn costs with the incremental context: the messages are already in place
+     */
+    @Benchmark
+    public List<ChatMessage> promptContextMessagesFor() {
+        return context.messagesFor(activeCharacter.character().id());
+    }
+
+    @Benchmark
+    public String renderTemplate() {
+        return template.render(templateValues);
+    }
+}
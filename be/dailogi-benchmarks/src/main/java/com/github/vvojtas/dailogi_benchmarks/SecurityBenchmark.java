@@ -0,0 +1,80 @@
+package com.github.vvojtas.dailogi_benchmarks;
+
+import com.github.vvojtas.dailogi_server.service.util.EncryptionResult;
+import com.github.vvojtas.dailogi_server.properties.JwtProperties;
+import com.github.vvojtas.dailogi_server.properties.OpenRouterEncryptionProperties;
+import com.github.vvojtas.dailogi_server.service.auth.JwtTokenProvider;
+import com.github.vvojtas.dailogi_server.service.util.CryptoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Work done on every authenticated request ({@link JwtTokenProvider#validateToken}) and whenever a
+ * user's OpenRouter API key is stored or used ({@link CryptoService}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class SecurityBenchmark {
+
+    private static final String API_KEY = "sk-or-v1-0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private CryptoService cryptoService;
+    private JwtTokenProvider jwtTokenProvider;
+    private EncryptionResult encryptedApiKey;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        OpenRouterEncryptionProperties encryptionProperties = new OpenRouterEncryptionProperties();
+        encryptionProperties.setKey(randomBase64Key(32));
+        cryptoService = new CryptoService(encryptionProperties);
+        encryptedApiKey = cryptoService.encrypt(API_KEY);
+
+        JwtProperties jwtProperties = new JwtProperties();
+        jwtProperties.setSecret(randomBase64Key(64));
+        jwtProperties.setExpirationMs(TimeUnit.HOURS.toMillis(1));
+        jwtTokenProvider = new JwtTokenProvider(jwtProperties);
+        token = jwtTokenProvider.generateToken(new UsernamePasswordAuthenticationToken(
+                new User("benchmark", "password", List.of()), null, List.of()));
+    }
+
+    private static String randomBase64Key(int bytes) {
+        byte[] key = new byte[bytes];
+        new SecureRandom().nextBytes(key);
+        return Base64.getEncoder().encodeToString(key);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtTokenProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public EncryptionResult encryptApiKey() {
+        return cryptoService.encrypt(API_KEY);
+    }
+
+    @Benchmark
+    public String decryptApiKey() {
+        return cryptoService.decrypt(encryptedApiKey.getCipherText(), encryptedApiKey.getNonce());
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.vvojtas.dailogi_benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.vvojtas.dailogi_server.generation.application.OpenRouterStreamDecoder;
+import com.github.vvojtas.dailogi_server.generation.application.model.StreamChunk;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of an upstream chat completion stream, per chunk: the byte-level
+ * {@link OpenRouterStreamDecoder} against the string-based parsing it replaced (lines decoded to
+ * strings, the {@code data:} prefix cut off with {@code substring} and each payload read into a
+ * {@link JsonNode} tree).
+ * <p>
+ * The body is cut into network buffers of {@code bufferBytes}, so small buffers exercise lines
+ * spanning several buffers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class StreamDecoderBenchmark {
+
+    private static final int CHUNKS = 100;
+    private static final String[] TOKENS = {"Nie", " sądzę", ",", " żeby", " to", " był", " dobry", " pomysł", "."};
+
+    @Param({"128", "4096"})
+    public int bufferBytes;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final DefaultDataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+    private final StringDecoder stringDecoder = StringDecoder.allMimeTypes();
+    private OpenRouterStreamDecoder streamDecoder;
+    private List<byte[]> networkBuffers;
+
+    @Setup
+    public void setUp() {
+        streamDecoder = new OpenRouterStreamDecoder(objectMapper);
+        byte[] body = responseBody().getBytes(StandardCharsets.UTF_8);
+        networkBuffers = new ArrayList<>();
+        for (int offset = 0; offset < body.length; offset += bufferBytes) {
+            networkBuffers.add(Arrays.copyOfRange(body, offset, Math.min(body.length, offset + bufferBytes)));
+        }
+    }
+
+    /**
+     * A response as sent by OpenRouter: a processing comment, content chunks, a last chunk with the
+     * finish reason and usage, and the end marker
+     */
+    private static String responseBody() {
+        StringBuilder body = new StringBuilder(": OPENROUTER PROCESSING\n\n");
+        for (int i = 0; i < CHUNKS - 1; i++) {
+            body.append("data: {\"id\":\"gen-1700000000-AbCdEfGhIjKlMnOpQrSt\",\"provider\":\"OpenAI\",")
+                    .append("\"model\":\"openai/gpt-4o-mini\",\"object\":\"chat.completion.chunk\",\"created\":1700000000,")
+                    .append("\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"")
+                    .append(TOKENS[i % TOKENS.length])
+                    .append("\"},\"finish_reason\":null,\"native_finish_reason\":null,\"logprobs\":null}]}\n\n");
+        }
+        body.append("data: {\"id\":\"gen-1700000000-AbCdEfGhIjKlMnOpQrSt\",\"provider\":\"OpenAI\",")
+                .append("\"model\":\"openai/gpt-4o-mini\",\"object\":\"chat.completion.chunk\",\"created\":1700000000,")
+                .append("\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"\"},")
+                .append("\"finish_reason\":\"stop\",\"native_finish_reason\":\"stop\",\"logprobs\":null}],")
+                .append("\"usage\":{\"prompt_tokens\":812,\"completion_tokens\":99,\"total_tokens\":911}}\n\n")
+                .append("data: [DONE]\n\n");
+        return body.toString();
+    }
+
+    private Flux<DataBuffer> body() {
+        return Flux.fromIterable(networkBuffers).map(bufferFactory::wrap);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNKS)
+    public List<StreamChunk> streamDecoder() {
+        return streamDecoder.decode(body()).collectList().block();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHUNKS)
+    public List<String> substringAndReadTree() {
+        return stringDecoder.decode(body(), ResolvableType.forClass(String.class), MimeTypeUtils.TEXT_PLAIN, Map.of())
+                .map(event -> event.startsWith("data:") ? event.substring(5).trim() : event.trim())
+                .filter(json -> !json.isEmpty() && !json.equals("[DONE]") && !json.startsWith(":"))
+                .flatMap(this::readContent)
+                .collectList()
+                .block();
+    }
+
+    private Mono<String> readContent(String json) {
+        try {
+            JsonNode choices = objectMapper.readTree(json).path("choices");
+            if (!choices.isArray() || choices.isEmpty()) {
+                return Mono.empty();
+            }
+            JsonNode content = choices.get(0).path("delta").path("content");
+            return content.isTextual() ? Mono.just(content.asText()) : Mono.empty();
+        } catch (Exception e) {
+            return Mono.empty();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.github.vvojtas.dailogi_loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Client of the dailogi-server endpoints used by the load test.
+ */
+class DialogueApiClient implements AutoCloseable {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE =
+            new ParameterizedTypeReference<>() {};
+    // Any non-empty key is accepted; the mock and replay clients never send it upstream
+    private static final String LOAD_TEST_API_KEY = "sk-or-v1-loadtest";
+
+    private final ConnectionProvider connectionProvider;
+    private final WebClient webClient;
+
+    DialogueApiClient(String baseUrl, int connections) {
+        // One connection per open stream, plus room for logins and other calls
+        this.connectionProvider = ConnectionProvider.builder("dailogi-loadtest")
+                .maxConnections(connections + 64)
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(Duration.ofMinutes(1))
+                .build();
+        this.webClient = WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+    }
+
+    /**
+     * Registers the user unless it exists, logs it in and gives it an API key
+     *
+     * @return Access token of the user
+     */
+    Mono<String> prepareUser(String name, String password) {
+        Map<String, String> register = Map.of("name", name, "password", password, "passwordConfirmation", password);
+        Map<String, String> login = Map.of("name", name, "password", password);
+        return webClient.post().uri("/api/auth/register")
+                .bodyValue(register)
+                .retrieve()
+                .toBodilessEntity()
+                .onErrorResume(WebClientResponseException.class, e -> e.getStatusCode() == HttpStatus.CONFLICT
+                        ? Mono.empty()
+                        : Mono.error(e))
+                .then(webClient.post().uri("/api/auth/login")
+                        .bodyValue(login)
+                        .retrieve()
+                        .bodyToMono(JsonNode.class)
+                        .map(response -> response.get("access_token").asText()))
+                .flatMap(token -> webClient.put().uri("/api/users/current/api-key")
+                        .headers(headers -> headers.setBearerAuth(token))
+                        .bodyValue(Map.of("api_key", LOAD_TEST_API_KEY))
+                        .retrieve()
+                        .toBodilessEntity()
+                        .thenReturn(token));
+    }
+
+    /**
+     * @return IDs of the first characters the user can see
+     */
+    Mono<List<Long>> listCharacterIds(String token, int count) {
+        return webClient.get().uri(uri -> uri.path("/api/characters")
+                        .queryParam("includeGlobal", true)
+                        .queryParam("size", count)
+                        .build())
+                .headers(headers -> headers.setBearerAuth(token))
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .map(page -> {
+                    List<Long> ids = new ArrayList<>();
+                    page.get("content").forEach(character -> ids.add(character.get("id").asLong()));
+                    return ids;
+                });
+    }
+
+    /**
+     * @return ID of the first language model
+     */
+    Mono<Long> firstLlmId() {
+        return webClient.get().uri("/api/llms")
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .flatMap(llms -> llms.isEmpty() ? Mono.empty() : Mono.just(llms.get(0).get("id").asLong()));
+    }
+
+    /**
+     * Starts a dialogue stream; nothing is sent until the flux is subscribed
+     */
+    Flux<ServerSentEvent<String>> streamDialogue(String token, List<Long> characterIds, long llmId,
+                                                 int length, boolean tokenCoalescing) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("scene_description", "Load test dialogue");
+        body.put("character_configs", characterIds.stream()
+                .map(id -> Map.of("character_id", id, "llm_id", llmId))
+                .toList());
+        body.put("length", length);
+        body.put("token_coalescing", Map.of("enabled", tokenCoalescing));
+        return webClient.post().uri("/api/dialogues/stream")
+                .headers(headers -> headers.setBearerAuth(token))
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToFlux(SSE_TYPE);
+    }
+
+    @Override
+    public void close() {
+        connectionProvider.dispose();
+    }
+}
@@ -0,0 +1,168 @@
+package com.github.vvojtas.dailogi_loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes measured across all streams of a run.
+ * <p>
+ * Latencies are recorded in microseconds into HDR recorders, which take concurrent writers without
+ * locking. Nothing is recorded until {@link #startMeasuring()}, so the warmup does not skew results.
+ */
+public class LoadMetrics {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder timeToFirstEvent = newRecorder();
+    private final Recorder timeToFirstToken = newRecorder();
+    private final Recorder interTokenGap = newRecorder();
+    private final Recorder turnLatency = newRecorder();
+    private final Recorder dialogueDuration = newRecorder();
+
+    private final LongAdder streamsStarted = new LongAdder();
+    private final LongAdder streamsCompleted = new LongAdder();
+    private final LongAdder tokenEvents = new LongAdder();
+    private final LongAdder turns = new LongAdder();
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+    private volatile boolean measuring;
+    private volatile long measuringStartNanos;
+    private volatile long measuringStopNanos;
+
+    private static Recorder newRecorder() {
+        return new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * Discards anything recorded so far and starts recording
+     */
+    public void startMeasuring() {
+        for (Recorder recorder : new Recorder[] {timeToFirstEvent, timeToFirstToken, interTokenGap, turnLatency, dialogueDuration}) {
+            recorder.reset();
+        }
+        measuringStartNanos = System.nanoTime();
+        measuring = true;
+    }
+
+    /**
+     * Stops recording; the snapshot taken afterwards covers exactly the measured window
+     */
+    public void stopMeasuring() {
+        measuring = false;
+        measuringStopNanos = System.nanoTime();
+    }
+
+    /**
+     * @return Length of the measured window, up to now if measuring has not stopped
+     */
+    public Duration measured() {
+        if (measuringStartNanos == 0) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos((measuring ? System.nanoTime() : measuringStopNanos) - measuringStartNanos);
+    }
+
+    void streamStarted() {
+        if (measuring) {
+            streamsStarted.increment();
+        }
+    }
+
+    void streamCompleted(long durationNanos) {
+        if (measuring) {
+            streamsCompleted.increment();
+            record(dialogueDuration, durationNanos);
+        }
+    }
+
+    void streamFailed(String category) {
+        if (measuring) {
+            failures.computeIfAbsent(category, key -> new LongAdder()).increment();
+        }
+    }
+
+    void firstEvent(long latencyNanos) {
+        if (measuring) {
+            record(timeToFirstEvent, latencyNanos);
+        }
+    }
+
+    void firstToken(long latencyNanos) {
+        if (measuring) {
+            record(timeToFirstToken, latencyNanos);
+        }
+    }
+
+    void tokenEvent(long gapNanos) {
+        if (measuring) {
+            tokenEvents.increment();
+            if (gapNanos >= 0) {
+                record(interTokenGap, gapNanos);
+            }
+        }
+    }
+
+    void turnCompleted(long latencyNanos) {
+        if (measuring) {
+            turns.increment();
+            record(turnLatency, latencyNanos);
+        }
+    }
+
+    private static void record(Recorder recorder, long nanos) {
+        recorder.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(nanos)));
+    }
+
+    /**
+     * Takes what was recorded since measuring started. The latencies are handed over rather than
+     * copied, so this is meant to be called once, at the end of the run.
+     */
+    public Snapshot snapshot() {
+        Map<String, Long> failuresByCategory = new TreeMap<>();
+        failures.forEach((category, count) -> failuresByCategory.put(category, count.sum()));
+        return new Snapshot(
+                timeToFirstEvent.getIntervalHistogram(),
+                timeToFirstToken.getIntervalHistogram(),
+                interTokenGap.getIntervalHistogram(),
+                turnLatency.getIntervalHistogram(),
+                dialogueDuration.getIntervalHistogram(),
+                streamsStarted.sum(),
+                streamsCompleted.sum(),
+                tokenEvents.sum(),
+                turns.sum(),
+                failuresByCategory);
+    }
+
+    public record Snapshot(
+            Histogram timeToFirstEvent,
+            Histogram timeToFirstToken,
+            Histogram interTokenGap,
+            Histogram turnLatency,
+            Histogram dialogueDuration,
+            long streamsStarted,
+            long streamsCompleted,
+            long tokenEvents,
+            long turns,
+            Map<String, Long> failures
+    ) {
+
+        public long streamsFailed() {
+            return failures.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        /**
+         * @return Failed streams out of the streams that finished, 0 if none did
+         */
+        public double errorRate() {
+            long finished = streamsCompleted + streamsFailed();
+            return finished == 0 ? 0 : (double) streamsFailed() / finished;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.github.vvojtas.dailogi_loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * End-to-end load test of dialogue streaming.
+ * <p>
+ * Logs in a set of users and keeps a fixed number of {@code /api/dialogues/stream} SSE connections
+ * open: every connection starts a new dialogue as soon as its previous one ends (a closed loop).
+ * After the warmup, the time to first event, the time to first token, the gaps between token
+ * events, the latency of each turn and of whole dialogues are recorded in HDR histograms, along with
+ * the outcome of every stream. The results are written as a JSON {@link LoadTestReport}.
+ * <p>
+ * Meant to run against a server started with the {@code loadtest} profile, which replaces
+ * OpenRouter with the mock generator:
+ * <pre>
+ * (dailogi-server)   mvn spring-boot:run -Dspring-boot.run.profiles=local,loadtest
+ * (dailogi-loadtest) mvn compile exec:java -Dexec.args="connections=200 warmup=15s duration=2m"
+ * </pre>
+ */
+@Slf4j
+public class LoadTest {
+
+    private static final int PREPARE_CONCURRENCY = 16;
+    private static final Duration FAILURE_PAUSE = Duration.ofMillis(100);
+
+    private final LoadTestSettings settings;
+    private final LoadMetrics metrics = new LoadMetrics();
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+            .build();
+
+    public LoadTest(LoadTestSettings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws IOException {
+        LoadTestSettings settings;
+        try {
+            settings = LoadTestSettings.parse(args);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid arguments: {}", e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        LoadTest loadTest = new LoadTest(settings);
+        LoadTestReport report = loadTest.run();
+        loadTest.write(report);
+        System.exit(report.streams().completed() > 0 ? 0 : 1);
+    }
+
+    /**
+     * Runs the warmup and the measured window, then stops all streams
+     */
+    public LoadTestReport run() {
+        Instant startedAt = Instant.now();
+        try (DialogueApiClient client = new DialogueApiClient(settings.baseUrl(), settings.connections())) {
+            log.info("Preparing {} users on {}", settings.users(), settings.baseUrl());
+            List<String> tokens = Flux.range(0, settings.users())
+                    .flatMapSequential(i -> client.prepareUser(settings.userPrefix() + "-" + i, settings.password()),
+                            PREPARE_CONCURRENCY)
+                    .collectList()
+                    .block();
+            List<Long> characterIds = settings.characterIds().isEmpty()
+                    ? client.listCharacterIds(tokens.get(0), 2).block()
+                    : settings.characterIds();
+            Long llmId = settings.llmId() != null ? settings.llmId() : client.firstLlmId().block();
+            if (characterIds == null || characterIds.size() < 2 || llmId == null) {
+                throw new IllegalStateException("The server needs at least two characters and one language model");
+            }
+
+            log.info("Opening {} connections with characters {} and LLM {}: warmup {}, measuring {}",
+                    settings.connections(), characterIds, llmId, settings.warmup(), settings.duration());
+            Duration total = settings.warmup().plus(settings.duration());
+            Mono.delay(settings.warmup()).subscribe(tick -> {
+                metrics.startMeasuring();
+                log.info("Warmup finished, measuring");
+            });
+            // Streams still open at the end are cancelled; they are not counted as failures
+            Flux.range(0, settings.connections())
+                    .flatMap(slot -> connection(client, tokens.get(slot / settings.streamsPerUser()), characterIds, llmId),
+                            settings.connections())
+                    .takeUntilOther(Mono.delay(total).doOnNext(tick -> metrics.stopMeasuring()))
+                    .blockLast();
+        }
+
+        LoadTestReport report = LoadTestReport.of(startedAt, metrics.measured().toMillis() / 1000.0, settings,
+                metrics.snapshot());
+        logSummary(report);
+        return report;
+    }
+
+    /**
+     * One connection slot: dialogues streamed one after another until the run is over
+     */
+    private Flux<Void> connection(DialogueApiClient client, String token, List<Long> characterIds, long llmId) {
+        return Mono.defer(() -> stream(client, token, characterIds, llmId)).repeat();
+    }
+
+    private Mono<Void> stream(DialogueApiClient client, String token, List<Long> characterIds, long llmId) {
+        StreamProbe probe = new StreamProbe(metrics, System.nanoTime());
+        return client.streamDialogue(token, characterIds, llmId, settings.dialogueLength(), settings.tokenCoalescing())
+                .doOnNext(event -> probe.onEvent(event.event(), isUnrecoverableError(event), System.nanoTime()))
+                .timeout(settings.streamTimeout())
+                .doOnComplete(() -> probe.onComplete(System.nanoTime()))
+                .then()
+                .onErrorResume(e -> {
+                    probe.onError(failureCategory(e));
+                    log.debug("Stream failed: {}", e.getMessage());
+                    // Keeps a connection to a failing server from spinning
+                    return Mono.delay(FAILURE_PAUSE).then();
+                });
+    }
+
+    private boolean isUnrecoverableError(ServerSentEvent<String> event) {
+        if (!StreamProbe.ERROR.equals(event.event()) || event.data() == null) {
+            return false;
+        }
+        try {
+            JsonNode recoverable = objectMapper.readTree(event.data()).get("recoverable");
+            return recoverable == null || !recoverable.asBoolean();
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    static String failureCategory(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            return "http-" + response.getStatusCode().value();
+        }
+        if (error instanceof TimeoutException) {
+            return "timeout";
+        }
+        return "transport";
+    }
+
+    private void write(LoadTestReport report) throws IOException {
+        if (settings.report().getParent() != null) {
+            Files.createDirectories(settings.report().getParent());
+        }
+        objectMapper.writeValue(settings.report().toFile(), report);
+        log.info("Report written to {}", settings.report().toAbsolutePath());
+    }
+
+    private static void logSummary(LoadTestReport report) {
+        LoadTestReport.Streams streams = report.streams();
+        log.info("Streams: {} started, {} completed, {} failed ({}% errors) {}, {} dialogues/s, {} token events/s",
+                streams.started(), streams.completed(), streams.failed(),
+                String.format("%.2f", streams.errorRate() * 100), streams.failures(),
+                String.format("%.2f", streams.dialoguesPerSecond()), String.format("%.1f", streams.tokenEventsPerSecond()));
+        report.latencies().forEach((name, latency) ->
+                log.info("{}: n={} p50={}ms p90={}ms p99={}ms p99.9={}ms max={}ms",
+                        name, latency.count(), latency.p50Ms(), latency.p90Ms(), latency.p99Ms(),
+                        latency.p999Ms(), latency.maxMs()));
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.vvojtas.dailogi_loadtest;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.HdrHistogram.Histogram;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Machine-readable result of a load test run, written as JSON.
+ * <p>
+ * Latencies are summarized in milliseconds. Each summary also carries the full histogram, compressed
+ * and base64 encoded, so runs can be compared or merged later with HdrHistogram tooling
+ * ({@code Histogram.decodeFromCompressedByteBuffer}).
+ */
+public record LoadTestReport(
+        @JsonProperty("started_at") Instant startedAt,
+        @JsonProperty("measured_seconds") double measuredSeconds,
+        @JsonProperty("settings") LoadTestSettings settings,
+        @JsonProperty("streams") Streams streams,
+        @JsonProperty("latencies") Map<String, LatencySummary> latencies
+) {
+
+    public record Streams(
+            @JsonProperty("started") long started,
+            @JsonProperty("completed") long completed,
+            @JsonProperty("failed") long failed,
+            @JsonProperty("error_rate") double errorRate,
+            @JsonProperty("failures") Map<String, Long> failures,
+            @JsonProperty("dialogues_per_second") double dialoguesPerSecond,
+            @JsonProperty("turns") long turns,
+            @JsonProperty("token_events") long tokenEvents,
+            @JsonProperty("token_events_per_second") double tokenEventsPerSecond
+    ) {}
+
+    public record LatencySummary(
+            @JsonProperty("count") long count,
+            @JsonProperty("min_ms") double minMs,
+            @JsonProperty("mean_ms") double meanMs,
+            @JsonProperty("p50_ms") double p50Ms,
+            @JsonProperty("p90_ms") double p90Ms,
+            @JsonProperty("p99_ms") double p99Ms,
+            @JsonProperty("p999_ms") double p999Ms,
+            @JsonProperty("max_ms") double maxMs,
+            @JsonProperty("histogram") String histogram
+    ) {
+
+        static LatencySummary of(Histogram micros) {
+            ByteBuffer buffer = ByteBuffer.allocate(micros.getNeededByteBufferCapacity());
+            int length = micros.encodeIntoCompressedByteBuffer(buffer);
+            return new LatencySummary(
+                    micros.getTotalCount(),
+                    millis(micros.getTotalCount() == 0 ? 0 : micros.getMinValue()),
+                    millis(micros.getMean()),
+                    millis(micros.getValueAtPercentile(50)),
+                    millis(micros.getValueAtPercentile(90)),
+                    millis(micros.getValueAtPercentile(99)),
+                    millis(micros.getValueAtPercentile(99.9)),
+                    millis(micros.getMaxValue()),
+                    Base64.getEncoder().encodeToString(Arrays.copyOf(buffer.array(), length)));
+        }
+
+        private static double millis(double micros) {
+            return Math.round(micros) / 1000.0;
+        }
+    }
+
+    static LoadTestReport of(Instant startedAt, double measuredSeconds, LoadTestSettings settings,
+                             LoadMetrics.Snapshot snapshot) {
+        double seconds = Math.max(measuredSeconds, 0.001);
+        Streams streams = new Streams(
+                snapshot.streamsStarted(),
+                snapshot.streamsCompleted(),
+                snapshot.streamsFailed(),
+                snapshot.errorRate(),
+                snapshot.failures(),
+                snapshot.streamsCompleted() / seconds,
+                snapshot.turns(),
+                snapshot.tokenEvents(),
+                snapshot.tokenEvents() / seconds);
+        Map<String, LatencySummary> latencies = new LinkedHashMap<>();
+        latencies.put("time_to_first_event", LatencySummary.of(snapshot.timeToFirstEvent()));
+        latencies.put("time_to_first_token", LatencySummary.of(snapshot.timeToFirstToken()));
+        latencies.put("inter_token_gap", LatencySummary.of(snapshot.interTokenGap()));
+        latencies.put("turn", LatencySummary.of(snapshot.turnLatency()));
+        latencies.put("dialogue", LatencySummary.of(snapshot.dialogueDuration()));
+        return new LoadTestReport(startedAt, measuredSeconds, settings, streams, latencies);
+    }
+}
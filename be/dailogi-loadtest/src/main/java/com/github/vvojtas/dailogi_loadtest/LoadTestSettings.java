@@ -0,0 +1,122 @@
+package com.github.vvojtas.dailogi_loadtest;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Settings of a load test run, parsed from {@code key=value} arguments.
+ *
+ * @param baseUrl          URL of the server under test
+ * @param connections      SSE connections kept open at the same time
+ * @param streamsPerUser   Connections sharing one user; the server limits concurrent dialogues per user
+ * @param warmup           Time before measuring starts
+ * @param duration         Measured time after the warmup
+ * @param dialogueLength   Turns of each dialogue
+ * @param tokenCoalescing  Whether the server batches token events; off gives one event per token
+ * @param userPrefix       Prefix of the names of the users created for the run
+ * @param password         Password of those users
+ * @param characterIds     Characters of each dialogue, empty for the first two the server lists
+ * @param llmId            Language model of each character, null for the first one the server lists
+ * @param streamTimeout    Longest time a single dialogue stream may take
+ * @param report           File the JSON report is written to
+ */
+public record LoadTestSettings(
+        @JsonProperty("base_url") String baseUrl,
+        @JsonProperty("connections") int connections,
+        @JsonProperty("streams_per_user") int streamsPerUser,
+        @JsonProperty("warmup") Duration warmup,
+        @JsonProperty("duration") Duration duration,
+        @JsonProperty("dialogue_length") int dialogueLength,
+        @JsonProperty("token_coalescing") boolean tokenCoalescing,
+        @JsonProperty("user_prefix") String userPrefix,
+        @JsonProperty(value = "password", access = JsonProperty.Access.WRITE_ONLY) String password,
+        @JsonProperty("character_ids") List<Long> characterIds,
+        @JsonProperty("llm_id") Long llmId,
+        @JsonProperty("stream_timeout") Duration streamTimeout,
+        @JsonIgnore Path report
+) {
+
+    private static final Set<String> KEYS = Set.of(
+            "base-url", "connections", "streams-per-user", "warmup", "duration", "dialogue-length",
+            "token-coalescing", "user-prefix", "password", "characters", "llm", "stream-timeout", "report");
+
+    /**
+     * @return Number of users needed for the connections
+     */
+    public int users() {
+        return (connections + streamsPerUser - 1) / streamsPerUser;
+    }
+
+    /**
+     * Parses {@code key=value} arguments; keys not given keep their defaults.
+     *
+     * @throws IllegalArgumentException if a key is unknown or a value is invalid
+     */
+    public static LoadTestSettings parse(String... args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            String trimmed = arg.startsWith("--") ? arg.substring(2) : arg;
+            int separator = trimmed.indexOf('=');
+            if (separator <= 0 || !KEYS.contains(trimmed.substring(0, separator))) {
+                throw new IllegalArgumentException("Unknown argument '" + arg + "', expected one of " + KEYS);
+            }
+            values.put(trimmed.substring(0, separator), trimmed.substring(separator + 1));
+        }
+
+        LoadTestSettings settings = new LoadTestSettings(
+                values.getOrDefault("base-url", "http://localhost:8080"),
+                Integer.parseInt(values.getOrDefault("connections", "50")),
+                Integer.parseInt(values.getOrDefault("streams-per-user", "2")),
+                parseDuration(values.getOrDefault("warmup", "10s")),
+                parseDuration(values.getOrDefault("duration", "60s")),
+                Integer.parseInt(values.getOrDefault("dialogue-length", "3")),
+                Boolean.parseBoolean(values.getOrDefault("token-coalescing", "true")),
+                values.getOrDefault("user-prefix", "loadtest"),
+                values.getOrDefault("password", "loadtest-password"),
+                values.containsKey("characters")
+                        ? Arrays.stream(values.get("characters").split(",")).map(String::trim).map(Long::valueOf).toList()
+                        : List.of(),
+                values.containsKey("llm") ? Long.valueOf(values.get("llm")) : null,
+                parseDuration(values.getOrDefault("stream-timeout", "5m")),
+                Path.of(values.getOrDefault("report", "target/loadtest-report.json")));
+
+        if (settings.connections < 1 || settings.streamsPerUser < 1) {
+            throw new IllegalArgumentException("connections and streams-per-user must be positive");
+        }
+        if (settings.dialogueLength < 1 || settings.dialogueLength > 50) {
+            throw new IllegalArgumentException("dialogue-length must be between 1 and 50");
+        }
+        if (!settings.characterIds.isEmpty() && (settings.characterIds.size() < 2 || settings.characterIds.size() > 3)) {
+            throw new IllegalArgumentException("characters must list 2-3 character IDs");
+        }
+        return settings;
+    }
+
+    /**
+     * Parses durations like {@code 500ms}, {@code 30s}, {@code 2m} or ISO-8601 ({@code PT30S})
+     */
+    static Duration parseDuration(String value) {
+        String trimmed = value.trim().toLowerCase();
+        if (trimmed.startsWith("pt")) {
+            return Duration.parse(trimmed.toUpperCase());
+        }
+        if (trimmed.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(trimmed.substring(0, trimmed.length() - 2)));
+        }
+        long amount = Long.parseLong(trimmed.substring(0, trimmed.length() - 1));
+        return switch (trimmed.charAt(trimmed.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("Invalid duration '" + value + "'");
+        };
+    }
+}
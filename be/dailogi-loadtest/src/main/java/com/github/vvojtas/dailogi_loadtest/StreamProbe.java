@@ -0,0 +1,97 @@
+package com.github.vvojtas.dailogi_loadtest;
+
+/**
+ * Measures a single dialogue stream from the events it receives.
+ * <p>
+ * Events of one stream arrive one at a time, so the probe keeps plain fields. Times are
+ * {@link System#nanoTime()} readings taken by the caller when the request was sent and when each
+ * event arrived.
+ */
+class StreamProbe {
+
+    static final String CHARACTER_START = "character-start";
+    static final String TOKEN = "token";
+    static final String CHARACTER_COMPLETE = "character-complete";
+    static final String DIALOGUE_COMPLETE = "dialogue-complete";
+    static final String ERROR = "error";
+
+    private final LoadMetrics metrics;
+    private final long startNanos;
+    private boolean firstEventSeen;
+    private boolean firstTokenSeen;
+    private long turnStartNanos = -1;
+    private long lastTokenNanos = -1;
+    private boolean completed;
+    private boolean failed;
+
+    StreamProbe(LoadMetrics metrics, long startNanos) {
+        this.metrics = metrics;
+        this.startNanos = startNanos;
+        metrics.streamStarted();
+    }
+
+    void onEvent(String event, boolean unrecoverableError, long nowNanos) {
+        if (!firstEventSeen) {
+            firstEventSeen = true;
+            metrics.firstEvent(nowNanos - startNanos);
+        }
+        if (event == null) {
+            return;
+        }
+        switch (event) {
+            case CHARACTER_START -> {
+                turnStartNanos = nowNanos;
+                lastTokenNanos = -1;
+            }
+            case TOKEN -> {
+                if (!firstTokenSeen) {
+                    firstTokenSeen = true;
+                    metrics.firstToken(nowNanos - startNanos);
+                }
+                // Only gaps within a turn; the pause between turns is part of the turn latency
+                metrics.tokenEvent(lastTokenNanos < 0 ? -1 : nowNanos - lastTokenNanos);
+                lastTokenNanos = nowNanos;
+            }
+            case CHARACTER_COMPLETE -> {
+                if (turnStartNanos >= 0) {
+                    metrics.turnCompleted(nowNanos - turnStartNanos);
+                    turnStartNanos = -1;
+                }
+            }
+            case DIALOGUE_COMPLETE -> completed = true;
+            case ERROR -> {
+                if (unrecoverableError) {
+                    fail("error-event");
+                }
+            }
+            default -> {
+                // queued and dialogue-start only count towards the time to first event
+            }
+        }
+    }
+
+    /**
+     * Called when the server closed the stream
+     */
+    void onComplete(long nowNanos) {
+        if (completed) {
+            metrics.streamCompleted(nowNanos - startNanos);
+        } else {
+            fail("incomplete");
+        }
+    }
+
+    /**
+     * Called when the request or the connection failed
+     */
+    void onError(String category) {
+        fail(category);
+    }
+
+    private void fail(String category) {
+        if (!failed && !completed) {
+            failed = true;
+            metrics.streamFailed(category);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.github.vvojtas.dailogi_loadtest;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadTestSettingsTest {
+
+    @Test
+    @DisplayName("parse should apply the given arguments over the defaults")
+    void parseShouldApplyArguments() {
+        // Act
+        LoadTestSettings settings = LoadTestSettings.parse(
+                "connections=5", "--streams-per-user=2", "warmup=500ms", "duration=2m", "characters=3, 4", "llm=7");
+
+        // Assert
+        assertEquals(5, settings.connections());
+        assertEquals(3, settings.users());
+        assertEquals(Duration.ofMillis(500), settings.warmup());
+        assertEquals(Duration.ofMinutes(2), settings.duration());
+        assertEquals(List.of(3L, 4L), settings.characterIds());
+        assertEquals(7L, settings.llmId());
+        assertEquals("http://localhost:8080", settings.baseUrl());
+    }
+
+    @Test
+    @DisplayName("parse should reject unknown arguments and invalid values")
+    void parseShouldRejectInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> LoadTestSettings.parse("threads=4"));
+        assertThrows(IllegalArgumentException.class, () -> LoadTestSettings.parse("connections=0"));
+        assertThrows(IllegalArgumentException.class, () -> LoadTestSettings.parse("characters=1"));
+        assertThrows(IllegalArgumentException.class, () -> LoadTestSettings.parse("duration=10x"));
+    }
+}
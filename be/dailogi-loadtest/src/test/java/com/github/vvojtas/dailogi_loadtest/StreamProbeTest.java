@@ -0,0 +1,99 @@
+package com.github.vvojtas.dailogi_loadtest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamProbeTest {
+
+    private static final long MS = 1_000_000;
+
+    private LoadMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new LoadMetrics();
+        metrics.startMeasuring();
+    }
+
+    @Test
+    @DisplayName("A completed stream should record first event, first token, token gaps within turns and turn latencies")
+    void completedStreamShouldRecordLatencies() {
+        // Arrange
+        StreamProbe probe = new StreamProbe(metrics, 0);
+
+        // Act
+        probe.onEvent("dialogue-start", false, 10 * MS);
+        probe.onEvent(StreamProbe.CHARACTER_START, false, 20 * MS);
+        probe.onEvent(StreamProbe.TOKEN, false, 50 * MS);
+        probe.onEvent(StreamProbe.TOKEN, false, 60 * MS);
+        probe.onEvent(StreamProbe.CHARACTER_COMPLETE, false, 70 * MS);
+        probe.onEvent(StreamProbe.CHARACTER_START, false, 100 * MS);
+        probe.onEvent(StreamProbe.TOKEN, false, 130 * MS);
+        probe.onEvent(StreamProbe.CHARACTER_COMPLETE, false, 150 * MS);
+        probe.onEvent(StreamProbe.DIALOGUE_COMPLETE, false, 160 * MS);
+        probe.onComplete(170 * MS);
+        metrics.stopMeasuring();
+        LoadMetrics.Snapshot snapshot = metrics.snapshot();
+
+        // Assert
+        assertEquals(1, snapshot.streamsStarted());
+        assertEquals(1, snapshot.streamsCompleted());
+        assertEquals(0, snapshot.errorRate());
+        assertEquals(10_000, snapshot.timeToFirstEvent().getMaxValue(), 10);
+        assertEquals(50_000, snapshot.timeToFirstToken().getMaxValue(), 50);
+        // Only the gap inside the first turn, not the pause between turns
+        assertEquals(1, snapshot.interTokenGap().getTotalCount());
+        assertEquals(10_000, snapshot.interTokenGap().getMaxValue(), 10);
+        assertEquals(2, snapshot.turns());
+        assertEquals(3, snapshot.tokenEvents());
+        assertEquals(170_000, snapshot.dialogueDuration().getMaxValue(), 170);
+    }
+
+    @Test
+    @DisplayName("A stream should fail once, by the first cause, and a recoverable error event should not fail it")
+    void streamShouldFailOnceByFirstCause() {
+        // Arrange
+        StreamProbe recovered = new StreamProbe(metrics, 0);
+        StreamProbe failed = new StreamProbe(metrics, 0);
+        StreamProbe cut = new StreamProbe(metrics, 0);
+
+        // Act
+        recovered.onEvent(StreamProbe.ERROR, false, MS);
+        recovered.onEvent(StreamProbe.DIALOGUE_COMPLETE, false, 2 * MS);
+        recovered.onComplete(3 * MS);
+        failed.onEvent(StreamProbe.ERROR, true, MS);
+        failed.onComplete(2 * MS);
+        cut.onEvent(StreamProbe.CHARACTER_START, false, MS);
+        cut.onComplete(2 * MS);
+        LoadMetrics.Snapshot snapshot = metrics.snapshot();
+
+        // Assert
+        assertEquals(3, snapshot.streamsStarted());
+        assertEquals(1, snapshot.streamsCompleted());
+        assertEquals(Map.of("error-event", 1L, "incomplete", 1L), snapshot.failures());
+        assertEquals(2.0 / 3, snapshot.errorRate(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Nothing should be recorded before measuring starts")
+    void shouldNotRecordBeforeMeasuring() {
+        // Arrange
+        LoadMetrics warmup = new LoadMetrics();
+        StreamProbe probe = new StreamProbe(warmup, 0);
+
+        // Act
+        probe.onEvent(StreamProbe.TOKEN, false, MS);
+        probe.onError("transport");
+        LoadMetrics.Snapshot snapshot = warmup.snapshot();
+
+        // Assert
+        assertEquals(0, snapshot.streamsStarted());
+        assertEquals(0, snapshot.timeToFirstEvent().getTotalCount());
+        assertTrue(snapshot.failures().isEmpty());
+    }
+}
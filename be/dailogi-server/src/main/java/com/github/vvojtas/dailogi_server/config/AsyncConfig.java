@@ -4,40 +4,113 @@ import java.util.concurrent.Executor;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
 
+import com.github.vvojtas.dailogi_server.properties.DialogueBatchProperties;
+import com.github.vvojtas.dailogi_server.properties.DialogueExecutionProperties;
+
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Configuration for asynchronous task execution.
- * This improves the handling of SSE streaming by providing a dedicated thread pool.
+ * General purpose tasks use a small platform thread pool, while dialogue generation
+ * runs on a dedicated executor that starts a (virtual) thread per dialogue.
  */
 @EnableAsync
 @Configuration
 @Slf4j
+@RequiredArgsConstructor
 public class AsyncConfig implements AsyncConfigurer {
 
+    public static final String DIALOGUE_EXECUTOR = "dialogueExecutor";
+    public static final String SSE_SCHEDULER = "sseScheduler";
+    public static final String DIALOGUE_BATCH_EXECUTOR = "dialogueBatchExecutor";
+
+    private final DialogueExecutionProperties dialogueExecutionProperties;
+    private final DialogueBatchProperties dialogueBatchProperties;
+
     @Bean(name = "taskExecutor")
     public Executor taskExecutor() {
         log.info("Creating async task executor");
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         // Set the core pool size to 5 (for basic tasks)
         executor.setCorePoolSize(5);
-        // Maximum of 10 threads for handling multiple concurrent dialogues
+        // Maximum of 10 threads for general background tasks
         executor.setMaxPoolSize(10);
         // Queue maximum of 25 pending tasks
         executor.setQueueCapacity(25);
         // Thread name prefix - helps with identification in logs/diagnostic tools
-        executor.setThreadNamePrefix("DialogExecutor-");
+        executor.setThreadNamePrefix("AsyncExecutor-");
+        executor.setTaskDecorator(securityContextTaskDecorator());
         // Explicitly call initialize() method to avoid the deprecation warning
         executor.initialize();
         return executor;
     }
 
+    /**
+     * Executor dedicated to dialogue generation.
+     * Every dialogue gets its own thread, so waiting on upstream LLM streams never
+     * occupies a pooled platform thread. The executor itself is unbounded - the number of
+     * dialogues running at once is capped by the DialogueAdmissionScheduler, which queues work above
+     * {@link DialogueExecutionProperties#getMaxConcurrentDialogues()}.
+     */
+    @Bean(name = DIALOGUE_EXECUTOR)
+    public SimpleAsyncTaskExecutor dialogueExecutor() {
+        log.info("Creating dialogue executor (virtualThreads={}, maxConcurrentDialogues={})",
+                dialogueExecutionProperties.isVirtualThreads(),
+                dialogueExecutionProperties.getMaxConcurrentDialogues());
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(dialogueExecutionProperties.getThreadNamePrefix());
+        executor.setVirtualThreads(dialogueExecutionProperties.isVirtualThreads());
+        executor.setTaskDecorator(securityContextTaskDecorator());
+        return executor;
+    }
+
+    /**
+     * Executor running the workers of batch dialogue generation, a lane separate from interactive
+     * dialogues: batch jobs never take slots of the DialogueAdmissionScheduler. The number of workers,
+     * and so of batch dialogues generated at once, is {@link DialogueBatchProperties#getParallelism()}.
+     */
+    @Bean(name = DIALOGUE_BATCH_EXECUTOR)
+    public SimpleAsyncTaskExecutor dialogueBatchExecutor() {
+        log.info("Creating dialogue batch executor (parallelism={})", dialogueBatchProperties.getParallelism());
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(dialogueBatchProperties.getThreadNamePrefix());
+        executor.setVirtualThreads(true);
+        executor.setTaskDecorator(securityContextTaskDecorator());
+        return executor;
+    }
+
+    /**
+     * Scheduler for SSE housekeeping: time-based flushes of coalesced token events,
+     * reconnect grace periods and eviction of replay buffers.
+     * Flushes write to client sockets, so each task runs on its own virtual thread and a slow
+     * client cannot delay work for other dialogues.
+     */
+    @Bean(name = SSE_SCHEDULER)
+    public SimpleAsyncTaskScheduler sseScheduler() {
+        SimpleAsyncTaskScheduler scheduler = new SimpleAsyncTaskScheduler();
+        scheduler.setThreadNamePrefix("SseScheduler-");
+        scheduler.setVirtualThreads(true);
+        return scheduler;
+    }
+
+    /**
+     * Copies the submitting thread's SecurityContext onto the thread running the task
+     * and clears it afterwards.
+     */
+    @Bean
+    public TaskDecorator securityContextTaskDecorator() {
+        return runnable -> DelegatingSecurityContextRunnable.create(runnable, null);
+    }
+
     @Override
     public Executor getAsyncExecutor() {
         return taskExecutor();
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,61 @@
+package com.github.vvojtas.dailogi_server.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.vvojtas.dailogi_server.dialogue.application.DialogueMessageWriter;
+import com.github.vvojtas.dailogi_server.dialogue.batch.application.DialogueBatchService;
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.DialogueAdmissionScheduler;
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.DialogueStreamRegistry;
+import com.github.vvojtas.dailogi_server.generation.api.OpenRouterInterface;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Configuration of application metrics, scraped by Prometheus from {@code /actuator/prometheus}, which requires authentication.
+ * Counters and timers are recorded where the work happens; the gauges below sample the work
+ * in flight whenever metrics are read.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Gauges of dialogue generation: admission queue and running dialogues (each running on its own
+     * thread of the dialogue executor), stream sessions and attached SSE clients, upstream calls,
+     * pending database writes and batch workers.
+     */
+    @Bean
+    public MeterBinder dialogueGauges(DialogueAdmissionScheduler admissionScheduler,
+                                      DialogueStreamRegistry streamRegistry,
+                                      OpenRouterInterface openRouterInterface,
+                                      DialogueMessageWriter messageWriter,
+                                      DialogueBatchService batchService) {
+        return registry -> {
+            Gauge.builder("dailogi.dialogue.executor.queued", admissionScheduler, DialogueAdmissionScheduler::getQueuedCount)
+                    .description("Dialogues waiting for a generation slot")
+                    .register(registry);
+            Gauge.builder("dailogi.dialogue.executor.running", admissionScheduler, DialogueAdmissionScheduler::getRunningCount)
+                    .description("Dialogues generating, each on its own dialogue executor thread")
+                    .register(registry);
+            Gauge.builder("dailogi.dialogue.streams.sessions", streamRegistry, DialogueStreamRegistry::size)
+                    .description("Dialogue stream sessions held for resuming, live and finished")
+                    .register(registry);
+            Gauge.builder("dailogi.dialogue.streams.attached", streamRegistry, DialogueStreamRegistry::getAttachedCount)
+                    .description("SSE clients attached to dialogue streams")
+                    .register(registry);
+            Gauge.builder("dailogi.openrouter.calls.active", openRouterInterface, OpenRouterInterface::getActiveCallCount)
+                    .description("Generations in flight upstream, including those waiting for rate limits")
+                    .register(registry);
+            Gauge.builder("dailogi.dialogue.writes.pending", messageWriter, DialogueMessageWriter::getPendingCount)
+                    .description("Dialogue messages and statuses waiting to be written to the database")
+                    .register(registry);
+            Gauge.builder("dailogi.dialogue.batch.running", batchService, DialogueBatchService::getRunningCount)
+                    .description("Batch dialogues being generated")
+                    .register(registry);
+            Gauge.builder("dailogi.dialogue.batch.queued", batchService, DialogueBatchService::getQueuedCount)
+                    .description("Batch dialogues waiting for a free worker")
+                    .register(registry);
+        };
+    }
+}
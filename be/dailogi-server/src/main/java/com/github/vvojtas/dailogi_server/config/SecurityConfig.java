@@ -38,7 +38,9 @@ public class SecurityConfig {
                 .requestMatchers("/api/auth/**", "/swagger-ui/**", "/v3/api-docs/**", "/favicon.ico").permitAll()
                 .requestMatchers("/api/llms/**").permitAll()
                 .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/characters/**").permitAll()
-                .requestMatchers("/actuator/**").permitAll()
+                .requestMatchers(org.springframework.http.HttpMethod.GET, "/api/showcase/**").permitAll()
+                // Other actuator endpoints, metrics and prometheus included, require authentication
+                .requestMatchers("/actuator/health", "/actuator/health/**", "/actuator/info").permitAll()
                 .anyRequest().authenticated()
             )
             .exceptionHandling(ex -> ex
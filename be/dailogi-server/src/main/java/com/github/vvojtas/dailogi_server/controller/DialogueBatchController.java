@@ -0,0 +1,187 @@
+package com.github.vvojtas.dailogi_server.controller;
+
+import com.github.vvojtas.dailogi_server.dialogue.batch.application.DialogueBatchJob;
+import com.github.vvojtas.dailogi_server.dialogue.batch.application.DialogueBatchService;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.StreamDialogueCommand;
+import com.github.vvojtas.dailogi_server.model.common.response.ErrorResponseDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.mapper.DialogueBatchMapper;
+import com.github.vvojtas.dailogi_server.model.dialogue.request.StartDialogueBatchRequest;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueBatchDTO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Controller for generating batches of dialogues in the background.
+ */
+@RestController
+@RequestMapping("/api/dialogues/batches")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Dialogues", description = "Endpoints for dialogue generation and management")
+public class DialogueBatchController {
+
+    private final DialogueBatchService dialogueBatchService;
+    private final DialogueBatchMapper dialogueBatchMapper;
+
+    @Operation(
+        summary = "Start dialogue batch",
+        description = """
+            Starts generating a batch of dialogues in the background, without streaming. The dialogues
+            are generated a few at a time, separately from interactive dialogues, and stored as usual.
+            Progress is available from the batch status endpoint. Only available to special users.
+            Requires authentication with a valid API key.
+            """
+    )
+    @ApiResponse(
+        responseCode = "202",
+        description = "Batch accepted",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = DialogueBatchDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "400",
+        description = "Invalid request parameters or too many dialogues",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "401",
+        description = "Unauthorized - user not authenticated",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "402",
+        description = "Payment required - no valid API key available",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "403",
+        description = "Forbidden - user is not allowed to generate batches",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @PostMapping
+    @PreAuthorize("isAuthenticated()")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<DialogueBatchDTO> startBatch(@Valid @RequestBody StartDialogueBatchRequest request) {
+        log.debug("Received request to generate a batch of {} dialogues", request.dialogues().size());
+
+        List<StreamDialogueCommand> commands = request.dialogues().stream()
+            .map(dialogue -> new StreamDialogueCommand(
+                dialogue.name(),
+                dialogue.sceneDescription(),
+                dialogue.characterConfigs(),
+                dialogue.length(),
+                null,
+                dialogue.promptTemplate()))
+            .toList();
+        DialogueBatchJob job = dialogueBatchService.submit(commands, Boolean.TRUE.equals(request.isGlobal()));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(dialogueBatchMapper.toDTO(job));
+    }
+
+    @Operation(
+        summary = "Get dialogue batch",
+        description = "Returns the progress and throughput of a batch of the current user."
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Batch found",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = DialogueBatchDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "401",
+        description = "Unauthorized - user not authenticated",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "404",
+        description = "Batch not found or no longer retained",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @GetMapping("/{id}")
+    @PreAuthorize("isAuthenticated()")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<DialogueBatchDTO> getBatch(
+            @Parameter(description = "Batch ID", required = true) @PathVariable UUID id) {
+        return ResponseEntity.ok(dialogueBatchMapper.toDTO(dialogueBatchService.getJob(id)));
+    }
+
+    @Operation(
+        summary = "Cancel dialogue batch",
+        description = """
+            Cancels a batch of the current user. Dialogues not started yet are skipped and the ones
+            being generated are stopped; dialogues already generated are kept.
+            """
+    )
+    @ApiResponse(
+        responseCode = "204",
+        description = "Batch cancelled"
+    )
+    @ApiResponse(
+        responseCode = "401",
+        description = "Unauthorized - user not authenticated",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "404",
+        description = "Batch not found or no longer retained",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @DeleteMapping("/{id}")
+    @PreAuthorize("isAuthenticated()")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Void> cancelBatch(
+            @Parameter(description = "Batch ID", required = true) @PathVariable UUID id) {
+        log.debug("Received request to cancel dialogue batch {}", id);
+        dialogueBatchService.cancelJob(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -13,6 +13,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -23,13 +24,16 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
- * Controller for streaming dialogue generation using Server-Sent Events
+ * Controller for streaming dialogue generation using Server-Sent Events.
+ * Active unless {@code dailogi.dialogue.stream.mode} selects the reactive implementation; the other
+ * stream endpoints are served by {@link DialogueStreamSessionController} in either mode.
  */
 @RestController
 @RequestMapping("/api/dialogues")
 @RequiredArgsConstructor
 @Slf4j
 @Tag(name = "Dialogues", description = "Endpoints for dialogue generation and management")
+@ConditionalOnProperty(prefix = "dailogi.dialogue.stream", name = "mode", havingValue = "emitter", matchIfMissing = true)
 public class DialogueStreamController {
 
     private final DialogueStreamService dialogueStreamService;
@@ -95,7 +99,9 @@ public class DialogueStreamController {
             null,
                 request.sceneDescription(),
                 request.characterConfigs(),
-                request.length()
+                request.length(),
+                request.tokenCoalescing(),
+                request.promptTemplate()
         );
         
         // Start dialogue streaming - this should return quickly as the actual generation is async
@@ -103,4 +109,4 @@ public class DialogueStreamController {
         log.info("Dialogue stream started!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!");
         return emitter;
     }
-} 
\ No newline at end of file
+}
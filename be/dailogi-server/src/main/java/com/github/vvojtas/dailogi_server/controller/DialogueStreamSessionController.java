@@ -0,0 +1,243 @@
+package com.github.vvojtas.dailogi_server.controller;
+
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.ContinueDialogueCommand;
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.DialogueStreamService;
+import com.github.vvojtas.dailogi_server.model.common.response.ErrorResponseDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.request.ContinueDialogueRequest;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Controller for continuing, resuming, spectating and cancelling dialogue streams using Server-Sent Events.
+ * Active whatever {@code dailogi.dialogue.stream.mode} selects for {@code POST /api/dialogues/stream}.
+ */
+@RestController
+@RequestMapping("/api/dialogues")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Dialogues", description = "Endpoints for dialogue generation and management")
+public class DialogueStreamSessionController {
+
+    private final DialogueStreamService dialogueStreamService;
+
+    @Operation(
+        summary = "Continue dialogue",
+        description = """
+            Streams more turns of a finished dialogue using Server-Sent Events (SSE). The characters
+            carry on from the messages already in the dialogue, and the new messages are added to it.
+            The request body is optional. Requires authentication with a valid API key.
+            """
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "SSE stream started successfully",
+        content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)
+    )
+    @ApiResponse(
+        responseCode = "400",
+        description = "Invalid request parameters",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "401",
+        description = "Unauthorized - user not authenticated",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "402",
+        description = "Payment required - no valid API key available",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "403",
+        description = "Forbidden - dialogue belongs to another user",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "404",
+        description = "Dialogue not found",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "409",
+        description = "Conflict - dialogue is still being generated",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @PostMapping(path = "/{id}/continue", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    @SecurityRequirement(name = "bearerAuth")
+    public SseEmitter continueDialogue(
+            @Parameter(description = "Dialogue ID", required = true) @PathVariable Long id,
+            @Valid @RequestBody(required = false) ContinueDialogueRequest request,
+            Authentication authentication) {
+
+        log.debug("Received request to continue dialogue {} with {} turns", id, request != null ? request.turns() : null);
+        ContinueDialogueCommand command = request != null
+                ? new ContinueDialogueCommand(request.turns(), request.tokenCoalescing())
+                : new ContinueDialogueCommand(null, null);
+        return dialogueStreamService.continueDialogue(id, command, authentication);
+    }
+
+    @Operation(
+        summary = "Resume dialogue stream",
+        description = """
+            Reattaches to the Server-Sent Events stream of a dialogue that is still generating or has
+            finished recently, e.g. after a dropped connection. Events after the one given in the
+            Last-Event-ID header that are still buffered are replayed first, then live events follow.
+            Without the header all buffered events are replayed.
+            """
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "SSE stream resumed successfully",
+        content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)
+    )
+    @ApiResponse(
+        responseCode = "401",
+        description = "Unauthorized - user not authenticated",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "404",
+        description = "No resumable stream for this dialogue",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @GetMapping(path = "/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    @SecurityRequirement(name = "bearerAuth")
+    public SseEmitter resumeDialogueStream(
+            @Parameter(description = "Dialogue ID", required = true) @PathVariable Long id,
+            @Parameter(description = "ID of the last event received") @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+
+        log.debug("Received request to resume dialogue {} stream after event {}", id, lastEventId);
+        return dialogueStreamService.resumeDialogue(id, lastEventId);
+    }
+
+    @Operation(
+        summary = "Spectate dialogue stream",
+        description = """
+            Follows the Server-Sent Events stream of a dialogue of the current user or of a global dialogue,
+            alongside the client that started it. A joining spectator first gets a "snapshot" event with
+            the messages completed so far, then the events of the turn in progress, then live events.
+            Reconnecting with the Last-Event-ID header replays the missed events instead while they are
+            still buffered. A spectator that falls too far behind may have token events skipped, with the
+            whole message sent in a "snapshot" event once the turn completes, or be disconnected after a
+            "slow-consumer" event holding the ID to resume from, depending on the server configuration.
+            """
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "SSE stream followed successfully",
+        content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)
+    )
+    @ApiResponse(
+        responseCode = "401",
+        description = "Unauthorized - user not authenticated",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "404",
+        description = "No stream the user may follow for this dialogue",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @GetMapping(path = "/{id}/spectate", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    @SecurityRequirement(name = "bearerAuth")
+    public SseEmitter spectateDialogueStream(
+            @Parameter(description = "Dialogue ID", required = true) @PathVariable Long id,
+            @Parameter(description = "ID of the last event received") @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+
+        log.debug("Received request to spectate dialogue {} stream after event {}", id, lastEventId);
+        return dialogueStreamService.spectateDialogue(id, lastEventId);
+    }
+
+    @Operation(
+        summary = "Cancel dialogue stream",
+        description = """
+            Stops the generation of a queued or running dialogue. The upstream LLM request of the
+            turn in progress is aborted, no further turns are generated and attached streams are completed.
+            Cancelling a dialogue that has already finished has no effect.
+            """
+    )
+    @ApiResponse(
+        responseCode = "204",
+        description = "Dialogue cancelled"
+    )
+    @ApiResponse(
+        responseCode = "401",
+        description = "Unauthorized - user not authenticated",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "404",
+        description = "No stream for this dialogue",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @DeleteMapping("/{id}/stream")
+    @PreAuthorize("isAuthenticated()")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Void> cancelDialogueStream(
+            @Parameter(description = "Dialogue ID", required = true) @PathVariable Long id) {
+
+        log.debug("Received request to cancel dialogue {} stream", id);
+        dialogueStreamService.cancelDialogue(id);
+        return ResponseEntity.noContent().build();
+    }
+}
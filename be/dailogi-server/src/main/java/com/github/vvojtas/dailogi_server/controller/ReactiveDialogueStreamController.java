@@ -0,0 +1,100 @@
+package com.github.vvojtas.dailogi_server.controller;
+
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.StreamDialogueCommand;
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.ReactiveDialogueStreamService;
+import com.github.vvojtas.dailogi_server.model.common.response.ErrorResponseDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.request.StartDialogueStreamRequest;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+/**
+ * Reactive controller for streaming dialogue generation using Server-Sent Events.
+ * Replaces {@link DialogueStreamController} when {@code dailogi.dialogue.stream.mode=reactive}.
+ */
+@RestController
+@RequestMapping("/api/dialogues")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Dialogues", description = "Endpoints for dialogue generation and management")
+@ConditionalOnProperty(prefix = "dailogi.dialogue.stream", name = "mode", havingValue = "reactive")
+public class ReactiveDialogueStreamController {
+
+    private final ReactiveDialogueStreamService reactiveDialogueStreamService;
+
+    @Operation(
+        summary = "Stream dialogue generation",
+        description = """
+            Starts real-time dialogue generation between characters using Server-Sent Events (SSE).
+            Events are produced as the client consumes them and the upstream generation is
+            cancelled as soon as the client disconnects.
+            Requires authentication with a valid API key.
+            """
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "SSE stream started successfully",
+        content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)
+    )
+    @ApiResponse(
+        responseCode = "400",
+        description = "Invalid request parameters",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "401",
+        description = "Unauthorized - user not authenticated",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "402",
+        description = "Payment required - no valid API key available",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @PostMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    @SecurityRequirement(name = "bearerAuth")
+    public Flux<ServerSentEvent<Object>> streamDialogue(
+            @Valid @RequestBody StartDialogueStreamRequest request,
+            Authentication authentication) {
+
+        log.debug("Received request to reactively stream dialogue with {} characters, length={}",
+                request.characterConfigs().size(), request.length());
+
+        StreamDialogueCommand command = new StreamDialogueCommand(
+                null,
+                request.sceneDescription(),
+                request.characterConfigs(),
+                request.length(),
+                request.tokenCoalescing(),
+                request.promptTemplate()
+        );
+
+        return reactiveDialogueStreamService.streamDialogue(command, authentication);
+    }
+}
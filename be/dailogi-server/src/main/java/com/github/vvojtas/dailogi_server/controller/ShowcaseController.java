@@ -0,0 +1,139 @@
+package com.github.vvojtas.dailogi_server.controller;
+
+import com.github.vvojtas.dailogi_server.dialogue.showcase.application.DialogueShowcase;
+import com.github.vvojtas.dailogi_server.dialogue.showcase.application.ShowcaseResource;
+import com.github.vvojtas.dailogi_server.exception.ResourceNotFoundException;
+import com.github.vvojtas.dailogi_server.model.common.response.ErrorResponseDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueShowcaseDTO;
+import com.github.vvojtas.dailogi_server.properties.DialogueShowcaseProperties;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Locale;
+
+/**
+ * Controller serving the homepage showcase of global dialogues. The responses are prepared in
+ * memory ahead of time; this controller only picks the encoding and answers conditional requests.
+ */
+@RestController
+@RequestMapping("/api/showcase")
+@RequiredArgsConstructor
+@Tag(name = "Showcase", description = "Example dialogues for the homepage")
+public class ShowcaseController {
+
+    private final DialogueShowcase dialogueShowcase;
+    private final DialogueShowcaseProperties properties;
+
+    @Operation(
+        summary = "Get showcase",
+        description = """
+            Returns the most recently completed global dialogues with their messages. No authentication
+            is required. Responses carry a strong ETag and are gzip compressed when the client accepts it.
+            """
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Showcase retrieved successfully",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = DialogueShowcaseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "304",
+        description = "Not modified - the client's copy is current"
+    )
+    @GetMapping
+    public ResponseEntity<byte[]> getShowcase(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return serve(dialogueShowcase.getGallery(), ifNoneMatch, acceptEncoding);
+    }
+
+    @Operation(
+        summary = "Get showcased dialogue",
+        description = "Returns a single showcased dialogue with its messages. No authentication is required."
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Dialogue retrieved successfully",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = DialogueDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "304",
+        description = "Not modified - the client's copy is current"
+    )
+    @ApiResponse(
+        responseCode = "404",
+        description = "Dialogue is not showcased",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @GetMapping("/{id}")
+    public ResponseEntity<byte[]> getShowcasedDialogue(
+            @Parameter(description = "Dialogue ID", required = true) @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ShowcaseResource resource = dialogueShowcase.findDialogue(id)
+            .orElseThrow(() -> new ResourceNotFoundException("showcase_dialogue", "Dialogue " + id + " is not showcased"));
+        return serve(resource, ifNoneMatch, acceptEncoding);
+    }
+
+    private ResponseEntity<byte[]> serve(ShowcaseResource resource, String ifNoneMatch, String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        CacheControl cacheControl = CacheControl.maxAge(properties.getMaxAge()).cachePublic();
+        String etag = gzip ? resource.gzipEtag() : resource.etag();
+
+        if (resource.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .eTag(etag)
+            .cacheControl(cacheControl)
+            .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(resource.gzip());
+        }
+        return response.body(resource.json());
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equals("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.vvojtas.dailogi_server.controller.admin;
+
+import com.github.vvojtas.dailogi_server.dialogue.timeline.application.DialogueTimelineRecorder;
+import com.github.vvojtas.dailogi_server.model.common.response.ErrorResponseDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.mapper.DialogueTimelineMapper;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueTimelineDTO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Controller for inspecting the execution of dialogues. Only available to special users.
+ */
+@RestController
+@RequestMapping("/api/admin/dialogues")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Diagnostics", description = "Endpoints for profiling the running server")
+public class DialogueTimelineController {
+
+    private final DialogueTimelineRecorder timelineRecorder;
+    private final DialogueTimelineMapper timelineMapper;
+
+    @Operation(
+        summary = "Get dialogue timeline",
+        description = """
+            Returns the execution timeline of a running or recently finished dialogue of any user: when its
+            stream was opened, its prompt built, each character's turn requested from the upstream, its first
+            token received and its turn completed, when its messages and status were stored and how it ended.
+            Timelines are kept in memory of the instance that generated the dialogue, for a limited time.
+            Only available to special users.
+            """
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Timeline found",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = DialogueTimelineDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "401",
+        description = "Unauthorized - user not authenticated",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "403",
+        description = "Forbidden - user is not allowed to inspect dialogues",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "404",
+        description = "No timeline kept for the dialogue",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @GetMapping("/{id}/timeline")
+    @PreAuthorize("hasRole('SPECIAL')")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<DialogueTimelineDTO> getTimeline(
+            @Parameter(description = "Dialogue ID", required = true) @PathVariable long id) {
+        return ResponseEntity.ok(timelineMapper.toDTO(timelineRecorder.getTimeline(id)));
+    }
+}
@@ -0,0 +1,293 @@
+package com.github.vvojtas.dailogi_server.controller.admin;
+
+import com.github.vvojtas.dailogi_server.diagnostics.application.FlightRecordingService;
+import com.github.vvojtas.dailogi_server.model.common.response.ErrorResponseDTO;
+import com.github.vvojtas.dailogi_server.model.diagnostics.mapper.FlightRecordingMapper;
+import com.github.vvojtas.dailogi_server.model.diagnostics.request.StartRecordingRequest;
+import com.github.vvojtas.dailogi_server.model.diagnostics.response.FlightRecordingDTO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import jdk.jfr.Recording;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Controller for profiling the running server with JDK Flight Recorder. Only available to administrators,
+ * and only when recording is enabled.
+ */
+@RestController
+@ConditionalOnProperty(prefix = "dailogi.diagnostics.recording", name = "enabled", havingValue = "true")
+@RequestMapping("/api/admin/recordings")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Diagnostics", description = "Endpoints for profiling the running server")
+public class FlightRecordingController {
+
+    private final FlightRecordingService flightRecordingService;
+    private final FlightRecordingMapper flightRecordingMapper;
+
+    @Operation(
+        summary = "Start recording",
+        description = """
+            Starts a Flight Recorder recording of the server, including dialogue turn, SSE write, prompt
+            build and repository call events. The 'default' settings have an overhead of about 1% and are
+            safe in production; 'profile' records more detail. The recording stops by itself after its
+            duration and is kept until deleted. Only available to administrators.
+            """
+    )
+    @ApiResponse(
+        responseCode = "201",
+        description = "Recording started",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = FlightRecordingDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "400",
+        description = "Invalid request parameters",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "401",
+        description = "Unauthorized - user not authenticated",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "403",
+        description = "Forbidden - user is not allowed to record",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "409",
+        description = "Maximum number of recordings held",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<FlightRecordingDTO> startRecording(@Valid @RequestBody StartRecordingRequest request) {
+        log.debug("Received request to start a recording with settings {}", request.settings());
+
+        String settings = request.settings() != null ? request.settings() : FlightRecordingService.DEFAULT_SETTINGS;
+        Duration duration = request.durationSeconds() != null ? Duration.ofSeconds(request.durationSeconds()) : null;
+        Recording recording = flightRecordingService.start(settings, duration);
+        return ResponseEntity.status(HttpStatus.CREATED).body(flightRecordingMapper.toDTO(recording));
+    }
+
+    @Operation(
+        summary = "List recordings",
+        description = "Returns the recordings held by the server, running or stopped."
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Recordings retrieved",
+        content = @Content(
+            mediaType = "application/json",
+            array = @ArraySchema(schema = @Schema(implementation = FlightRecordingDTO.class))
+        )
+    )
+    @ApiResponse(
+        responseCode = "401",
+        description = "Unauthorized - user not authenticated",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "403",
+        description = "Forbidden - user is not allowed to record",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<List<FlightRecordingDTO>> getRecordings() {
+        return ResponseEntity.ok(flightRecordingService.getRecordings().stream()
+            .map(flightRecordingMapper::toDTO)
+            .toList());
+    }
+
+    @Operation(
+        summary = "Stop recording",
+        description = "Stops a running recording early. Its data is kept for dumping until the recording is deleted."
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Recording stopped",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = FlightRecordingDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "401",
+        description = "Unauthorized - user not authenticated",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "403",
+        description = "Forbidden - user is not allowed to record",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "404",
+        description = "Recording not found",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @PostMapping("/{id}/stop")
+    @PreAuthorize("hasRole('ADMIN')")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<FlightRecordingDTO> stopRecording(
+            @Parameter(description = "Recording ID", required = true) @PathVariable long id) {
+        log.debug("Received request to stop recording {}", id);
+        return ResponseEntity.ok(flightRecordingMapper.toDTO(flightRecordingService.stop(id)));
+    }
+
+    @Operation(
+        summary = "Dump recording",
+        description = """
+            Downloads the data of a recording as a .jfr file, to be opened in JDK Mission Control or with
+            the jfr tool. A running recording keeps running.
+            """
+    )
+    @ApiResponse(
+        responseCode = "200",
+        description = "Recording data",
+        content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    )
+    @ApiResponse(
+        responseCode = "401",
+        description = "Unauthorized - user not authenticated",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "403",
+        description = "Forbidden - user is not allowed to record",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "404",
+        description = "Recording not found",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @GetMapping("/{id}/dump")
+    @PreAuthorize("hasRole('ADMIN')")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<StreamingResponseBody> dumpRecording(
+            @Parameter(description = "Recording ID", required = true) @PathVariable long id) {
+        log.debug("Received request to dump recording {}", id);
+
+        // Resolved before streaming, so an unknown recording is still answered with a 404
+        Recording recording = flightRecordingService.getRecording(id);
+        StreamingResponseBody body = out -> flightRecordingService.dump(id, out);
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(recording.getName() + ".jfr")
+                .build()
+                .toString())
+            .body(body);
+    }
+
+    @Operation(
+        summary = "Delete recording",
+        description = "Stops a recording if running and discards its data."
+    )
+    @ApiResponse(
+        responseCode = "204",
+        description = "Recording deleted"
+    )
+    @ApiResponse(
+        responseCode = "401",
+        description = "Unauthorized - user not authenticated",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "403",
+        description = "Forbidden - user is not allowed to record",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @ApiResponse(
+        responseCode = "404",
+        description = "Recording not found",
+        content = @Content(
+            mediaType = "application/json",
+            schema = @Schema(implementation = ErrorResponseDTO.class)
+        )
+    )
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<Void> deleteRecording(
+            @Parameter(description = "Recording ID", required = true) @PathVariable long id) {
+        log.debug("Received request to delete recording {}", id);
+        flightRecordingService.delete(id);
+        return ResponseEntity.noContent().build();
+    }
+}
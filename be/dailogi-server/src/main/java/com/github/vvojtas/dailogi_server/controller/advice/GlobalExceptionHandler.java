@@ -22,6 +22,10 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import com.github.vvojtas.dailogi_server.exception.CharacterLimitExceededException;
 import com.github.vvojtas.dailogi_server.exception.CharacterInUseException;
 import com.github.vvojtas.dailogi_server.exception.CryptoException;
+import com.github.vvojtas.dailogi_server.exception.DialogueQueueFullException;
+import com.github.vvojtas.dailogi_server.exception.DialogueInProgressException;
+import com.github.vvojtas.dailogi_server.exception.DialogueBatchTooLargeException;
+import com.github.vvojtas.dailogi_server.exception.RecordingLimitExceededException;
 
 import java.time.OffsetDateTime;
 import java.util.HashMap;
@@ -223,6 +227,66 @@ public class GlobalExceptionHandler {
             ));
     }
 
+    @ExceptionHandler(DialogueQueueFullException.class)
+    public ResponseEntity<ErrorResponseDTO> handleDialogueQueueFullException(DialogueQueueFullException e) {
+        log.warn("Dialogue queue full. Limit: {}. Message: {}", e.getLimit(), e.getMessage(), e);
+        
+        return ResponseEntity
+            .status(HttpStatus.TOO_MANY_REQUESTS)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(new ErrorResponseDTO(
+                e.getMessage(),
+                "DIALOGUE_QUEUE_FULL",
+                Map.of("limit", e.getLimit()),
+                OffsetDateTime.now()
+            ));
+    }
+
+    @ExceptionHandler(DialogueBatchTooLargeException.class)
+    public ResponseEntity<ErrorResponseDTO> handleDialogueBatchTooLargeException(DialogueBatchTooLargeException e) {
+        log.warn("Dialogue batch too large. Limit: {}. Message: {}", e.getLimit(), e.getMessage(), e);
+        
+        return ResponseEntity
+            .status(HttpStatus.BAD_REQUEST)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(new ErrorResponseDTO(
+                e.getMessage(),
+                "DIALOGUE_BATCH_TOO_LARGE",
+                Map.of("limit", e.getLimit()),
+                OffsetDateTime.now()
+            ));
+    }
+
+    @ExceptionHandler(RecordingLimitExceededException.class)
+    public ResponseEntity<ErrorResponseDTO> handleRecordingLimitExceededException(RecordingLimitExceededException e) {
+        log.warn("Recording limit exceeded. Limit: {}. Message: {}", e.getLimit(), e.getMessage());
+        
+        return ResponseEntity
+            .status(HttpStatus.CONFLICT)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(new ErrorResponseDTO(
+                e.getMessage(),
+                "RECORDING_LIMIT_EXCEEDED",
+                Map.of("limit", e.getLimit()),
+                OffsetDateTime.now()
+            ));
+    }
+
+    @ExceptionHandler(DialogueInProgressException.class)
+    public ResponseEntity<ErrorResponseDTO> handleDialogueInProgressException(DialogueInProgressException e) {
+        log.warn("Dialogue in progress. Dialogue ID: {}. Message: {}", e.getDialogueId(), e.getMessage(), e);
+        
+        return ResponseEntity
+            .status(HttpStatus.CONFLICT)
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(new ErrorResponseDTO(
+                e.getMessage(),
+                "DIALOGUE_IN_PROGRESS",
+                Map.of("dialogueId", e.getDialogueId()),
+                OffsetDateTime.now()
+            ));
+    }
+
     @ExceptionHandler(NoApiKeyException.class)
     public ResponseEntity<ErrorResponseDTO> handleNoApiKeyException(NoApiKeyException e) {
         log.warn("API key required. Operation: {}. Message: {}", 
@@ -38,6 +38,11 @@ public class AppUser {
     @Builder.Default
     private Boolean isSpecialUser = false;
 
+    // Administrators may use the diagnostics endpoints; unrelated to the special user quota
+    @Column(name = "is_admin", nullable = false)
+    @Builder.Default
+    private Boolean isAdmin = false;
+
     @Column(name = "encrypted_api_key", columnDefinition = "TEXT")
     private String encryptedApiKey;
     
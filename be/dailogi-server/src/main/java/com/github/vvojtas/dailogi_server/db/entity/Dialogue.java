@@ -40,6 +40,12 @@ public class Dialogue {
     @Column(nullable = false)
     private Boolean isGlobal = false;
 
+    /**
+     * Name of the prompt template for the characters' system prompts, null for the default template
+     */
+    @Column(name = "prompt_template", length = 100)
+    private String promptTemplate;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 20)
     private DialogueStatus status;
@@ -38,6 +38,10 @@ public class DialogueMessage {
     @Column(name = "turn_number", nullable = false)
     private Integer turnNumber;
 
+    // 1-based position of the speaker within the turn
+    @Column(name = "speaking_order", nullable = false)
+    private Integer speakingOrder;
+
     @Column(nullable = false, columnDefinition = "TEXT")
     private String content;
 }
@@ -29,4 +29,16 @@ public class LLM {
 
     @Column(name = "openrouter_identifier", nullable = false, length = 100)
     private String openrouterIdentifier;
+
+    /**
+     * Time to the first token after which the fallback model is asked as well, null to never hedge
+     */
+    @Column(name = "ttft_budget_ms")
+    private Integer ttftBudgetMs;
+
+    /**
+     * OpenRouter identifier of the model hedged requests go to, null to never hedge
+     */
+    @Column(name = "fallback_openrouter_identifier", length = 100)
+    private String fallbackOpenrouterIdentifier;
 } 
\ No newline at end of file
@@ -2,9 +2,29 @@ package com.github.vvojtas.dailogi_server.db.repository;
 
 import com.github.vvojtas.dailogi_server.db.entity.DialogueCharacterConfig;
 import com.github.vvojtas.dailogi_server.db.entity.DialogueCharacterConfigId;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface DialogueCharacterConfigRepository extends JpaRepository<DialogueCharacterConfig, DialogueCharacterConfigId> {
-} 
\ No newline at end of file
+
+    /**
+     * Finds the character configurations of a dialogue with their characters and LLMs
+     * @param dialogueId The ID of the dialogue
+     * @return The configurations of the dialogue's characters
+     */
+    @EntityGraph(attributePaths = {"character", "llm"})
+    List<DialogueCharacterConfig> findByIdDialogueId(Long dialogueId);
+
+    /**
+     * Finds the character configurations of several dialogues with their characters and LLMs
+     * @param dialogueIds The IDs of the dialogues
+     * @return The configurations of the dialogues' characters
+     */
+    @EntityGraph(attributePaths = {"character", "llm"})
+    List<DialogueCharacterConfig> findByIdDialogueIdIn(Collection<Long> dialogueIds);
+}
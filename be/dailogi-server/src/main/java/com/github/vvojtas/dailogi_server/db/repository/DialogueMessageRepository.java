@@ -0,0 +1,19 @@
+package com.github.vvojtas.dailogi_server.db.repository;
+
+import com.github.vvojtas.dailogi_server.db.entity.DialogueMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DialogueMessageRepository extends JpaRepository<DialogueMessage, Long> {
+
+    /**
+     * Finds the messages of several dialogues, each dialogue's messages in the order they were said
+     * @param dialogueIds The IDs of the dialogues
+     * @return The messages of the dialogues
+     */
+    List<DialogueMessage> findByDialogueIdInOrderByDialogueIdAscTurnNumberAscSpeakingOrderAscIdAsc(Collection<Long> dialogueIds);
+}
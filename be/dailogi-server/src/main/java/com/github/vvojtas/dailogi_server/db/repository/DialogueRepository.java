@@ -2,9 +2,18 @@ package com.github.vvojtas.dailogi_server.db.repository;
 
 import com.github.vvojtas.dailogi_server.db.entity.Dialogue;
 import com.github.vvojtas.dailogi_server.db.entity.AppUser;
+import com.github.vvojtas.dailogi_server.db.entity.DialogueStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface DialogueRepository extends JpaRepository<Dialogue, Long> {
     
@@ -14,4 +23,56 @@ public interface DialogueRepository extends JpaRepository<Dialogue, Long> {
      * @return The number of dialogues owned by the user
      */
     long countByUser(AppUser user);
-} 
\ No newline at end of file
+
+    /**
+     * Changes the status of a dialogue unless it already has that status
+     * @param id The ID of the dialogue
+     * @param status The new status
+     * @param updatedAt The time of the change
+     * @return 1 if the status was changed, 0 if the dialogue already had it or does not exist
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Dialogue d set d.status = :status, d.updatedAt = :updatedAt where d.id = :id and d.status <> :status")
+    int updateStatusIfDifferent(@Param("id") Long id, @Param("status") DialogueStatus status, @Param("updatedAt") OffsetDateTime updatedAt);
+
+    /**
+     * Updates the time of change of a dialogue unless it changed since it was read
+     * @param id The ID of the dialogue
+     * @param readUpdatedAt The time of change when the dialogue was read
+     * @param updatedAt The new time of change
+     * @return 1 if the dialogue was updated, 0 if it changed in the meantime or does not exist
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Dialogue d set d.updatedAt = :updatedAt where d.id = :id and d.updatedAt = :readUpdatedAt")
+    int touchIfUnchanged(@Param("id") Long id, @Param("readUpdatedAt") OffsetDateTime readUpdatedAt, @Param("updatedAt") OffsetDateTime updatedAt);
+
+    /**
+     * Finds global dialogues with the given status, most recently updated first
+     * @param status The status of the dialogues
+     * @param pageable The number of dialogues to return
+     * @return The dialogues
+     */
+    List<Dialogue> findByIsGlobalTrueAndStatusOrderByUpdatedAtDescIdDesc(DialogueStatus status, Pageable pageable);
+
+    /**
+     * Count global dialogues with the given status
+     * @param status The status of the dialogues
+     * @return The number of dialogues
+     */
+    long countByIsGlobalTrueAndStatus(DialogueStatus status);
+
+    /**
+     * Checks whether a dialogue is global
+     * @param id The ID of the dialogue
+     * @return true if the dialogue exists and is global
+     */
+    boolean existsByIdAndIsGlobalTrue(Long id);
+
+    /**
+     * Finds the time global dialogues with the given status were last updated
+     * @param status The status of the dialogues
+     * @return The latest update time, empty if there are no such dialogues
+     */
+    @Query("select max(d.updatedAt) from Dialogue d where d.isGlobal = true and d.status = :status")
+    Optional<OffsetDateTime> findLastUpdateOfGlobal(@Param("status") DialogueStatus status);
+}
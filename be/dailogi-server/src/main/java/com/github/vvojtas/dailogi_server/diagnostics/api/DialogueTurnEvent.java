@@ -0,0 +1,41 @@
+package com.github.vvojtas.dailogi_server.diagnostics.api;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event spanning one character turn, from asking the upstream until the turn's message is done.
+ */
+@Name("dailogi.DialogueTurn")
+@Label("Dialogue Turn")
+@Category({"Dailogi", "Dialogue"})
+@Description("A character turn of a dialogue, from the upstream request to the finished message")
+public class DialogueTurnEvent extends Event {
+
+    @Label("Dialogue ID")
+    public long dialogueId;
+
+    @Label("Character ID")
+    public long characterId;
+
+    @Label("Turn")
+    public int turn;
+
+    @Label("Model")
+    @Description("Model that produced the message, the fallback model if it won the race")
+    public String model;
+
+    @Label("Time to First Token")
+    @Timespan(Timespan.NANOSECONDS)
+    public long timeToFirstToken;
+
+    @Label("Tokens")
+    public int tokens;
+
+    @Label("Cancelled")
+    public boolean cancelled;
+}
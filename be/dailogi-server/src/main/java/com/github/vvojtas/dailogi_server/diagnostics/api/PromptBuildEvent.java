@@ -0,0 +1,38 @@
+package com.github.vvojtas.dailogi_server.diagnostics.api;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning the building of a prompt: rendering the system prompts of a dialogue,
+ * or assembling the messages a character is prompted with.
+ */
+@Name("dailogi.PromptBuild")
+@Label("Prompt Build")
+@Category({"Dailogi", "Dialogue"})
+@Description("Building the prompt context of a dialogue or the prompt of a character turn")
+@StackTrace(false)
+public class PromptBuildEvent extends Event {
+
+    public static final String CONTEXT = "context";
+    public static final String TURN = "turn";
+
+    @Label("Dialogue ID")
+    public long dialogueId;
+
+    @Label("Character ID")
+    @Description("Prompted character, 0 when building the context of the dialogue")
+    public long characterId;
+
+    @Label("Phase")
+    @Description("context or turn")
+    public String phase;
+
+    @Label("Messages")
+    @Description("Messages in the context, or in the character's prompt")
+    public int messages;
+}
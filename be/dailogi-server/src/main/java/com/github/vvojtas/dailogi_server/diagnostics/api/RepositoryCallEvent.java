@@ -0,0 +1,27 @@
+package com.github.vvojtas.dailogi_server.diagnostics.api;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event spanning a call to a Spring Data repository.
+ * The stack trace shows which code path made the call.
+ */
+@Name("dailogi.RepositoryCall")
+@Label("Repository Call")
+@Category({"Dailogi", "Database"})
+@Description("A call to a Spring Data repository")
+public class RepositoryCallEvent extends Event {
+
+    @Label("Repository")
+    public String repository;
+
+    @Label("Method")
+    public String method;
+
+    @Label("Failed")
+    public boolean failed;
+}
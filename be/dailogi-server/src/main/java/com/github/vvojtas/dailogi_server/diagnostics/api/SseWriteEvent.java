@@ -0,0 +1,29 @@
+package com.github.vvojtas.dailogi_server.diagnostics.api;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event spanning the publishing of one dialogue event to its SSE stream.
+ * Emitted for every token event, so no stack trace is taken.
+ */
+@Name("dailogi.SseWrite")
+@Label("SSE Write")
+@Category({"Dailogi", "Dialogue"})
+@Description("Publishing a dialogue event: buffering it for replay and writing it to the attached client")
+@StackTrace(false)
+public class SseWriteEvent extends Event {
+
+    @Label("Dialogue ID")
+    public long dialogueId;
+
+    @Label("Event")
+    public String eventName;
+
+    @Label("Event ID")
+    public String eventId;
+}
@@ -0,0 +1,180 @@
+package com.github.vvojtas.dailogi_server.diagnostics.application;
+
+import com.github.vvojtas.dailogi_server.diagnostics.api.DialogueTurnEvent;
+import com.github.vvojtas.dailogi_server.diagnostics.api.PromptBuildEvent;
+import com.github.vvojtas.dailogi_server.diagnostics.api.RepositoryCallEvent;
+import com.github.vvojtas.dailogi_server.diagnostics.api.SseWriteEvent;
+import com.github.vvojtas.dailogi_server.exception.RecordingLimitExceededException;
+import com.github.vvojtas.dailogi_server.exception.ResourceNotFoundException;
+import com.github.vvojtas.dailogi_server.properties.FlightRecordingProperties;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Starts, stops and dumps JDK Flight Recorder recordings on demand, so the running server can be
+ * profiled without restarting it with recording flags. Recordings use one of the JDK's settings,
+ * {@code default} (overhead around 1%, meant for production) or {@code profile} (more detail),
+ * with the application's events enabled on top. They are bounded in age and size and stop by
+ * themselves after their duration; stopped recordings are kept for dumping until deleted.
+ * <p>
+ * Events carrying the environment, the system properties or the command line are never recorded,
+ * as they hold secrets such as the database password and the encryption key. Recording is off unless
+ * {@code dailogi.diagnostics.recording.enabled} is set.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "dailogi.diagnostics.recording", name = "enabled", havingValue = "true")
+public class FlightRecordingService {
+
+    public static final String DEFAULT_SETTINGS = "default";
+    public static final String PROFILE_SETTINGS = "profile";
+
+    private static final List<Class<? extends Event>> EVENTS = List.of(
+            DialogueTurnEvent.class,
+            SseWriteEvent.class,
+            PromptBuildEvent.class,
+            RepositoryCallEvent.class);
+
+    // JDK events exposing environment variables, system properties and JVM or process arguments
+    static final List<String> SENSITIVE_EVENTS = List.of(
+            "jdk.InitialEnvironmentVariable",
+            "jdk.InitialSystemProperty",
+            "jdk.JVMInformation",
+            "jdk.SystemProcess");
+
+    private final FlightRecordingProperties properties;
+    private final Map<Long, Recording> recordings = new ConcurrentHashMap<>();
+
+    public FlightRecordingService(FlightRecordingProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Starts a recording
+     *
+     * @param settings JDK settings to record with, {@code default} or {@code profile}
+     * @param duration How long to record for, capped by the configured maximum; null for the maximum
+     * @return The started recording
+     * @throws RecordingLimitExceededException if the maximum number of recordings is held
+     */
+    public synchronized Recording start(String settings, Duration duration) {
+        if (recordings.size() >= properties.getMaxRecordings()) {
+            throw new RecordingLimitExceededException(properties.getMaxRecordings());
+        }
+        Recording recording = new Recording(loadConfiguration(settings).getSettings());
+        recording.setName("dailogi-" + settings + "-" + recording.getId());
+        // The events are enabled by default, but their thresholds could be raised by the settings
+        EVENTS.forEach(event -> recording.enable(event).withThreshold(Duration.ZERO));
+        SENSITIVE_EVENTS.forEach(recording::disable);
+        recording.setToDisk(true);
+        recording.setMaxAge(properties.getMaxAge());
+        recording.setMaxSize(properties.getMaxSize().toBytes());
+        recording.setDuration(duration == null || duration.compareTo(properties.getMaxDuration()) > 0
+                ? properties.getMaxDuration()
+                : duration);
+        recording.start();
+        recordings.put(recording.getId(), recording);
+        log.info("Started recording {} for {}", recording.getName(), recording.getDuration());
+        return recording;
+    }
+
+    /**
+     * Returns the recordings held, running or stopped, in the order they were started
+     */
+    public List<Recording> getRecordings() {
+        return recordings.values().stream()
+                .sorted(Comparator.comparingLong(Recording::getId))
+                .toList();
+    }
+
+    /**
+     * Returns a recording
+     *
+     * @throws ResourceNotFoundException if no recording with the ID is held
+     */
+    public Recording getRecording(long id) {
+        Recording recording = recordings.get(id);
+        if (recording == null) {
+            throw new ResourceNotFoundException("recording", "Recording not found: " + id);
+        }
+        return recording;
+    }
+
+    /**
+     * Stops a running recording, keeping its data for dumping. Stopping a stopped recording does nothing.
+     */
+    public Recording stop(long id) {
+        Recording recording = getRecording(id);
+        synchronized (recording) {
+            if (recording.getState() == RecordingState.RUNNING) {
+                recording.stop();
+                log.info("Stopped recording {}", recording.getName());
+            }
+        }
+        return recording;
+    }
+
+    /**
+     * Writes the data of a recording in JFR format. A running recording keeps running.
+     */
+    public void dump(long id, OutputStream out) throws IOException {
+        Recording recording = getRecording(id);
+        Path file = Files.createTempFile("dailogi-recording-" + id + "-", ".jfr");
+        try {
+            recording.dump(file);
+            Files.copy(file, out);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Stops a recording if running and discards its data
+     */
+    public void delete(long id) {
+        Recording recording = recordings.remove(id);
+        if (recording == null) {
+            throw new ResourceNotFoundException("recording", "Recording not found: " + id);
+        }
+        recording.close();
+        log.info("Deleted recording {}", recording.getName());
+    }
+
+    @PreDestroy
+    void closeAll() {
+        recordings.values().forEach(Recording::close);
+        recordings.clear();
+    }
+
+    private Configuration loadConfiguration(String settings) {
+        if (!DEFAULT_SETTINGS.equals(settings) && !PROFILE_SETTINGS.equals(settings)) {
+            throw new IllegalArgumentException("Unknown recording settings: " + settings);
+        }
+        try {
+            return Configuration.getConfiguration(settings);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ParseException e) {
+            throw new IllegalStateException("Could not parse recording settings " + settings, e);
+        }
+    }
+}
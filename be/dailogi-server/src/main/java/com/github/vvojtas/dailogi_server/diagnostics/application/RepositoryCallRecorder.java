@@ -0,0 +1,54 @@
+package com.github.vvojtas.dailogi_server.diagnostics.application;
+
+import com.github.vvojtas.dailogi_server.diagnostics.api.RepositoryCallEvent;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Emits a {@link RepositoryCallEvent} for every call to a repository of {@code db.repository}.
+ * While no recording has the event enabled, the call goes straight through.
+ */
+@Aspect
+@Component
+public class RepositoryCallRecorder {
+
+    private static final String REPOSITORY_PACKAGE = "com.github.vvojtas.dailogi_server.db.repository";
+
+    // Repository beans are proxies; resolved once per proxy class
+    private static final ClassValue<String> REPOSITORY_NAMES = new ClassValue<>() {
+        @Override
+        protected String computeValue(Class<?> proxyClass) {
+            for (Class<?> type : proxyClass.getInterfaces()) {
+                if (type.getPackageName().equals(REPOSITORY_PACKAGE)) {
+                    return type.getSimpleName();
+                }
+            }
+            return proxyClass.getSimpleName();
+        }
+    };
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..)) && this(org.springframework.data.repository.Repository)")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        RepositoryCallEvent event = new RepositoryCallEvent();
+        if (!event.isEnabled()) {
+            return joinPoint.proceed();
+        }
+        event.begin();
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            event.failed = true;
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.repository = REPOSITORY_NAMES.get(joinPoint.getThis().getClass());
+                event.method = joinPoint.getSignature().getName();
+                event.commit();
+            }
+        }
+    }
+}
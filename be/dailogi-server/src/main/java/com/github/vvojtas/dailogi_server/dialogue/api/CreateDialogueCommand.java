@@ -24,5 +24,8 @@ public record CreateDialogueCommand(
     @Valid
     List<CharacterConfigDTO> characterConfigs,
     
-    Boolean isGlobal
+    Boolean isGlobal,
+
+    @Size(max = 100, message = "Prompt template name must not exceed 100 characters")
+    String promptTemplate
 ) {} 
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.github.vvojtas.dailogi_server.dialogue.api;
+
+/**
+ * Published once messages of a dialogue have been stored by a flush of the write-behind queue
+ *
+ * @param dialogueId The ID of the dialogue
+ * @param messages   Number of the dialogue's messages stored by the flush
+ */
+public record DialogueMessagesWrittenEvent(long dialogueId, int messages) {}
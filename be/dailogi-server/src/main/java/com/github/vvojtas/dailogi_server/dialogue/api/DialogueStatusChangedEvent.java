@@ -0,0 +1,11 @@
+package com.github.vvojtas.dailogi_server.dialogue.api;
+
+import com.github.vvojtas.dailogi_server.db.entity.DialogueStatus;
+
+/**
+ * Published once a new status of a dialogue has been stored
+ *
+ * @param dialogueId The ID of the dialogue
+ * @param status     The stored status
+ */
+public record DialogueStatusChangedEvent(long dialogueId, DialogueStatus status) {}
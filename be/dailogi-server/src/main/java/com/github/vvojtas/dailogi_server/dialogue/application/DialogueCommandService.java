@@ -10,7 +10,9 @@ import com.github.vvojtas.dailogi_server.db.repository.DialogueCharacterConfigRe
 import com.github.vvojtas.dailogi_server.db.repository.DialogueRepository;
 import com.github.vvojtas.dailogi_server.model.dialogue.request.CharacterConfigDTO;
 import com.github.vvojtas.dailogi_server.dialogue.api.CreateDialogueCommand;
+import com.github.vvojtas.dailogi_server.exception.DialogueInProgressException;
 import com.github.vvojtas.dailogi_server.exception.DialogueLimitExceededException;
+import com.github.vvojtas.dailogi_server.exception.ResourceNotFoundException;
 import com.github.vvojtas.dailogi_server.llm.application.LLMQueryService;
 import com.github.vvojtas.dailogi_server.model.dialogue.mapper.DialogueMapper;
 import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueDTO;
@@ -19,9 +21,11 @@ import com.github.vvojtas.dailogi_server.service.auth.CurrentUserService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -32,6 +36,8 @@ import java.util.List;
 @Slf4j
 @RequiredArgsConstructor
 public class DialogueCommandService {
+
+    private static final String DIALOGUE_RESOURCE_NAME = "dialogue";
     
     private final CharacterQueryService characterQueryService;
     private final LLMQueryService llmQueryService;
@@ -71,6 +77,7 @@ public class DialogueCommandService {
             .name(command.name() != null ? command.name() : "Whispered Dialogue")
             .sceneDescription(command.sceneDescription())
             .isGlobal(command.isGlobal() != null && command.isGlobal())
+            .promptTemplate(command.promptTemplate())
             .status(DialogueStatus.IN_PROGRESS)
             .build();
         
@@ -85,6 +92,46 @@ public class DialogueCommandService {
         return dialogueMapper.toDTO(dialogue, characterConfigs);
     }
     
+    /**
+     * Marks a finished dialogue of the current user as being generated again, so it can be continued.
+     * Only one generation of a dialogue may run at a time; the status change is conditional, so
+     * concurrent requests cannot both win. A dialogue left in progress by a generation that no longer
+     * runs, e.g. after a restart, is taken over when {@code stale} is set.
+     *
+     * @param dialogueId the ID of the dialogue to continue
+     * @param stale whether no generation of the dialogue is running anymore
+     * @return the dialogue with its character configurations, without messages, and with the status
+     *         it had before it was reopened
+     * @throws ResourceNotFoundException if the dialogue does not exist
+     * @throws AccessDeniedException if the dialogue belongs to another user
+     * @throws DialogueInProgressException if the dialogue is still being generated
+     */
+    @Transactional
+    public DialogueDTO reopenDialogue(Long dialogueId, boolean stale) {
+        AppUser currentUser = currentUserService.getCurrentAppUser();
+        Dialogue dialogue = dialogueRepository.findById(dialogueId)
+            .orElseThrow(() -> new ResourceNotFoundException(DIALOGUE_RESOURCE_NAME, "Dialogue not found with id: " + dialogueId));
+
+        if (!dialogue.getUser().getId().equals(currentUser.getId())) {
+            log.warn("User {} attempted to continue dialogue {} owned by user {}",
+                currentUser.getId(), dialogueId, dialogue.getUser().getId());
+            throw new AccessDeniedException("User does not have access to this dialogue");
+        }
+
+        // Mapped before the update, which clears the persistence context
+        DialogueDTO reopened = dialogueMapper.toDTO(dialogue, dialogueCharacterConfigRepository.findByIdDialogueId(dialogueId));
+        int updated = dialogue.getStatus() == DialogueStatus.IN_PROGRESS
+            // Whoever takes over first changes the time of change, so the others lose
+            ? (stale ? dialogueRepository.touchIfUnchanged(dialogueId, dialogue.getUpdatedAt(), OffsetDateTime.now()) : 0)
+            : dialogueRepository.updateStatusIfDifferent(dialogueId, DialogueStatus.IN_PROGRESS, OffsetDateTime.now());
+        if (updated == 0) {
+            throw new DialogueInProgressException(dialogueId);
+        }
+        log.info("Reopened {} dialogue {} for continuation", reopened.status(), dialogueId);
+
+        return reopened;
+    }
+
     /**
      * Creates character configurations for a dialogue
      * 
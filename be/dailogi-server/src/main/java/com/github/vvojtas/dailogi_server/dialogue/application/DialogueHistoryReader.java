@@ -0,0 +1,83 @@
+package com.github.vvojtas.dailogi_server.dialogue.application;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * Reads the persisted messages of a dialogue in the order they were said.
+ * <p>
+ * The history is read with one ordered query and handed to the caller row by row, without mapping
+ * entities. The statement is forward-only with a fetch size and runs in a read-only transaction,
+ * which makes the PostgreSQL driver stream the rows through a cursor instead of loading them all,
+ * so long dialogues are read in bounded memory.
+ */
+@Slf4j
+@Component
+public class DialogueHistoryReader {
+
+    static final String SELECT_HISTORY_SQL =
+            "select character_id, turn_number, content from dialogue_message where dialogue_id = ? order by turn_number, speaking_order, id";
+    static final String COUNT_MESSAGES_SQL = "select count(*) from dialogue_message where dialogue_id = ?";
+    private static final int FETCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public DialogueHistoryReader(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Receives the messages of a dialogue one at a time
+     */
+    @FunctionalInterface
+    public interface MessageConsumer {
+        void accept(long characterId, int turnNumber, String content);
+    }
+
+    /**
+     * Passes every message of the dialogue to the consumer, ordered by turn and then by the order
+     * in which the characters spoke within the turn.
+     *
+     * @param dialogueId The ID of the dialogue
+     * @param consumer   Receives the messages
+     * @return The number of the last turn, 0 if the dialogue has no messages
+     */
+    public int read(long dialogueId, MessageConsumer consumer) {
+        long startNanos = System.nanoTime();
+        int[] lastTurn = new int[1];
+        int[] count = new int[1];
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    SELECT_HISTORY_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setLong(1, dialogueId);
+            return statement;
+        }, (ResultSet row) -> {
+            int turnNumber = row.getInt(2);
+            consumer.accept(row.getLong(1), turnNumber, row.getString(3));
+            lastTurn[0] = turnNumber;
+            count[0]++;
+        }));
+        log.debug("Read {} messages ({} turns) of dialogue {} in {} ms",
+                count[0], lastTurn[0], dialogueId, (System.nanoTime() - startNanos) / 1_000_000);
+        return lastTurn[0];
+    }
+
+    /**
+     * @param dialogueId The ID of the dialogue
+     * @return The number of persisted messages of the dialogue
+     */
+    public int count(long dialogueId) {
+        Integer count = jdbcTemplate.queryForObject(COUNT_MESSAGES_SQL, Integer.class, dialogueId);
+        return count != null ? count : 0;
+    }
+}
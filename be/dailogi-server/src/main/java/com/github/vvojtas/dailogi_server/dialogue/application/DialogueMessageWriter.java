@@ -0,0 +1,350 @@
+package com.github.vvojtas.dailogi_server.dialogue.application;
+
+import com.github.vvojtas.dailogi_server.db.entity.DialogueStatus;
+import com.github.vvojtas.dailogi_server.dialogue.api.DialogueMessagesWrittenEvent;
+import com.github.vvojtas.dailogi_server.dialogue.api.DialogueStatusChangedEvent;
+import com.github.vvojtas.dailogi_server.properties.DialoguePersistenceProperties;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence of generated dialogue messages and final dialogue statuses.
+ * <p>
+ * Dialogues hand over finished messages and return to generation right away; a single writer
+ * thread collects them across all dialogues and inserts them in JDBC batches, written once a batch
+ * is full or its oldest entry has waited for the flush interval. Status changes go through the same
+ * queue, so a dialogue is marked finished only together with or after its last message.
+ * <p>
+ * Pending messages are capped: when the database falls behind and the cap is reached, dialogues
+ * wait for room between turns - never while streaming tokens - and give up after a timeout.
+ * <p>
+ * Every status written is announced with a {@link DialogueStatusChangedEvent} once committed, and the
+ * messages stored per dialogue with a {@link DialogueMessagesWrittenEvent}; both are published on the
+ * writer thread, so listeners must hand any real work off.
+ */
+@Slf4j
+@Component
+public class DialogueMessageWriter {
+
+    static final String INSERT_MESSAGE_SQL =
+            "insert into dialogue_message (dialogue_id, character_id, turn_number, speaking_order, content) values (?, ?, ?, ?, ?)";
+    static final String UPDATE_STATUS_SQL =
+            "update dialogue set status = ?, updated_at = ? where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DialoguePersistenceProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final LinkedBlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    // One permit per message that may still be queued or in flight
+    private final Semaphore capacity;
+    private volatile boolean running;
+    private Thread writerThread;
+
+    sealed interface PendingWrite permits MessageWrite, StatusWrite {
+    }
+
+    record MessageWrite(long dialogueId, long characterId, int turnNumber, int speakingOrder, String content) implements PendingWrite {
+    }
+
+    record StatusWrite(long dialogueId, DialogueStatus status) implements PendingWrite {
+    }
+
+    public DialogueMessageWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 DialoguePersistenceProperties properties, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.eventPublisher = eventPublisher;
+        this.capacity = new Semaphore(properties.getQueueCapacity());
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writerThread = Thread.ofPlatform()
+                .name("DialogueMessageWriter")
+                .daemon(true)
+                .start(this::run);
+        log.info("Dialogue message writer started: batch size {}, flush interval {}, queue capacity {}",
+                properties.getBatchSize(), properties.getFlushInterval(), properties.getQueueCapacity());
+    }
+
+    /**
+     * Stops the writer thread and writes everything still pending.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (writerThread != null) {
+            writerThread.interrupt();
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        int written = 0;
+        int flushed;
+        while ((flushed = flush()) > 0) {
+            written += flushed;
+        }
+        log.info("Dialogue message writer stopped, {} pending entries written on shutdown", written);
+    }
+
+    /**
+     * Queues a finished character message for insertion. Waits for room while the queue is full,
+     * so it must be called from the dialogue's own thread and not from an I/O thread.
+     *
+     * @param dialogueId    The ID of the dialogue
+     * @param characterId   The ID of the speaking character
+     * @param turnNumber    1-based turn the message belongs to
+     * @param speakingOrder 1-based position of the speaker within the turn
+     * @param content       The message text
+     * @return true if the message was queued, false if it was dropped because the queue stayed full
+     */
+    public boolean append(long dialogueId, long characterId, int turnNumber, int speakingOrder, String content) {
+        try {
+            if (!capacity.tryAcquire(properties.getEnqueueTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                log.error("Dialogue {}: message queue still full after {}, dropping message of character {} in turn {}",
+                        dialogueId, properties.getEnqueueTimeout(), characterId, turnNumber);
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Dialogue {}: interrupted while waiting to queue message of character {}", dialogueId, characterId);
+            return false;
+        }
+        queue.add(new MessageWrite(dialogueId, characterId, turnNumber, speakingOrder, content));
+        return true;
+    }
+
+    /**
+     * Queues marking the dialogue as completed, after all of its already queued messages. Never blocks.
+     */
+    public void markCompleted(long dialogueId) {
+        queue.add(new StatusWrite(dialogueId, DialogueStatus.COMPLETED));
+    }
+
+    /**
+     * Queues marking the dialogue as failed, after all of its already queued messages. Never blocks.
+     */
+    public void markFailed(long dialogueId) {
+        queue.add(new StatusWrite(dialogueId, DialogueStatus.FAILED));
+    }
+
+    /**
+     * Queues the status of a generation that stopped before it finished, after all of its already
+     * queued messages. A continued dialogue that had completed stays completed, with the turns it got;
+     * any other dialogue is marked as failed. Never blocks.
+     *
+     * @param dialogueId     The ID of the dialogue
+     * @param previousStatus The status of the dialogue before the generation, null for a new dialogue
+     */
+    public void markUnfinished(long dialogueId, DialogueStatus previousStatus) {
+        queue.add(new StatusWrite(dialogueId,
+                previousStatus == DialogueStatus.COMPLETED ? DialogueStatus.COMPLETED : DialogueStatus.FAILED));
+    }
+
+    /**
+     * @return Number of entries waiting to be written
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * Writes up to one batch of the entries already queued, without waiting for more.
+     *
+     * @return Number of entries written
+     */
+    int flush() {
+        List<PendingWrite> batch = new ArrayList<>();
+        queue.drainTo(batch, properties.getBatchSize());
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+        return batch.size();
+    }
+
+    private void run() {
+        while (running) {
+            List<PendingWrite> batch = collectBatch();
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        }
+    }
+
+    /**
+     * Waits for the first entry, then collects more until the batch is full
+     * or the flush interval since the first entry has passed.
+     */
+    private List<PendingWrite> collectBatch() {
+        List<PendingWrite> batch = new ArrayList<>();
+        long flushIntervalNanos = properties.getFlushInterval().toNanos();
+        try {
+            PendingWrite first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+            if (first == null) {
+                return batch;
+            }
+            batch.add(first);
+            long deadline = System.nanoTime() + flushIntervalNanos;
+            while (batch.size() < properties.getBatchSize()) {
+                queue.drainTo(batch, properties.getBatchSize() - batch.size());
+                long remaining = deadline - System.nanoTime();
+                if (batch.size() >= properties.getBatchSize() || remaining <= 0) {
+                    break;
+                }
+                PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+            }
+        } catch (InterruptedException e) {
+            log.debug("Dialogue message writer interrupted, writing {} collected entries", batch.size());
+        }
+        return batch;
+    }
+
+    private void write(List<PendingWrite> batch) {
+        List<MessageWrite> messages = new ArrayList<>();
+        // Only the latest status of a dialogue matters; statuses are written after the batch's messages
+        Map<Long, DialogueStatus> statuses = new LinkedHashMap<>();
+        for (PendingWrite entry : batch) {
+            switch (entry) {
+                case MessageWrite message -> messages.add(message);
+                case StatusWrite status -> statuses.put(status.dialogueId(), status.status());
+            }
+        }
+
+        try {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    transactionTemplate.executeWithoutResult(tx -> {
+                        insertMessages(messages);
+                        updateStatuses(statuses);
+                    });
+                    log.debug("Wrote {} dialogue messages and {} statuses", messages.size(), statuses.size());
+                    publishMessagesWritten(messages);
+                    statuses.forEach(this::publishStatusChange);
+                    return;
+                } catch (DataAccessException e) {
+                    if (attempt >= properties.getMaxRetries()) {
+                        log.error("Writing batch of {} dialogue messages and {} statuses failed {} times, writing rows one by one",
+                                messages.size(), statuses.size(), attempt + 1, e);
+                        writeIndividually(messages, statuses);
+                        return;
+                    }
+                    log.warn("Writing batch of {} dialogue messages failed (attempt {}), retrying in {}: {}",
+                            messages.size(), attempt + 1, properties.getRetryDelay(), e.getMessage());
+                    if (!sleep(properties.getRetryDelay().toMillis())) {
+                        writeIndividually(messages, statuses);
+                        return;
+                    }
+                }
+            }
+        } finally {
+            capacity.release(messages.size());
+        }
+    }
+
+    /**
+     * Last resort for a batch that keeps failing, e.g. because one of its dialogues was deleted:
+     * writes every row on its own so a single bad row does not lose the others.
+     */
+    private void writeIndividually(List<MessageWrite> messages, Map<Long, DialogueStatus> statuses) {
+        for (MessageWrite message : messages) {
+            try {
+                insertMessages(List.of(message));
+                publishMessagesWritten(List.of(message));
+            } catch (DataAccessException e) {
+                log.error("Dropping message of character {} in turn {} of dialogue {}: {}",
+                        message.characterId(), message.turnNumber(), message.dialogueId(), e.getMessage());
+            }
+        }
+        statuses.forEach((dialogueId, status) -> {
+            try {
+                updateStatuses(Map.of(dialogueId, status));
+                publishStatusChange(dialogueId, status);
+            } catch (DataAccessException e) {
+                log.error("Could not mark dialogue {} as {}: {}", dialogueId, status, e.getMessage());
+            }
+        });
+    }
+
+    private void insertMessages(List<MessageWrite> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_MESSAGE_SQL, messages, messages.size(), (ps, message) -> {
+            ps.setLong(1, message.dialogueId());
+            ps.setLong(2, message.characterId());
+            ps.setInt(3, message.turnNumber());
+            ps.setInt(4, message.speakingOrder());
+            ps.setString(5, message.content());
+        });
+    }
+
+    private void updateStatuses(Map<Long, DialogueStatus> statuses) {
+        if (statuses.isEmpty()) {
+            return;
+        }
+        OffsetDateTime now = OffsetDateTime.now();
+        jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, new ArrayList<>(statuses.entrySet()), statuses.size(), (ps, entry) -> {
+            ps.setString(1, entry.getValue().name());
+            ps.setObject(2, now);
+            ps.setLong(3, entry.getKey());
+        });
+    }
+
+    private void publishMessagesWritten(List<MessageWrite> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> counts = new LinkedHashMap<>();
+        for (MessageWrite message : messages) {
+            counts.merge(message.dialogueId(), 1, Integer::sum);
+        }
+        counts.forEach((dialogueId, count) -> {
+            try {
+                eventPublisher.publishEvent(new DialogueMessagesWrittenEvent(dialogueId, count));
+            } catch (RuntimeException e) {
+                log.error("Listener of dialogue {} messages written failed: {}", dialogueId, e.getMessage(), e);
+            }
+        });
+    }
+
+    private void publishStatusChange(long dialogueId, DialogueStatus status) {
+        try {
+            eventPublisher.publishEvent(new DialogueStatusChangedEvent(dialogueId, status));
+        } catch (RuntimeException e) {
+            log.error("Listener of dialogue {} status change to {} failed: {}", dialogueId, status, e.getMessage(), e);
+        }
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            // Only shutdown interrupts the writer thread; the caller falls through to a last write
+            return false;
+        }
+    }
+}
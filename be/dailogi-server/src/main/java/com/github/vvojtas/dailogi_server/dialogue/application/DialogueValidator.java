@@ -11,6 +11,7 @@ import com.github.vvojtas.dailogi_server.db.repository.LLMRepository;
 import com.github.vvojtas.dailogi_server.model.dialogue.request.CharacterConfigDTO;
 import com.github.vvojtas.dailogi_server.dialogue.api.CreateDialogueCommand;
 import com.github.vvojtas.dailogi_server.exception.ResourceNotFoundException;
+import com.github.vvojtas.dailogi_server.generation.application.PromptTemplateRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.access.AccessDeniedException;
@@ -28,22 +29,29 @@ public class DialogueValidator {
     private static final String DIALOGUE_RESOURCE_NAME = Dialogue.class.getSimpleName().toLowerCase();
     private static final String CHARACTER_RESOURCE_NAME = Character.class.getSimpleName().toLowerCase();
     private static final String LLM_RESOURCE_NAME = LLM.class.getSimpleName().toLowerCase();
+    private static final String PROMPT_TEMPLATE_RESOURCE_NAME = "prompt_template";
     
     private final DialogueRepository dialogueRepository;
     private final CharacterRepository characterRepository;
     private final LLMRepository llmRepository;
     private final CharacterAuthorizationService characterAuthorizationService;
+    private final PromptTemplateRegistry promptTemplateRegistry;
     
     /**
      * Validates a dialogue creation command
      * 
      * @param command The command to validate
      * @param currentUser The current user
-     * @throws ResourceNotFoundException if a character or LLM doesn't exist
+     * @throws ResourceNotFoundException if a character, LLM or prompt template doesn't exist
      * @throws AccessDeniedException if the user doesn't have access to a character
      */
     public void validateForCreation(CreateDialogueCommand command, AppUser currentUser) {
         validateCharacterConfigs(command.characterConfigs(), currentUser);
+        if (command.promptTemplate() != null && !promptTemplateRegistry.contains(command.promptTemplate())) {
+            log.warn("Attempt to use non-existent prompt template {}", command.promptTemplate());
+            throw new ResourceNotFoundException(PROMPT_TEMPLATE_RESOURCE_NAME,
+                "Prompt template not found: " + command.promptTemplate());
+        }
     }
     
     /**
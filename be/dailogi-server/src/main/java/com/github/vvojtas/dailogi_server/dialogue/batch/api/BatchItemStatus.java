@@ -0,0 +1,16 @@
+package com.github.vvojtas.dailogi_server.dialogue.batch.api;
+
+/**
+ * Status of a single dialogue of a batch job
+ */
+public enum BatchItemStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    CANCELLED;
+
+    public boolean isFinished() {
+        return this == COMPLETED || this == FAILED || this == CANCELLED;
+    }
+}
@@ -0,0 +1,15 @@
+package com.github.vvojtas.dailogi_server.dialogue.batch.api;
+
+/**
+ * Status of a batch job as a whole
+ */
+public enum BatchJobStatus {
+    /** No dialogue of the job has started yet */
+    QUEUED,
+    RUNNING,
+    /** Cancelled, with dialogues still finishing */
+    CANCELLING,
+    /** Every dialogue finished, successfully or not */
+    COMPLETED,
+    CANCELLED
+}
@@ -0,0 +1,65 @@
+package com.github.vvojtas.dailogi_server.dialogue.batch.application;
+
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueEventHandler;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.CharacterCompleteEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.CharacterStartEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.DialogueCompleteEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.DialogueQueuedEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.DialogueStartEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.TokenEventDto;
+
+/**
+ * Event handler of a batch dialogue. Nobody listens to a batch dialogue, so events only update
+ * the progress of its item and job; the messages are persisted by the orchestrator as usual.
+ */
+class BatchDialogueEventHandler implements DialogueEventHandler {
+
+    private final DialogueBatchJob job;
+    private final DialogueBatchItem item;
+    private volatile boolean completed;
+
+    BatchDialogueEventHandler(DialogueBatchJob job, DialogueBatchItem item) {
+        this.job = job;
+        this.item = item;
+    }
+
+    /**
+     * @return true once the whole dialogue has been generated
+     */
+    boolean isCompleted() {
+        return completed;
+    }
+
+    @Override
+    public void onQueued(DialogueQueuedEventDto event) {
+        // Batch dialogues are queued by the batch service, not the admission scheduler
+    }
+
+    @Override
+    public void onDialogueStart(DialogueStartEventDto event) {
+    }
+
+    @Override
+    public void onCharacterStart(CharacterStartEventDto event) {
+    }
+
+    @Override
+    public void onToken(TokenEventDto event) {
+        item.tokenGenerated();
+        job.tokenGenerated();
+    }
+
+    @Override
+    public void onCharacterComplete(CharacterCompleteEventDto event) {
+    }
+
+    @Override
+    public void onDialogueComplete(DialogueCompleteEventDto event) {
+        completed = true;
+    }
+
+    @Override
+    public void onError(long dialogueId, Exception exception) {
+        item.errorOccurred(exception.getMessage());
+    }
+}
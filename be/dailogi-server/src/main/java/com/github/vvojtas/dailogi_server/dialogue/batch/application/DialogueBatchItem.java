@@ -0,0 +1,115 @@
+package com.github.vvojtas.dailogi_server.dialogue.batch.application;
+
+import com.github.vvojtas.dailogi_server.dialogue.batch.api.BatchItemStatus;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.StreamDialogueCommand;
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.DialogueCancellation;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A single dialogue of a batch job and its progress.
+ * Generated by one batch worker; status transitions are synchronized, as a job may be
+ * cancelled from a request thread at any time.
+ */
+@Getter
+public class DialogueBatchItem {
+
+    private final int index;
+    private final StreamDialogueCommand command;
+    private final AtomicLong generatedTokens = new AtomicLong();
+    private volatile BatchItemStatus status = BatchItemStatus.QUEUED;
+    private volatile Long dialogueId;
+    private volatile String error;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    // Set while the dialogue is generated
+    @Getter(AccessLevel.NONE)
+    private DialogueCancellation cancellation;
+    @Getter(AccessLevel.NONE)
+    private boolean cancelRequested;
+
+    DialogueBatchItem(int index, StreamDialogueCommand command) {
+        this.index = index;
+        this.command = command;
+    }
+
+    public long getGeneratedTokens() {
+        return generatedTokens.get();
+    }
+
+    /**
+     * Moves a queued item to running.
+     *
+     * @return false if the item was cancelled while queued
+     */
+    synchronized boolean start(Instant now) {
+        if (status != BatchItemStatus.QUEUED) {
+            return false;
+        }
+        status = BatchItemStatus.RUNNING;
+        startedAt = now;
+        return true;
+    }
+
+    /**
+     * Records the dialogue created for the item; cancelling the item from now on stops its generation.
+     */
+    synchronized void generating(long dialogueId, DialogueCancellation cancellation) {
+        this.dialogueId = dialogueId;
+        this.cancellation = cancellation;
+        if (cancelRequested) {
+            cancellation.cancel();
+        }
+    }
+
+    void tokenGenerated() {
+        generatedTokens.incrementAndGet();
+    }
+
+    /**
+     * Records an error reported during generation. The first error is kept.
+     */
+    synchronized void errorOccurred(String message) {
+        if (error == null) {
+            error = message;
+        }
+    }
+
+    /**
+     * Finishes a running item.
+     *
+     * @return false if the item had already finished
+     */
+    synchronized boolean finish(BatchItemStatus result, Instant now) {
+        if (status.isFinished()) {
+            return false;
+        }
+        status = result;
+        finishedAt = now;
+        cancellation = null;
+        return true;
+    }
+
+    /**
+     * Cancels the item: a queued item finishes at once, a running one has its generation stopped
+     * and finishes when its worker returns.
+     *
+     * @return true if the item was queued and is now finished
+     */
+    synchronized boolean cancel(Instant now) {
+        if (status == BatchItemStatus.QUEUED) {
+            status = BatchItemStatus.CANCELLED;
+            finishedAt = now;
+            return true;
+        }
+        cancelRequested = true;
+        if (cancellation != null) {
+            cancellation.cancel();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,141 @@
+package com.github.vvojtas.dailogi_server.dialogue.batch.application;
+
+import com.github.vvojtas.dailogi_server.dialogue.batch.api.BatchItemStatus;
+import com.github.vvojtas.dailogi_server.dialogue.batch.api.BatchJobStatus;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.StreamDialogueCommand;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A batch of dialogues generated without a client attached, and its progress.
+ * Jobs are held in memory by {@link DialogueBatchService}; the dialogues themselves are persisted as usual.
+ */
+@Getter
+public class DialogueBatchJob {
+
+    private final UUID id;
+    private final long ownerId;
+    private final boolean global;
+    private final Instant createdAt;
+    private final List<DialogueBatchItem> items;
+    private final LongAdder generatedTokens = new LongAdder();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final AtomicInteger unfinished;
+    private final AtomicReference<Instant> startedAt = new AtomicReference<>();
+    private volatile Instant finishedAt;
+
+    DialogueBatchJob(UUID id, long ownerId, boolean global, List<StreamDialogueCommand> commands, Instant createdAt) {
+        this.id = id;
+        this.ownerId = ownerId;
+        this.global = global;
+        this.createdAt = createdAt;
+        List<DialogueBatchItem> jobItems = new ArrayList<>(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            jobItems.add(new DialogueBatchItem(i, commands.get(i)));
+        }
+        this.items = Collections.unmodifiableList(jobItems);
+        this.unfinished = new AtomicInteger(jobItems.size());
+    }
+
+    public Instant getStartedAt() {
+        return startedAt.get();
+    }
+
+    public long getGeneratedTokens() {
+        return generatedTokens.sum();
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    public BatchJobStatus getStatus() {
+        if (finishedAt != null) {
+            return cancelled.get() ? BatchJobStatus.CANCELLED : BatchJobStatus.COMPLETED;
+        }
+        if (cancelled.get()) {
+            return BatchJobStatus.CANCELLING;
+        }
+        return startedAt.get() == null ? BatchJobStatus.QUEUED : BatchJobStatus.RUNNING;
+    }
+
+    /**
+     * @return Number of items with the given status
+     */
+    public int count(BatchItemStatus status) {
+        int count = 0;
+        for (DialogueBatchItem item : items) {
+            if (item.getStatus() == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Dialogues completed per minute since the first one started, 0 before that
+     */
+    public double getDialoguesPerMinute(Instant now) {
+        double minutes = elapsed(now).toMillis() / 60_000.0;
+        return minutes > 0 ? count(BatchItemStatus.COMPLETED) / minutes : 0;
+    }
+
+    /**
+     * @return Tokens generated per second since the first dialogue started, 0 before that
+     */
+    public double getTokensPerSecond(Instant now) {
+        double seconds = elapsed(now).toMillis() / 1000.0;
+        return seconds > 0 ? generatedTokens.sum() / seconds : 0;
+    }
+
+    void tokenGenerated() {
+        generatedTokens.increment();
+    }
+
+    void itemStarted(Instant now) {
+        startedAt.compareAndSet(null, now);
+    }
+
+    void itemFinished(Instant now) {
+        if (unfinished.decrementAndGet() == 0) {
+            finishedAt = now;
+        }
+    }
+
+    /**
+     * Cancels every item of the job that has not finished yet.
+     *
+     * @return false if the job had already been cancelled
+     */
+    boolean cancel(Instant now) {
+        if (!cancelled.compareAndSet(false, true)) {
+            return false;
+        }
+        for (DialogueBatchItem item : items) {
+            if (item.cancel(now)) {
+                itemFinished(now);
+            }
+        }
+        return true;
+    }
+
+    private Duration elapsed(Instant now) {
+        Instant start = startedAt.get();
+        if (start == null) {
+            return Duration.ZERO;
+        }
+        Instant end = finishedAt != null ? finishedAt : now;
+        return Duration.between(start, end);
+    }
+}
@@ -0,0 +1,247 @@
+package com.github.vvojtas.dailogi_server.dialogue.batch.application;
+
+import com.github.vvojtas.dailogi_server.apikey.application.ApiKeyQueryService;
+import com.github.vvojtas.dailogi_server.config.AsyncConfig;
+import com.github.vvojtas.dailogi_server.db.entity.AppUser;
+import com.github.vvojtas.dailogi_server.dialogue.api.CreateDialogueCommand;
+import com.github.vvojtas.dailogi_server.dialogue.application.DialogueCommandService;
+import com.github.vvojtas.dailogi_server.dialogue.batch.api.BatchItemStatus;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.StreamDialogueCommand;
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.DialogueCancellation;
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.DialogueEventSequence;
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.DialogueGenerationOrchestrator;
+import com.github.vvojtas.dailogi_server.exception.DialogueBatchTooLargeException;
+import com.github.vvojtas.dailogi_server.exception.NoApiKeyException;
+import com.github.vvojtas.dailogi_server.exception.ResourceNotFoundException;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueDTO;
+import com.github.vvojtas.dailogi_server.properties.DialogueBatchProperties;
+import com.github.vvojtas.dailogi_server.service.auth.CurrentUserService;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Generates batches of dialogues without a client attached, e.g. to seed global dialogues.
+ * <p>
+ * Batch dialogues run in a lane of their own: on the batch executor, never taking slots of the
+ * admission scheduler, so interactive dialogues are not queued behind a batch. At most
+ * {@link DialogueBatchProperties#getParallelism()} batch dialogues are generated at once across all
+ * jobs; the others wait for a permit in submission order. Messages and statuses are persisted
+ * through the write-behind writer like any other dialogue; no events are streamed.
+ * <p>
+ * Jobs are kept in memory and evicted once finished for longer than the configured retention.
+ */
+@Slf4j
+@Service
+public class DialogueBatchService {
+
+    private static final int DEFAULT_LENGTH = 5;
+    private static final String JOB_RESOURCE_NAME = "dialogue_batch";
+
+    private final DialogueGenerationOrchestrator orchestrator;
+    private final DialogueCommandService dialogueCommandService;
+    private final ApiKeyQueryService apiKeyQueryService;
+    private final CurrentUserService currentUserService;
+    private final DialogueBatchProperties properties;
+    private final TaskExecutor batchExecutor;
+    private final TaskScheduler scheduler;
+
+    private final Semaphore permits;
+    private final Map<UUID, DialogueBatchJob> jobs = new ConcurrentHashMap<>();
+
+    public DialogueBatchService(DialogueGenerationOrchestrator orchestrator,
+                                DialogueCommandService dialogueCommandService,
+                                ApiKeyQueryService apiKeyQueryService,
+                                CurrentUserService currentUserService,
+                                DialogueBatchProperties properties,
+                                @Qualifier(AsyncConfig.DIALOGUE_BATCH_EXECUTOR) TaskExecutor batchExecutor,
+                                TaskScheduler sseScheduler) {
+        this.orchestrator = orchestrator;
+        this.dialogueCommandService = dialogueCommandService;
+        this.apiKeyQueryService = apiKeyQueryService;
+        this.currentUserService = currentUserService;
+        this.properties = properties;
+        this.batchExecutor = batchExecutor;
+        this.scheduler = sseScheduler;
+        this.permits = new Semaphore(properties.getParallelism(), true);
+    }
+
+    @PostConstruct
+    public void init() {
+        Duration interval = properties.getRetention().dividedBy(24);
+        scheduler.scheduleWithFixedDelay(this::evict, interval.isZero() ? Duration.ofSeconds(1) : interval);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Instant now = Instant.now();
+        jobs.values().forEach(job -> job.cancel(now));
+    }
+
+    /**
+     * Starts a batch job generating the given dialogues for the current user.
+     * Only special users may start batch jobs.
+     *
+     * @param commands The dialogues to generate; token coalescing settings are ignored
+     * @param global   Whether the generated dialogues are global
+     * @return The job, queued
+     * @throws AccessDeniedException if the current user is not a special user
+     * @throws DialogueBatchTooLargeException if there are more dialogues than allowed in a job
+     * @throws NoApiKeyException if the user has no API key configured
+     */
+    public DialogueBatchJob submit(List<StreamDialogueCommand> commands, boolean global) {
+        AppUser currentUser = currentUserService.getCurrentAppUser();
+        if (!Boolean.TRUE.equals(currentUser.getIsSpecialUser())) {
+            throw new AccessDeniedException("Only special users can generate dialogue batches");
+        }
+        if (commands.size() > properties.getMaxItemsPerJob()) {
+            throw new DialogueBatchTooLargeException(properties.getMaxItemsPerJob());
+        }
+        String apiKey = apiKeyQueryService.getDecryptedApiKey();
+        if (apiKey == null) {
+            throw new NoApiKeyException("dialogue_generation", "API key is required for dialogue generation");
+        }
+
+        DialogueBatchJob job = new DialogueBatchJob(UUID.randomUUID(), currentUser.getId(), global, commands, Instant.now());
+        jobs.put(job.getId(), job);
+        // The executor carries the security context over, so dialogues are created for the current user
+        for (DialogueBatchItem item : job.getItems()) {
+            batchExecutor.execute(() -> runItem(job, item, apiKey));
+        }
+        log.info("User {} started dialogue batch {} with {} dialogues (global: {})",
+                currentUser.getName(), job.getId(), commands.size(), global);
+        return job;
+    }
+
+    /**
+     * @return The batch job of the current user
+     * @throws ResourceNotFoundException if the current user has no such job
+     */
+    public DialogueBatchJob getJob(UUID jobId) {
+        AppUser currentUser = currentUserService.getCurrentAppUser();
+        DialogueBatchJob job = jobs.get(jobId);
+        if (job == null || job.getOwnerId() != currentUser.getId()) {
+            throw new ResourceNotFoundException(JOB_RESOURCE_NAME, "No dialogue batch found with id " + jobId);
+        }
+        return job;
+    }
+
+    /**
+     * Cancels a batch job of the current user: queued dialogues never start and the ones being
+     * generated are stopped. Cancelling a finished job has no effect.
+     *
+     * @throws ResourceNotFoundException if the current user has no such job
+     */
+    public void cancelJob(UUID jobId) {
+        DialogueBatchJob job = getJob(jobId);
+        boolean cancelled = job.cancel(Instant.now());
+        log.info("Dialogue batch {} cancelled (already cancelled: {})", jobId, !cancelled);
+    }
+
+    /**
+     * @return Number of jobs held, running and finished
+     */
+    public int size() {
+        return jobs.size();
+    }
+
+    /**
+     * @return Number of batch dialogues being generated right now
+     */
+    public int getRunningCount() {
+        return properties.getParallelism() - permits.availablePermits();
+    }
+
+    /**
+     * @return Number of batch dialogues waiting for a free worker
+     */
+    public int getQueuedCount() {
+        return permits.getQueueLength();
+    }
+
+    void runItem(DialogueBatchJob job, DialogueBatchItem item, String apiKey) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(job, item, BatchItemStatus.CANCELLED);
+            return;
+        }
+        try {
+            Instant now = Instant.now();
+            if (!item.start(now)) {
+                return; // Cancelled while queued
+            }
+            job.itemStarted(now);
+            finish(job, item, generate(job, item, apiKey));
+        } finally {
+            permits.release();
+        }
+    }
+
+    private BatchItemStatus generate(DialogueBatchJob job, DialogueBatchItem item, String apiKey) {
+        StreamDialogueCommand command = item.getCommand();
+        try {
+            DialogueDTO dialogueDTO = dialogueCommandService.createDialogue(new CreateDialogueCommand(
+                    command.dialogueName(),
+                    command.sceneDescription(),
+                    command.characterConfigs(),
+                    job.isGlobal(),
+                    command.promptTemplate()));
+            long dialogueId = dialogueDTO.id();
+            DialogueCancellation cancellation = new DialogueCancellation(dialogueId);
+            item.generating(dialogueId, cancellation);
+
+            BatchDialogueEventHandler eventHandler = new BatchDialogueEventHandler(job, item);
+            int length = command.length() != null ? command.length() : DEFAULT_LENGTH;
+            orchestrator.generateDialogue(dialogueDTO, length, apiKey, eventHandler,
+                    new DialogueEventSequence(dialogueId), cancellation);
+
+            if (eventHandler.isCompleted()) {
+                return BatchItemStatus.COMPLETED;
+            }
+            return cancellation.isCancelled() ? BatchItemStatus.CANCELLED : BatchItemStatus.FAILED;
+        } catch (Exception e) {
+            log.warn("Dialogue {} of batch {} failed: {}", item.getIndex(), job.getId(), e.getMessage());
+            item.errorOccurred(e.getMessage());
+            return BatchItemStatus.FAILED;
+        }
+    }
+
+    private void finish(DialogueBatchJob job, DialogueBatchItem item, BatchItemStatus result) {
+        Instant now = Instant.now();
+        if (item.finish(result, now)) {
+            job.itemFinished(now);
+            if (job.getFinishedAt() != null) {
+                log.info("Dialogue batch {} finished: {} completed, {} failed, {} cancelled",
+                        job.getId(), job.count(BatchItemStatus.COMPLETED), job.count(BatchItemStatus.FAILED),
+                        job.count(BatchItemStatus.CANCELLED));
+            }
+        }
+    }
+
+    /**
+     * Removes jobs finished for longer than the retention. Unfinished jobs are never evicted.
+     */
+    void evict() {
+        Instant expiry = Instant.now().minus(properties.getRetention());
+        jobs.values().removeIf(job -> {
+            Instant finishedAt = job.getFinishedAt();
+            return finishedAt != null && finishedAt.isBefore(expiry);
+        });
+    }
+}
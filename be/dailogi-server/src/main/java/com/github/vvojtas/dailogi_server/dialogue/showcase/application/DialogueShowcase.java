@@ -0,0 +1,108 @@
+package com.github.vvojtas.dailogi_server.dialogue.showcase.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.vvojtas.dailogi_server.db.entity.DialogueStatus;
+import com.github.vvojtas.dailogi_server.dialogue.api.DialogueStatusChangedEvent;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueDTO;
+import com.github.vvojtas.dailogi_server.properties.DialogueShowcaseProperties;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Homepage showcase of global dialogues, served from memory.
+ * <p>
+ * The showcased dialogues are loaded into an immutable {@link ShowcaseSnapshot}, already serialized
+ * and compressed, so serving the homepage never touches the database or Jackson. A new snapshot is
+ * built off the request path and swapped in atomically; readers always see a complete snapshot.
+ * <p>
+ * A refresh is scheduled, debounced, when a dialogue is completed or a showcased dialogue changes
+ * status. It first compares a cheap version of the global dialogues with the snapshot's and only
+ * reloads when they differ. The version is also checked periodically, catching changes made
+ * without a status change event, e.g. by another instance.
+ */
+@Slf4j
+@Component
+public class DialogueShowcase {
+
+    private final ShowcaseLoader loader;
+    private final ObjectMapper objectMapper;
+    private final DialogueShowcaseProperties properties;
+    private final TaskScheduler scheduler;
+
+    private final AtomicReference<ShowcaseSnapshot> snapshot;
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+    public DialogueShowcase(ShowcaseLoader loader, ObjectMapper objectMapper,
+                            DialogueShowcaseProperties properties, TaskScheduler sseScheduler) {
+        this.loader = loader;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.scheduler = sseScheduler;
+        this.snapshot = new AtomicReference<>(ShowcaseSnapshot.build(null, List.of(), objectMapper));
+    }
+
+    @PostConstruct
+    public void init() {
+        // The first check runs right away and loads the initial snapshot
+        scheduler.scheduleWithFixedDelay(this::refreshIfChanged, properties.getCheckInterval());
+    }
+
+    /**
+     * @return The gallery of all showcased dialogues
+     */
+    public ShowcaseResource getGallery() {
+        return snapshot.get().gallery();
+    }
+
+    /**
+     * @return A showcased dialogue, empty if the dialogue is not showcased
+     */
+    public Optional<ShowcaseResource> findDialogue(long dialogueId) {
+        return Optional.ofNullable(snapshot.get().dialogues().get(dialogueId));
+    }
+
+    @EventListener
+    public void onDialogueStatusChanged(DialogueStatusChangedEvent event) {
+        if (event.status() != DialogueStatus.COMPLETED && !snapshot.get().dialogues().containsKey(event.dialogueId())) {
+            return;
+        }
+        if (refreshScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(() -> {
+                refreshScheduled.set(false);
+                refreshIfChanged();
+            }, Instant.now().plus(properties.getRefreshDelay()));
+        }
+    }
+
+    /**
+     * Reloads the showcase if the global dialogues changed since the current snapshot was loaded.
+     * Refreshes never run concurrently. A failed refresh keeps the current snapshot.
+     */
+    synchronized void refreshIfChanged() {
+        try {
+            ShowcaseVersion version = loader.readVersion();
+            if (version.equals(snapshot.get().version())) {
+                return;
+            }
+            long startNanos = System.nanoTime();
+            List<DialogueDTO> dialogues = loader.load(properties.getMaxDialogues());
+            ShowcaseSnapshot refreshed = ShowcaseSnapshot.build(version, dialogues, objectMapper);
+            snapshot.set(refreshed);
+            log.info("Showcase refreshed with {} dialogues ({} bytes, {} compressed) in {} ms",
+                    dialogues.size(), refreshed.gallery().json().length, refreshed.gallery().gzip().length,
+                    (System.nanoTime() - startNanos) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("Showcase refresh failed, keeping the current snapshot: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.vvojtas.dailogi_server.dialogue.showcase.application;
+
+import com.github.vvojtas.dailogi_server.db.entity.Dialogue;
+import com.github.vvojtas.dailogi_server.db.entity.DialogueCharacterConfig;
+import com.github.vvojtas.dailogi_server.db.entity.DialogueMessage;
+import com.github.vvojtas.dailogi_server.db.entity.DialogueStatus;
+import com.github.vvojtas.dailogi_server.db.repository.DialogueCharacterConfigRepository;
+import com.github.vvojtas.dailogi_server.db.repository.DialogueMessageRepository;
+import com.github.vvojtas.dailogi_server.db.repository.DialogueRepository;
+import com.github.vvojtas.dailogi_server.model.dialogue.mapper.DialogueMapper;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueDTO;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the showcased dialogues - the most recently updated completed global dialogues - with
+ * their characters and messages, in three queries regardless of the number of dialogues.
+ */
+@Component
+@RequiredArgsConstructor
+class ShowcaseLoader {
+
+    private final DialogueRepository dialogueRepository;
+    private final DialogueCharacterConfigRepository characterConfigRepository;
+    private final DialogueMessageRepository messageRepository;
+    private final DialogueMapper dialogueMapper;
+
+    @Transactional(readOnly = true)
+    public ShowcaseVersion readVersion() {
+        return new ShowcaseVersion(
+                dialogueRepository.countByIsGlobalTrueAndStatus(DialogueStatus.COMPLETED),
+                dialogueRepository.findLastUpdateOfGlobal(DialogueStatus.COMPLETED).orElse(null));
+    }
+
+    @Transactional(readOnly = true)
+    public List<DialogueDTO> load(int maxDialogues) {
+        List<Dialogue> dialogues = dialogueRepository.findByIsGlobalTrueAndStatusOrderByUpdatedAtDescIdDesc(
+                DialogueStatus.COMPLETED, PageRequest.of(0, maxDialogues));
+        if (dialogues.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = dialogues.stream().map(Dialogue::getId).toList();
+        Map<Long, List<DialogueCharacterConfig>> configs = characterConfigRepository.findByIdDialogueIdIn(ids).stream()
+                .collect(Collectors.groupingBy(config -> config.getDialogue().getId()));
+        Map<Long, List<DialogueMessage>> messages = messageRepository.findByDialogueIdInOrderByDialogueIdAscTurnNumberAscSpeakingOrderAscIdAsc(ids).stream()
+                .collect(Collectors.groupingBy(message -> message.getDialogue().getId()));
+
+        return dialogues.stream()
+                .map(dialogue -> dialogueMapper.toDTO(dialogue,
+                        configs.getOrDefault(dialogue.getId(), List.of()),
+                        messages.getOrDefault(dialogue.getId(), List.of())))
+                .toList();
+    }
+}
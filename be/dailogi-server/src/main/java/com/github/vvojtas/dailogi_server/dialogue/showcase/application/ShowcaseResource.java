@@ -0,0 +1,80 @@
+package com.github.vvojtas.dailogi_server.dialogue.showcase.application;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A showcase response serialized once, in plain and gzip encoding, with a strong ETag per encoding.
+ * The arrays are never modified after construction.
+ *
+ * @param json     The JSON body
+ * @param gzip     The JSON body, gzip compressed
+ * @param etag     Strong ETag of the plain body, quoted
+ * @param gzipEtag Strong ETag of the compressed body, quoted
+ */
+public record ShowcaseResource(byte[] json, byte[] gzip, String etag, String gzipEtag) {
+
+    /**
+     * Serializes and compresses a response body
+     */
+    static ShowcaseResource of(ObjectMapper objectMapper, Object body) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize showcase", e);
+        }
+        String hash = hash(json);
+        return new ShowcaseResource(json, gzip(json), '"' + hash + '"', '"' + hash + "-gz\"");
+    }
+
+    /**
+     * Tells whether an If-None-Match header matches either representation, so the client's copy is current.
+     * Weak comparison is used, as required for If-None-Match.
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.equals("*")) {
+                return true;
+            }
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag) || candidate.equals(gzipEtag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String hash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
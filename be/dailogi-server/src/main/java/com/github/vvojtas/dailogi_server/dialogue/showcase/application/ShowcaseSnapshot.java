@@ -0,0 +1,30 @@
+package com.github.vvojtas.dailogi_server.dialogue.showcase.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueShowcaseDTO;
+
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable state of the showcase: the gallery and each of its dialogues, ready to be sent.
+ *
+ * @param version   Version of the global dialogues the snapshot was loaded from, null before the first load
+ * @param gallery   All showcased dialogues
+ * @param dialogues Each showcased dialogue by its ID
+ */
+record ShowcaseSnapshot(ShowcaseVersion version, ShowcaseResource gallery, Map<Long, ShowcaseResource> dialogues) {
+
+    static ShowcaseSnapshot build(ShowcaseVersion version, List<DialogueDTO> dialogues, ObjectMapper objectMapper) {
+        ShowcaseResource gallery = ShowcaseResource.of(objectMapper,
+                new DialogueShowcaseDTO(dialogues, OffsetDateTime.now()));
+        Map<Long, ShowcaseResource> byId = new LinkedHashMap<>();
+        for (DialogueDTO dialogue : dialogues) {
+            byId.put(dialogue.id(), ShowcaseResource.of(objectMapper, dialogue));
+        }
+        return new ShowcaseSnapshot(version, gallery, Map.copyOf(byId));
+    }
+}
@@ -0,0 +1,11 @@
+package com.github.vvojtas.dailogi_server.dialogue.showcase.application;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Cheap summary of the showcased dialogues: it changes whenever a dialogue joins, leaves or changes
+ *
+ * @param count      Number of completed global dialogues
+ * @param lastUpdate Latest update of a completed global dialogue, null if there are none
+ */
+record ShowcaseVersion(long count, OffsetDateTime lastUpdate) {}
@@ -0,0 +1,19 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.api;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+import com.github.vvojtas.dailogi_server.model.dialogue.request.TokenCoalescingDTO;
+
+/**
+ * Command for streaming more turns of an existing dialogue
+ */
+public record ContinueDialogueCommand(
+    @Min(value = 1, message = "Turns must be at least 1")
+    @Max(value = 50, message = "Turns must not exceed 50")
+    Integer turns,
+
+    @Valid
+    TokenCoalescingDTO tokenCoalescing
+) {}
@@ -0,0 +1,56 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.api;
+
+/**
+ * Message relaying the stream of a dialogue between instances of the server over a {@link DialogueEventBus}.
+ * The instance generating a dialogue announces its stream, its events and how it finished; the other
+ * instances report clients attaching to and detaching from their copy of it, and ask for cancellation.
+ *
+ * @param nodeId     Instance that sent the message
+ * @param dialogueId The ID of the dialogue
+ * @param type       What the message announces
+ * @param ownerId    The ID of the user allowed to attach to the stream, for {@link Type#OPENED}
+ * @param name       SSE event name for {@link Type#EVENT}, error message for {@link Type#FAILED}
+ * @param id         SSE event ID for {@link Type#EVENT}
+ * @param data       Event payload for {@link Type#EVENT}, the number of messages persisted before the stream
+ *                   opened for {@link Type#OPENED}: the object itself when sent within the instance, its JSON
+ *                   tree when received from another instance
+ */
+public record DialogueBusMessage(
+        String nodeId,
+        long dialogueId,
+        Type type,
+        long ownerId,
+        String name,
+        String id,
+        Object data) {
+
+    public enum Type {
+        // Sent by the instance generating the dialogue
+        OPENED,
+        EVENT,
+        HEARTBEAT,
+        COMPLETED,
+        FAILED,
+        CANCELLED,
+        ABANDONED,
+        // Sent by the other instances
+        CANCEL_REQUESTED,
+        CLIENT_ATTACHED,
+        CLIENT_DETACHED
+    }
+
+    public static DialogueBusMessage opened(String nodeId, long dialogueId, long ownerId, int priorMessages) {
+        return new DialogueBusMessage(nodeId, dialogueId, Type.OPENED, ownerId, null, null, priorMessages);
+    }
+
+    public static DialogueBusMessage event(String nodeId, long dialogueId, String name, String id, Object data) {
+        return new DialogueBusMessage(nodeId, dialogueId, Type.EVENT, 0, name, id, data);
+    }
+
+    /**
+     * @param error Error message of a failed dialogue, null otherwise
+     */
+    public static DialogueBusMessage of(String nodeId, long dialogueId, Type type, String error) {
+        return new DialogueBusMessage(nodeId, dialogueId, type, 0, error, null, null);
+    }
+}
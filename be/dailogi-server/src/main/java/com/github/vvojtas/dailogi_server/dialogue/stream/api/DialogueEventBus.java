@@ -0,0 +1,25 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.api;
+
+import java.util.function.Consumer;
+
+/**
+ * Relays dialogue streams between the instances of the server, so a client can reconnect to,
+ * or cancel, a dialogue through any instance, not only the one generating it.
+ * <p>
+ * Messages are delivered to the listeners of every instance, including the sending one, in the
+ * order they were published by the sender; listeners skip their own instance's messages.
+ * Delivery is at most once: an instance that is down or disconnected misses messages.
+ */
+public interface DialogueEventBus {
+
+    /**
+     * Publishes a message to all instances. Never blocks on the transport.
+     */
+    void publish(DialogueBusMessage message);
+
+    /**
+     * Registers a listener for the messages of all instances. Listeners are called on a thread
+     * of the bus, one message at a time, and must not block.
+     */
+    void subscribe(Consumer<DialogueBusMessage> listener);
+}
@@ -8,6 +8,13 @@ import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.*;
  */
 public interface DialogueEventHandler {
 
+    /**
+     * Handles a dialogue waiting for a free generation slot.
+     * Sent when the dialogue is queued and again whenever its position changes.
+     * @param event The queued event data.
+     */
+    void onQueued(DialogueQueuedEventDto event);
+
     /**
      * Handles the start of the dialogue generation process.
      * @param event The dialogue start event data.
@@ -9,6 +9,7 @@ import jakarta.validation.constraints.Max;
 import java.util.List;
 
 import com.github.vvojtas.dailogi_server.model.dialogue.request.CharacterConfigDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.request.TokenCoalescingDTO;
 
 /**
  * Command for streaming a dialogue with real-time token generation
@@ -28,5 +29,11 @@ public record StreamDialogueCommand(
     
     @Min(value = 1, message = "Length must be at least 1")
     @Max(value = 50, message = "Length must not exceed 50")
-    Integer length
+    Integer length,
+
+    @Valid
+    TokenCoalescingDTO tokenCoalescing,
+
+    @Size(max = 100, message = "Prompt template name must not exceed 100 characters")
+    String promptTemplate
 ) {} 
\ No newline at end of file
@@ -9,5 +9,8 @@ public record CharacterCompleteEventDto(
     @JsonProperty("character_id") Long characterId,
     @JsonProperty("token_count") int tokenCount,
     @JsonProperty("message_content") String messageContent,
+    @JsonProperty("model") String model,
+    @JsonProperty("fallback_used") boolean fallbackUsed,
+    @JsonProperty("ttft_ms") Long ttftMs,
     @JsonProperty("id") String id
 ) {} 
\ No newline at end of file
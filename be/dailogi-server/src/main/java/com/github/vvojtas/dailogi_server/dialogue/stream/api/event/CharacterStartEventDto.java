@@ -15,6 +15,16 @@ public class CharacterStartEventDto {
      */
     private final CharacterConfigDTO characterConfig;
 
+    /**
+     * OpenRouter identifier of the model asked as well if the first token is late, null if the turn is not hedged.
+     */
+    private final String fallbackModel;
+
+    /**
+     * Milliseconds to wait for the first token before asking the fallback model, null if the turn is not hedged.
+     */
+    private final Long ttftBudgetMs;
+
     /**
      * Unique ID for this event, useful for idempotency or client-side tracking.
      */
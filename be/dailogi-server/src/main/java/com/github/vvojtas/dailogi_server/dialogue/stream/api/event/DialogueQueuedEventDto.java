@@ -0,0 +1,12 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.api.event;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Event DTO sent while a dialogue waits for a free generation slot
+ */
+public record DialogueQueuedEventDto(
+    @JsonProperty("dialogue_id") Long dialogueId,
+    @JsonProperty("position") int position,
+    @JsonProperty("id") String id
+) {}
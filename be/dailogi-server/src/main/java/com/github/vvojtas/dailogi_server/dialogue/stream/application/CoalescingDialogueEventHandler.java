@@ -0,0 +1,179 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueEventHandler;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.*;
+import com.github.vvojtas.dailogi_server.model.dialogue.request.CharacterConfigDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * DialogueEventHandler decorator that batches token events.
+ * Tokens are buffered and passed on to the delegate as a single token event carrying their
+ * concatenated text once {@code maxTokens} tokens are buffered, {@code maxDelay} has passed since
+ * the first buffered token, or another event (e.g. a character boundary) arrives - whichever comes first.
+ * The batched event keeps the ID of its last token. All other events are passed through unchanged,
+ * after any buffered tokens.
+ */
+@Slf4j
+public class CoalescingDialogueEventHandler implements DialogueEventHandler {
+
+    private final long dialogueId;
+    private final DialogueEventHandler delegate;
+    private final TaskScheduler scheduler;
+    private final int maxTokens;
+    private final Duration maxDelay;
+
+    // Guards the buffer and serializes delivery to the delegate, so a timed flush can't reorder events
+    private final ReentrantLock lock = new ReentrantLock();
+    private final StringBuilder buffer = new StringBuilder();
+    private CharacterConfigDTO bufferedCharacter;
+    private String lastTokenId;
+    private int bufferedTokens;
+    private ScheduledFuture<?> scheduledFlush;
+    // Identifies the current timed flush, so a stale timer that already fired does nothing
+    private long flushGeneration;
+
+    /**
+     * Creates a new coalescing handler.
+     *
+     * @param dialogueId The ID of the dialogue this handler is associated with
+     * @param delegate   Handler receiving the batched events
+     * @param scheduler  Scheduler running time-based flushes
+     * @param maxTokens  Maximum number of tokens in one batched event
+     * @param maxDelay   Maximum time a token waits before being sent
+     */
+    public CoalescingDialogueEventHandler(long dialogueId, DialogueEventHandler delegate, TaskScheduler scheduler,
+                                          int maxTokens, Duration maxDelay) {
+        this.dialogueId = dialogueId;
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+        this.maxTokens = maxTokens;
+        this.maxDelay = maxDelay;
+    }
+
+    @Override
+    public void onToken(TokenEventDto event) {
+        lock.lock();
+        try {
+            if (bufferedTokens > 0 && !bufferedCharacter.characterId().equals(event.characterConfig().characterId())) {
+                flush();
+            }
+            bufferedCharacter = event.characterConfig();
+            lastTokenId = event.id();
+            buffer.append(event.token());
+            bufferedTokens++;
+
+            if (bufferedTokens >= maxTokens) {
+                flush();
+            } else if (scheduledFlush == null) {
+                long generation = ++flushGeneration;
+                scheduledFlush = scheduler.schedule(() -> flushOnTimer(generation), Instant.now().plus(maxDelay));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onQueued(DialogueQueuedEventDto event) {
+        lock.lock();
+        try {
+            delegate.onQueued(event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onDialogueStart(DialogueStartEventDto event) {
+        lock.lock();
+        try {
+            flush();
+            delegate.onDialogueStart(event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onCharacterStart(CharacterStartEventDto event) {
+        lock.lock();
+        try {
+            flush();
+            delegate.onCharacterStart(event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onCharacterComplete(CharacterCompleteEventDto event) {
+        lock.lock();
+        try {
+            flush();
+            delegate.onCharacterComplete(event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onDialogueComplete(DialogueCompleteEventDto event) {
+        lock.lock();
+        try {
+            flush();
+            delegate.onDialogueComplete(event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onError(long dialogueId, Exception exception) {
+        lock.lock();
+        try {
+            flush();
+            delegate.onError(dialogueId, exception);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushOnTimer(long generation) {
+        lock.lock();
+        try {
+            if (generation != flushGeneration || scheduledFlush == null) {
+                return;
+            }
+            scheduledFlush = null;
+            flush();
+        } catch (Exception e) {
+            log.warn("Timed token flush failed for dialogue {}: {}", dialogueId, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sends buffered tokens as one event. Must be called with the lock held.
+     */
+    private void flush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (bufferedTokens == 0) {
+            return;
+        }
+        TokenEventDto batched = new TokenEventDto(bufferedCharacter, buffer.toString(), lastTokenId);
+        log.trace("Dialogue {}: flushing {} coalesced tokens", dialogueId, bufferedTokens);
+        buffer.setLength(0);
+        bufferedTokens = 0;
+        delegate.onToken(batched);
+    }
+}
@@ -0,0 +1,387 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import com.github.vvojtas.dailogi_server.config.AsyncConfig;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueEventHandler;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.DialogueQueuedEventDto;
+import com.github.vvojtas.dailogi_server.exception.DialogueQueueFullException;
+import com.github.vvojtas.dailogi_server.properties.DialogueExecutionProperties;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Admission scheduler placed in front of the dialogue executor.
+ * Instead of rejecting work when all generation slots are taken, dialogues wait in per-user queues.
+ * Free slots are handed out round-robin between users (special users get {@code specialUserWeight}
+ * picks per round), and no user may run more than their concurrency cap at once.
+ * While waiting, the dialogue's event handler receives {@code queued} events with its position.
+ * Blocking generations run on the dialogue executor and hold their slot until they return;
+ * non-blocking ones (reactive streams) are handed a callback releasing the slot when they end.
+ */
+@Slf4j
+@Component
+public class DialogueAdmissionScheduler {
+
+    private final TaskExecutor dialogueExecutor;
+    private final DialogueExecutionProperties properties;
+
+    // Guards all state below; a ReentrantLock avoids pinning virtual threads that release slots
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, UserQueue> users = new HashMap<>();
+    // Users with waiting dialogues, in round-robin order (head is next to be served)
+    private final Deque<UserQueue> ring = new ArrayDeque<>();
+    private final Map<Long, Admission> waiting = new LinkedHashMap<>();
+    private int running;
+
+    public DialogueAdmissionScheduler(
+            @Qualifier(AsyncConfig.DIALOGUE_EXECUTOR) TaskExecutor dialogueExecutor,
+            DialogueExecutionProperties properties) {
+        this.dialogueExecutor = dialogueExecutor;
+        this.properties = properties;
+    }
+
+    /**
+     * Submits a dialogue for generation. The task runs on the dialogue executor as soon as both a
+     * global and a per-user slot are available, with the SecurityContext of the submitting thread.
+     *
+     * @param dialogueId The ID of the dialogue
+     * @param userId The ID of the user owning the dialogue
+     * @param specialUser Whether the user is a special (weighted) user
+     * @param eventHandler Handler receiving queue position events while the dialogue waits
+     * @param eventSequence Source of IDs for the queue position events
+     * @param task The generation task
+     * @throws DialogueQueueFullException if the user already has the maximum number of waiting dialogues
+     */
+    public void submit(long dialogueId, long userId, boolean specialUser, DialogueEventHandler eventHandler,
+                       DialogueEventSequence eventSequence, Runnable task) {
+        Runnable securedTask = new DelegatingSecurityContextRunnable(task, SecurityContextHolder.getContext());
+        enqueue(new Admission(dialogueId, userId, eventHandler, eventSequence, release -> dialogueExecutor.execute(() -> {
+            try {
+                securedTask.run();
+            } finally {
+                release.run();
+            }
+        })), specialUser);
+    }
+
+    /**
+     * Submits a dialogue whose generation holds no thread while running, such as a reactive stream.
+     * Once both a global and a per-user slot are available, {@code onAdmitted} is called with a
+     * callback freeing the slots, to be run when the generation ends; running it again has no effect.
+     * {@code onAdmitted} runs on the thread that found the free slot, so it must not block.
+     *
+     * @param dialogueId The ID of the dialogue
+     * @param userId The ID of the user owning the dialogue
+     * @param specialUser Whether the user is a special (weighted) user
+     * @param eventHandler Handler receiving queue position events while the dialogue waits
+     * @param eventSequence Source of IDs for the queue position events
+     * @param onAdmitted Starts the generation, receiving the callback releasing its slot
+     * @throws DialogueQueueFullException if the user already has the maximum number of waiting dialogues
+     */
+    public void submitAsync(long dialogueId, long userId, boolean specialUser, DialogueEventHandler eventHandler,
+                            DialogueEventSequence eventSequence, Consumer<Runnable> onAdmitted) {
+        enqueue(new Admission(dialogueId, userId, eventHandler, eventSequence, onAdmitted), specialUser);
+    }
+
+    private void enqueue(Admission admission, boolean specialUser) {
+        long dialogueId = admission.dialogueId;
+        long userId = admission.userId;
+        List<Runnable> actions;
+
+        lock.lock();
+        try {
+            UserQueue userQueue = users.computeIfAbsent(userId, id -> new UserQueue(id, specialUser ? properties.getSpecialUserWeight() : 1));
+            if (isQueueFull(userQueue)) {
+                log.warn("User {} has {} dialogues waiting, rejecting dialogue {}", userId, userQueue.queue.size(), dialogueId);
+                removeIfIdle(userQueue);
+                throw new DialogueQueueFullException(properties.getMaxQueuedDialoguesPerUser());
+            }
+            if (userQueue.queue.isEmpty()) {
+                ring.addLast(userQueue);
+            }
+            userQueue.queue.addLast(admission);
+            waiting.put(dialogueId, admission);
+            actions = dispatch();
+        } finally {
+            lock.unlock();
+        }
+
+        actions.forEach(Runnable::run);
+    }
+
+    /**
+     * Checks that a new dialogue of the user would be accepted, so callers can reject it before
+     * creating anything. Another dialogue of the user submitted in between may still fill the queue.
+     *
+     * @param userId The ID of the user
+     * @throws DialogueQueueFullException if the user already has the maximum number of waiting dialogues
+     */
+    public void checkCapacity(long userId) {
+        lock.lock();
+        try {
+            UserQueue userQueue = users.get(userId);
+            if (userQueue != null && isQueueFull(userQueue)) {
+                log.warn("User {} has {} dialogues waiting, rejecting new dialogue", userId, userQueue.queue.size());
+                throw new DialogueQueueFullException(properties.getMaxQueuedDialoguesPerUser());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes a dialogue that is still waiting, e.g. because its client disconnected.
+     * Running dialogues are not affected.
+     *
+     * @param dialogueId The ID of the dialogue
+     * @return true if the dialogue was waiting and has been removed
+     */
+    public boolean cancel(long dialogueId) {
+        List<Runnable> actions;
+
+        lock.lock();
+        try {
+            Admission admission = waiting.remove(dialogueId);
+            if (admission == null) {
+                return false;
+            }
+            UserQueue userQueue = users.get(admission.userId);
+            userQueue.queue.remove(admission);
+            if (userQueue.queue.isEmpty()) {
+                ring.remove(userQueue);
+                removeIfIdle(userQueue);
+            }
+            log.debug("Dialogue {} removed from admission queue", dialogueId);
+            actions = positionUpdates();
+        } finally {
+            lock.unlock();
+        }
+
+        actions.forEach(Runnable::run);
+        return true;
+    }
+
+    /**
+     * @return Number of dialogues waiting for a generation slot
+     */
+    public int getQueuedCount() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of dialogues currently generating
+     */
+    public int getRunningCount() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(Admission admission) {
+        List<Runnable> actions;
+
+        lock.lock();
+        try {
+            running--;
+            UserQueue userQueue = users.get(admission.userId);
+            userQueue.running--;
+            removeIfIdle(userQueue);
+            actions = dispatch();
+        } finally {
+            lock.unlock();
+        }
+
+        actions.forEach(Runnable::run);
+    }
+
+    /**
+     * Starts as many waiting dialogues as the limits allow. Must be called with the lock held;
+     * returns the side effects (task submission, event sending) to run after unlocking.
+     */
+    private List<Runnable> dispatch() {
+        List<Admission> started = new ArrayList<>();
+
+        while (running < properties.getMaxConcurrentDialogues()) {
+            UserQueue next = nextEligibleUser();
+            if (next == null) {
+                break;
+            }
+            Admission admission = next.queue.pollFirst();
+            waiting.remove(admission.dialogueId);
+            next.running++;
+            running++;
+            started.add(admission);
+
+            if (next.queue.isEmpty()) {
+                ring.remove(next);
+                next.credits = next.weight;
+            } else if (--next.credits == 0) {
+                // Used up this round's share - move to the back of the ring
+                next.credits = next.weight;
+                ring.remove(next);
+                ring.addLast(next);
+            }
+        }
+
+        List<Runnable> actions = new ArrayList<>();
+        for (Admission admission : started) {
+            actions.add(() -> start(admission));
+        }
+        actions.addAll(positionUpdates());
+        return actions;
+    }
+
+    /**
+     * Finds the first user in ring order that has waiting dialogues and is below their cap.
+     * Users at their cap keep their place in the ring.
+     */
+    private UserQueue nextEligibleUser() {
+        for (UserQueue userQueue : ring) {
+            if (canRun(userQueue)) {
+                if (userQueue != ring.peekFirst()) {
+                    // Skipped users keep their order, the served one moves to the front
+                    ring.remove(userQueue);
+                    ring.addFirst(userQueue);
+                }
+                return userQueue;
+            }
+        }
+        return null;
+    }
+
+    private boolean isQueueFull(UserQueue userQueue) {
+        return userQueue.queue.size() >= properties.getMaxQueuedDialoguesPerUser() && !canRun(userQueue);
+    }
+
+    private boolean canRun(UserQueue userQueue) {
+        return userQueue.running < properties.getMaxConcurrentDialoguesPerUser() * userQueue.weight
+                && running < properties.getMaxConcurrentDialogues();
+    }
+
+    /**
+     * Predicts the dispatch order of all waiting dialogues by replaying the weighted round-robin
+     * and produces a queued event for every dialogue whose position changed.
+     */
+    private List<Runnable> positionUpdates() {
+        List<Runnable> actions = new ArrayList<>();
+        List<UserQueue> order = new ArrayList<>(ring);
+        List<Iterator<Admission>> iterators = new ArrayList<>(order.size());
+        int[] shares = new int[order.size()];
+        for (int i = 0; i < order.size(); i++) {
+            iterators.add(order.get(i).queue.iterator());
+            // The user at the head may have already used part of this round's share
+            shares[i] = order.get(i).credits;
+        }
+
+        int position = 0;
+        boolean remaining = !order.isEmpty();
+        while (remaining) {
+            remaining = false;
+            for (int i = 0; i < order.size(); i++) {
+                Iterator<Admission> iterator = iterators.get(i);
+                for (int picks = 0; picks < shares[i] && iterator.hasNext(); picks++) {
+                    Admission admission = iterator.next();
+                    position++;
+                    if (admission.lastPosition != position) {
+                        admission.lastPosition = position;
+                        int notifiedPosition = position;
+                        actions.add(() -> notifyQueued(admission, notifiedPosition));
+                    }
+                }
+                shares[i] = order.get(i).weight;
+                remaining |= iterator.hasNext();
+            }
+        }
+        return actions;
+    }
+
+    private void removeIfIdle(UserQueue userQueue) {
+        if (userQueue.running == 0 && userQueue.queue.isEmpty()) {
+            users.remove(userQueue.userId);
+        }
+    }
+
+    private void start(Admission admission) {
+        log.debug("Dialogue {} admitted for generation", admission.dialogueId);
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable releaseOnce = () -> {
+            if (released.compareAndSet(false, true)) {
+                release(admission);
+            }
+        };
+        try {
+            admission.starter.accept(releaseOnce);
+        } catch (TaskRejectedException e) {
+            log.error("Dialogue executor rejected admitted dialogue {}", admission.dialogueId, e);
+            releaseOnce.run();
+            admission.eventHandler.onError(admission.dialogueId, e);
+        }
+    }
+
+    private void notifyQueued(Admission admission, int position) {
+        try {
+            admission.eventHandler.onQueued(new DialogueQueuedEventDto(
+                    admission.dialogueId, position, admission.eventSequence.next()));
+        } catch (Exception e) {
+            log.warn("Failed to send queued event for dialogue {}: {}", admission.dialogueId, e.getMessage());
+        }
+    }
+
+    private static final class UserQueue {
+        private final long userId;
+        private final int weight;
+        private final Deque<Admission> queue = new ArrayDeque<>();
+        private int running;
+        private int credits;
+
+        private UserQueue(long userId, int weight) {
+            this.userId = userId;
+            this.weight = weight;
+            this.credits = weight;
+        }
+    }
+
+    private static final class Admission {
+        private final long dialogueId;
+        private final long userId;
+        private final DialogueEventHandler eventHandler;
+        private final DialogueEventSequence eventSequence;
+        // Starts the generation, given the callback releasing its slot
+        private final Consumer<Runnable> starter;
+        private int lastPosition;
+
+        private Admission(long dialogueId, long userId, DialogueEventHandler eventHandler,
+                          DialogueEventSequence eventSequence, Consumer<Runnable> starter) {
+            this.dialogueId = dialogueId;
+            this.userId = userId;
+            this.eventHandler = eventHandler;
+            this.eventSequence = eventSequence;
+            this.starter = starter;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cancellation token of a single dialogue generation.
+ * The stream session cancels it once nobody wants the dialogue anymore; the orchestrator checks it
+ * between turns and registers callbacks that abort the upstream request of the turn in progress.
+ */
+@Slf4j
+public class DialogueCancellation {
+
+    private final long dialogueId;
+
+    // Guards the state below; callbacks are run outside the lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Runnable> callbacks = new ArrayList<>();
+    private boolean cancelled;
+
+    public DialogueCancellation(long dialogueId) {
+        this.dialogueId = dialogueId;
+    }
+
+    /**
+     * Cancels the generation and runs the registered callbacks. Only the first call has any effect.
+     *
+     * @return true if this call cancelled the generation
+     */
+    public boolean cancel() {
+        List<Runnable> toRun;
+        lock.lock();
+        try {
+            if (cancelled) {
+                return false;
+            }
+            cancelled = true;
+            toRun = List.copyOf(callbacks);
+            callbacks.clear();
+        } finally {
+            lock.unlock();
+        }
+        log.debug("Dialogue {} generation cancelled, running {} callbacks", dialogueId, toRun.size());
+        toRun.forEach(DialogueCancellation::runSafely);
+        return true;
+    }
+
+    public boolean isCancelled() {
+        lock.lock();
+        try {
+            return cancelled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registers a callback run on cancellation, or right away if the generation is already cancelled.
+     *
+     * @return Registration removing the callback once it is no longer needed, e.g. after the turn finished
+     */
+    public Registration onCancel(Runnable callback) {
+        lock.lock();
+        try {
+            if (!cancelled) {
+                callbacks.add(callback);
+                return () -> remove(callback);
+            }
+        } finally {
+            lock.unlock();
+        }
+        runSafely(callback);
+        return () -> { };
+    }
+
+    public long getDialogueId() {
+        return dialogueId;
+    }
+
+    private void remove(Runnable callback) {
+        lock.lock();
+        try {
+            callbacks.remove(callback);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void runSafely(Runnable callback) {
+        try {
+            callback.run();
+        } catch (Exception e) {
+            log.warn("Cancellation callback failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Handle of a registered cancellation callback.
+     */
+    @FunctionalInterface
+    public interface Registration {
+        void remove();
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records dialogue generations stopped before completion and the upstream work they saved.
+ * Meters are tagged with the stream {@code mode} (emitter or reactive).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DialogueCancellationMetrics {
+
+    static final String CANCELLED = "dailogi.dialogue.cancelled";
+    static final String TURNS_SKIPPED = "dailogi.dialogue.cancelled.turns.skipped";
+    static final String TOKENS_SAVED = "dailogi.dialogue.cancelled.tokens.saved";
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Records a cancelled dialogue generation.
+     *
+     * @param dialogueId The ID of the dialogue
+     * @param mode       The stream mode that generated the dialogue
+     * @param progress   How far the generation got
+     */
+    void recordCancellation(long dialogueId, String mode, GenerationProgress progress) {
+        int skippedTurns = progress.getPlannedTurns() - progress.getCompletedTurns();
+        long savedTokens = progress.estimateRemainingTokens();
+
+        Counter.builder(CANCELLED)
+                .description("Dialogue generations cancelled before completion")
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .increment();
+        Counter.builder(TURNS_SKIPPED)
+                .description("Character turns not generated because their dialogue was cancelled")
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .increment(skippedTurns);
+        Counter.builder(TOKENS_SAVED)
+                .description("Estimated upstream tokens not generated because their dialogue was cancelled")
+                .baseUnit("tokens")
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .increment(savedTokens);
+
+        log.info("Dialogue {} cancelled after {} of {} turns ({} tokens), ~{} tokens saved",
+                dialogueId, progress.getCompletedTurns(), progress.getPlannedTurns(),
+                progress.getGeneratedTokens(), savedTokens);
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic event ID generator for a single dialogue stream.
+ * IDs have the form {@code dialogueId:sequence} with the sequence starting at 1, so they are
+ * unique across dialogues, ordered within a dialogue and cheap to create - no locking and no
+ * {@code SecureRandom} as with random UUIDs. The same ID is sent as the SSE {@code id:} field,
+ * which makes it usable as {@code Last-Event-ID} when a client reconnects. A continued dialogue
+ * starts its sequence past the IDs of its earlier runs, see {@link #continuing(long, Instant)}.
+ */
+public class DialogueEventSequence {
+
+    private static final char SEPARATOR = ':';
+    // Sequence numbers a continued run reserves per millisecond since the epoch
+    private static final long SEQUENCES_PER_MILLI = 1000;
+
+    private final long dialogueId;
+    private final String prefix;
+    private final AtomicLong sequence;
+
+    public DialogueEventSequence(long dialogueId) {
+        this(dialogueId, 0);
+    }
+
+    private DialogueEventSequence(long dialogueId, long initial) {
+        this.dialogueId = dialogueId;
+        this.prefix = Long.toString(dialogueId) + SEPARATOR;
+        this.sequence = new AtomicLong(initial);
+    }
+
+    /**
+     * Creates the sequence of a later run of a dialogue. It starts from the start time of the run, so
+     * its IDs follow those of any earlier run - which ended before this one started - as long as no run
+     * issues 1000 events per millisecond. A {@code Last-Event-ID} of an earlier run then replays this
+     * run from its start, instead of skipping its events.
+     *
+     * @param dialogueId The ID of the dialogue
+     * @param start When the run starts
+     */
+    public static DialogueEventSequence continuing(long dialogueId, Instant start) {
+        return new DialogueEventSequence(dialogueId, start.toEpochMilli() * SEQUENCES_PER_MILLI);
+    }
+
+    /**
+     * @return The ID for the next event of this dialogue
+     */
+    public String next() {
+        return prefix.concat(Long.toString(sequence.incrementAndGet()));
+    }
+
+    /**
+     * @return The sequence number of the most recently issued ID, 0 if none was issued
+     */
+    public long current() {
+        return sequence.get();
+    }
+
+    public long getDialogueId() {
+        return dialogueId;
+    }
+
+    /**
+     * Extracts the sequence number from an event ID of the given dialogue.
+     *
+     * @param dialogueId The ID of the dialogue the event should belong to
+     * @param eventId The event ID, e.g. taken from a {@code Last-Event-ID} header
+     * @return The sequence number, or -1 if the ID is malformed or belongs to another dialogue
+     */
+    public static long parseSequence(long dialogueId, String eventId) {
+        if (eventId == null) {
+            return -1;
+        }
+        int separator = eventId.lastIndexOf(SEPARATOR);
+        if (separator <= 0 || separator == eventId.length() - 1) {
+            return -1;
+        }
+        try {
+            if (Long.parseLong(eventId, 0, separator, 10) != dialogueId) {
+                return -1;
+            }
+            return Long.parseLong(eventId, separator + 1, eventId.length(), 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -1,28 +1,38 @@
 package com.github.vvojtas.dailogi_server.dialogue.stream.application;
 
+import com.github.vvojtas.dailogi_server.db.entity.DialogueStatus;
 import com.github.vvojtas.dailogi_server.model.dialogue.request.CharacterConfigDTO;
+import com.github.vvojtas.dailogi_server.dialogue.application.DialogueHistoryReader;
+import com.github.vvojtas.dailogi_server.dialogue.application.DialogueMessageWriter;
+import com.github.vvojtas.dailogi_server.diagnostics.api.DialogueTurnEvent;
+import com.github.vvojtas.dailogi_server.diagnostics.api.PromptBuildEvent;
 import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueEventHandler;
 import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.CharacterCompleteEventDto;
 import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.CharacterStartEventDto;
 import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.DialogueCompleteEventDto;
 import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.TokenEventDto;
 import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.DialogueStartEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.timeline.api.TimelineStage;
+import com.github.vvojtas.dailogi_server.dialogue.timeline.application.DialogueTimeline;
+import com.github.vvojtas.dailogi_server.dialogue.timeline.application.DialogueTimelineRecorder;
 import com.github.vvojtas.dailogi_server.generation.api.ChatMessage;
-import com.github.vvojtas.dailogi_server.generation.api.OpenRouterInterface;
+import com.github.vvojtas.dailogi_server.generation.api.HedgeOutcome;
+import com.github.vvojtas.dailogi_server.generation.api.HedgePlan;
+import com.github.vvojtas.dailogi_server.generation.application.HedgedGeneration;
 import com.github.vvojtas.dailogi_server.generation.application.OpenRouterPromptBuilder;
+import com.github.vvojtas.dailogi_server.generation.application.PromptContext;
 import com.github.vvojtas.dailogi_server.model.character.response.CharacterDTO;
 import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueCharacterConfigDTO;
 import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueDTO;
-import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueMessageDTO;
 import com.github.vvojtas.dailogi_server.model.llm.response.LLMDTO;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 @Component
@@ -31,14 +41,24 @@ import java.util.concurrent.CompletableFuture;
 public class DialogueGenerationOrchestrator {
 
     private static final int DEFAULT_LENGTH = 5; // Default number of dialogue turns (consider making this configurable or passed)
+    private static final String MODE = "emitter";
 
-    private final OpenRouterInterface openRouterInterface;
+    private final HedgedGeneration hedgedGeneration;
     private final OpenRouterPromptBuilder promptBuilder;
+    private final DialogueMessageWriter messageWriter;
+    private final DialogueCancellationMetrics cancellationMetrics;
+    private final DialogueMetrics dialogueMetrics;
+    private final DialogueHistoryReader historyReader;
+    private final DialogueTimelineRecorder timelineRecorder;
 
     /**
-     * Asynchronously generates the dialogue by prompting the OpenRouter for each character turn.
-     * This method runs in a separate thread managed by Spring's TaskExecutor.
-     * Events are delivered through the provided event handler.
+     * Generates the dialogue by prompting the OpenRouter for each character turn.
+     * This method is run by {@link DialogueAdmissionScheduler} on its own (virtual) thread from the
+     * dialogue executor, so blocking while a character's generation completes does not hold a platform thread.
+     * Events are delivered through the provided event handler. Finished messages and the final status
+     * are handed to the {@link DialogueMessageWriter}, which stores them in the background.
+     * Once the cancellation is triggered, the upstream request of the current turn is aborted
+     * and no further turns are generated.
      *
      * @param dialogueId    Unique ID for the dialogue session.
      * @param command       The command containing dialogue configuration.
@@ -46,34 +66,108 @@ public class DialogueGenerationOrchestrator {
      * @param llms          Map of LLM IDs to LLMDTOs used by the characters.
      * @param apiKey        The decrypted API key for OpenRouter.
      * @param eventHandler  Handler for dialogue generation events (token generation, completion, etc.)
+     * @param eventSequence Source of the dialogue's event IDs
+     * @param cancellation  Cancelled when nobody wants the dialogue anymore
      */
-    @Async // Marks this method for asynchronous execution
-    public void generateDialogue(DialogueDTO dialogueDTO, String apiKey, DialogueEventHandler eventHandler) {
+    public void generateDialogue(DialogueDTO dialogueDTO, String apiKey, DialogueEventHandler eventHandler,
+                                 DialogueEventSequence eventSequence, DialogueCancellation cancellation) {
+        generateDialogue(dialogueDTO, DEFAULT_LENGTH, apiKey, eventHandler, eventSequence, cancellation);
+    }
+
+    /**
+     * Generates a new dialogue with the given number of turns, like {@link #generateDialogue}.
+     *
+     * @param turnCount The number of turns to generate
+     */
+    public void generateDialogue(DialogueDTO dialogueDTO, int turnCount, String apiKey, DialogueEventHandler eventHandler,
+                                 DialogueEventSequence eventSequence, DialogueCancellation cancellation) {
+        generate(dialogueDTO, turnCount, false, null, apiKey, eventHandler, eventSequence, cancellation);
+    }
+
+    /**
+     * Generates more turns of an existing dialogue, like {@link #generateDialogue}.
+     * The persisted messages are streamed into the prompt context first, so the characters carry on
+     * the conversation; the characters speak in the order of the history and the new turns are
+     * numbered after its last turn. A continuation that is cancelled or fails leaves a completed
+     * dialogue completed, with the turns it got.
+     *
+     * @param dialogueDTO   The dialogue to continue, with the status it had before it was reopened
+     * @param turnCount     The number of turns to add
+     * @param apiKey        The decrypted API key for OpenRouter.
+     * @param eventHandler  Handler for dialogue generation events
+     * @param eventSequence Source of the dialogue's event IDs
+     * @param cancellation  Cancelled when nobody wants the dialogue anymore
+     */
+    public void continueDialogue(DialogueDTO dialogueDTO, int turnCount, String apiKey, DialogueEventHandler eventHandler,
+                                 DialogueEventSequence eventSequence, DialogueCancellation cancellation) {
+        generate(dialogueDTO, turnCount, true, DialogueStatus.valueOf(dialogueDTO.status()), apiKey,
+                eventHandler, eventSequence, cancellation);
+    }
+
+    private void generate(DialogueDTO dialogueDTO, int turnCount, boolean continuation, DialogueStatus previousStatus, String apiKey,
+                          DialogueEventHandler eventHandler, DialogueEventSequence eventSequence,
+                          DialogueCancellation cancellation) {
 
         log.info("Starting asynchronous dialogue generation for dialogueId: {}", dialogueDTO.id());
-        // SecurityContext is automatically propagated by Spring when using @Async
+        // SecurityContext is propagated by the admission scheduler from the submitting request
+        DialogueTimeline timeline = timelineRecorder.startIfAbsent(dialogueDTO.id());
+        timeline.record(TimelineStage.GENERATION_STARTED);
 
         try {  
             // Send dialogue start event
-            int turnCount = DEFAULT_LENGTH;
             List<CharacterConfigDTO> characterConfigs = dialogueDTO.characterConfigs().stream().map(DialogueCharacterConfigDTO::toCharacterConfigDTO).toList();
             eventHandler.onDialogueStart(new DialogueStartEventDto(
                 dialogueDTO.id(), 
                 characterConfigs,
-                turnCount));
+                turnCount,
+                eventSequence.next()));
             log.debug("Dialogue {} start event sent", dialogueDTO.id());
             
             log.debug("Dialogue {} will have {} turns.", dialogueDTO.id(), turnCount);
 
-            // Initialize message history list if not already present
-            List<DialogueMessageDTO> messageHistory = new ArrayList<>(dialogueDTO.messages() != null ? dialogueDTO.messages() : new ArrayList<>());
+            // System prompts are rendered once; each finished message is appended to the context
+            PromptBuildEvent contextBuild = new PromptBuildEvent();
+            contextBuild.begin();
+            PromptContext promptContext = promptBuilder.createContext(dialogueDTO);
+            contextBuild.end();
+            if (contextBuild.shouldCommit()) {
+                contextBuild.dialogueId = dialogueDTO.id();
+                contextBuild.phase = PromptBuildEvent.CONTEXT;
+                contextBuild.messages = promptContext.getMessageCount();
+                contextBuild.commit();
+            }
+            timeline.record(TimelineStage.PROMPT_BUILT, 0, promptContext.getMessageCount());
+            GenerationProgress progress = new GenerationProgress(turnCount * dialogueDTO.characterConfigs().size());
+
+            // A continued dialogue picks up after its persisted history
+            int firstTurn = 0;
+            List<DialogueCharacterConfigDTO> speakers = dialogueDTO.characterConfigs();
+            if (continuation) {
+                List<Long> speakingOrder = new ArrayList<>();
+                firstTurn = historyReader.read(dialogueDTO.id(), (characterId, turnNumber, content) -> {
+                    promptContext.addMessage(characterId, content);
+                    if (!speakingOrder.contains(characterId)) {
+                        speakingOrder.add(characterId);
+                    }
+                });
+                speakers = inSpeakingOrder(speakers, speakingOrder);
+                log.debug("Dialogue {} continues after turn {} with {} prompt messages.",
+                        dialogueDTO.id(), firstTurn, promptContext.getMessageCount());
+            }
 
             // For each turn, have each character generate a response sequentially
             for (int turn = 0; turn < turnCount; turn++) {
-                final int currentTurn = turn; // Make effectively final for lambda capture
+                final int currentTurn = firstTurn + turn; // Make effectively final for lambda capture
                 log.debug("Dialogue {} starting turn {}.", dialogueDTO.id(), currentTurn + 1);
 
-                for (DialogueCharacterConfigDTO config : dialogueDTO.characterConfigs()) {
+                int speakingOrder = 0;
+                for (DialogueCharacterConfigDTO config : speakers) {
+                    speakingOrder++;
+
+                    if (cancellation.isCancelled()) {
+                        stopCancelled(dialogueDTO.id(), previousStatus, progress, timeline);
+                        return;
+                    }
 
                     CharacterDTO character = config.character();
                     LLMDTO llm = config.llm();
@@ -81,10 +175,15 @@ public class DialogueGenerationOrchestrator {
                     log.debug("Dialogue {} turn {}: Character {} ({}) using LLM {} starts generation.",
                             dialogueDTO.id(), currentTurn + 1, character.name(), character.id(), llm.openrouterIdentifier());
 
-                    // Send character start event
+                    // Send character start event, announcing the fallback model if the turn is hedged
+                    HedgePlan hedgePlan = hedgedGeneration.planFor(llm);
                     try {
-                        String startEventId = UUID.randomUUID().toString();
-                        eventHandler.onCharacterStart(new CharacterStartEventDto(characterConfig, startEventId));
+                        String startEventId = eventSequence.next();
+                        eventHandler.onCharacterStart(new CharacterStartEventDto(
+                                characterConfig,
+                                hedgePlan != null ? hedgePlan.fallbackModel() : null,
+                                hedgePlan != null ? hedgePlan.ttftBudget().toMillis() : null,
+                                startEventId));
                         log.trace("Dialogue {} turn {}: Sent character-start event for character {}", dialogueDTO.id(), currentTurn + 1, character.id());
                     } catch (Exception e) {
                         log.error("Dialogue {} turn {}: Failed to send character-start event for character {}. Error: {}", 
@@ -92,34 +191,72 @@ public class DialogueGenerationOrchestrator {
                         throw new RuntimeException("Failed to send character-start event", e); // Propagate to main catch block
                     }
 
-                    // Build prompts using the prompt builder and updated message history
-                    DialogueDTO currentDialogueState = new DialogueDTO(
-                        dialogueDTO.id(),
-                        dialogueDTO.name(),
-                        dialogueDTO.sceneDescription(),
-                        dialogueDTO.status(),
-                        dialogueDTO.createdAt(),
-                        dialogueDTO.updatedAt(),
-                        dialogueDTO.characterConfigs(),
-                        messageHistory
-                    );
-                    
-                    List<ChatMessage> messages = promptBuilder.buildDialogueMessages(currentDialogueState, config);
-                    
+                    PromptBuildEvent turnBuild = new PromptBuildEvent();
+                    turnBuild.begin();
+                    List<ChatMessage> messages = promptContext.messagesFor(character.id());
+                    turnBuild.end();
+                    if (turnBuild.shouldCommit()) {
+                        turnBuild.dialogueId = dialogueDTO.id();
+                        turnBuild.characterId = character.id();
+                        turnBuild.phase = PromptBuildEvent.TURN;
+                        turnBuild.messages = messages.size();
+                        turnBuild.commit();
+                    }
+
+                    // Spans the upstream call and the streaming of the message, up to the next turn
+                    DialogueTurnEvent turnEvent = new DialogueTurnEvent();
+                    turnEvent.begin();
+                    timeline.record(TimelineStage.UPSTREAM_REQUEST, character.id(), currentTurn + 1);
                     final int[] tokenCountWrapper = new int[1];
                     final StringBuilder messageContentBuilder = new StringBuilder();
-                    CompletableFuture<Void> future = new CompletableFuture<>();
+                    final HedgeOutcome[] outcomeWrapper = new HedgeOutcome[1];
+                    CompletableFuture<String> future = new CompletableFuture<>();
+                    Runnable completion = () -> handleCharacterCompletion(dialogueDTO.id(), character.id(), character.name(),
+                            tokenCountWrapper[0], messageContentBuilder.toString(), llm, outcomeWrapper[0],
+                            promptContext, future, eventHandler, eventSequence);
 
-                    openRouterInterface.streamChat(
-                            llm.openrouterIdentifier(),
-                            messages,
-                            apiKey,
-                            token -> handleToken(dialogueDTO.id(), characterConfig, token, tokenCountWrapper, messageContentBuilder, eventHandler),
-                            () -> handleCharacterCompletion(dialogueDTO.id(), character.id(), character.name(), tokenCountWrapper[0], messageContentBuilder.toString(), messageHistory, currentTurn + 1, future, eventHandler)
-                    );
+                    Disposable generation = hedgedGeneration.streamTokens(llm, messages, apiKey, outcome -> outcomeWrapper[0] = outcome)
+                            .subscribe(
+                                    token -> {
+                                        progress.tokenGenerated();
+                                        handleToken(dialogueDTO.id(), characterConfig, token, tokenCountWrapper, messageContentBuilder, eventHandler, eventSequence);
+                                        if (tokenCountWrapper[0] == 1) {
+                                            timeline.record(TimelineStage.FIRST_TOKEN, character.id(), currentTurn + 1);
+                                        }
+                                    },
+                                    error -> {
+                                        // As before, a failed upstream ends the turn with what has been received
+                                        log.error("Dialogue {} turn {}: generation for character {} failed: {}",
+                                                dialogueDTO.id(), currentTurn + 1, character.id(), error.getMessage());
+                                        completion.run();
+                                    },
+                                    completion);
+                    // Dispose the upstream subscription, closing its connection, once the dialogue is cancelled
+                    DialogueCancellation.Registration cancelTurn = cancellation.onCancel(() -> {
+                        generation.dispose();
+                        future.complete(null);
+                    });
 
                     // Wait for the current character's generation to complete before moving to the next
-                    future.join();
+                    String messageContent;
+                    try {
+                        messageContent = future.join();
+                    } finally {
+                        cancelTurn.remove();
+                    }
+                    commitTurnEvent(turnEvent, dialogueDTO.id(), character.id(), currentTurn + 1,
+                            outcomeWrapper[0], tokenCountWrapper[0], cancellation.isCancelled());
+                    timeline.record(TimelineStage.CHARACTER_COMPLETE, character.id(), tokenCountWrapper[0]);
+                    if (cancellation.isCancelled()) {
+                        stopCancelled(dialogueDTO.id(), previousStatus, progress, timeline);
+                        return;
+                    }
+                    progress.turnCompleted();
+                    if (messageContent != null) {
+                        // Queued here rather than in the completion callback, which runs on the HTTP client's
+                        // I/O thread: waiting for room in a backed-up write queue only delays the next turn
+                        messageWriter.append(dialogueDTO.id(), character.id(), currentTurn + 1, speakingOrder, messageContent);
+                    }
                     log.debug("Dialogue {} turn {}: Character {} ({}) finished generation.",
                             dialogueDTO.id(), currentTurn + 1, character.name(), character.id());
                 } // End character loop
@@ -127,14 +264,21 @@ public class DialogueGenerationOrchestrator {
                 log.debug("Dialogue {} finished turn {}.", dialogueDTO.id(), currentTurn + 1);
             } // End turn loop
 
-            String dialogueCompleteId = UUID.randomUUID().toString();
+            String dialogueCompleteId = eventSequence.next();
             log.info("Dialogue {} generation finished. Sending dialogue-complete event.", dialogueDTO.id());
             eventHandler.onDialogueComplete(new DialogueCompleteEventDto(
                     "completed", turnCount, dialogueCompleteId)); // Use the calculated turnCount
-            log.debug("Dialogue {} completed successfully.", dialogueDTO.id());
+            messageWriter.markCompleted(dialogueDTO.id());
+            dialogueMetrics.recordCompleted(MODE);
+            timeline.record(TimelineStage.COMPLETED);
+            log.debug("Dialogue {} completed successfully. Prompt context: {} messages, ~{} bytes.",
+                    dialogueDTO.id(), promptContext.getMessageCount(), promptContext.estimateMemoryBytes());
 
         } catch (Exception e) {
             log.error("Error during asynchronous dialogue generation for dialogueId {}", dialogueDTO.id(), e);
+            messageWriter.markUnfinished(dialogueDTO.id(), previousStatus);
+            dialogueMetrics.recordFailed(MODE);
+            timeline.record(TimelineStage.FAILED);
             // Notify the event handler about the error
             eventHandler.onError(dialogueDTO.id(), e);
         }
@@ -144,13 +288,54 @@ public class DialogueGenerationOrchestrator {
 
     // --- Helper methods for handling generation steps and sending events ---
 
-    private void handleToken(long dialogueId, CharacterConfigDTO config, String token, int[] tokenCountWrapper, StringBuilder messageBuilder, DialogueEventHandler eventHandler) {
+    /**
+     * Orders the characters as they spoke in the history; characters that never spoke go last.
+     */
+    private static List<DialogueCharacterConfigDTO> inSpeakingOrder(List<DialogueCharacterConfigDTO> configs, List<Long> speakingOrder) {
+        List<DialogueCharacterConfigDTO> ordered = new ArrayList<>(configs);
+        ordered.sort(Comparator.comparingInt(config -> {
+            int index = speakingOrder.indexOf(config.character().id());
+            return index < 0 ? Integer.MAX_VALUE : index;
+        }));
+        return ordered;
+    }
+
+    private static void commitTurnEvent(DialogueTurnEvent event, long dialogueId, long characterId, int turn,
+                                        HedgeOutcome outcome, int tokens, boolean cancelled) {
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        event.dialogueId = dialogueId;
+        event.characterId = characterId;
+        event.turn = turn;
+        // No outcome when the upstream failed or the turn was cancelled before the first token
+        if (outcome != null) {
+            event.model = outcome.model();
+            event.timeToFirstToken = outcome.timeToFirstToken() != null ? outcome.timeToFirstToken().toNanos() : 0;
+        }
+        event.tokens = tokens;
+        event.cancelled = cancelled;
+        event.commit();
+    }
+
+    /**
+     * Ends a cancelled generation. No events are sent, as nobody is listening anymore.
+     */
+    private void stopCancelled(long dialogueId, DialogueStatus previousStatus, GenerationProgress progress, DialogueTimeline timeline) {
+        cancellationMetrics.recordCancellation(dialogueId, MODE, progress);
+        dialogueMetrics.recordCancelled(MODE);
+        timeline.record(TimelineStage.CANCELLED);
+        messageWriter.markUnfinished(dialogueId, previousStatus);
+    }
+
+    private void handleToken(long dialogueId, CharacterConfigDTO config, String token, int[] tokenCountWrapper, StringBuilder messageBuilder, DialogueEventHandler eventHandler, DialogueEventSequence eventSequence) {
         try {
             tokenCountWrapper[0]++;
             // Append token to message builder
             messageBuilder.append(token);
             
-            String eventId = UUID.randomUUID().toString();
+            String eventId = eventSequence.next();
             log.trace("Dialogue {} sending token event for character {}", dialogueId, config.characterId());
             
             eventHandler.onToken(new TokenEventDto(config, token, eventId));
@@ -167,33 +352,37 @@ public class DialogueGenerationOrchestrator {
             String characterName,
             int tokenCount, 
             String messageContent,
-            List<DialogueMessageDTO> messageHistory,
-            int turnNumber,
-            CompletableFuture<Void> future, 
-            DialogueEventHandler eventHandler) {
+            LLMDTO llm,
+            HedgeOutcome outcome,
+            PromptContext promptContext,
+            CompletableFuture<String> future, 
+            DialogueEventHandler eventHandler,
+            DialogueEventSequence eventSequence) {
+        String finishedMessage = null;
         try {
-            String completeId = UUID.randomUUID().toString();
+            String completeId = eventSequence.next();
             log.debug("Dialogue {} sending character-complete event for character {} ({} tokens).", dialogueId, characterId, tokenCount);
             
-            // Create a new message and add it to the history
-            DialogueMessageDTO newMessage = new DialogueMessageDTO(
-                (long) (messageHistory.size() + 1), // Generate next message ID
-                turnNumber,
-                characterId,
-                messageContent
-            );
-            
-            // Add to message history
-            messageHistory.add(newMessage);
-            log.debug("Added message from character {} to history. Total messages: {}", characterId, messageHistory.size());
+            // Append the message to every character's prompt
+            promptContext.addMessage(characterId, messageContent);
+            log.debug("Added message from character {} to prompt context. Total prompt messages: {}", characterId, promptContext.getMessageCount());
             
-            eventHandler.onCharacterComplete(new CharacterCompleteEventDto(characterId, tokenCount, messageContent, completeId));
+            eventHandler.onCharacterComplete(new CharacterCompleteEventDto(
+                    characterId,
+                    tokenCount,
+                    messageContent,
+                    outcome != null ? outcome.model() : llm.openrouterIdentifier(),
+                    outcome != null && outcome.fallbackUsed(),
+                    outcome != null ? outcome.timeToFirstToken().toMillis() : null,
+                    completeId));
+            finishedMessage = messageContent;
         } catch (Exception e) {
             log.error("Error sending character-complete event for dialogue {}, character {}", dialogueId, characterId, e);
             eventHandler.onError(dialogueId, e);
         } finally {
             // Always complete the future so the main loop can continue/finish.
-            future.complete(null);
+            // It carries the message to persist, or null if the completion could not be handled.
+            future.complete(finishedMessage);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how dialogue generations end and how long writing their events to SSE clients takes.
+ * Outcomes are tagged with the stream {@code mode} (emitter or reactive); writes with the event name.
+ */
+@Component
+public class DialogueMetrics {
+
+    static final String DIALOGUES = "dailogi.dialogues";
+    static final String SSE_WRITE = "dailogi.sse.write";
+    static final String SSE_WRITE_FAILURES = "dailogi.sse.write.failures";
+
+    static final String COMPLETED = "completed";
+    static final String FAILED = "failed";
+    static final String CANCELLED = "cancelled";
+
+    private final MeterRegistry meterRegistry;
+    // One write is timed per event, so the meters are looked up once per event name
+    private final Map<String, Timer> writeTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> writeFailures = new ConcurrentHashMap<>();
+
+    public DialogueMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    void recordCompleted(String mode) {
+        recordOutcome(mode, COMPLETED);
+    }
+
+    void recordFailed(String mode) {
+        recordOutcome(mode, FAILED);
+    }
+
+    void recordCancelled(String mode) {
+        recordOutcome(mode, CANCELLED);
+    }
+
+    /**
+     * Records a successful write of an event to an SSE client, flush included.
+     */
+    void recordWrite(String eventName, long nanos) {
+        writeTimers.computeIfAbsent(eventName, name -> Timer.builder(SSE_WRITE)
+                        .description("Time to write a dialogue event to its SSE client")
+                        .tag("event", name)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records a write of an event that failed, detaching its SSE client.
+     */
+    void recordWriteFailure(String eventName) {
+        writeFailures.computeIfAbsent(eventName, name -> Counter.builder(SSE_WRITE_FAILURES)
+                        .description("Dialogue events that could not be written to their SSE client")
+                        .tag("event", name)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    private void recordOutcome(String mode, String outcome) {
+        Counter.builder(DIALOGUES)
+                .description("Dialogue generations by how they ended")
+                .tag("mode", mode)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+}
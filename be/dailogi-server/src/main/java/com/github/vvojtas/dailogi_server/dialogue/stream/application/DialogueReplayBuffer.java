@@ -0,0 +1,70 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-size ring buffer of the most recent events of a dialogue stream, used to replay events
+ * a reconnecting client missed. Once full, each new event overwrites the oldest one.
+ * Not thread-safe; access is guarded by the owning {@link DialogueStreamSession}.
+ */
+public class DialogueReplayBuffer {
+
+    /**
+     * An event as sent to the client.
+     *
+     * @param sequence Position of the event in the dialogue's event sequence
+     * @param id       The SSE event ID
+     * @param name     The SSE event name
+     * @param data     The event payload
+     */
+    public record BufferedEvent(long sequence, String id, String name, Object data) {}
+
+    private final BufferedEvent[] events;
+    // Index of the oldest event
+    private int head;
+    private int size;
+
+    public DialogueReplayBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.events = new BufferedEvent[capacity];
+    }
+
+    public void append(BufferedEvent event) {
+        if (size < events.length) {
+            events[(head + size) % events.length] = event;
+            size++;
+        } else {
+            events[head] = event;
+            head = (head + 1) % events.length;
+        }
+    }
+
+    /**
+     * @param sequence The sequence of the last event the client received, 0 for none
+     * @return Retained events with a higher sequence, oldest first
+     */
+    public List<BufferedEvent> eventsAfter(long sequence) {
+        List<BufferedEvent> result = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            BufferedEvent event = events[(head + i) % events.length];
+            if (event.sequence() > sequence) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Sequence of the oldest retained event, or -1 if the buffer is empty
+     */
+    public long oldestSequence() {
+        return size == 0 ? -1 : events[head].sequence();
+    }
+
+    public int size() {
+        return size;
+    }
+}
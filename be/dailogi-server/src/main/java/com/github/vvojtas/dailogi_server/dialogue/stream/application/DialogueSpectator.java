@@ -0,0 +1,253 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import com.github.vvojtas.dailogi_server.model.dialogue.response.event.SlowConsumerEventDto;
+import com.github.vvojtas.dailogi_server.properties.DialogueStreamProperties.Spectators.SlowConsumerPolicy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * One spectator of a dialogue stream. Events are queued by the session and written by a drain task
+ * on the scheduler, so a slow spectator never delays the generation nor the other clients.
+ * Once more than {@code capacity} live events are waiting - catch-up events of a joining spectator
+ * do not count - the {@link SlowConsumerPolicy} applies:
+ * token events are dropped, or the spectator is disconnected with a resume hint. Events other than
+ * tokens are never dropped.
+ */
+@Slf4j
+class DialogueSpectator {
+
+    private static final String TOKEN_EVENT = "token";
+
+    /**
+     * An event serialized once and written as is to every spectator
+     *
+     * @param id   SSE event ID, null for events outside the dialogue's sequence
+     * @param name SSE event name
+     * @param data The rendered event
+     */
+    record Frame(String id, String name, Set<DataWithMediaType> data) {}
+
+    private final long dialogueId;
+    private final SseEmitter emitter;
+    private final int capacity;
+    private final SlowConsumerPolicy policy;
+    private final DialogueSpectators spectators;
+    private final TaskScheduler scheduler;
+    private final DialogueMetrics metrics;
+    private final Consumer<DialogueSpectator> onClosed;
+
+    // Guards all state below; never held while writing to the client
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Frame> queue = new ArrayDeque<>();
+    // Catch-up events still at the head of the queue
+    private int catchUpQueued;
+    private boolean draining;
+    // The dialogue finished: the stream completes once the queue is written
+    private boolean finished;
+    private Exception error;
+    // The queue overflowed under the disconnect policy: the stream completes after the resume hint
+    private boolean slow;
+    private boolean closed;
+    private boolean missedTokens;
+    // Written by the drain task only; drain tasks of a spectator never overlap
+    private String lastSentId;
+
+    DialogueSpectator(long dialogueId, SseEmitter emitter, int capacity, SlowConsumerPolicy policy,
+                      DialogueSpectators spectators, TaskScheduler scheduler, DialogueMetrics metrics,
+                      Consumer<DialogueSpectator> onClosed) {
+        this.dialogueId = dialogueId;
+        this.emitter = emitter;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.spectators = spectators;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.onClosed = onClosed;
+        emitter.onCompletion(this::close);
+        emitter.onTimeout(() -> {
+            close();
+            emitter.complete();
+        });
+        emitter.onError(ex -> {
+            log.debug("Dialogue {}: spectator stream error: {}", dialogueId, ex.getMessage());
+            close();
+        });
+    }
+
+    /**
+     * Queues the catch-up events of a joining spectator, regardless of the capacity; they are not
+     * counted against it while they are written.
+     */
+    void catchUp(List<Frame> frames) {
+        lock.lock();
+        try {
+            queue.addAll(frames);
+            catchUpQueued += frames.size();
+            startDrain();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a live event.
+     *
+     * @return false if the spectator takes no more events and should be forgotten
+     */
+    boolean offer(Frame frame) {
+        lock.lock();
+        try {
+            if (closed || finished || slow) {
+                return false;
+            }
+            int liveQueued = queue.size() - catchUpQueued;
+            if (liveQueued >= capacity) {
+                if (policy == SlowConsumerPolicy.DISCONNECT) {
+                    log.info("Dialogue {}: spectator fell {} events behind, disconnecting it", dialogueId, liveQueued);
+                    slow = true;
+                    queue.clear();
+                    catchUpQueued = 0;
+                    startDrain();
+                    return false;
+                }
+                if (TOKEN_EVENT.equals(frame.name())) {
+                    missedTokens = true;
+                    return true;
+                }
+            }
+            queue.add(frame);
+            startDrain();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Whether token events were dropped since the last call
+     */
+    boolean takeMissedTokens() {
+        lock.lock();
+        try {
+            boolean missed = missedTokens;
+            missedTokens = false;
+            return missed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Completes the stream, with the given error if any, once the queued events are written.
+     */
+    void finish(Exception exception) {
+        lock.lock();
+        try {
+            if (closed || finished || slow) {
+                return;
+            }
+            finished = true;
+            error = exception;
+            startDrain();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void close() {
+        boolean wasOpen;
+        lock.lock();
+        try {
+            wasOpen = !closed;
+            closed = true;
+            queue.clear();
+            catchUpQueued = 0;
+        } finally {
+            lock.unlock();
+        }
+        if (wasOpen) {
+            onClosed.accept(this);
+        }
+    }
+
+    private void startDrain() {
+        if (!draining) {
+            draining = true;
+            scheduler.schedule(this::drain, Instant.now());
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Frame frame;
+            lock.lock();
+            try {
+                frame = queue.poll();
+                if (frame != null && catchUpQueued > 0) {
+                    catchUpQueued--;
+                }
+                if (frame == null) {
+                    draining = false;
+                    if (closed || !(finished || slow)) {
+                        return;
+                    }
+                    closed = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (frame == null) {
+                complete();
+                return;
+            }
+            if (!write(frame)) {
+                return;
+            }
+        }
+    }
+
+    private void complete() {
+        try {
+            if (slow) {
+                Frame hint = spectators.render(DialogueSpectators.SLOW_CONSUMER_EVENT, null, new SlowConsumerEventDto(lastSentId));
+                if (hint != null) {
+                    emitter.send(hint.data());
+                }
+                emitter.complete();
+            } else if (error != null) {
+                emitter.completeWithError(error);
+            } else {
+                emitter.complete();
+            }
+        } catch (Exception e) {
+            log.debug("Dialogue {}: error completing spectator stream: {}", dialogueId, e.getMessage());
+        }
+        onClosed.accept(this);
+    }
+
+    private boolean write(Frame frame) {
+        long startNanos = System.nanoTime();
+        try {
+            emitter.send(frame.data());
+        } catch (Exception e) {
+            metrics.recordWriteFailure(frame.name());
+            log.info("Dialogue {}: failed to send event '{}' to spectator, closing it: {}", dialogueId, frame.name(), e.getMessage());
+            close();
+            return false;
+        }
+        metrics.recordWrite(frame.name(), System.nanoTime() - startNanos);
+        if (frame.id() != null) {
+            lastSentId = frame.id();
+        }
+        return true;
+    }
+}
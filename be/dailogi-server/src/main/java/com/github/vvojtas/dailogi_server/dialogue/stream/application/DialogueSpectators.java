@@ -0,0 +1,77 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.DialogueSpectator.Frame;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.event.DialogueSnapshotEventDto;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.event.SnapshotMessageDto;
+import com.github.vvojtas.dailogi_server.properties.DialogueStreamProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Creates the spectators of dialogue streams and renders events for them. Each event is serialized
+ * once into a {@link Frame} that is written as is to every spectator of the dialogue.
+ */
+@Slf4j
+public class DialogueSpectators {
+
+    static final String SNAPSHOT_EVENT = "snapshot";
+    static final String SLOW_CONSUMER_EVENT = "slow-consumer";
+
+    private final ObjectMapper objectMapper;
+    private final TaskScheduler scheduler;
+    private final DialogueMetrics metrics;
+    private final DialogueStreamProperties.Spectators properties;
+
+    /**
+     * @param objectMapper Serializes event payloads
+     * @param scheduler    Runs the writes to each spectator, on a thread of their own
+     * @param metrics      Records the latency and failures of event writes
+     * @param properties   Queue size and slow consumer policy of spectators
+     */
+    public DialogueSpectators(ObjectMapper objectMapper, TaskScheduler scheduler, DialogueMetrics metrics,
+                              DialogueStreamProperties.Spectators properties) {
+        this.objectMapper = objectMapper;
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+        this.properties = properties;
+    }
+
+    DialogueSpectator create(long dialogueId, SseEmitter emitter, Consumer<DialogueSpectator> onClosed) {
+        return new DialogueSpectator(dialogueId, emitter, properties.getBufferSize(), properties.getSlowConsumerPolicy(),
+                this, scheduler, metrics, onClosed);
+    }
+
+    /**
+     * @return The frame of an event, null if its payload cannot be serialized
+     */
+    Frame render(String name, String id, Object data) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize '{}' event {} for spectators: {}", name, id, e.getMessage());
+            return null;
+        }
+        SseEmitter.SseEventBuilder event = SseEmitter.event();
+        if (id != null) {
+            event.id(id);
+        }
+        event.name(name).data(json);
+        return new Frame(id, name, Collections.unmodifiableSet(event.build()));
+    }
+
+    /**
+     * @param messages Completed messages, the last one's ID is the ID of the event
+     */
+    Frame renderSnapshot(List<SnapshotMessageDto> messages) {
+        String id = messages.isEmpty() ? null : messages.getLast().id();
+        return render(SNAPSHOT_EVENT, id, new DialogueSnapshotEventDto(messages, id));
+    }
+}
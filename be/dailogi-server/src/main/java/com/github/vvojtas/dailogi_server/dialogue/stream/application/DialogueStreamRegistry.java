@@ -0,0 +1,234 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueBusMessage;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueEventBus;
+import com.github.vvojtas.dailogi_server.properties.DialogueStreamProperties;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the {@link DialogueStreamSession}s of live and recently finished dialogues, so clients
+ * can reconnect and resume their streams. Finished sessions are evicted once they are older than
+ * the configured retention, or earlier - oldest first - when more sessions than allowed are held.
+ * <p>
+ * Besides the sessions of dialogues generated here, the registry keeps replicas of the dialogues
+ * generated by other instances, fed from the {@link DialogueEventBus}, so a client can reconnect
+ * to, or cancel, any dialogue through any instance. Dialogues opened before this instance
+ * subscribed to the bus are not replicated. Replicas rebuild the completed messages from the
+ * relayed token events, for the snapshot of their spectators; the messages themselves are not
+ * relayed. The generating instance sends a heartbeat for its quiet dialogues; a replica hearing
+ * nothing about its dialogue for the configured timeout - its instance stopped, or the outcome
+ * was missed - is failed and then evicted like any finished session.
+ */
+@Slf4j
+@Component
+public class DialogueStreamRegistry {
+
+    private final DialogueStreamProperties.Resume properties;
+    private final DialogueStreamProperties.Cluster clusterProperties;
+    private final TaskScheduler scheduler;
+    private final DialogueMetrics metrics;
+    private final DialogueEventBus bus;
+    private final String nodeId;
+    private final ObjectMapper objectMapper;
+    private final DialogueSpectators spectators;
+    private final Map<Long, DialogueStreamSession> sessions = new ConcurrentHashMap<>();
+
+    public DialogueStreamRegistry(DialogueStreamProperties dialogueStreamProperties, TaskScheduler sseScheduler,
+                                  DialogueMetrics metrics, DialogueEventBus bus, ObjectMapper objectMapper) {
+        this.properties = dialogueStreamProperties.getResume();
+        this.clusterProperties = dialogueStreamProperties.getCluster();
+        this.scheduler = sseScheduler;
+        this.metrics = metrics;
+        this.bus = bus;
+        this.nodeId = dialogueStreamProperties.getCluster().getNodeId();
+        this.objectMapper = objectMapper;
+        this.spectators = new DialogueSpectators(objectMapper, sseScheduler, metrics, dialogueStreamProperties.getSpectators());
+    }
+
+    @PostConstruct
+    public void init() {
+        bus.subscribe(this::onBusMessage);
+        scheduler.scheduleWithFixedDelay(this::evict, properties.getEvictionInterval());
+        scheduler.scheduleWithFixedDelay(this::heartbeat, clusterProperties.getHeartbeatInterval());
+    }
+
+    /**
+     * Creates and registers the session of a new dialogue stream.
+     *
+     * @param dialogueId The ID of the dialogue
+     * @param ownerId       The ID of the user allowed to attach to the stream
+     * @param priorMessages Number of messages of the dialogue persisted before the stream opened
+     * @param onAbandon     Callback receiving the dialogue ID when no client reconnects within the grace period
+     * @return The new session, with no client attached yet
+     */
+    public DialogueStreamSession create(long dialogueId, long ownerId, int priorMessages, Consumer<Long> onAbandon) {
+        DialogueStreamSession session = new DialogueStreamSession(
+                dialogueId, ownerId, priorMessages, properties.getBufferSize(), scheduler, properties.getGracePeriod(),
+                onAbandon, metrics, bus, nodeId, false, spectators);
+        sessions.put(dialogueId, session);
+        bus.publish(DialogueBusMessage.opened(nodeId, dialogueId, ownerId, priorMessages));
+        log.debug("Registered stream session for dialogue {}. Sessions: {}", dialogueId, sessions.size());
+        return session;
+    }
+
+    /**
+     * Applies a message of another instance: replicates the dialogues it generates, and lets the
+     * dialogues generated here be cancelled and kept alive by clients attached elsewhere.
+     */
+    void onBusMessage(DialogueBusMessage message) {
+        if (nodeId.equals(message.nodeId())) {
+            return;
+        }
+        long dialogueId = message.dialogueId();
+        if (message.type() == DialogueBusMessage.Type.OPENED) {
+            int priorMessages = message.data() != null ? objectMapper.convertValue(message.data(), Integer.class) : 0;
+            DialogueStreamSession replica = new DialogueStreamSession(
+                    dialogueId, message.ownerId(), priorMessages, properties.getBufferSize(), scheduler,
+                    properties.getGracePeriod(), id -> { }, metrics, bus, nodeId, true, spectators);
+            sessions.put(dialogueId, replica);
+            log.debug("Replicating stream of dialogue {} generated by {}", dialogueId, message.nodeId());
+            return;
+        }
+        DialogueStreamSession session = sessions.get(dialogueId);
+        if (session == null) {
+            return;
+        }
+        if (session.isReplica()) {
+            session.busActivity();
+        }
+        switch (message.type()) {
+            case EVENT -> {
+                if (session.isReplica()) {
+                    session.publish(message.name(), message.id(), message.data());
+                    replicateMessage(session, message);
+                }
+            }
+            case HEARTBEAT -> { }
+            case COMPLETED -> finishReplica(session, DialogueStreamSession.State.COMPLETED, null);
+            case FAILED -> finishReplica(session, DialogueStreamSession.State.FAILED, message.name());
+            case CANCELLED -> finishReplica(session, DialogueStreamSession.State.CANCELLED, null);
+            case ABANDONED -> finishReplica(session, DialogueStreamSession.State.ABANDONED, null);
+            case CANCEL_REQUESTED -> {
+                if (!session.isReplica()) {
+                    log.info("Dialogue {} cancelled through {}", dialogueId, message.nodeId());
+                    session.cancel();
+                }
+            }
+            case CLIENT_ATTACHED -> {
+                if (!session.isReplica()) {
+                    session.remoteClientAttached();
+                }
+            }
+            case CLIENT_DETACHED -> {
+                if (!session.isReplica()) {
+                    session.remoteClientDetached();
+                }
+            }
+            case OPENED -> throw new IllegalStateException("Handled above");
+        }
+    }
+
+    private void replicateMessage(DialogueStreamSession replica, DialogueBusMessage message) {
+        JsonNode data = message.data() instanceof JsonNode node ? node : objectMapper.valueToTree(message.data());
+        switch (message.name()) {
+            case "character-start" -> replica.replicaMessageStarted();
+            case "token" -> replica.replicaToken(data.path("token").asText());
+            case "character-complete" -> replica.replicaMessageCompleted(
+                    data.hasNonNull("character_id") ? data.get("character_id").asLong() : null, message.id());
+            default -> { }
+        }
+    }
+
+    private static void finishReplica(DialogueStreamSession session, DialogueStreamSession.State state, String error) {
+        if (session.isReplica()) {
+            session.finishReplica(state, error);
+        }
+    }
+
+    public Optional<DialogueStreamSession> find(long dialogueId) {
+        return Optional.ofNullable(sessions.get(dialogueId));
+    }
+
+    public void remove(long dialogueId) {
+        sessions.remove(dialogueId);
+    }
+
+    /**
+     * @return Number of sessions held, live and finished
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * @return Number of sessions with a client attached
+     */
+    public int getAttachedCount() {
+        int attached = 0;
+        for (DialogueStreamSession session : sessions.values()) {
+            if (session.isAttached()) {
+                attached++;
+            }
+        }
+        return attached;
+    }
+
+    /**
+     * Sends a heartbeat for the live dialogues generated here that relayed nothing for a heartbeat interval.
+     */
+    void heartbeat() {
+        Instant quietSince = Instant.now().minus(clusterProperties.getHeartbeatInterval());
+        sessions.values().forEach(session -> session.heartbeat(quietSince));
+    }
+
+    void evict() {
+        evict(Instant.now());
+    }
+
+    /**
+     * Fails live replicas that heard nothing about their dialogue for the replica timeout, removes
+     * finished sessions past their retention, then the oldest finished sessions while more than the
+     * allowed number of sessions are held. Live sessions are never evicted.
+     */
+    void evict(Instant now) {
+        Instant replicaExpiry = now.minus(clusterProperties.getReplicaTimeout());
+        for (DialogueStreamSession session : sessions.values()) {
+            if (session.isReplica() && session.isLive() && session.getLastBusActivity().isBefore(replicaExpiry)) {
+                log.warn("Dialogue {}: nothing heard from the generating instance for {}, failing replica",
+                        session.getDialogueId(), clusterProperties.getReplicaTimeout());
+                session.finishReplica(DialogueStreamSession.State.FAILED, "Lost the stream of the generating instance");
+            }
+        }
+
+        Instant expiry = now.minus(properties.getRetention());
+        sessions.values().removeIf(session -> {
+            Instant finishedAt = session.getFinishedAt();
+            return finishedAt != null && finishedAt.isBefore(expiry);
+        });
+
+        int excess = sessions.size() - properties.getMaxSessions();
+        if (excess > 0) {
+            List<DialogueStreamSession> oldestFinished = sessions.values().stream()
+                    .filter(session -> session.getFinishedAt() != null)
+                    .sorted(Comparator.comparing(DialogueStreamSession::getFinishedAt))
+                    .limit(excess)
+                    .toList();
+            oldestFinished.forEach(session -> sessions.remove(session.getDialogueId(), session));
+            log.debug("Evicted {} finished stream sessions over the limit of {}", oldestFinished.size(), properties.getMaxSessions());
+        }
+    }
+}
@@ -2,21 +2,38 @@ package com.github.vvojtas.dailogi_server.dialogue.stream.application;
 
 import com.github.vvojtas.dailogi_server.dialogue.api.CreateDialogueCommand;
 import com.github.vvojtas.dailogi_server.dialogue.application.DialogueCommandService;
+import com.github.vvojtas.dailogi_server.dialogue.application.DialogueHistoryReader;
+import com.github.vvojtas.dailogi_server.dialogue.application.DialogueMessageWriter;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.ContinueDialogueCommand;
 import com.github.vvojtas.dailogi_server.dialogue.stream.api.StreamDialogueCommand;
 import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueEventHandler;
+import com.github.vvojtas.dailogi_server.dialogue.timeline.api.TimelineStage;
+import com.github.vvojtas.dailogi_server.dialogue.timeline.application.DialogueTimeline;
+import com.github.vvojtas.dailogi_server.dialogue.timeline.application.DialogueTimelineRecorder;
 import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueDTO;
 import com.github.vvojtas.dailogi_server.model.dialogue.mapper.DialogueEventMapper;
+import com.github.vvojtas.dailogi_server.model.dialogue.request.TokenCoalescingDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.event.SnapshotMessageDto;
 import com.github.vvojtas.dailogi_server.apikey.application.ApiKeyQueryService;
+import com.github.vvojtas.dailogi_server.db.entity.AppUser;
+import com.github.vvojtas.dailogi_server.db.entity.DialogueStatus;
+import com.github.vvojtas.dailogi_server.db.repository.DialogueRepository;
+import com.github.vvojtas.dailogi_server.exception.DialogueInProgressException;
+import com.github.vvojtas.dailogi_server.exception.DialogueQueueFullException;
 import com.github.vvojtas.dailogi_server.exception.NoApiKeyException;
+import com.github.vvojtas.dailogi_server.exception.ResourceNotFoundException;
+import com.github.vvojtas.dailogi_server.properties.DialogueStreamProperties;
+import com.github.vvojtas.dailogi_server.service.auth.CurrentUserService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Consumer;
 
 /**
@@ -29,27 +46,36 @@ import java.util.function.Consumer;
 public class DialogueStreamService {
 
     private static final long SSE_TIMEOUT = 1800000L; // 30 minutes timeout
+    private static final int DEFAULT_CONTINUE_TURNS = 5;
     
     private final DialogueGenerationOrchestrator dialogueGenerationOrchestrator;
     private final DialogueEventMapper dialogueEventMapper;
     private final ApiKeyQueryService apiKeyQueryService;
     private final DialogueCommandService dialogueCommandService;
-    // Store active emitters to be able to close them if needed
-    private final Map<Long, SseEmitter> activeEmitters = new ConcurrentHashMap<>();
+    private final DialogueAdmissionScheduler admissionScheduler;
+    private final CurrentUserService currentUserService;
+    private final DialogueStreamProperties dialogueStreamProperties;
+    private final TaskScheduler sseScheduler;
+    private final DialogueStreamRegistry streamRegistry;
+    private final DialogueMessageWriter messageWriter;
+    private final DialogueTimelineRecorder timelineRecorder;
+    private final DialogueRepository dialogueRepository;
+    private final DialogueHistoryReader historyReader;
     
     /**
-     * Starts a dialogue stream using Server-Sent Events
+     * Starts a dialogue stream using Server-Sent Events. Not transactional: the dialogue is created
+     * in a transaction of its own, committed before its generation is queued for another thread.
      *
      * @param command The command containing dialogue configuration
      * @param authentication The current user's authentication
      * @return SseEmitter for streaming the dialogue generation
+     * @throws DialogueQueueFullException if the user already has the maximum number of waiting dialogues
      */
-    @Transactional
     public SseEmitter streamDialogue(StreamDialogueCommand command, Authentication authentication) {
         log.info("Received request to stream dialogue for user {}", authentication.getName());
 
-        // Create SseEmitter with timeout
-        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
+        // Rejected before the dialogue is created, so a full queue leaves nothing behind
+        admissionScheduler.checkCapacity(currentUserService.getCurrentAppUser().getId());
 
         try {
             // Get API key
@@ -63,50 +89,243 @@ public class DialogueStreamService {
                 command.dialogueName(),
                 command.sceneDescription(),
                 command.characterConfigs(),
-                false  // not global
+                false,  // not global
+                command.promptTemplate()
             );
             
             // Create dialogue using DialogueCommandService
             DialogueDTO dialogueDTO = dialogueCommandService.createDialogue(createCommand);
-            final long dialogueId = dialogueDTO.id();
-            log.info("Created new dialogue entity: id={}, name={}", dialogueId, dialogueDTO.name());
+            log.info("Created new dialogue entity: id={}, name={}", dialogueDTO.id(), dialogueDTO.name());
 
-            // Register the emitter so we can track it
-            activeEmitters.put(dialogueId, emitter);
-            log.debug("Emitter for dialogue {} registered. Active emitters: {}", dialogueId, activeEmitters.size());
-            
-            // Create callback for when the handler becomes inactive
-            Consumer<Long> onInactivate = id -> {
-                activeEmitters.remove(id);
-                log.debug("Removed emitter for dialogue {} from active emitters. Remaining: {}", id, activeEmitters.size());
+            return startStream(dialogueDTO, null, command.tokenCoalescing(), authentication,
+                    (eventHandler, eventSequence, cancellation) -> dialogueGenerationOrchestrator.generateDialogue(
+                            dialogueDTO, apiKey, eventHandler, eventSequence, cancellation));
+        } catch (DialogueQueueFullException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error setting up dialogue stream: {}", e.getMessage(), e);
+            SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
+            emitter.completeWithError(e); // Complete emitter with error
+            return emitter;
+        }
+    }
+
+    /**
+     * Streams more turns of a finished dialogue of the current user, using Server-Sent Events.
+     * The characters carry on from the persisted messages of the dialogue.
+     *
+     * @param dialogueId The ID of the dialogue
+     * @param command The command containing the number of turns to add
+     * @param authentication The current user's authentication
+     * @return SseEmitter for streaming the new turns
+     * @throws NoApiKeyException if the user has no API key configured
+     * @throws ResourceNotFoundException if the dialogue does not exist
+     * @throws org.springframework.security.access.AccessDeniedException if the dialogue belongs to another user
+     * @throws DialogueInProgressException if the dialogue is still being generated
+     * @throws DialogueQueueFullException if the user already has the maximum number of waiting dialogues
+     */
+    public SseEmitter continueDialogue(long dialogueId, ContinueDialogueCommand command, Authentication authentication) {
+        log.info("Received request to continue dialogue {} for user {}", dialogueId, authentication.getName());
+
+        String apiKey = apiKeyQueryService.getDecryptedApiKey();
+        if (apiKey == null) {
+            throw new NoApiKeyException("dialogue_generation", "API key is required for dialogue generation");
+        }
+        admissionScheduler.checkCapacity(currentUserService.getCurrentAppUser().getId());
+        // Without a live session here or on another instance, a dialogue still in progress was left behind
+        boolean stale = streamRegistry.find(dialogueId).filter(DialogueStreamSession::isLive).isEmpty();
+        DialogueDTO dialogueDTO = dialogueCommandService.reopenDialogue(dialogueId, stale);
+        int turnCount = command.turns() != null ? command.turns() : DEFAULT_CONTINUE_TURNS;
+
+        return startStream(dialogueDTO, DialogueStatus.valueOf(dialogueDTO.status()), command.tokenCoalescing(), authentication,
+                (eventHandler, eventSequence, cancellation) -> dialogueGenerationOrchestrator.continueDialogue(
+                        dialogueDTO, turnCount, apiKey, eventHandler, eventSequence, cancellation));
+    }
+
+    /**
+     * Reattaches a client to a live or recently finished dialogue stream.
+     * Events after {@code lastEventId} that are still buffered are replayed before live events follow.
+     *
+     * @param dialogueId The ID of the dialogue
+     * @param lastEventId ID of the last event the client received (the Last-Event-ID header), null to replay all buffered events
+     * @return SseEmitter continuing the dialogue stream
+     * @throws ResourceNotFoundException if the current user has no resumable stream for the dialogue
+     */
+    public SseEmitter resumeDialogue(long dialogueId, String lastEventId) {
+        AppUser currentUser = currentUserService.getCurrentAppUser();
+        DialogueStreamSession session = findOwnedSession(dialogueId, currentUser);
+
+        long afterSequence = Math.max(0, DialogueEventSequence.parseSequence(dialogueId, lastEventId));
+        log.info("User {} resuming dialogue {} stream after event {}", currentUser.getName(), dialogueId, lastEventId);
+
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
+        timelineRecorder.timeline(dialogueId).record(TimelineStage.CLIENT_RESUMED);
+        session.attach(emitter, afterSequence);
+        return emitter;
+    }
+
+    /**
+     * Adds a spectator to a live or recently finished dialogue stream of the current user, or of
+     * a global dialogue. A spectator joining with {@code lastEventId} gets the events after it
+     * replayed while they are still buffered; otherwise it gets a snapshot of the completed messages,
+     * then the events of the turn in progress. Live events follow.
+     *
+     * @param dialogueId The ID of the dialogue
+     * @param lastEventId ID of the last event the spectator received (the Last-Event-ID header), null when joining
+     * @return SseEmitter following the dialogue stream
+     * @throws ResourceNotFoundException if there is no stream the current user may follow for the dialogue
+     */
+    public SseEmitter spectateDialogue(long dialogueId, String lastEventId) {
+        AppUser currentUser = currentUserService.getCurrentAppUser();
+        DialogueStreamSession session = streamRegistry.find(dialogueId)
+                .filter(found -> found.getOwnerId() == currentUser.getId()
+                        || dialogueRepository.existsByIdAndIsGlobalTrue(dialogueId))
+                .orElseThrow(() -> new ResourceNotFoundException("dialogue_stream",
+                        "No stream found for dialogue " + dialogueId));
+
+        long afterSequence = Math.max(0, DialogueEventSequence.parseSequence(dialogueId, lastEventId));
+        log.info("User {} spectating dialogue {} stream after event {}", currentUser.getName(), dialogueId, lastEventId);
+
+        // Read outside the session, which holds only the messages of its own stream
+        List<SnapshotMessageDto> persisted = new ArrayList<>();
+        if (session.needsSnapshot(afterSequence)) {
+            historyReader.read(dialogueId, (characterId, turnNumber, content) ->
+                    persisted.add(new SnapshotMessageDto(characterId, content, null)));
+        }
+
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
+        session.spectate(emitter, afterSequence, persisted);
+        return emitter;
+    }
+
+    /**
+     * Stops a dialogue: a queued dialogue never starts, a generating one has its upstream request
+     * aborted and no further turns generated. Attached clients have their stream completed.
+     * Cancelling a dialogue that has already finished has no effect.
+     *
+     * @param dialogueId The ID of the dialogue
+     * @throws ResourceNotFoundException if the current user has no stream for the dialogue
+     */
+    public void cancelDialogue(long dialogueId) {
+        AppUser currentUser = currentUserService.getCurrentAppUser();
+        DialogueStreamSession session = findOwnedSession(dialogueId, currentUser);
+
+        boolean cancelled = session.cancel();
+        log.info("User {} cancelled dialogue {} stream (was live: {})", currentUser.getName(), dialogueId, cancelled);
+    }
+
+    /**
+     * Generation of a dialogue, started once the admission scheduler has a free slot
+     */
+    @FunctionalInterface
+    private interface GenerationTask {
+        void run(DialogueEventHandler eventHandler, DialogueEventSequence eventSequence, DialogueCancellation cancellation);
+    }
+
+    /**
+     * Registers the stream session of a dialogue, attaches a new emitter and queues the generation.
+     * Setup errors are reported through the emitter and mark the dialogue as failed, or leave a
+     * continued dialogue with its previous status.
+     *
+     * @param previousStatus The status of a continued dialogue before it was reopened, null for a new dialogue
+     * @throws DialogueQueueFullException if the user's queue filled up since the capacity check
+     */
+    private SseEmitter startStream(DialogueDTO dialogueDTO, DialogueStatus previousStatus, TokenCoalescingDTO tokenCoalescing,
+                                   Authentication authentication, GenerationTask task) {
+        // Create SseEmitter with timeout
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT);
+        final long dialogueId = dialogueDTO.id();
+        DialogueStreamSession session = null;
+        DialogueTimeline timeline = timelineRecorder.start(dialogueId);
+        timeline.record(TimelineStage.STREAM_OPENED);
+
+        try {
+            // Create callback for when no client reconnects within the grace period;
+            // a running generation is stopped through the session's cancellation
+            Consumer<Long> onAbandon = id -> {
+                timeline.record(TimelineStage.ABANDONED);
+                log.debug("Dialogue {} stream abandoned by client", id);
             };
-                   
+
+            // Register the stream session so the client can reconnect, then attach this request
+            AppUser currentUser = currentUserService.getCurrentAppUser();
+            // A continued dialogue has persisted messages the snapshot of spectators starts with
+            int priorMessages = previousStatus != null ? historyReader.count(dialogueId) : 0;
+            session = streamRegistry.create(dialogueId, currentUser.getId(), priorMessages, onAbandon);
+            session.attach(emitter, 0);
+            log.debug("Stream session for dialogue {} registered. Sessions: {}", dialogueId, streamRegistry.size());
             
+            // All events of the dialogue share one monotonic ID sequence; a continuation carries on past
+            // the IDs of the earlier runs, so their Last-Event-IDs never skip events of this one
+            DialogueEventSequence eventSequence = previousStatus != null
+                    ? DialogueEventSequence.continuing(dialogueId, Instant.now())
+                    : new DialogueEventSequence(dialogueId);
+
             // Create the event handler that will send events through SSE
-            DialogueEventHandler eventHandler = new SseDialogueEventHandler(
+            DialogueEventHandler sseEventHandler = new SseDialogueEventHandler(
                     dialogueId, 
-                    emitter,
-                    onInactivate,
-                    dialogueEventMapper);
-
-            // Start dialogue generation asynchronously using the event handler
-            dialogueGenerationOrchestrator.generateDialogue(
-                    dialogueDTO,
-                    apiKey,
-                    eventHandler);
+                    session,
+                    dialogueEventMapper,
+                    eventSequence);
+
+            // Batch token events unless the client opted out
+            TokenCoalescingSettings coalescing = TokenCoalescingSettings.resolve(
+                    tokenCoalescing, dialogueStreamProperties.getTokenCoalescing());
+            DialogueEventHandler eventHandler = coalescing.enabled()
+                    ? new CoalescingDialogueEventHandler(dialogueId, sseEventHandler, sseScheduler,
+                            coalescing.maxTokens(), coalescing.maxDelay())
+                    : sseEventHandler;
+            log.debug("Dialogue {} token coalescing: {}", dialogueId, coalescing);
+
+            // Queue dialogue generation - it starts on the dialogue executor once a slot is free
+            DialogueCancellation cancellation = session.getCancellation();
+            cancellation.onCancel(() -> {
+                if (admissionScheduler.cancel(dialogueId)) {
+                    // Never started, so the orchestrator will not record its outcome
+                    messageWriter.markUnfinished(dialogueId, previousStatus);
+                    timeline.record(TimelineStage.CANCELLED);
+                }
+            });
+            admissionScheduler.submit(
+                    dialogueId,
+                    currentUser.getId(),
+                    Boolean.TRUE.equals(currentUser.getIsSpecialUser()),
+                    eventHandler,
+                    eventSequence,
+                    () -> task.run(eventHandler, eventSequence, cancellation));
             
-            log.info("Delegated dialogue {} generation to orchestrator with event handler.", dialogueId);
+            log.info("Submitted dialogue {} generation to admission scheduler.", dialogueId);
 
             // Return emitter immediately to the client
             return emitter;
 
+        } catch (DialogueQueueFullException e) {
+            // Another dialogue of the user took the last place since the capacity check
+            log.warn("Dialogue queue full, rejecting dialogue stream for user {}", authentication.getName());
+            streamRegistry.remove(dialogueId);
+            messageWriter.markUnfinished(dialogueId, previousStatus);
+            timeline.record(TimelineStage.FAILED);
+            session.fail(e);
+            throw e;
         } catch (Exception e) {
             log.error("Error setting up dialogue stream: {}", e.getMessage(), e);
             // Clean up if an error occurred during setup *before* async task started
-            if (emitter != null) {
+            messageWriter.markUnfinished(dialogueId, previousStatus);
+            timeline.record(TimelineStage.FAILED);
+            if (session != null) {
+                streamRegistry.remove(dialogueId);
+                session.fail(e); // Completes the attached emitter with error
+            } else {
                 emitter.completeWithError(e); // Complete emitter with error
             }
             return emitter;
         }
     }
-} 
\ No newline at end of file
+
+    private DialogueStreamSession findOwnedSession(long dialogueId, AppUser currentUser) {
+        return streamRegistry.find(dialogueId)
+                .filter(found -> found.getOwnerId() == currentUser.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("dialogue_stream",
+                        "No stream found for dialogue " + dialogueId));
+    }
+}
@@ -0,0 +1,654 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueBusMessage;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueEventBus;
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.DialogueReplayBuffer.BufferedEvent;
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.DialogueSpectator.Frame;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.event.SnapshotMessageDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Server side of a single dialogue stream that outlives individual SSE connections.
+ * Every event is recorded in a {@link DialogueReplayBuffer} and sent to the currently attached
+ * emitter, if any. When the client disconnects, generation keeps running for a grace period;
+ * a client reconnecting within it gets the missed events replayed and then follows the live stream.
+ * If nobody reconnects in time, the session is abandoned, its {@link DialogueCancellation} is
+ * triggered and the {@code onAbandon} callback runs.
+ * <p>
+ * The session of the instance generating the dialogue relays its events and outcome over the
+ * {@link DialogueEventBus}; the other instances keep a replica session fed from the bus, which
+ * clients can attach to like to the original. A replica reports its clients to the original, so
+ * the grace period only starts once no instance has a client attached, and forwards cancellation.
+ * <p>
+ * Besides the client, any number of spectators can follow the stream. Each event is serialized once
+ * for all of them and queued per spectator (see {@link DialogueSpectator}). A joining spectator gets
+ * a snapshot of the messages completed so far, then the buffered events of the turn in progress.
+ * The snapshot is made of the persisted messages of the dialogue, followed by the messages of this
+ * stream not persisted yet; a replica rebuilds the latter from the token events it receives.
+ * Spectators do not keep the dialogue from being abandoned.
+ */
+@Slf4j
+public class DialogueStreamSession {
+
+    public enum State {
+        LIVE,
+        COMPLETED,
+        FAILED,
+        ABANDONED,
+        CANCELLED
+    }
+
+    private final long dialogueId;
+    private final long ownerId;
+    private final int priorMessages;
+    private final DialogueReplayBuffer buffer;
+    private final TaskScheduler scheduler;
+    private final Duration gracePeriod;
+    private final Consumer<Long> onAbandon;
+    private final DialogueCancellation cancellation;
+    private final DialogueMetrics metrics;
+    private final DialogueEventBus bus;
+    private final String nodeId;
+    private final boolean replica;
+    private final DialogueSpectators spectatorSupport;
+
+    // Guards all state below and serializes sends, so replayed and live events never interleave
+    private final ReentrantLock lock = new ReentrantLock();
+    private SseEmitter emitter;
+    private State state = State.LIVE;
+    private Instant finishedAt;
+    private ScheduledFuture<?> graceTimer;
+    // Clients attached to replicas on other instances
+    private int remoteClients;
+    private final List<DialogueSpectator> spectators = new ArrayList<>();
+    // Messages completed so far by this stream, for the snapshot sent to joining spectators
+    private final List<SnapshotMessageDto> completedMessages = new ArrayList<>();
+    // Content of the message in progress of a replica; its events arrive one at a time
+    private final StringBuilder replicaMessage = new StringBuilder();
+    // When the original last relayed a message, or the replica last received one
+    private volatile Instant lastBusActivity = Instant.now();
+
+    /**
+     * Creates a new session with no client attached.
+     *
+     * @param dialogueId     The ID of the dialogue
+     * @param ownerId        The ID of the user allowed to attach to the stream
+     * @param priorMessages  Number of messages of the dialogue persisted before the stream opened
+     * @param bufferCapacity Number of recent events kept for replay
+     * @param scheduler      Scheduler running the grace period timer
+     * @param gracePeriod    How long generation continues without an attached client
+     * @param onAbandon      Callback receiving the dialogue ID when the grace period runs out
+     * @param metrics        Records the latency and failures of event writes
+     * @param bus            Bus relaying the stream between instances
+     * @param nodeId         This instance's ID on the bus
+     * @param replica        Whether the session mirrors a dialogue generated by another instance
+     * @param spectators     Creates spectators and renders events for them
+     */
+    public DialogueStreamSession(long dialogueId, long ownerId, int priorMessages, int bufferCapacity, TaskScheduler scheduler,
+                                 Duration gracePeriod, Consumer<Long> onAbandon, DialogueMetrics metrics,
+                                 DialogueEventBus bus, String nodeId, boolean replica, DialogueSpectators spectators) {
+        this.dialogueId = dialogueId;
+        this.ownerId = ownerId;
+        this.priorMessages = priorMessages;
+        this.buffer = new DialogueReplayBuffer(bufferCapacity);
+        this.scheduler = scheduler;
+        this.gracePeriod = gracePeriod;
+        this.onAbandon = onAbandon;
+        this.cancellation = new DialogueCancellation(dialogueId);
+        this.metrics = metrics;
+        this.bus = bus;
+        this.nodeId = nodeId;
+        this.replica = replica;
+        this.spectatorSupport = spectators;
+    }
+
+    /**
+     * Attaches a client, replacing any previously attached one. Retained events after
+     * {@code afterSequence} are replayed first; if the dialogue has already finished,
+     * the emitter is completed after the replay.
+     *
+     * @param newEmitter    The emitter of the connecting client
+     * @param afterSequence Sequence of the last event the client received, 0 for none
+     */
+    public void attach(SseEmitter newEmitter, long afterSequence) {
+        boolean hadClient;
+        boolean hasClient;
+        lock.lock();
+        hadClient = emitter != null;
+        try {
+            if (emitter != null) {
+                log.debug("Dialogue {}: replacing attached client", dialogueId);
+                emitter.complete();
+            }
+            emitter = null;
+            cancelGraceTimer();
+
+            long oldest = buffer.oldestSequence();
+            if (afterSequence + 1 < oldest) {
+                log.warn("Dialogue {}: events {}-{} no longer buffered, replaying from {}",
+                        dialogueId, afterSequence + 1, oldest - 1, oldest);
+            }
+            List<BufferedEvent> missed = buffer.eventsAfter(afterSequence);
+            log.info("Dialogue {}: client attached, replaying {} events after sequence {}", dialogueId, missed.size(), afterSequence);
+            for (BufferedEvent event : missed) {
+                send(newEmitter, event);
+            }
+
+            if (state != State.LIVE) {
+                newEmitter.complete();
+                return;
+            }
+            emitter = newEmitter;
+            newEmitter.onCompletion(() -> detach(newEmitter));
+            newEmitter.onTimeout(() -> {
+                log.warn("SSE stream timed out for dialogueId: {}", dialogueId);
+                detach(newEmitter);
+                newEmitter.complete();
+            });
+            newEmitter.onError(ex -> {
+                log.info("SSE stream error for dialogueId: {}: {}", dialogueId, ex.getMessage());
+                detach(newEmitter);
+            });
+        } catch (Exception e) {
+            log.info("Dialogue {}: client disconnected during replay: {}", dialogueId, e.getMessage());
+            detachCurrent();
+        } finally {
+            hasClient = emitter != null;
+            lock.unlock();
+        }
+        if (replica && hadClient != hasClient) {
+            bus.publish(DialogueBusMessage.of(nodeId, dialogueId,
+                    hasClient ? DialogueBusMessage.Type.CLIENT_ATTACHED : DialogueBusMessage.Type.CLIENT_DETACHED, null));
+        }
+    }
+
+    /**
+     * Records an event and sends it to the attached client. A failed send detaches the client
+     * but does not affect the dialogue.
+     */
+    public void publish(String name, String id, Object data) {
+        BufferedEvent event = new BufferedEvent(DialogueEventSequence.parseSequence(dialogueId, id), id, name, data);
+        boolean detached = false;
+        lock.lock();
+        try {
+            buffer.append(event);
+            if (emitter != null) {
+                try {
+                    send(emitter, event);
+                } catch (Exception e) {
+                    log.info("Dialogue {}: failed to send event '{}', detaching client: {}", dialogueId, name, e.getMessage());
+                    detachCurrent();
+                    detached = true;
+                }
+            }
+            if (!spectators.isEmpty()) {
+                Frame frame = spectatorSupport.render(name, id, data);
+                if (frame != null) {
+                    spectators.removeIf(spectator -> !spectator.offer(frame));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Relayed outside the lock, in the order of publishing: events are published by one thread at a time
+        if (!replica) {
+            lastBusActivity = Instant.now();
+            bus.publish(DialogueBusMessage.event(nodeId, dialogueId, name, id, data));
+        } else if (detached) {
+            bus.publish(DialogueBusMessage.of(nodeId, dialogueId, DialogueBusMessage.Type.CLIENT_DETACHED, null));
+        }
+    }
+
+    /**
+     * @param afterSequence Sequence of the last event a joining spectator received, 0 for none
+     * @return Whether the spectator would start with a snapshot, rather than the events after {@code afterSequence}
+     */
+    public boolean needsSnapshot(long afterSequence) {
+        lock.lock();
+        try {
+            return afterSequence <= 0 || afterSequence + 1 < buffer.oldestSequence();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a spectator following the stream. Retained events after {@code afterSequence} are replayed
+     * first; without them, the spectator gets a snapshot of the completed messages and the buffered
+     * events of the turn in progress. If the dialogue has already finished, the stream completes after that.
+     *
+     * @param emitter       The emitter of the spectator
+     * @param afterSequence Sequence of the last event the spectator received, 0 for none
+     * @param persisted     The persisted messages of the dialogue in speaking order, read when a snapshot is needed
+     */
+    public void spectate(SseEmitter emitter, long afterSequence, List<SnapshotMessageDto> persisted) {
+        DialogueSpectator spectator = spectatorSupport.create(dialogueId, emitter, this::removeSpectator);
+        lock.lock();
+        try {
+            List<Frame> frames = new ArrayList<>();
+            long oldest = buffer.oldestSequence();
+            List<BufferedEvent> tail;
+            if (afterSequence > 0 && afterSequence + 1 >= oldest) {
+                tail = buffer.eventsAfter(afterSequence);
+            } else {
+                frames.add(spectatorSupport.renderSnapshot(snapshot(persisted)));
+                long completedThrough = completedMessages.isEmpty()
+                        ? 0 : DialogueEventSequence.parseSequence(dialogueId, completedMessages.getLast().id());
+                if (completedThrough + 1 < oldest) {
+                    log.warn("Dialogue {}: events {}-{} no longer buffered, spectator joins from {}",
+                            dialogueId, completedThrough + 1, oldest - 1, oldest);
+                }
+                tail = buffer.eventsAfter(completedThrough);
+            }
+            for (BufferedEvent event : tail) {
+                frames.add(spectatorSupport.render(event.name(), event.id(), event.data()));
+            }
+            frames.removeIf(frame -> frame == null);
+            spectator.catchUp(frames);
+            if (state == State.LIVE) {
+                spectators.add(spectator);
+            } else {
+                spectator.finish(null);
+            }
+            log.info("Dialogue {}: spectator joined with {} events to catch up. Spectators: {}",
+                    dialogueId, frames.size(), spectators.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Joins the persisted messages with the messages of this stream not persisted yet. The persisted
+     * messages of this stream keep the ID of the event completing them; those persisted before the
+     * stream recorded them are left out, as they follow among the buffered events.
+     */
+    private List<SnapshotMessageDto> snapshot(List<SnapshotMessageDto> persisted) {
+        int known = Math.min(persisted.size(), priorMessages + completedMessages.size());
+        List<SnapshotMessageDto> messages = new ArrayList<>(known + completedMessages.size());
+        for (int i = 0; i < known; i++) {
+            SnapshotMessageDto message = persisted.get(i);
+            int ofStream = i - priorMessages;
+            if (ofStream >= 0 && ofStream < completedMessages.size()) {
+                message = new SnapshotMessageDto(message.characterId(), message.content(), completedMessages.get(ofStream).id());
+            }
+            messages.add(message);
+        }
+        int persistedOfStream = Math.max(0, known - priorMessages);
+        if (persistedOfStream < completedMessages.size()) {
+            messages.addAll(completedMessages.subList(persistedOfStream, completedMessages.size()));
+        }
+        return messages;
+    }
+
+    /**
+     * Starts rebuilding a message of a replica from the relayed events. The replica methods are only
+     * called by the bus listener, one event at a time.
+     */
+    void replicaMessageStarted() {
+        replicaMessage.setLength(0);
+    }
+
+    void replicaToken(String token) {
+        replicaMessage.append(token);
+    }
+
+    /**
+     * Records the rebuilt message of a replica.
+     *
+     * @param characterId The speaking character
+     * @param id          The ID of the event completing the message
+     */
+    void replicaMessageCompleted(Long characterId, String id) {
+        recordMessage(new SnapshotMessageDto(characterId, replicaMessage.toString(), id));
+        replicaMessage.setLength(0);
+    }
+
+    /**
+     * Records a message once its turn has completed, for the snapshot of joining spectators.
+     * Spectators that had token events of the message dropped get it in a snapshot event.
+     *
+     * @param message The message, identified by the ID of the event completing it
+     */
+    public void recordMessage(SnapshotMessageDto message) {
+        lock.lock();
+        try {
+            completedMessages.add(message);
+            Frame frame = null;
+            for (DialogueSpectator spectator : spectators) {
+                if (spectator.takeMissedTokens()) {
+                    if (frame == null) {
+                        frame = spectatorSupport.renderSnapshot(List.of(message));
+                    }
+                    if (frame != null) {
+                        spectator.offer(frame);
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the dialogue as successfully finished and completes the attached client's stream.
+     */
+    public void complete() {
+        finish(State.COMPLETED, null);
+    }
+
+    /**
+     * Marks the dialogue as failed and completes the attached client's stream with the error.
+     */
+    public void fail(Exception exception) {
+        finish(State.FAILED, exception);
+    }
+
+    /**
+     * Stops the dialogue on the client's request: completes the attached client's stream
+     * and cancels the generation.
+     *
+     * @return true if the dialogue was live and has been cancelled
+     */
+    public boolean cancel() {
+        boolean cancelled = finish(State.CANCELLED, null);
+        if (replica) {
+            // The generating instance cancels the generation and relays the outcome
+            bus.publish(DialogueBusMessage.of(nodeId, dialogueId, DialogueBusMessage.Type.CANCEL_REQUESTED, null));
+        } else {
+            cancellation.cancel();
+        }
+        return cancelled;
+    }
+
+    /**
+     * Finishes a replica as the generating instance announced, completing its attached client's stream.
+     *
+     * @param finalState How the dialogue finished
+     * @param error      Error message of a failed dialogue, null otherwise
+     */
+    void finishReplica(State finalState, String error) {
+        finish(finalState, error != null ? new IllegalStateException(error) : null);
+    }
+
+    /**
+     * Counts a client attached to a replica on another instance, stopping the grace period.
+     */
+    void remoteClientAttached() {
+        lock.lock();
+        try {
+            remoteClients++;
+            cancelGraceTimer();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counts a client detached from a replica on another instance; the grace period starts once
+     * no instance has a client attached.
+     */
+    void remoteClientDetached() {
+        lock.lock();
+        try {
+            remoteClients = Math.max(0, remoteClients - 1);
+            if (emitter == null && remoteClients == 0 && state == State.LIVE) {
+                log.info("Dialogue {}: last remote client detached, keeping generation alive for {}", dialogueId, gracePeriod);
+                startGraceTimer();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tells the other instances the original is still live, unless it has relayed a message since {@code quietSince}.
+     */
+    void heartbeat(Instant quietSince) {
+        if (replica || !isLive() || lastBusActivity.isAfter(quietSince)) {
+            return;
+        }
+        lastBusActivity = Instant.now();
+        bus.publish(DialogueBusMessage.of(nodeId, dialogueId, DialogueBusMessage.Type.HEARTBEAT, null));
+    }
+
+    /**
+     * Notes that the replica received a message about its dialogue.
+     */
+    void busActivity() {
+        lastBusActivity = Instant.now();
+    }
+
+    /**
+     * @return When the original last relayed a message, or the replica last received one
+     */
+    Instant getLastBusActivity() {
+        return lastBusActivity;
+    }
+
+    /**
+     * @return Whether the session mirrors a dialogue generated by another instance
+     */
+    public boolean isReplica() {
+        return replica;
+    }
+
+    /**
+     * @return true while the dialogue is generating and its events are wanted
+     */
+    public boolean isLive() {
+        lock.lock();
+        try {
+            return state == State.LIVE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Number of spectators following the stream
+     */
+    public int getSpectatorCount() {
+        lock.lock();
+        try {
+            return spectators.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true while a client is attached to the stream
+     */
+    public boolean isAttached() {
+        lock.lock();
+        try {
+            return emitter != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return When the dialogue finished, was abandoned or cancelled, null while live
+     */
+    public Instant getFinishedAt() {
+        lock.lock();
+        try {
+            return finishedAt;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDialogueId() {
+        return dialogueId;
+    }
+
+    public long getOwnerId() {
+        return ownerId;
+    }
+
+    /**
+     * @return Number of messages of the dialogue persisted before the stream opened
+     */
+    public int getPriorMessages() {
+        return priorMessages;
+    }
+
+    /**
+     * @return Token cancelled when the dialogue is abandoned or cancelled, to be passed to the generation
+     */
+    public DialogueCancellation getCancellation() {
+        return cancellation;
+    }
+
+    private boolean finish(State finalState, Exception exception) {
+        lock.lock();
+        try {
+            if (state != State.LIVE) {
+                return false;
+            }
+            relayFinished(finalState, exception);
+            state = finalState;
+            finishedAt = Instant.now();
+            cancelGraceTimer();
+            finishSpectators(exception);
+            if (emitter != null) {
+                SseEmitter finishing = emitter;
+                emitter = null;
+                if (exception != null) {
+                    finishing.completeWithError(exception);
+                } else {
+                    finishing.complete();
+                }
+            }
+            log.debug("Dialogue {} stream session finished: {}", dialogueId, finalState);
+        } catch (Exception e) {
+            log.debug("Dialogue {}: error completing emitter: {}", dialogueId, e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    private void detach(SseEmitter detached) {
+        boolean wasCurrent = false;
+        lock.lock();
+        try {
+            if (emitter == detached) {
+                detachCurrent();
+                wasCurrent = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (wasCurrent && replica) {
+            bus.publish(DialogueBusMessage.of(nodeId, dialogueId, DialogueBusMessage.Type.CLIENT_DETACHED, null));
+        }
+    }
+
+    private void detachCurrent() {
+        emitter = null;
+        // A replica never abandons the dialogue, and the original waits for remote clients as well
+        if (state == State.LIVE && !replica && remoteClients == 0) {
+            log.info("Dialogue {}: client detached, keeping generation alive for {}", dialogueId, gracePeriod);
+            startGraceTimer();
+        }
+    }
+
+    private void finishSpectators(Exception exception) {
+        spectators.forEach(spectator -> spectator.finish(exception));
+        spectators.clear();
+    }
+
+    private void removeSpectator(DialogueSpectator spectator) {
+        lock.lock();
+        try {
+            spectators.remove(spectator);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void startGraceTimer() {
+        cancelGraceTimer();
+        graceTimer = scheduler.schedule(this::abandonIfDetached, Instant.now().plus(gracePeriod));
+    }
+
+    private void cancelGraceTimer() {
+        if (graceTimer != null) {
+            graceTimer.cancel(false);
+            graceTimer = null;
+        }
+    }
+
+    private void abandonIfDetached() {
+        lock.lock();
+        try {
+            if (emitter != null || remoteClients > 0 || state != State.LIVE) {
+                return;
+            }
+            state = State.ABANDONED;
+            finishedAt = Instant.now();
+            graceTimer = null;
+            finishSpectators(null);
+        } finally {
+            lock.unlock();
+        }
+        log.info("Dialogue {}: no client reconnected within {}, abandoning stream", dialogueId, gracePeriod);
+        bus.publish(DialogueBusMessage.of(nodeId, dialogueId, DialogueBusMessage.Type.ABANDONED, null));
+        onAbandon.accept(dialogueId);
+        cancellation.cancel();
+    }
+
+    /**
+     * Announces how the original session finished. Called under the lock: the bus only queues or
+     * hands the message to listeners, which skip their own instance's messages.
+     */
+    private void relayFinished(State finalState, Exception exception) {
+        if (replica) {
+            return;
+        }
+        DialogueBusMessage.Type type = switch (finalState) {
+            case COMPLETED -> DialogueBusMessage.Type.COMPLETED;
+            case FAILED -> DialogueBusMessage.Type.FAILED;
+            case CANCELLED -> DialogueBusMessage.Type.CANCELLED;
+            case ABANDONED -> DialogueBusMessage.Type.ABANDONED;
+            case LIVE -> throw new IllegalArgumentException("Not a final state: " + finalState);
+        };
+        bus.publish(DialogueBusMessage.of(nodeId, dialogueId, type, exception != null ? exception.getMessage() : null));
+    }
+
+    private void send(SseEmitter target, BufferedEvent event) throws Exception {
+        long startNanos = System.nanoTime();
+        try {
+            target.send(SseEmitter.event()
+                    .id(event.id())
+                    .name(event.name())
+                    .data(event.data()));
+        } catch (Exception e) {
+            metrics.recordWriteFailure(event.name());
+            throw e;
+        }
+        metrics.recordWrite(event.name(), System.nanoTime() - startNanos);
+    }
+}
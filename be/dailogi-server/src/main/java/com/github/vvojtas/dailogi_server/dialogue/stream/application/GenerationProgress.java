@@ -0,0 +1,61 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+/**
+ * Token and turn counts of one dialogue generation, used to estimate
+ * how many tokens were not generated when the dialogue is cancelled.
+ * Updated by the single thread or sequential pipeline generating the dialogue.
+ */
+class GenerationProgress {
+
+    private final int plannedTurns;
+    private volatile int completedTurns;
+    private volatile long completedTokens;
+    private volatile long currentTurnTokens;
+
+    /**
+     * @param plannedTurns Number of character turns the dialogue would have in total
+     */
+    GenerationProgress(int plannedTurns) {
+        this.plannedTurns = plannedTurns;
+    }
+
+    void tokenGenerated() {
+        currentTurnTokens++;
+    }
+
+    void turnCompleted() {
+        completedTurns++;
+        completedTokens += currentTurnTokens;
+        currentTurnTokens = 0;
+    }
+
+    int getPlannedTurns() {
+        return plannedTurns;
+    }
+
+    int getCompletedTurns() {
+        return completedTurns;
+    }
+
+    /**
+     * @return Tokens received so far, including the unfinished turn
+     */
+    long getGeneratedTokens() {
+        return completedTokens + currentTurnTokens;
+    }
+
+    /**
+     * Extrapolates the average length of the completed turns to the turns that were not generated,
+     * minus what the interrupted turn had produced already.
+     *
+     * @return Estimated number of tokens not generated, 0 if no turn was completed to estimate from
+     */
+    long estimateRemainingTokens() {
+        if (completedTurns == 0) {
+            return 0;
+        }
+        double averageTurnTokens = (double) completedTokens / completedTurns;
+        long remaining = Math.round(averageTurnTokens * (plannedTurns - completedTurns)) - currentTurnTokens;
+        return Math.max(0, remaining);
+    }
+}
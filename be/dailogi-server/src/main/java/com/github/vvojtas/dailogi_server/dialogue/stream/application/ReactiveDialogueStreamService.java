@@ -0,0 +1,369 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import com.github.vvojtas.dailogi_server.apikey.application.ApiKeyQueryService;
+import com.github.vvojtas.dailogi_server.dialogue.api.CreateDialogueCommand;
+import com.github.vvojtas.dailogi_server.dialogue.application.DialogueCommandService;
+import com.github.vvojtas.dailogi_server.dialogue.application.DialogueMessageWriter;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueEventHandler;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.StreamDialogueCommand;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.CharacterCompleteEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.CharacterStartEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.DialogueCompleteEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.DialogueQueuedEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.DialogueStartEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.ErrorEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.TokenEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.timeline.api.TimelineStage;
+import com.github.vvojtas.dailogi_server.dialogue.timeline.application.DialogueTimeline;
+import com.github.vvojtas.dailogi_server.dialogue.timeline.application.DialogueTimelineRecorder;
+import com.github.vvojtas.dailogi_server.db.entity.AppUser;
+import com.github.vvojtas.dailogi_server.exception.DialogueQueueFullException;
+import com.github.vvojtas.dailogi_server.exception.NoApiKeyException;
+import com.github.vvojtas.dailogi_server.generation.api.ChatMessage;
+import com.github.vvojtas.dailogi_server.generation.api.HedgeOutcome;
+import com.github.vvojtas.dailogi_server.generation.api.HedgePlan;
+import com.github.vvojtas.dailogi_server.generation.application.HedgedGeneration;
+import com.github.vvojtas.dailogi_server.generation.application.OpenRouterPromptBuilder;
+import com.github.vvojtas.dailogi_server.generation.application.PromptContext;
+import com.github.vvojtas.dailogi_server.model.dialogue.mapper.DialogueEventMapper;
+import com.github.vvojtas.dailogi_server.model.dialogue.request.CharacterConfigDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueCharacterConfigDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueDTO;
+import com.github.vvojtas.dailogi_server.properties.DialogueStreamProperties;
+import com.github.vvojtas.dailogi_server.service.auth.CurrentUserService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reactive alternative to {@link DialogueStreamService}.
+ * The dialogue is composed turn by turn as a single {@link Flux} of server-sent events, so no
+ * thread is held while waiting for upstream tokens. Demand from the client propagates to the
+ * upstream stream, and cancelling the subscription (client disconnect) aborts the upstream call.
+ * Generation waits for a slot of the {@link DialogueAdmissionScheduler}, like in the threaded mode,
+ * and the slot is released when the stream terminates or is cancelled.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "dailogi.dialogue.stream", name = "mode", havingValue = "reactive")
+public class ReactiveDialogueStreamService {
+
+    private static final int DEFAULT_LENGTH = 5;
+    private static final String MODE = "reactive";
+    // Queue events are emitted from the scheduler's threads, concurrently with the subscriber
+    private static final Sinks.EmitFailureHandler EMIT_RETRY = Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100));
+
+    private final HedgedGeneration hedgedGeneration;
+    private final OpenRouterPromptBuilder promptBuilder;
+    private final DialogueEventMapper dialogueEventMapper;
+    private final ApiKeyQueryService apiKeyQueryService;
+    private final DialogueCommandService dialogueCommandService;
+    private final DialogueStreamProperties dialogueStreamProperties;
+    private final DialogueMessageWriter messageWriter;
+    private final DialogueCancellationMetrics cancellationMetrics;
+    private final DialogueMetrics dialogueMetrics;
+    private final DialogueTimelineRecorder timelineRecorder;
+    private final DialogueAdmissionScheduler admissionScheduler;
+    private final CurrentUserService currentUserService;
+
+    /**
+     * Creates the dialogue and returns a cold stream of its generation events.
+     * Validation and persistence happen eagerly, so errors are reported as regular HTTP errors.
+     *
+     * @param command The command containing dialogue configuration
+     * @param authentication The current user's authentication
+     * @return Flux of server-sent events for the dialogue
+     * @throws NoApiKeyException if the user has no API key configured
+     * @throws DialogueQueueFullException if the user already has the maximum number of waiting dialogues
+     */
+    @Transactional
+    public Flux<ServerSentEvent<Object>> streamDialogue(StreamDialogueCommand command, Authentication authentication) {
+        log.info("Received request to reactively stream dialogue for user {}", authentication.getName());
+
+        String apiKey = apiKeyQueryService.getDecryptedApiKey();
+        if (apiKey == null) {
+            throw new NoApiKeyException("dialogue_generation", "API key is required for dialogue generation");
+        }
+        AppUser currentUser = currentUserService.getCurrentAppUser();
+        admissionScheduler.checkCapacity(currentUser.getId());
+
+        DialogueDTO dialogueDTO = dialogueCommandService.createDialogue(new CreateDialogueCommand(
+                command.dialogueName(),
+                command.sceneDescription(),
+                command.characterConfigs(),
+                false,  // not global
+                command.promptTemplate()
+        ));
+        log.info("Created new dialogue entity: id={}, name={}", dialogueDTO.id(), dialogueDTO.name());
+
+        int turnCount = command.length() != null ? command.length() : DEFAULT_LENGTH;
+        TokenCoalescingSettings coalescing = TokenCoalescingSettings.resolve(
+                command.tokenCoalescing(), dialogueStreamProperties.getTokenCoalescing());
+        DialogueTimeline timeline = timelineRecorder.start(dialogueDTO.id());
+        timeline.record(TimelineStage.STREAM_OPENED);
+        DialogueEventSequence eventSequence = new DialogueEventSequence(dialogueDTO.id());
+        return admitted(dialogueDTO.id(), currentUser, eventSequence, timeline,
+                generateDialogue(dialogueDTO, turnCount, coalescing, apiKey, eventSequence, timeline));
+    }
+
+    /**
+     * Delays the generation until the admission scheduler grants it a slot, emitting {@code queued}
+     * events while it waits. The slot is released once the generation terminates or is cancelled;
+     * cancelling while still queued removes the dialogue from the queue.
+     */
+    private Flux<ServerSentEvent<Object>> admitted(
+            long dialogueId, AppUser user, DialogueEventSequence eventSequence, DialogueTimeline timeline,
+            Flux<ServerSentEvent<Object>> generation) {
+        return Flux.defer(() -> {
+            Sinks.Many<ServerSentEvent<Object>> queued = Sinks.many().unicast().onBackpressureBuffer();
+            Sinks.One<Runnable> slot = Sinks.one();
+            AtomicReference<Runnable> release = new AtomicReference<>();
+            try {
+                admissionScheduler.submitAsync(
+                        dialogueId,
+                        user.getId(),
+                        Boolean.TRUE.equals(user.getIsSpecialUser()),
+                        new QueueEventHandler(queued),
+                        eventSequence,
+                        releaseSlot -> {
+                            release.set(releaseSlot);
+                            queued.emitComplete(EMIT_RETRY);
+                            slot.emitValue(releaseSlot, EMIT_RETRY);
+                        });
+            } catch (DialogueQueueFullException e) {
+                // Another request filled the queue after the capacity check
+                messageWriter.markFailed(dialogueId);
+                timeline.record(TimelineStage.FAILED);
+                return Flux.error(e);
+            }
+
+            Flux<ServerSentEvent<Object>> admittedGeneration = Flux.usingWhen(
+                    slot.asMono(),
+                    releaseSlot -> generation,
+                    releaseSlot -> Mono.fromRunnable(releaseSlot),
+                    (releaseSlot, e) -> Mono.fromRunnable(releaseSlot),
+                    releaseSlot -> Mono.fromRunnable(releaseSlot));
+            return Flux.concat(queued.asFlux(), admittedGeneration)
+                    .doOnCancel(() -> {
+                        if (admissionScheduler.cancel(dialogueId)) {
+                            log.info("Dialogue {} stream cancelled by client while queued", dialogueId);
+                            dialogueMetrics.recordCancelled(MODE);
+                            messageWriter.markFailed(dialogueId);
+                            timeline.record(TimelineStage.CANCELLED);
+                        } else if (release.get() != null) {
+                            // Admitted, but cancelled before the generation was subscribed
+                            release.get().run();
+                        }
+                    });
+        });
+    }
+
+    private Flux<ServerSentEvent<Object>> generateDialogue(
+            DialogueDTO dialogueDTO, int turnCount, TokenCoalescingSettings coalescing, String apiKey,
+            DialogueEventSequence eventSequence, DialogueTimeline timeline) {
+        GenerationProgress progress = new GenerationProgress(turnCount * dialogueDTO.characterConfigs().size());
+        return Flux.defer(() -> {
+            timeline.record(TimelineStage.GENERATION_STARTED);
+            PromptContext promptContext = promptBuilder.createContext(dialogueDTO);
+            timeline.record(TimelineStage.PROMPT_BUILT, 0, promptContext.getMessageCount());
+            List<CharacterConfigDTO> characterConfigs = dialogueDTO.characterConfigs().stream()
+                    .map(DialogueCharacterConfigDTO::toCharacterConfigDTO)
+                    .toList();
+
+            String startId = eventSequence.next();
+            Flux<ServerSentEvent<Object>> start = Flux.just(event("dialogue-start", startId,
+                    dialogueEventMapper.toDialogueStartEventDto(
+                            new DialogueStartEventDto(dialogueDTO.id(), characterConfigs, turnCount, startId))));
+
+            Flux<ServerSentEvent<Object>> turns = Flux.range(1, turnCount)
+                    .concatMap(turn -> Flux.range(0, dialogueDTO.characterConfigs().size())
+                            .concatMap(index -> characterTurn(dialogueDTO, dialogueDTO.characterConfigs().get(index), turn, index + 1,
+                                    promptContext, coalescing, eventSequence, progress, timeline, apiKey)));
+
+            Flux<ServerSentEvent<Object>> complete = Mono.fromSupplier(() -> {
+                String completeId = eventSequence.next();
+                return event("dialogue-complete", completeId, dialogueEventMapper.toDialogueCompleteEventDto(
+                        new DialogueCompleteEventDto("completed", turnCount, completeId)));
+            }).flux();
+
+            return Flux.concat(start, turns, complete);
+        })
+        .doOnCancel(() -> {
+            log.info("Dialogue {} stream cancelled by client", dialogueDTO.id());
+            cancellationMetrics.recordCancellation(dialogueDTO.id(), MODE, progress);
+            dialogueMetrics.recordCancelled(MODE);
+            messageWriter.markFailed(dialogueDTO.id());
+            timeline.record(TimelineStage.CANCELLED);
+        })
+        .doOnComplete(() -> {
+            log.info("Dialogue {} stream completed", dialogueDTO.id());
+            dialogueMetrics.recordCompleted(MODE);
+            messageWriter.markCompleted(dialogueDTO.id());
+            timeline.record(TimelineStage.COMPLETED);
+        })
+        .onErrorResume(e -> {
+            log.error("Error during reactive dialogue generation for dialogueId {}", dialogueDTO.id(), e);
+            dialogueMetrics.recordFailed(MODE);
+            messageWriter.markFailed(dialogueDTO.id());
+            timeline.record(TimelineStage.FAILED);
+            String errorId = eventSequence.next();
+            return Flux.just(event("error", errorId, dialogueEventMapper.toErrorEventDto(new ErrorEventDto(
+                    "Error during dialogue generation: " + e.getMessage(),
+                    false,
+                    errorId))));
+        });
+    }
+
+    /**
+     * Builds the events for a single character turn. The prompt is taken on subscription,
+     * i.e. only after the previous turn has completed and been added to the prompt context.
+     */
+    private Flux<ServerSentEvent<Object>> characterTurn(
+            DialogueDTO dialogueDTO,
+            DialogueCharacterConfigDTO config,
+            int turnNumber,
+            int speakingOrder,
+            PromptContext promptContext,
+            TokenCoalescingSettings coalescing,
+            DialogueEventSequence eventSequence,
+            GenerationProgress progress,
+            DialogueTimeline timeline,
+            String apiKey) {
+
+        CharacterConfigDTO characterConfig = config.toCharacterConfigDTO();
+        long characterId = config.character().id();
+
+        return Flux.defer(() -> {
+            log.debug("Dialogue {} turn {}: Character {} using LLM {} starts generation.",
+                    dialogueDTO.id(), turnNumber, characterId, config.llm().openrouterIdentifier());
+
+            List<ChatMessage> messages = promptContext.messagesFor(characterId);
+
+            StringBuilder messageContent = new StringBuilder();
+            int[] tokenCount = new int[1];
+            HedgeOutcome[] outcome = new HedgeOutcome[1];
+
+            HedgePlan hedgePlan = hedgedGeneration.planFor(config.llm());
+            String startId = eventSequence.next();
+            Flux<ServerSentEvent<Object>> start = Flux.just(event("character-start", startId,
+                    dialogueEventMapper.toCharacterStartEventDto(new CharacterStartEventDto(
+                            characterConfig,
+                            hedgePlan != null ? hedgePlan.fallbackModel() : null,
+                            hedgePlan != null ? hedgePlan.ttftBudget().toMillis() : null,
+                            startId))));
+
+            Flux<String> upstream = hedgedGeneration
+                    .streamTokens(config.llm(), messages, apiKey, first -> outcome[0] = first)
+                    .doOnSubscribe(subscription -> timeline.record(TimelineStage.UPSTREAM_REQUEST, characterId, turnNumber))
+                    .doOnNext(token -> {
+                        progress.tokenGenerated();
+                        if (++tokenCount[0] == 1) {
+                            timeline.record(TimelineStage.FIRST_TOKEN, characterId, turnNumber);
+                        }
+                        messageContent.append(token);
+                    });
+            // Batched tokens are sent as one token event with their concatenated text; the fair variant
+            // keeps a timed out batch until the client asks for more instead of failing with an overflow
+            Flux<String> tokenTexts = coalescing.enabled()
+                    ? upstream.bufferTimeout(coalescing.maxTokens(), coalescing.maxDelay(), true)
+                            .map(batch -> String.join("", batch))
+                    : upstream;
+            Flux<ServerSentEvent<Object>> tokens = tokenTexts
+                    .map(text -> {
+                        String tokenId = eventSequence.next();
+                        return event("token", tokenId, dialogueEventMapper.toTokenEventDto(
+                                new TokenEventDto(characterConfig, text, tokenId)));
+                    });
+
+            Flux<ServerSentEvent<Object>> complete = Mono.fromSupplier(() -> {
+                String content = messageContent.toString();
+                progress.turnCompleted();
+                timeline.record(TimelineStage.CHARACTER_COMPLETE, characterId, tokenCount[0]);
+                promptContext.addMessage(characterId, content);
+                log.debug("Dialogue {} turn {}: Character {} finished generation ({} tokens).",
+                        dialogueDTO.id(), turnNumber, characterId, tokenCount[0]);
+                String completeId = eventSequence.next();
+                return event("character-complete", completeId, dialogueEventMapper.toCharacterCompleteEventDto(
+                        new CharacterCompleteEventDto(
+                                characterId,
+                                tokenCount[0],
+                                content,
+                                outcome[0] != null ? outcome[0].model() : config.llm().openrouterIdentifier(),
+                                outcome[0] != null && outcome[0].fallbackUsed(),
+                                outcome[0] != null ? outcome[0].timeToFirstToken().toMillis() : null,
+                                completeId)));
+            }).flux();
+
+            // Waiting for room in the write-behind queue must not hold a reactor thread
+            Flux<ServerSentEvent<Object>> persist = Mono.fromRunnable(() -> messageWriter.append(
+                            dialogueDTO.id(), characterId, turnNumber, speakingOrder, messageContent.toString()))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .thenMany(Flux.empty());
+
+            return Flux.concat(start, tokens, complete, persist);
+        });
+    }
+
+    /**
+     * Emits the queue position events of a waiting dialogue into its stream
+     */
+    private class QueueEventHandler implements DialogueEventHandler {
+
+        private final Sinks.Many<ServerSentEvent<Object>> queued;
+
+        private QueueEventHandler(Sinks.Many<ServerSentEvent<Object>> queued) {
+            this.queued = queued;
+        }
+
+        @Override
+        public void onQueued(DialogueQueuedEventDto event) {
+            queued.emitNext(event("queued", event.id(), dialogueEventMapper.toDialogueQueuedEventDto(event)), EMIT_RETRY);
+        }
+
+        @Override
+        public void onError(long dialogueId, Exception e) {
+            queued.emitError(e, EMIT_RETRY);
+        }
+
+        @Override
+        public void onDialogueStart(DialogueStartEventDto event) {
+        }
+
+        @Override
+        public void onCharacterStart(CharacterStartEventDto event) {
+        }
+
+        @Override
+        public void onToken(TokenEventDto event) {
+        }
+
+        @Override
+        public void onCharacterComplete(CharacterCompleteEventDto event) {
+        }
+
+        @Override
+        public void onDialogueComplete(DialogueCompleteEventDto event) {
+        }
+    }
+
+    private static ServerSentEvent<Object> event(String name, String id, Object data) {
+        return ServerSentEvent.<Object>builder(data)
+                .id(id)
+                .event(name)
+                .build();
+    }
+}
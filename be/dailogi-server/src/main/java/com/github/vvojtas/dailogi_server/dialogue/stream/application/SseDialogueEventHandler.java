@@ -1,221 +1,157 @@
 package com.github.vvojtas.dailogi_server.dialogue.stream.application;
 
+import com.github.vvojtas.dailogi_server.diagnostics.api.SseWriteEvent;
 import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueEventHandler;
 import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.*;
 import com.github.vvojtas.dailogi_server.model.dialogue.mapper.DialogueEventMapper;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.event.SnapshotMessageDto;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
-
-import java.io.IOException;
-import java.util.UUID;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.function.Consumer;
 
 /**
  * Implementation of DialogueEventHandler that sends events via Server-Sent Events (SSE).
- * This class bridges the DialogueGenerationOrchestrator and the SseEmitter interface.
- * It maps API events to response model events before sending them to the client.
+ * This class bridges the DialogueGenerationOrchestrator and the client connection.
+ * It maps API events to response model events and publishes them to the dialogue's
+ * {@link DialogueStreamSession}, which buffers them for replay and forwards them to
+ * whichever client and spectators are currently attached. The content of each message is
+ * collected from its tokens and recorded with the session once the turn completes, for the
+ * snapshot sent to joining spectators.
  */
 @Slf4j
 public class SseDialogueEventHandler implements DialogueEventHandler {
 
     private final long dialogueId;
-    private final SseEmitter emitter;
+    private final DialogueStreamSession session;
     private final DialogueEventMapper eventMapper;
-    private final Consumer<Long> onInactivate;
-    
-    // Thread-safe flag to track if this handler is still active
-    private final AtomicBoolean isActive = new AtomicBoolean(true);
+    private final DialogueEventSequence eventSequence;
+    // Content of the message in progress; events arrive one at a time
+    private final StringBuilder messageContent = new StringBuilder();
 
     /**
      * Creates a new SSE dialogue event handler.
      *
      * @param dialogueId      The ID of the dialogue this handler is associated with
-     * @param emitter         The SSE emitter to send events through
-     * @param onInactivate    Callback to execute when this handler becomes inactive
+     * @param session         The stream session to publish events to
      * @param eventMapper     Mapper to convert API events to response model events
+     * @param eventSequence   Source of IDs for events created by this handler (errors)
      */
-    public SseDialogueEventHandler(long dialogueId, SseEmitter emitter, Consumer<Long> onInactivate, DialogueEventMapper eventMapper) {
+    public SseDialogueEventHandler(long dialogueId, DialogueStreamSession session, DialogueEventMapper eventMapper,
+                                   DialogueEventSequence eventSequence) {
         this.dialogueId = dialogueId;
-        this.emitter = emitter;
-        this.onInactivate = onInactivate;
+        this.session = session;
         this.eventMapper = eventMapper;
-        
-        // Set up completion callback to mark this handler as inactive and notify service
-        emitter.onCompletion(() -> {
-            log.info("SSE stream completed normally for dialogueId: {}", dialogueId);
-            setInactive();
-        });
-        
-        // Set up timeout callback to mark this handler as inactive and notify service
-        emitter.onTimeout(() -> {
-            log.warn("SSE stream timed out for dialogueId: {}", dialogueId);
-            setInactive();
-            
-            // Optionally send a final error event if possible, but timeout usually means client disconnected
-            try {
-                // Check if emitter can still accept events (might be too late)
-                emitter.send(SseEmitter.event().name("error").data(
-                        new ErrorEventDto("Stream timed out on server", false, UUID.randomUUID().toString())));
-                emitter.complete(); // Ensure completion after timeout
-            } catch (Exception e) {
-                log.debug("Could not send timeout error event for dialogueId {}: {}", dialogueId, e.getMessage());
-            }
-        });
-        
-        // Set up error callback to mark this handler as inactive and notify service
-        emitter.onError(ex -> {
-            log.error("SSE stream error for dialogueId: {}: {}", dialogueId, ex.getMessage(), ex);
-            setInactive();
-        });
+        this.eventSequence = eventSequence;
     }
 
     /**
-     * Checks if this handler is still active.
-     * @return true if the handler is active, false otherwise
+     * Checks if the dialogue's stream still accepts events.
+     * @return true if the stream is live, false once it has finished or was abandoned
      */
-    private boolean isEmitterActive() {
-        boolean active = isActive.get();
-        if (!active) {
-            log.trace("Dialogue {} emitter is no longer active, events will not be sent", dialogueId);
+    private boolean isStreamLive() {
+        boolean live = session.isLive();
+        if (!live) {
+            log.trace("Dialogue {} stream is no longer live, events will not be sent", dialogueId);
         }
-        return active;
+        return live;
     }
-    
+
     /**
-     * Marks this handler as inactive and notifies the service.
+     * Publishes an SSE event with the given name, ID and data, recorded as an {@link SseWriteEvent}.
      */
-    public void setInactive() {
-        boolean wasActive = isActive.getAndSet(false);
-        if (wasActive) {
-            log.debug("Handler for dialogue {} marked as inactive", dialogueId);
-            onInactivate.accept(dialogueId);
+    private <T> void sendEvent(String eventName, String eventId, T data) {
+        SseWriteEvent writeEvent = new SseWriteEvent();
+        writeEvent.begin();
+        session.publish(eventName, eventId, data);
+        writeEvent.end();
+        if (writeEvent.shouldCommit()) {
+            writeEvent.dialogueId = dialogueId;
+            writeEvent.eventName = eventName;
+            writeEvent.eventId = eventId;
+            writeEvent.commit();
         }
     }
 
-    /**
-     * Sends an SSE event with the given name and data to the client.
-     */
-    private <T> void sendEvent(String eventName, T data) throws IOException {
-        if (emitter == null) {
-            log.warn("Attempted to send event '{}' to a null emitter for dialogue {}", eventName, dialogueId);
-            return;
-        }
-        
-        // Create SSE event object
-        SseEmitter.SseEventBuilder event = SseEmitter.event()
-                .name(eventName)
-                .data(data);
+    @Override
+    public void onQueued(DialogueQueuedEventDto apiEvent) {
+        if (!isStreamLive()) return;
         
-        try {
-            // Send the event immediately
-            emitter.send(event);
-            
-            // Additional flush after each event - forces immediate delivery
-            emitter.send(SseEmitter.event().comment(""));
-        } catch (IOException e) {
-            log.error("Failed to send event '{}' for dialogue {}: {}", eventName, dialogueId, e.getMessage());
-            throw e; // Propagate to calling method for proper error handling
-        }
+        // Map API event to response model event using fully qualified name
+        com.github.vvojtas.dailogi_server.model.dialogue.response.event.DialogueQueuedEventDto mappedEvent = 
+                eventMapper.toDialogueQueuedEventDto(apiEvent);
+        sendEvent("queued", mappedEvent.id(), mappedEvent);
+        log.debug("Dialogue {}: Sent mapped queued event (position {})", dialogueId, apiEvent.position());
     }
 
     @Override
     public void onDialogueStart(DialogueStartEventDto apiEvent) {
-        if (!isEmitterActive()) return;
+        if (!isStreamLive()) return;
         
-        try {
-            // Map API event to response model event using fully qualified name
-            com.github.vvojtas.dailogi_server.model.dialogue.response.event.DialogueStartEventDto mappedEvent = 
-                    eventMapper.toDialogueStartEventDto(apiEvent);
-            sendEvent("dialogue-start", mappedEvent);
-            log.debug("Dialogue {}: Sent mapped dialogue-start event", dialogueId);
-        } catch (IOException e) {
-            log.error("Error sending dialogue-start event for dialogue {}: {}", dialogueId, e.getMessage(), e);
-            // We don't complete the emitter here as this would be the first event
-            // and should be sent from the DialogueStreamService directly
-        }
+        // Map API event to response model event using fully qualified name
+        com.github.vvojtas.dailogi_server.model.dialogue.response.event.DialogueStartEventDto mappedEvent = 
+                eventMapper.toDialogueStartEventDto(apiEvent);
+        sendEvent("dialogue-start", mappedEvent.id(), mappedEvent);
+        log.debug("Dialogue {}: Sent mapped dialogue-start event", dialogueId);
     }
 
     @Override
     public void onCharacterStart(CharacterStartEventDto apiEvent) {
-        if (!isEmitterActive()) return;
+        if (!isStreamLive()) return;
         
-        try {
-            // Map API event to response model event using fully qualified name
-            com.github.vvojtas.dailogi_server.model.dialogue.response.event.CharacterStartEventDto mappedEvent = 
-                    eventMapper.toCharacterStartEventDto(apiEvent);
-            sendEvent("character-start", mappedEvent);
-            log.debug("Dialogue {}: Sent mapped character-start event for character {}", 
-                    dialogueId, apiEvent.getCharacterConfig().characterId());
-        } catch (IOException e) {
-            log.error("Error sending character-start event for dialogue {}: {}", dialogueId, e.getMessage(), e);
-            completeWithError(e);
-        }
+        // Map API event to response model event using fully qualified name
+        com.github.vvojtas.dailogi_server.model.dialogue.response.event.CharacterStartEventDto mappedEvent = 
+                eventMapper.toCharacterStartEventDto(apiEvent);
+        messageContent.setLength(0);
+        sendEvent("character-start", mappedEvent.getId(), mappedEvent);
+        log.debug("Dialogue {}: Sent mapped character-start event for character {}", 
+                dialogueId, apiEvent.getCharacterConfig().characterId());
     }
 
     @Override
     public void onToken(TokenEventDto apiEvent) {
-        if (!isEmitterActive()) return;
+        if (!isStreamLive()) return;
         
-        try {
-            // Map API event to response model event using fully qualified name
-            com.github.vvojtas.dailogi_server.model.dialogue.response.event.TokenEventDto mappedEvent = 
-                    eventMapper.toTokenEventDto(apiEvent);
-            sendEvent("token", mappedEvent);
-            log.trace("Dialogue {}: Sent mapped token event for character {}", dialogueId, apiEvent.characterConfig().characterId());
-        } catch (IOException e) {
-            log.error("Error sending token event for dialogue {}: {}", dialogueId, e.getMessage(), e);
-            completeWithError(e);
-        }
+        // Map API event to response model event using fully qualified name
+        com.github.vvojtas.dailogi_server.model.dialogue.response.event.TokenEventDto mappedEvent = 
+                eventMapper.toTokenEventDto(apiEvent);
+        messageContent.append(apiEvent.token());
+        sendEvent("token", mappedEvent.id(), mappedEvent);
+        log.trace("Dialogue {}: Sent mapped token event for character {}", dialogueId, apiEvent.characterConfig().characterId());
     }
 
     @Override
     public void onCharacterComplete(CharacterCompleteEventDto apiEvent) {
-        if (!isEmitterActive()) return;
+        if (!isStreamLive()) return;
         
-        try {
-            // Map API event to response model event using fully qualified name
-            com.github.vvojtas.dailogi_server.model.dialogue.response.event.CharacterCompleteEventDto mappedEvent = 
-                    eventMapper.toCharacterCompleteEventDto(apiEvent);
-            sendEvent("character-complete", mappedEvent);
-            log.debug("Dialogue {}: Sent mapped character-complete event for character {} ({} tokens)", 
-                    dialogueId, apiEvent.characterId(), apiEvent.tokenCount());
-        } catch (IOException e) {
-            log.error("Error sending character-complete event for dialogue {}: {}", dialogueId, e.getMessage(), e);
-            completeWithError(e);
-        }
+        // Map API event to response model event using fully qualified name
+        com.github.vvojtas.dailogi_server.model.dialogue.response.event.CharacterCompleteEventDto mappedEvent = 
+                eventMapper.toCharacterCompleteEventDto(apiEvent);
+        sendEvent("character-complete", mappedEvent.id(), mappedEvent);
+        session.recordMessage(new SnapshotMessageDto(apiEvent.characterId(), messageContent.toString(), mappedEvent.id()));
+        messageContent.setLength(0);
+        log.debug("Dialogue {}: Sent mapped character-complete event for character {} ({} tokens)", 
+                dialogueId, apiEvent.characterId(), apiEvent.tokenCount());
     }
 
     @Override
     public void onDialogueComplete(DialogueCompleteEventDto apiEvent) {
-        if (!isEmitterActive()) return;
+        if (!isStreamLive()) return;
         
-        try {
-            // Map API event to response model event using fully qualified name
-            com.github.vvojtas.dailogi_server.model.dialogue.response.event.DialogueCompleteEventDto mappedEvent = 
-                    eventMapper.toDialogueCompleteEventDto(apiEvent);
-            sendEvent("dialogue-complete", mappedEvent);
-            log.info("Dialogue {}: Sent mapped dialogue-complete event", dialogueId);
-            
-            // Complete the emitter after sending the final event
-            emitter.complete();
-            log.debug("Dialogue {}: Emitter completed successfully", dialogueId);
-            
-            // Mark handler as inactive
-            setInactive();
-        } catch (IOException e) {
-            log.error("Error sending dialogue-complete event for dialogue {}: {}", dialogueId, e.getMessage(), e);
-            completeWithError(e);
-        }
+        // Map API event to response model event using fully qualified name
+        com.github.vvojtas.dailogi_server.model.dialogue.response.event.DialogueCompleteEventDto mappedEvent = 
+                eventMapper.toDialogueCompleteEventDto(apiEvent);
+        sendEvent("dialogue-complete", mappedEvent.id(), mappedEvent);
+        log.info("Dialogue {}: Sent mapped dialogue-complete event", dialogueId);
+        
+        // Complete the stream after sending the final event
+        session.complete();
     }
 
     @Override
     public void onError(long dialogueId, Exception exception) {
-        if (!isEmitterActive()) return;
+        if (!isStreamLive()) return;
         
         try {
             // Create API error event
-            String errorEventId = UUID.randomUUID().toString();
+            String errorEventId = eventSequence.next();
             ErrorEventDto apiErrorEvent = new ErrorEventDto(
                     "Error during dialogue generation: " + exception.getMessage(),
                     false,
@@ -224,30 +160,10 @@ public class SseDialogueEventHandler implements DialogueEventHandler {
             // Map to response model event using fully qualified name
             com.github.vvojtas.dailogi_server.model.dialogue.response.event.ErrorEventDto mappedEvent = 
                     eventMapper.toErrorEventDto(apiErrorEvent);
-            sendEvent("error", mappedEvent);
+            sendEvent("error", mappedEvent.id(), mappedEvent);
             log.debug("Dialogue {}: Sent mapped error event", dialogueId);
-        } catch (IOException e) {
-            log.error("Error sending error event for dialogue {}: {}", dialogueId, e.getMessage(), e);
-            // Fall through to completeWithError
         } finally {
-            completeWithError(exception);
-        }
-    }
-    
-    /**
-     * Completes the emitter with an error and marks the handler as inactive.
-     */
-    private void completeWithError(Exception e) {
-        try {
-            if (isEmitterActive()) {
-                emitter.completeWithError(e);
-                log.debug("Dialogue {}: Emitter completed with error", dialogueId);
-                setInactive();
-            }
-        } catch (Exception ex) {
-            log.error("Error completing emitter with error for dialogue {}: {}", dialogueId, ex.getMessage(), ex);
-            // Last resort cleanup - ensure we're marked as inactive
-            setInactive();
+            session.fail(exception);
         }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,29 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import com.github.vvojtas.dailogi_server.model.dialogue.request.TokenCoalescingDTO;
+import com.github.vvojtas.dailogi_server.properties.DialogueStreamProperties;
+
+import java.time.Duration;
+
+/**
+ * Effective token coalescing for a single dialogue stream.
+ *
+ * @param enabled   Whether token events are batched
+ * @param maxTokens Maximum number of tokens in one batched event
+ * @param maxDelay  Maximum time a token waits in the batch
+ */
+record TokenCoalescingSettings(boolean enabled, int maxTokens, Duration maxDelay) {
+
+    /**
+     * Combines the request settings with the server defaults; request values take precedence.
+     * Batching a single token is the same as not batching, so such settings are reported as disabled.
+     */
+    static TokenCoalescingSettings resolve(TokenCoalescingDTO request, DialogueStreamProperties.TokenCoalescing defaults) {
+        boolean enabled = request != null && request.enabled() != null ? request.enabled() : defaults.isEnabled();
+        int maxTokens = request != null && request.maxTokens() != null ? request.maxTokens() : defaults.getMaxTokens();
+        Duration maxDelay = request != null && request.maxDelayMs() != null
+                ? Duration.ofMillis(request.maxDelayMs())
+                : defaults.getMaxDelay();
+        return new TokenCoalescingSettings(enabled && maxTokens > 1, maxTokens, maxDelay);
+    }
+}
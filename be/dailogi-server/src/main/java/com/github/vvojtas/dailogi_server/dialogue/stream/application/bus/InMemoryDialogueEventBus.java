@@ -0,0 +1,42 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application.bus;
+
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueBusMessage;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueEventBus;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Event bus within a single instance. Messages are handed to the listeners on the publishing thread;
+ * as listeners skip their own instance's messages, streams stay on the instance generating them.
+ * Several registries with distinct node IDs sharing one bus behave like a cluster.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "dailogi.dialogue.stream.cluster", name = "bus", havingValue = "in-memory", matchIfMissing = true)
+public class InMemoryDialogueEventBus implements DialogueEventBus {
+
+    private final List<Consumer<DialogueBusMessage>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(DialogueBusMessage message) {
+        for (Consumer<DialogueBusMessage> listener : listeners) {
+            try {
+                listener.accept(message);
+            } catch (RuntimeException e) {
+                log.error("Dialogue bus listener failed on {} of dialogue {}: {}",
+                        message.type(), message.dialogueId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<DialogueBusMessage> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,312 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application.bus;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueBusMessage;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueEventBus;
+import com.github.vvojtas.dailogi_server.properties.DialogueStreamProperties;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Event bus over PostgreSQL {@code LISTEN/NOTIFY} on the configured channel.
+ * <p>
+ * Published messages are queued and sent by a single publisher thread, a batch per transaction,
+ * so they reach the other instances in publishing order. The queue is bounded by the configured outbox
+ * capacity: once it is full, token events are dropped - clients following the dialogue through other
+ * instances miss them - while the few other messages of a dialogue are still queued, so no stream is
+ * left unfinished. Messages are sent as JSON; as notification payloads must stay under 8000 bytes,
+ * longer messages - such as a dialogue-start event with many character configurations - are split
+ * into parts and joined again by the receivers.
+ * <p>
+ * A listener thread holds one connection of the pool for {@code LISTEN} and reconnects after the
+ * configured delay when it is lost; messages sent meanwhile are missed. With a connection pooler in
+ * front of the database, it must run in session mode for notifications to be delivered.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "dailogi.dialogue.stream.cluster", name = "bus", havingValue = "postgres")
+public class PostgresDialogueEventBus implements DialogueEventBus {
+
+    // A part of this many characters stays below the 8000 byte payload limit even at 3 bytes per character
+    static final int MAX_PART_LENGTH = 2000;
+    private static final char PART_MARKER = '#';
+    private static final int MAX_BATCH_SIZE = 200;
+    private static final int MAX_PARTIAL_MESSAGES = 1000;
+    private static final int POLL_TIMEOUT_MILLIS = 500;
+    private static final String TOKEN_EVENT = "token";
+
+    /**
+     * Message as sent over the channel, with the event payload as a JSON tree
+     */
+    record WireMessage(String node, long dialogue, DialogueBusMessage.Type type, long owner,
+                       String name, String id, JsonNode data) {
+    }
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final DialogueStreamProperties.Cluster properties;
+    private final String notifySql;
+    private final String listenSql;
+
+    private final List<Consumer<DialogueBusMessage>> listeners = new CopyOnWriteArrayList<>();
+    private final LinkedBlockingQueue<DialogueBusMessage> outbox = new LinkedBlockingQueue<>();
+    private final AtomicLong droppedTokens = new AtomicLong();
+    // Parts received so far of split messages, by sender and message number; used by the listener thread only
+    private final Map<String, StringBuilder> partialMessages = new HashMap<>();
+    private long splitMessages;
+    private volatile boolean running;
+    private Thread publisherThread;
+    private Thread listenerThread;
+
+    public PostgresDialogueEventBus(DataSource dataSource, ObjectMapper objectMapper,
+                                    DialogueStreamProperties dialogueStreamProperties) {
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+        this.properties = dialogueStreamProperties.getCluster();
+        if (!properties.getChannel().matches(DialogueStreamProperties.Cluster.CHANNEL_PATTERN)) {
+            throw new IllegalArgumentException("Invalid dialogue bus channel: " + properties.getChannel());
+        }
+        this.notifySql = "select pg_notify('" + properties.getChannel() + "', ?)";
+        // Quoted, so the channel listened to is exactly the one notified
+        this.listenSql = "LISTEN \"" + properties.getChannel() + "\"";
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        publisherThread = Thread.ofPlatform().name("DialogueBusPublisher").daemon(true).start(this::publishLoop);
+        listenerThread = Thread.ofPlatform().name("DialogueBusListener").daemon(true).start(this::listenLoop);
+        log.info("Dialogue event bus on PostgreSQL channel {} started as node {}", properties.getChannel(), properties.getNodeId());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        for (Thread thread : new Thread[]{publisherThread, listenerThread}) {
+            if (thread != null) {
+                thread.interrupt();
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            }
+        }
+    }
+
+    @Override
+    public void publish(DialogueBusMessage message) {
+        if (isToken(message) && outbox.size() >= properties.getOutboxCapacity()) {
+            droppedTokens.incrementAndGet();
+            return;
+        }
+        outbox.add(message);
+    }
+
+    /**
+     * @return Number of messages waiting to be published
+     */
+    int getQueuedCount() {
+        return outbox.size();
+    }
+
+    private static boolean isToken(DialogueBusMessage message) {
+        return message.type() == DialogueBusMessage.Type.EVENT && TOKEN_EVENT.equals(message.name());
+    }
+
+    @Override
+    public void subscribe(Consumer<DialogueBusMessage> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Serializes a message into one notification payload, or several parts if it is too long.
+     * Only called by the publisher thread.
+     */
+    List<String> encode(DialogueBusMessage message) throws JsonProcessingException {
+        String json = objectMapper.writeValueAsString(new WireMessage(
+                message.nodeId(), message.dialogueId(), message.type(), message.ownerId(),
+                message.name(), message.id(), message.data() != null ? objectMapper.valueToTree(message.data()) : null));
+        if (json.length() <= MAX_PART_LENGTH) {
+            return List.of(json);
+        }
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < json.length()) {
+            int end = Math.min(start + MAX_PART_LENGTH, json.length());
+            // Never split a surrogate pair
+            if (end < json.length() && Character.isHighSurrogate(json.charAt(end - 1))) {
+                end--;
+            }
+            chunks.add(json.substring(start, end));
+            start = end;
+        }
+        long number = ++splitMessages;
+        List<String> parts = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            parts.add(PART_MARKER + message.nodeId() + ":" + number + ":" + i + ":" + chunks.size() + ":" + chunks.get(i));
+        }
+        return parts;
+    }
+
+    /**
+     * Deserializes a notification payload; a part of a split message yields the message once its
+     * last part is received. Parts of one message arrive in order, as each sender publishes from one thread.
+     * Only called by the listener thread.
+     */
+    Optional<DialogueBusMessage> decode(String payload) throws JsonProcessingException {
+        String json = payload;
+        if (payload.charAt(0) == PART_MARKER) {
+            String[] header = payload.substring(1).split(":", 5);
+            String key = header[0] + ":" + header[1];
+            int index = Integer.parseInt(header[2]);
+            int count = Integer.parseInt(header[3]);
+            if (index == 0) {
+                if (partialMessages.size() >= MAX_PARTIAL_MESSAGES) {
+                    log.warn("Discarding {} incomplete dialogue bus messages", partialMessages.size());
+                    partialMessages.clear();
+                }
+                partialMessages.put(key, new StringBuilder(count * MAX_PART_LENGTH));
+            }
+            StringBuilder partial = partialMessages.get(key);
+            if (partial == null) {
+                return Optional.empty(); // Earlier parts were missed
+            }
+            partial.append(header[4]);
+            if (index < count - 1) {
+                return Optional.empty();
+            }
+            partialMessages.remove(key);
+            json = partial.toString();
+        }
+        WireMessage wire = objectMapper.readValue(json, WireMessage.class);
+        return Optional.of(new DialogueBusMessage(
+                wire.node(), wire.dialogue(), wire.type(), wire.owner(), wire.name(), wire.id(), wire.data()));
+    }
+
+    private void publishLoop() {
+        List<DialogueBusMessage> batch = new ArrayList<>();
+        while (running) {
+            try {
+                batch.add(outbox.take());
+                outbox.drainTo(batch, MAX_BATCH_SIZE - 1);
+                send(batch);
+                long dropped = droppedTokens.getAndSet(0);
+                if (dropped > 0) {
+                    log.warn("Dialogue bus outbox was full, dropped {} token events", dropped);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (SQLException | RuntimeException e) {
+                log.warn("Could not publish {} dialogue bus messages, dropping them: {}", batch.size(), e.getMessage());
+                sleep();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void send(List<DialogueBusMessage> batch) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(notifySql)) {
+                for (DialogueBusMessage message : batch) {
+                    for (String payload : encodeOrSkip(message)) {
+                        statement.setString(1, payload);
+                        statement.execute();
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private List<String> encodeOrSkip(DialogueBusMessage message) {
+        try {
+            return encode(message);
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize {} of dialogue {} for the bus: {}", message.type(), message.dialogueId(), e.getMessage());
+            return List.of();
+        }
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(listenSql);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                log.info("Listening for dialogue bus messages on channel {}", properties.getChannel());
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            receive(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Lost dialogue bus connection, reconnecting in {}: {}", properties.getReconnectDelay(), e.getMessage());
+                    partialMessages.clear();
+                    sleep();
+                }
+            }
+        }
+    }
+
+    private void receive(String payload) {
+        Optional<DialogueBusMessage> message;
+        try {
+            message = decode(payload);
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.error("Discarding malformed dialogue bus message: {}", e.getMessage());
+            return;
+        }
+        message.ifPresent(received -> {
+            for (Consumer<DialogueBusMessage> listener : listeners) {
+                try {
+                    listener.accept(received);
+                } catch (RuntimeException e) {
+                    log.error("Dialogue bus listener failed on {} of dialogue {}: {}",
+                            received.type(), received.dialogueId(), e.getMessage(), e);
+                }
+            }
+        });
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(properties.getReconnectDelay().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
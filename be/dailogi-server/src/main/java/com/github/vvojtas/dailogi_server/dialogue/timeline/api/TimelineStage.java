@@ -0,0 +1,76 @@
+package com.github.vvojtas.dailogi_server.dialogue.timeline.api;
+
+/**
+ * Points in the execution of a dialogue recorded on its timeline. Each stage documents the
+ * meaning of the value recorded with it; stages without a value record 0.
+ */
+public enum TimelineStage {
+    /**
+     * The SSE stream of the dialogue was opened; generation is queued for a free slot
+     */
+    STREAM_OPENED(null),
+    /**
+     * A client reattached to the stream
+     */
+    CLIENT_RESUMED(null),
+    /**
+     * Generation started on its dialogue executor thread, or the reactive stream was subscribed
+     */
+    GENERATION_STARTED(null),
+    /**
+     * The prompt context was built; the value is the number of messages in it
+     */
+    PROMPT_BUILT("%d messages"),
+    /**
+     * A character's turn was requested from the upstream; the value is the turn number
+     */
+    UPSTREAM_REQUEST("turn %d"),
+    /**
+     * The first token of a character's turn arrived; the value is the turn number
+     */
+    FIRST_TOKEN("turn %d"),
+    /**
+     * A character's turn ended; the value is the number of tokens received
+     */
+    CHARACTER_COMPLETE("%d tokens"),
+    /**
+     * Messages of the dialogue were stored; the value is the number of messages
+     */
+    MESSAGES_WRITTEN("%d messages"),
+    COMPLETED(null),
+    FAILED(null),
+    CANCELLED(null),
+    /**
+     * No client reconnected within the grace period
+     */
+    ABANDONED(null),
+    /**
+     * The completed status was stored
+     */
+    STORED_COMPLETED(null),
+    /**
+     * The failed status was stored
+     */
+    STORED_FAILED(null);
+
+    private final String detailFormat;
+
+    TimelineStage(String detailFormat) {
+        this.detailFormat = detailFormat;
+    }
+
+    /**
+     * @return Whether the stage ends the generation of the dialogue
+     */
+    public boolean isTerminal() {
+        return this == COMPLETED || this == FAILED || this == CANCELLED || this == ABANDONED;
+    }
+
+    /**
+     * @param value The value recorded with the stage
+     * @return Description of the value, or null if the stage records no value
+     */
+    public String describe(long value) {
+        return detailFormat != null ? String.format(detailFormat, value) : null;
+    }
+}
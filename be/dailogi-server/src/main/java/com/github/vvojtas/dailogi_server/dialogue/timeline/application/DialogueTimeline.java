@@ -0,0 +1,139 @@
+package com.github.vvojtas.dailogi_server.dialogue.timeline.application;
+
+import com.github.vvojtas.dailogi_server.dialogue.timeline.api.TimelineStage;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact record of what happened during one dialogue, for reconstructing stalls after the fact.
+ * Entries are kept in preallocated primitive arrays, so recording allocates nothing and the memory
+ * of a timeline is fixed by its capacity. Once full, each new entry overwrites the oldest one.
+ * Entries are recorded from the dialogue's thread, upstream I/O threads and the message writer,
+ * so access is synchronized; a dialogue records a few entries per turn, never per token.
+ */
+public class DialogueTimeline {
+
+    /**
+     * Timeline of a dialogue that is not recorded; ignores all entries
+     */
+    static final DialogueTimeline NONE = new DialogueTimeline(0, 0);
+
+    private static final TimelineStage[] STAGES = TimelineStage.values();
+
+    /**
+     * A recorded entry
+     *
+     * @param stage       The recorded stage
+     * @param offsetNanos Time since the timeline started
+     * @param characterId The character the stage belongs to, 0 for stages of the whole dialogue
+     * @param value       Value of the stage, see {@link TimelineStage}
+     */
+    public record Entry(TimelineStage stage, long offsetNanos, long characterId, long value) {}
+
+    private final long dialogueId;
+    private final Instant startedAt;
+    private final long startNanos;
+    private final long[] offsets;
+    private final byte[] stages;
+    private final long[] characterIds;
+    private final long[] values;
+    // Index of the oldest entry
+    private int head;
+    private int size;
+    private long dropped;
+    private Instant finishedAt;
+
+    DialogueTimeline(long dialogueId, int capacity) {
+        this.dialogueId = dialogueId;
+        this.startedAt = Instant.now();
+        this.startNanos = System.nanoTime();
+        this.offsets = new long[capacity];
+        this.stages = new byte[capacity];
+        this.characterIds = new long[capacity];
+        this.values = new long[capacity];
+    }
+
+    public void record(TimelineStage stage) {
+        record(stage, 0, 0);
+    }
+
+    /**
+     * Records an entry at the current time
+     *
+     * @param stage       The reached stage
+     * @param characterId The character the stage belongs to, 0 for stages of the whole dialogue
+     * @param value       Value of the stage, see {@link TimelineStage}
+     */
+    public void record(TimelineStage stage, long characterId, long value) {
+        if (offsets.length == 0) {
+            return;
+        }
+        long offset = System.nanoTime() - startNanos;
+        synchronized (this) {
+            int index;
+            if (size < offsets.length) {
+                index = (head + size) % offsets.length;
+                size++;
+            } else {
+                index = head;
+                head = (head + 1) % offsets.length;
+                dropped++;
+            }
+            offsets[index] = offset;
+            stages[index] = (byte) stage.ordinal();
+            characterIds[index] = characterId;
+            values[index] = value;
+            if (stage.isTerminal() && finishedAt == null) {
+                finishedAt = startedAt.plusNanos(offset);
+            }
+        }
+    }
+
+    /**
+     * @return Retained entries, oldest first
+     */
+    public synchronized List<Entry> getEntries() {
+        List<Entry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % offsets.length;
+            entries.add(new Entry(STAGES[stages[index]], offsets[index], characterIds[index], values[index]));
+        }
+        return entries;
+    }
+
+    /**
+     * @return Number of oldest entries overwritten because the timeline was full
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return When the generation ended, null while it is running
+     */
+    public synchronized Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getDialogueId() {
+        return dialogueId;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * @return Time of an entry
+     */
+    public Instant timeOf(Entry entry) {
+        return startedAt.plus(Duration.ofNanos(entry.offsetNanos()));
+    }
+}
@@ -0,0 +1,143 @@
+package com.github.vvojtas.dailogi_server.dialogue.timeline.application;
+
+import com.github.vvojtas.dailogi_server.db.entity.DialogueStatus;
+import com.github.vvojtas.dailogi_server.dialogue.api.DialogueMessagesWrittenEvent;
+import com.github.vvojtas.dailogi_server.dialogue.api.DialogueStatusChangedEvent;
+import com.github.vvojtas.dailogi_server.dialogue.timeline.api.TimelineStage;
+import com.github.vvojtas.dailogi_server.exception.ResourceNotFoundException;
+import com.github.vvojtas.dailogi_server.properties.DialogueTimelineProperties;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the {@link DialogueTimeline}s of running and recently finished dialogues.
+ * A timeline is started when the dialogue's stream is opened; components taking part in the
+ * generation look it up once and record into it. Stores of messages and statuses are recorded
+ * from the events of the write-behind queue. Finished timelines are evicted after the retention,
+ * and the oldest ones - finished first - whenever more than the allowed number are held.
+ */
+@Slf4j
+@Component
+public class DialogueTimelineRecorder {
+
+    private final DialogueTimelineProperties properties;
+    private final TaskScheduler scheduler;
+    private final Map<Long, DialogueTimeline> timelines = new ConcurrentHashMap<>();
+
+    public DialogueTimelineRecorder(DialogueTimelineProperties properties, TaskScheduler sseScheduler) {
+        this.properties = properties;
+        this.scheduler = sseScheduler;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (properties.isEnabled()) {
+            scheduler.scheduleWithFixedDelay(this::evict, properties.getEvictionInterval());
+        }
+    }
+
+    /**
+     * Starts a new timeline of a dialogue, replacing the timeline of an earlier generation of it
+     *
+     * @param dialogueId The ID of the dialogue
+     * @return The timeline to record into; ignores entries if timelines are disabled
+     */
+    public DialogueTimeline start(long dialogueId) {
+        if (!properties.isEnabled()) {
+            return DialogueTimeline.NONE;
+        }
+        DialogueTimeline timeline = new DialogueTimeline(dialogueId, properties.getCapacity());
+        timelines.put(dialogueId, timeline);
+        return timeline;
+    }
+
+    /**
+     * Returns the timeline of a dialogue, starting one if none is recorded yet, e.g. for a dialogue
+     * of a batch, which has no stream
+     *
+     * @param dialogueId The ID of the dialogue
+     * @return The timeline to record into; ignores entries if timelines are disabled
+     */
+    public DialogueTimeline startIfAbsent(long dialogueId) {
+        if (!properties.isEnabled()) {
+            return DialogueTimeline.NONE;
+        }
+        return timelines.computeIfAbsent(dialogueId, id -> new DialogueTimeline(id, properties.getCapacity()));
+    }
+
+    /**
+     * @param dialogueId The ID of the dialogue
+     * @return The timeline of the dialogue, or one ignoring entries if none is recorded
+     */
+    public DialogueTimeline timeline(long dialogueId) {
+        DialogueTimeline timeline = timelines.get(dialogueId);
+        return timeline != null ? timeline : DialogueTimeline.NONE;
+    }
+
+    /**
+     * @param dialogueId The ID of the dialogue
+     * @return The recorded timeline of the dialogue
+     * @throws ResourceNotFoundException if no timeline of the dialogue is kept
+     */
+    public DialogueTimeline getTimeline(long dialogueId) {
+        DialogueTimeline timeline = timelines.get(dialogueId);
+        if (timeline == null) {
+            throw new ResourceNotFoundException("dialogue_timeline", "No timeline found for dialogue " + dialogueId);
+        }
+        return timeline;
+    }
+
+    /**
+     * @return Number of timelines held
+     */
+    public int size() {
+        return timelines.size();
+    }
+
+    @EventListener
+    public void onMessagesWritten(DialogueMessagesWrittenEvent event) {
+        timeline(event.dialogueId()).record(TimelineStage.MESSAGES_WRITTEN, 0, event.messages());
+    }
+
+    @EventListener
+    public void onDialogueStatusChanged(DialogueStatusChangedEvent event) {
+        if (event.status() == DialogueStatus.COMPLETED) {
+            timeline(event.dialogueId()).record(TimelineStage.STORED_COMPLETED);
+        } else if (event.status() == DialogueStatus.FAILED) {
+            timeline(event.dialogueId()).record(TimelineStage.STORED_FAILED);
+        }
+    }
+
+    /**
+     * Removes finished timelines past their retention, then the oldest timelines while more than
+     * the allowed number are held - finished ones first, then running ones, which have most likely stalled.
+     */
+    void evict() {
+        Instant expiry = Instant.now().minus(properties.getRetention());
+        timelines.values().removeIf(timeline -> {
+            Instant finishedAt = timeline.getFinishedAt();
+            return finishedAt != null && finishedAt.isBefore(expiry);
+        });
+
+        int excess = timelines.size() - properties.getMaxDialogues();
+        if (excess > 0) {
+            List<DialogueTimeline> oldest = timelines.values().stream()
+                    .sorted(Comparator.comparing((DialogueTimeline timeline) -> timeline.getFinishedAt() == null)
+                            .thenComparingLong(DialogueTimeline::getStartNanos))
+                    .limit(excess)
+                    .toList();
+            oldest.forEach(timeline -> timelines.remove(timeline.getDialogueId(), timeline));
+            log.debug("Evicted {} dialogue timelines over the limit of {}", oldest.size(), properties.getMaxDialogues());
+        }
+    }
+}
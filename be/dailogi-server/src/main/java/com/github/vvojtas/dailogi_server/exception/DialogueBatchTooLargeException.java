@@ -0,0 +1,17 @@
+package com.github.vvojtas.dailogi_server.exception;
+
+import lombok.Getter;
+
+/**
+ * Exception thrown when a batch job contains more dialogues than allowed.
+ */
+@Getter
+public class DialogueBatchTooLargeException extends RuntimeException {
+
+    private final int limit;
+
+    public DialogueBatchTooLargeException(int limit) {
+        super(String.format("Cannot start batch. Maximum of %d dialogues per batch exceeded.", limit));
+        this.limit = limit;
+    }
+}
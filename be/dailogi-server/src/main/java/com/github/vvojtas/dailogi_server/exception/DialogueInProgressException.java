@@ -0,0 +1,17 @@
+package com.github.vvojtas.dailogi_server.exception;
+
+import lombok.Getter;
+
+/**
+ * Exception thrown when a dialogue cannot be continued because it is still being generated.
+ */
+@Getter
+public class DialogueInProgressException extends RuntimeException {
+
+    private final Long dialogueId;
+
+    public DialogueInProgressException(Long dialogueId) {
+        super(String.format("Dialogue with ID %d is still being generated.", dialogueId));
+        this.dialogueId = dialogueId;
+    }
+}
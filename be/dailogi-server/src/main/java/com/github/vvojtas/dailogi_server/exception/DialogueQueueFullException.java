@@ -0,0 +1,17 @@
+package com.github.vvojtas.dailogi_server.exception;
+
+import lombok.Getter;
+
+/**
+ * Exception thrown when a user already has the maximum number of dialogues waiting for generation.
+ */
+@Getter
+public class DialogueQueueFullException extends RuntimeException {
+
+    private final int limit;
+
+    public DialogueQueueFullException(int limit) {
+        super(String.format("Cannot queue more dialogues. Maximum of %d waiting dialogues reached.", limit));
+        this.limit = limit;
+    }
+}
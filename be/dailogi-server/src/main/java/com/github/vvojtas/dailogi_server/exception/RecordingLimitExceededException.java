@@ -0,0 +1,17 @@
+package com.github.vvojtas.dailogi_server.exception;
+
+import lombok.Getter;
+
+/**
+ * Exception thrown when a Flight Recorder recording is started while the maximum number is held.
+ */
+@Getter
+public class RecordingLimitExceededException extends RuntimeException {
+
+    private final int limit;
+
+    public RecordingLimitExceededException(int limit) {
+        super(String.format("Cannot start recording. Maximum of %d recordings reached; delete a recording first.", limit));
+        this.limit = limit;
+    }
+}
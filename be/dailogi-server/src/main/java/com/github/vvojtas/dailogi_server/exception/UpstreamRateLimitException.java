@@ -0,0 +1,25 @@
+package com.github.vvojtas.dailogi_server.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when a request to an upstream model is rate limited, either by the
+ * upstream (HTTP 429) or because the client-side limits would not allow it soon enough.
+ */
+@Getter
+public class UpstreamRateLimitException extends RuntimeException {
+
+    private final String model;
+    /**
+     * How long to wait before trying again, null if unknown
+     */
+    private final Duration retryAfter;
+
+    public UpstreamRateLimitException(String model, Duration retryAfter) {
+        super(String.format("Rate limit exceeded for model %s", model));
+        this.model = model;
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.vvojtas.dailogi_server.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when an upstream model fails with a server error or its circuit is open.
+ */
+@Getter
+public class UpstreamUnavailableException extends RuntimeException {
+
+    private final String model;
+    /**
+     * How long to wait before trying again, null if unknown
+     */
+    private final Duration retryAfter;
+
+    public UpstreamUnavailableException(String model, String message, Duration retryAfter) {
+        super(message);
+        this.model = model;
+        this.retryAfter = retryAfter;
+    }
+}
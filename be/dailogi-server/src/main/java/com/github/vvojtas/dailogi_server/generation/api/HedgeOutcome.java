@@ -0,0 +1,13 @@
+package com.github.vvojtas.dailogi_server.generation.api;
+
+import java.time.Duration;
+
+/**
+ * Which upstream produced a character turn, known once its first token arrives.
+ * @param model OpenRouter identifier of the model whose tokens are used
+ * @param fallbackUsed Whether the fallback model won the race against the primary one
+ * @param hedged Whether the fallback request was sent at all, i.e. the TTFT budget ran out
+ * @param timeToFirstToken Time from starting the turn to its first token
+ */
+public record HedgeOutcome(String model, boolean fallbackUsed, boolean hedged, Duration timeToFirstToken) {
+}
@@ -0,0 +1,11 @@
+package com.github.vvojtas.dailogi_server.generation.api;
+
+import java.time.Duration;
+
+/**
+ * How a character turn is hedged against a slow model.
+ * @param fallbackModel OpenRouter identifier of the model asked when the first token is late
+ * @param ttftBudget Time to the first token after which the fallback model is asked as well
+ */
+public record HedgePlan(String fallbackModel, Duration ttftBudget) {
+}
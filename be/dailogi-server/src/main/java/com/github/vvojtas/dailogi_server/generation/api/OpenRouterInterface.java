@@ -1,8 +1,8 @@
 package com.github.vvojtas.dailogi_server.generation.api;
 
+import reactor.core.publisher.Flux;
+
 import java.util.List;
-import java.util.UUID;
-import java.util.function.Consumer;
 
 /**
  * Interface for integration with OpenRouter API
@@ -10,25 +10,21 @@ import java.util.function.Consumer;
 public interface OpenRouterInterface {
 
     /**
-     * Streams a chat completion from OpenRouter API using the chat message format
+     * Streams a chat completion from OpenRouter API as a reactive stream of tokens.
+     * Nothing is sent upstream until the returned Flux is subscribed, and cancelling
+     * the subscription aborts the underlying HTTP exchange.
      * @param openRouterIdentifier The model identifier for OpenRouter
      * @param messages List of chat messages in the conversation
      * @param apiKey The OpenRouter API key
-     * @param tokenConsumer Consumer that receives each token as it's generated
-     * @param completionListener Runnable called when text generation is complete
-     * @return A unique identifier for this generation request
+     * @return Cold Flux emitting generated tokens
      */
-    UUID streamChat(
+    Flux<String> streamTokens(
             String openRouterIdentifier,
             List<ChatMessage> messages,
-            String apiKey,
-            Consumer<String> tokenConsumer,
-            Runnable completionListener);
+            String apiKey);
     
     /**
-     * Cancels an ongoing text generation
-     * @param requestId The unique identifier for the generation request
-     * @return true if the generation was cancelled, false otherwise
+     * @return Number of generations in flight, including those still waiting to be sent upstream
      */
-    boolean cancelGeneration(UUID requestId);
+    int getActiveCallCount();
 } 
\ No newline at end of file
@@ -0,0 +1,265 @@
+package com.github.vvojtas.dailogi_server.generation.application;
+
+import com.github.vvojtas.dailogi_server.generation.api.ChatMessage;
+import com.github.vvojtas.dailogi_server.generation.api.HedgeOutcome;
+import com.github.vvojtas.dailogi_server.generation.api.HedgePlan;
+import com.github.vvojtas.dailogi_server.generation.api.OpenRouterInterface;
+import com.github.vvojtas.dailogi_server.model.llm.response.LLMDTO;
+import com.github.vvojtas.dailogi_server.properties.OpenRouterProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Streams a character turn, hedging against a slow first token.
+ * <p>
+ * If the LLM has a fallback model and a time-to-first-token budget, the same prompt is also sent to the
+ * fallback model once the budget runs out without a token from the primary one. Whichever stream produces
+ * a token first is used and the other one is cancelled, which aborts its HTTP request - or, when the primary
+ * model answers in time, the fallback request is never sent. A primary stream ending without a token (empty
+ * or failed) within the budget ends the turn as it is. Once the fallback is sent, a stream ending without a
+ * token leaves the race to the other one, and the turn only fails when both of them end that way.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HedgedGeneration {
+
+    static final String TURNS = "dailogi.generation.turns";
+    static final String TIME_TO_FIRST_TOKEN = "dailogi.generation.ttft";
+    static final String INTER_TOKEN_LATENCY = "dailogi.generation.inter.token";
+    static final String TOKENS_PER_SECOND = "dailogi.generation.tokens.per.second";
+    static final String TOKENS = "dailogi.generation.tokens";
+    static final String TURNS_FINISHED = "dailogi.generation.turns.finished";
+
+    private final OpenRouterInterface openRouterInterface;
+    private final OpenRouterProperties openRouterProperties;
+    private final MeterRegistry meterRegistry;
+    // Meters are registered once per tag set, not on every turn
+    private final Map<String, Counter> turnCounters = new ConcurrentHashMap<>();
+    private final Map<String, ModelMeters> modelMeters = new ConcurrentHashMap<>();
+
+    /**
+     * @return How turns of the LLM are hedged, null if they are not
+     */
+    public HedgePlan planFor(LLMDTO llm) {
+        if (!openRouterProperties.getHedging().isEnabled()
+                || llm.ttftBudgetMs() == null
+                || llm.fallbackOpenrouterIdentifier() == null
+                || llm.fallbackOpenrouterIdentifier().isBlank()) {
+            return null;
+        }
+        return new HedgePlan(llm.fallbackOpenrouterIdentifier(), Duration.ofMillis(llm.ttftBudgetMs()));
+    }
+
+    /**
+     * Streams the tokens of a turn. Like {@link OpenRouterInterface#streamTokens}, nothing is sent
+     * before subscription and cancelling the subscription aborts every request in flight.
+     * The time to first token, the gaps between tokens, the token rate and the outcome of the turn
+     * are recorded per model - the model that produced the first token, or the primary one without tokens.
+     *
+     * @param llm          The LLM of the speaking character
+     * @param messages     The prompt
+     * @param apiKey       The OpenRouter API key
+     * @param onFirstToken Receives the outcome of the race when the first token arrives
+     * @return Cold Flux emitting the tokens of the winning model
+     */
+    public Flux<String> streamTokens(LLMDTO llm, List<ChatMessage> messages, String apiKey, Consumer<HedgeOutcome> onFirstToken) {
+        HedgePlan plan = planFor(llm);
+        String primaryModel = llm.openrouterIdentifier();
+        // Both requests may be serialized lazily, so neither may see a list the caller changes later
+        List<ChatMessage> prompt = List.copyOf(messages);
+
+        return Flux.defer(() -> {
+            TurnTiming timing = new TurnTiming(primaryModel, System.nanoTime());
+            return race(plan, primaryModel, prompt, apiKey, timing, onFirstToken)
+                    .doOnNext(token -> timing.tokenReceived(System.nanoTime()))
+                    .doOnComplete(() -> recordFinished(timing, "completed"))
+                    .doOnError(error -> recordFinished(timing, "failed"))
+                    .doOnCancel(() -> recordFinished(timing, "cancelled"));
+        });
+    }
+
+    /**
+     * Subscribes to the primary model and, for a hedged turn, to the fallback model once the budget runs out
+     */
+    private Flux<String> race(HedgePlan plan, String primaryModel, List<ChatMessage> messages, String apiKey,
+                              TurnTiming timing, Consumer<HedgeOutcome> onFirstToken) {
+        Flux<Object> primary = markFirst(openRouterInterface.streamTokens(primaryModel, messages, apiKey), false);
+        if (plan == null) {
+            return primary.map(item -> unwrap(item, primaryModel, false, timing, onFirstToken));
+        }
+
+        AtomicBoolean hedged = new AtomicBoolean();
+        AtomicInteger silentEnds = new AtomicInteger();
+        // Before the budget runs out a primary end wins as it is; after it, a primary ending without a
+        // token leaves the race to the fallback model, as the fallback does for the primary one
+        Flux<Object> hedgedPrimary = primary.switchOnFirst((first, tokens) -> first.hasValue() || !hedged.get()
+                ? tokens : endWithoutToken(first, tokens, primaryModel, silentEnds));
+        Flux<Object> fallback = Mono.delay(plan.ttftBudget())
+                .doOnNext(tick -> {
+                    hedged.set(true);
+                    log.info("No token from {} within {}, also asking fallback model {}",
+                            primaryModel, plan.ttftBudget(), plan.fallbackModel());
+                })
+                .thenMany(markFirst(Flux.defer(() -> openRouterInterface.streamTokens(plan.fallbackModel(), messages, apiKey)), true))
+                .switchOnFirst((first, tokens) -> first.hasValue()
+                        ? tokens : endWithoutToken(first, tokens, plan.fallbackModel(), silentEnds));
+
+        // The first source to emit any signal wins and the other is cancelled: a primary token or
+        // a primary end before the budget runs out cancels the timer, so the fallback is never sent
+        return Flux.firstWithSignal(hedgedPrimary, fallback)
+                .map(item -> unwrap(item, item instanceof FirstToken first && first.fallback()
+                        ? plan.fallbackModel() : primaryModel, hedged.get(), timing, onFirstToken));
+    }
+
+    /**
+     * Holds back the end of a hedged stream that produced no token, so the other stream decides the race.
+     * The second stream to end that way passes its end on, which ends the turn.
+     */
+    private Flux<Object> endWithoutToken(Signal<?> first, Flux<Object> tokens, String model, AtomicInteger silentEnds) {
+        log.warn("Model {} ended without a token: {}", model,
+                first.hasError() ? first.getThrowable().getMessage() : "empty stream");
+        return silentEnds.incrementAndGet() == 2 ? tokens : Flux.never();
+    }
+
+    /**
+     * Wraps the first token of a stream, so the winner of the race is known exactly.
+     */
+    private static Flux<Object> markFirst(Flux<String> tokens, boolean fallback) {
+        return Flux.defer(() -> {
+            boolean[] first = {true};
+            return tokens.map(token -> {
+                if (first[0]) {
+                    first[0] = false;
+                    return new FirstToken(token, fallback);
+                }
+                return token;
+            });
+        });
+    }
+
+    private String unwrap(Object item, String model, boolean hedged, TurnTiming timing, Consumer<HedgeOutcome> onFirstToken) {
+        if (!(item instanceof FirstToken first)) {
+            return (String) item;
+        }
+        HedgeOutcome outcome = new HedgeOutcome(model, first.fallback(), hedged, Duration.ofNanos(System.nanoTime() - timing.startNanos));
+        timing.model = model;
+        timing.interTokenLatency = metersOf(model).interTokenLatency();
+        record(outcome);
+        onFirstToken.accept(outcome);
+        return first.token();
+    }
+
+    private void record(HedgeOutcome outcome) {
+        String result = outcome.fallbackUsed() ? "fallback" : outcome.hedged() ? "primary_after_hedge" : "primary";
+        turnCounters.computeIfAbsent(result, name -> Counter.builder(TURNS)
+                .description("Character turns by the upstream that produced them")
+                .tag("result", name)
+                .register(meterRegistry))
+                .increment();
+        metersOf(outcome.model()).timeToFirstToken().record(outcome.timeToFirstToken());
+        if (outcome.hedged()) {
+            log.info("Hedged turn won by {} ({}) after {}", outcome.model(), result, outcome.timeToFirstToken());
+        }
+    }
+
+    private void recordFinished(TurnTiming timing, String outcome) {
+        ModelMeters meters = metersOf(timing.model);
+        meters.finished().computeIfAbsent(outcome, name -> Counter.builder(TURNS_FINISHED)
+                .description("Character turns by how their token stream ended")
+                .tag("model", timing.model)
+                .tag("outcome", name)
+                .register(meterRegistry))
+                .increment();
+        if (timing.tokens == 0) {
+            return;
+        }
+        meters.tokens().increment(timing.tokens);
+        // The rate after the first token; the wait for it is the time to first token
+        long streamingNanos = timing.lastTokenNanos - timing.firstTokenNanos;
+        if (timing.tokens > 1 && streamingNanos > 0) {
+            meters.tokensPerSecond().record((timing.tokens - 1) * 1e9 / streamingNanos);
+        }
+    }
+
+    private ModelMeters metersOf(String model) {
+        return modelMeters.computeIfAbsent(model, name -> new ModelMeters(
+                Timer.builder(TIME_TO_FIRST_TOKEN)
+                        .description("Time from starting a character turn to its first token")
+                        .tag("model", name)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                Timer.builder(INTER_TOKEN_LATENCY)
+                        .description("Time between two tokens of a character turn")
+                        .tag("model", name)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry),
+                Counter.builder(TOKENS)
+                        .description("Tokens streamed by character turns")
+                        .baseUnit("tokens")
+                        .tag("model", name)
+                        .register(meterRegistry),
+                DistributionSummary.builder(TOKENS_PER_SECOND)
+                        .description("Tokens per second streamed by a character turn after its first token")
+                        .tag("model", name)
+                        .publishPercentileHistogram()
+                        .maximumExpectedValue(1000.0)
+                        .register(meterRegistry),
+                new ConcurrentHashMap<>()));
+    }
+
+    /**
+     * Meters of one model; the counters of finished turns are keyed by outcome
+     */
+    private record ModelMeters(Timer timeToFirstToken, Timer interTokenLatency, Counter tokens,
+                               DistributionSummary tokensPerSecond, Map<String, Counter> finished) {
+    }
+
+    private record FirstToken(String token, boolean fallback) {
+    }
+
+    /**
+     * Timing of one subscription to a turn. Tokens of a stream arrive one at a time, so plain fields suffice.
+     */
+    private static final class TurnTiming {
+        private final long startNanos;
+        private String model;
+        private Timer interTokenLatency;
+        private long firstTokenNanos;
+        private long lastTokenNanos;
+        private int tokens;
+
+        private TurnTiming(String primaryModel, long startNanos) {
+            this.model = primaryModel;
+            this.startNanos = startNanos;
+        }
+
+        private void tokenReceived(long nowNanos) {
+            if (tokens == 0) {
+                firstTokenNanos = nowNanos;
+            } else if (interTokenLatency != null) {
+                interTokenLatency.record(nowNanos - lastTokenNanos, TimeUnit.NANOSECONDS);
+            }
+            lastTokenNanos = nowNanos;
+            tokens++;
+        }
+    }
+}
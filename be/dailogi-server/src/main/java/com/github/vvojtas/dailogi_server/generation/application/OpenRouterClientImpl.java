@@ -1,66 +1,63 @@
 package com.github.vvojtas.dailogi_server.generation.application;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.vvojtas.dailogi_server.exception.UpstreamRateLimitException;
+import com.github.vvojtas.dailogi_server.exception.UpstreamUnavailableException;
 import com.github.vvojtas.dailogi_server.generation.api.ChatMessage;
 import com.github.vvojtas.dailogi_server.generation.api.OpenRouterInterface;
 import com.github.vvojtas.dailogi_server.generation.application.model.ChatCompletionRequest;
+import com.github.vvojtas.dailogi_server.generation.application.model.StreamChunk;
+import com.github.vvojtas.dailogi_server.generation.application.replay.StreamRecorder;
+import com.github.vvojtas.dailogi_server.generation.application.upstream.UpstreamGuard;
+import com.github.vvojtas.dailogi_server.generation.application.upstream.UpstreamPermit;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
+import reactor.core.publisher.Flux;
 import org.springframework.http.HttpStatus;
 
+import java.time.Duration;
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Consumer;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Real implementation of OpenRouterInterface for production use.
- * Makes actual API requests to the OpenRouter API.
+ * Makes actual API requests to the OpenRouter API, optionally recording the streams for replay.
  */
 @Service
 @Slf4j
 @RequiredArgsConstructor
-@ConditionalOnProperty(prefix = "openrouter.api", name = "mock-enabled", havingValue = "false", matchIfMissing = true)
+@ConditionalOnExpression("!${openrouter.api.mock-enabled:false} and !${openrouter.api.replay.enabled:false}")
 public class OpenRouterClientImpl implements OpenRouterInterface {
 
     private final WebClient openRouterWebClient;
-    private final Map<UUID, Boolean> activeCalls = new ConcurrentHashMap<>();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Subscribed streamTokens calls
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final OpenRouterStreamDecoder streamDecoder;
+    private final UpstreamGuard upstreamGuard;
+    // Present when recording of upstream streams for replay is enabled
+    private final Optional<StreamRecorder> streamRecorder;
     
     @Override
-    public UUID streamChat(
+    public Flux<String> streamTokens(
             String openRouterIdentifier,
             List<ChatMessage> messages,
-            String apiKey,
-            Consumer<String> tokenConsumer,
-            Runnable completionListener) {
+            String apiKey) {
         
-        UUID requestId = UUID.randomUUID();
-        log.debug("Starting OpenRouter API call with ID {}", requestId);
-        
-        // Mark this request as active
-        activeCalls.put(requestId, true);
-        
-        // Validate inputs
         if (apiKey == null || apiKey.isBlank()) {
-            log.error("Cannot send request: API key not provided");
-            completionListener.run();
-            return requestId;
+            return Flux.error(new IllegalArgumentException("API key not provided"));
         }
         
         if (messages == null || messages.isEmpty()) {
-            log.error("Cannot send request: No messages provided");
-            completionListener.run();
-            return requestId;
+            return Flux.error(new IllegalArgumentException("No messages provided"));
         }
         
         // Create request body
@@ -72,121 +69,82 @@ public class OpenRouterClientImpl implements OpenRouterInterface {
                 new ChatCompletionRequest.ReasoningConfig(true)
         );
         
-        // Make API request
-        openRouterWebClient
+        // Each attempt waits for the rate limits and the model's circuit, then sends the request.
+        // Attempts rejected before the first token are retried; a partly streamed turn never is.
+        return Flux.defer(() -> {
+            AtomicBoolean started = new AtomicBoolean();
+            return upstreamGuard.acquire(apiKey, openRouterIdentifier)
+                    .flatMapMany(permit -> record(openRouterIdentifier, exchange(requestBody, apiKey, permit)))
+                    .doOnNext(content -> started.set(true))
+                    .retryWhen(upstreamGuard.retrySpec(openRouterIdentifier, started::get));
+        })
+        .doOnSubscribe(subscription -> activeStreams.incrementAndGet())
+        .doFinally(signal -> activeStreams.decrementAndGet());
+    }
+
+    /**
+     * Sends one request - WebClient exchanges are lazy, so the call happens on subscription.
+     * The response and its outcome are reported to the permit.
+     */
+    private Flux<String> exchange(ChatCompletionRequest requestBody, String apiKey, UpstreamPermit permit) {
+        String model = requestBody.model();
+        return openRouterWebClient
                 .post()
                 .uri("/chat/completions")
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
                 .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .header(HttpHeaders.ACCEPT, "text/event-stream")
                 .bodyValue(requestBody)
-                .retrieve()
-                .onStatus(status -> status.is4xxClientError(), response -> {
-                    if (response.statusCode() == HttpStatus.UNAUTHORIZED) {
-                        return Mono.error(new RuntimeException("Invalid API key"));
-                    } else if (response.statusCode() == HttpStatus.TOO_MANY_REQUESTS) {
-                        return Mono.error(new RuntimeException("Rate limit exceeded"));
+                .exchangeToFlux(response -> {
+                    HttpStatusCode status = response.statusCode();
+                    HttpHeaders headers = response.headers().asHttpHeaders();
+                    if (status.value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+                        Duration retryAfter = permit.onRateLimited(headers);
+                        return response.releaseBody()
+                                .thenMany(Flux.error(new UpstreamRateLimitException(model, retryAfter)));
                     }
-                    return response.bodyToMono(String.class)
-                        .flatMap(body -> Mono.error(new RuntimeException("Client error: " + response.statusCode() + " - " + body)));
-                })
-                .onStatus(status -> status.is5xxServerError(), response -> 
-                    response.bodyToMono(String.class)
-                        .flatMap(body -> Mono.error(new RuntimeException("Server error: " + response.statusCode() + " - " + body)))
-                )
-                .bodyToFlux(String.class)
-                .doOnEach(signal -> {
-                    if (signal.isOnNext()) {
-                        log.info("ROUTER event: {}", signal.get());
+                    permit.onResponseHeaders(headers);
+                    if (status.value() == HttpStatus.UNAUTHORIZED.value()) {
+                        permit.onSuccess();
+                        return response.releaseBody()
+                                .thenMany(Flux.error(new RuntimeException("Invalid API key")));
                     }
-                })
-                .map(event -> {
-                    // Handle both SSE format (data: prefix) and raw JSON
-                    if (event.startsWith("data:")) {
-                        return event.substring(5).trim(); // Remove "data: " prefix
+                    if (status.is4xxClientError()) {
+                        permit.onSuccess();
+                        return response.bodyToMono(String.class).defaultIfEmpty("")
+                                .flatMapMany(body -> Flux.error(new RuntimeException("Client error: " + status + " - " + body)));
                     }
-                    return event.trim(); // Keep as is if no prefix
-                })
-                .filter(json -> !json.isEmpty() && !json.equals("[DONE]"))
-                .flatMap(this::parseStreamingResponse)
-                .takeWhile(content -> isRequestActive(requestId))
-                .doOnNext(tokenConsumer)
-                .doOnComplete(() -> {
-                    if (isRequestActive(requestId)) {
-                        activeCalls.remove(requestId);
-                        completionListener.run();
-                        log.debug("Completed OpenRouter API call with ID {}", requestId);
+                    if (status.is5xxServerError()) {
+                        return response.bodyToMono(String.class).defaultIfEmpty("")
+                                .flatMapMany(body -> Flux.error(new UpstreamUnavailableException(model, "Server error: " + status + " - " + body, null)));
                     }
+                    return streamDecoder.decode(response.bodyToFlux(DataBuffer.class));
                 })
-                .doOnError(error -> {
-                    log.error("Error in OpenRouter API call with ID {}: {}", requestId, error.getMessage());
-                    activeCalls.remove(requestId);
-                    completionListener.run();
-                })
-                .subscribe();
-        
-        return requestId;
+                .doOnNext(chunk -> logChunk(model, chunk))
+                .mapNotNull(StreamChunk::content)
+                .filter(content -> !content.isEmpty())
+                .doOnComplete(permit::onSuccess)
+                // No-op if the outcome was already reported above
+                .doOnError(error -> permit.onFailure())
+                .doOnCancel(permit::onCancel);
     }
 
-    @Override
-    public boolean cancelGeneration(UUID requestId) {
-        boolean wasActive = activeCalls.remove(requestId) != null;
-        if (wasActive) {
-            log.debug("Cancelled OpenRouter API call with ID {}", requestId);
-        }
-        return wasActive;
+    private Flux<String> record(String model, Flux<String> tokens) {
+        return streamRecorder.map(recorder -> recorder.record(model, tokens)).orElse(tokens);
     }
-    
-    private boolean isRequestActive(UUID requestId) {
-        return activeCalls.getOrDefault(requestId, false);
+
+    @Override
+    public int getActiveCallCount() {
+        return activeStreams.get();
     }
-    
-    private Mono<String> parseStreamingResponse(String json) {
-        try {
-            if (json == null || json.isBlank()) {
-                return Mono.empty();
-            }
-            
-            log.trace("Parsing streaming response: {}", json);
-            JsonNode rootNode = objectMapper.readTree(json);
-            
-            // Get choices array
-            JsonNode choices = rootNode.path("choices");
-            if (choices.isEmpty() || !choices.isArray() || choices.size() == 0) {
-                log.debug("No choices in response: {}", json);
-                return Mono.empty();
-            }
-            
-            // Get first choice
-            JsonNode choice = choices.get(0);
-            
-            // Check for delta structure (streaming format)
-            JsonNode delta = choice.path("delta");
-            if (!delta.isMissingNode()) {
-                JsonNode content = delta.path("content");
-                if (!content.isMissingNode() && content.isTextual()) {
-                    String token = content.asText();
-                    log.trace("Extracted token: {}", token);
-                    return Mono.just(token);
-                }
-            }
-            
-            // Check for standard message format as fallback
-            JsonNode message = choice.path("message");
-            if (!message.isMissingNode()) {
-                JsonNode content = message.path("content");
-                if (!content.isMissingNode() && content.isTextual()) {
-                    String token = content.asText();
-                    log.trace("Extracted content from message: {}", token);
-                    return Mono.just(token);
-                }
-            }
-            
-            log.debug("No content found in response: {}", json);
-            return Mono.empty();
-        } catch (Exception e) {
-            log.error("Failed to parse streaming response: {}", json, e);
-            return Mono.empty();
+
+    private static void logChunk(String model, StreamChunk chunk) {
+        if (chunk.finishReason() != null) {
+            log.debug("Model {} finished generation: {}", model, chunk.finishReason());
+        }
+        if (chunk.usage() != null) {
+            log.debug("Model {} usage: {} prompt, {} completion, {} total tokens", model,
+                    chunk.usage().promptTokens(), chunk.usage().completionTokens(), chunk.usage().totalTokens());
         }
     }
-} 
+}
@@ -6,164 +6,196 @@ import org.springframework.stereotype.Service;
 
 import com.github.vvojtas.dailogi_server.generation.api.ChatMessage;
 import com.github.vvojtas.dailogi_server.generation.api.OpenRouterInterface;
+import com.github.vvojtas.dailogi_server.properties.OpenRouterProperties;
 
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
 import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Flux;
 
-import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
- * Mock implementation of OpenRouterInterface for testing and development
+ * Mock implementation of OpenRouterInterface for testing, development and load tests.
+ * <p>
+ * Every stream is a single state object re-armed on a hashed timer wheel after each token, so a
+ * stream costs one pending timeout and no thread, and tens of thousands of streams can run at once.
+ * Expired timeouts are handed to a small pool of dispatch threads that deliver the tokens, so slow
+ * consumers do not stall the wheel. The time to first token, the token rate and the message length
+ * follow a configurable profile per model.
  */
 @Service
 @Slf4j
 @ConditionalOnProperty(prefix = "openrouter.api", name = "mock-enabled", havingValue = "true")
 public class OpenRouterMock implements OpenRouterInterface {
 
-    private static final int INITIAL_DELAY_MS = 100; 
-    private static final int DEFAULT_DELAY_MS = 100; // Delay between tokens
-    private static final int VARIABLE_DELAY_MS = 100; // Variable delay component
-    
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
-    private final Map<UUID, ScheduledFuture<?>> activeGenerations = new ConcurrentHashMap<>();
-    
-    private final Map<String, List<String>> predefinedResponses = Map.of(
-        "default", Arrays.asList(
+    // 95th percentile of the standard normal distribution
+    private static final double Z_95 = 1.6448536269514722;
+    private static final int TICKS_PER_WHEEL = 1024;
+
+    private static final String[] WORDS = String.join(" ",
             "Hello! I'm happy to discuss this topic with you.",
             "That's an interesting perspective. Let me add my thoughts.",
             "I think we need to consider multiple angles on this issue.",
-            "I agree with some points made earlier, but I'd like to add something."
-        ),
-        "claude-3-opus-20240229", Arrays.asList(
+            "I agree with some points made earlier, but I'd like to add something.",
             "As an advanced AI assistant, I analyze this from multiple perspectives.",
             "I'd like to offer a nuanced view that considers historical context.",
             "Let me approach this systematically, breaking down the key factors involved.",
-            "While I understand the sentiment expressed, I think we should examine the evidence more carefully."
-        ),
-        "gpt-4-turbo-preview", Arrays.asList(
+            "While I understand the sentiment expressed, I think we should examine the evidence more carefully.",
             "From my analysis, there are several considerations worth exploring here.",
             "Building on the previous points, I'd suggest looking at this differently.",
             "Let's dig deeper into the underlying assumptions of this discussion.",
             "There's a fascinating interplay of factors we should acknowledge."
-        )
-    );
+    ).split("\\s+");
+
+    private final OpenRouterProperties.Mock properties;
+    private final ExecutorService dispatcher;
+    private final HashedWheelTimer timer;
+    private final AtomicInteger activeStreams = new AtomicInteger();
+
+    public OpenRouterMock(OpenRouterProperties openRouterProperties) {
+        this.properties = openRouterProperties.getMock();
+        int threads = properties.getDispatchThreads() > 0
+                ? properties.getDispatchThreads()
+                : Runtime.getRuntime().availableProcessors();
+        this.dispatcher = Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().name("OpenRouterMock-", 0).daemon(true).factory());
+        this.timer = new HashedWheelTimer(
+                Thread.ofPlatform().name("OpenRouterMock-timer").daemon(true).factory(),
+                properties.getTick().toNanos(), TimeUnit.NANOSECONDS, TICKS_PER_WHEEL,
+                false, -1, dispatcher);
+        log.info("OpenRouter mock started: tick {}, {} dispatch threads, {} model profiles",
+                properties.getTick(), threads, properties.getProfiles().size());
+    }
 
     @Override
-    public UUID streamChat(
+    public Flux<String> streamTokens(
             String openRouterIdentifier,
             List<ChatMessage> messages,
-            String apiKey, // API key is ignored in mock implementation
-            Consumer<String> tokenConsumer,
-            Runnable completionListener) {
-        
-        UUID requestId = UUID.randomUUID();
-        log.debug("Starting mock chat stream with ID {}", requestId);
-        
-        // Select a response based on model identifier or fallback to default
-        List<String> possibleResponses = predefinedResponses.getOrDefault(
-                openRouterIdentifier, predefinedResponses.get("default"));
-        
-        // Select a random response
-        String fullResponse = possibleResponses.get(
-                (int) (Math.random() * possibleResponses.size()));
-        
-        // Split into tokens (simple word splitting for the mock)
-        String[] tokens = fullResponse.split("\\s+");
-        
-        // Schedule token emissions
-        ScheduledFuture<?> future = scheduler.schedule(
-                new TokenEmissionTask(tokens, 0, tokenConsumer, completionListener, requestId),
-                getRandomInitialDelay(),
-                TimeUnit.MILLISECONDS);
-        
-        activeGenerations.put(requestId, future);
-        return requestId;
+            String apiKey) { // API key is ignored in mock implementation
+
+        return Flux.create(sink -> {
+            MockStream stream = new MockStream(properties.profileOf(openRouterIdentifier), sink::next, sink::complete, sink::error);
+            activeStreams.incrementAndGet();
+            sink.onDispose(stream::cancel);
+            stream.start();
+        });
     }
 
     @Override
-    public boolean cancelGeneration(UUID requestId) {
-        ScheduledFuture<?> future = activeGenerations.remove(requestId);
-        if (future != null && !future.isDone()) {
-            log.debug("Cancelling mock chat stream with ID {}", requestId);
-            future.cancel(true);
-            return true;
-        }
-        return false;
-    }
-    
-    private long getRandomInitialDelay() {
-        return INITIAL_DELAY_MS + (long) (Math.random() * VARIABLE_DELAY_MS);
+    public int getActiveCallCount() {
+        return activeStreams.get();
     }
-    
-    private long getRandomDelay() {
-        return DEFAULT_DELAY_MS + (long) (Math.random() * VARIABLE_DELAY_MS);
+
+    @PreDestroy
+    public void shutdown() {
+        log.info("Shutting down OpenRouterMock timer");
+        timer.stop();
+        dispatcher.shutdown();
+        try {
+            if (!dispatcher.awaitTermination(5, TimeUnit.SECONDS)) {
+                dispatcher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            dispatcher.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
     }
-    
+
     /**
-     * Task for emitting tokens with delays
+     * State of one mock stream. At most one timeout of a stream is pending at a time and the next
+     * one is armed only after a token was delivered, so the tokens of a stream never overlap.
      */
-    private class TokenEmissionTask implements Runnable {
-        private final String[] tokens;
-        private final int currentIndex;
+    private final class MockStream implements TimerTask {
+
+        private final OpenRouterProperties.Mock.Profile profile;
         private final Consumer<String> tokenConsumer;
-        private final Runnable completionListener;
-        private final UUID requestId;
-        
-        TokenEmissionTask(
-                String[] tokens,
-                int currentIndex,
-                Consumer<String> tokenConsumer,
-                Runnable completionListener,
-                UUID requestId) {
-            this.tokens = tokens;
-            this.currentIndex = currentIndex;
+        private final Runnable onComplete;
+        private final Consumer<Throwable> onError;
+        private final SplittableRandom random = new SplittableRandom(ThreadLocalRandom.current().nextLong());
+        private int remaining;
+        private volatile Timeout timeout;
+        private volatile boolean cancelled;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        MockStream(OpenRouterProperties.Mock.Profile profile, Consumer<String> tokenConsumer, Runnable onComplete,
+                   Consumer<Throwable> onError) {
+            this.profile = profile;
             this.tokenConsumer = tokenConsumer;
-            this.completionListener = completionListener;
-            this.requestId = requestId;
+            this.onComplete = onComplete;
+            this.onError = onError;
         }
-        
+
+        void start() {
+            remaining = random.nextInt(profile.getMinTokens(), Math.max(profile.getMinTokens(), profile.getMaxTokens()) + 1);
+            schedule(timeToFirstToken());
+        }
+
+        /**
+         * Stops the stream and releases its slot in the active stream count. Safe to call more than once.
+         */
+        void cancel() {
+            cancelled = true;
+            if (released.compareAndSet(false, true)) {
+                activeStreams.decrementAndGet();
+            }
+            Timeout pending = timeout;
+            if (pending != null) {
+                pending.cancel();
+            }
+        }
+
         @Override
-        public void run() {
-            // Emit current token
-            tokenConsumer.accept(tokens[currentIndex] + " ");
-            
-            // Schedule next token or complete
-            if (currentIndex < tokens.length - 1) {
-                ScheduledFuture<?> future = scheduler.schedule(
-                        new TokenEmissionTask(
-                                tokens, currentIndex + 1, tokenConsumer, completionListener, requestId),
-                        getRandomDelay(),
-                        TimeUnit.MILLISECONDS);
-                
-                activeGenerations.put(requestId, future);
-            } else {
-                // All tokens emitted, call completion listener
-                activeGenerations.remove(requestId);
-                completionListener.run();
-                log.debug("Completed mock chat stream with ID {}", requestId);
+        public void run(Timeout expired) {
+            if (cancelled) {
+                return;
+            }
+            try {
+                tokenConsumer.accept(WORDS[random.nextInt(WORDS.length)] + " ");
+                if (--remaining > 0) {
+                    schedule(delayToNextToken());
+                } else {
+                    onComplete.run();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Mock stream consumer failed, stopping the stream: {}", e.getMessage());
+                // Released here, as a sink whose subscriber threw may never deliver the error and dispose
+                cancel();
+                onError.accept(e);
             }
         }
-    }
 
-    @PreDestroy
-    public void shutdown() {
-        log.info("Shutting down OpenRouterMock scheduler");
-        scheduler.shutdown();
-        try {
-            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                scheduler.shutdownNow();
+        private void schedule(long delayNanos) {
+            timeout = timer.newTimeout(this, delayNanos, TimeUnit.NANOSECONDS);
+            // A cancellation racing the assignment above may have missed the new timeout
+            if (cancelled) {
+                timeout.cancel();
             }
-        } catch (InterruptedException e) {
-            scheduler.shutdownNow();
-            Thread.currentThread().interrupt();
+        }
+
+        /**
+         * Log-normal with the profile's median and 95th percentile
+         */
+        private long timeToFirstToken() {
+            double median = profile.getTtftMedian().toNanos();
+            double p95 = profile.getTtftP95().toNanos();
+            double sigma = p95 > median && median > 0 ? Math.log(p95 / median) / Z_95 : 0;
+            return (long) (median * Math.exp(sigma * random.nextGaussian()));
+        }
+
+        private long delayToNextToken() {
+            double base = 1_000_000_000.0 / Math.max(0.001, profile.getTokensPerSecond());
+            double jitter = profile.getTokenJitter() * (2 * random.nextDouble() - 1);
+            return (long) (base * (1 + jitter));
         }
     }
-} 
\ No newline at end of file
+}
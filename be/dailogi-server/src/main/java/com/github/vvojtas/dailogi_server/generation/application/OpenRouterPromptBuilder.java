@@ -7,16 +7,12 @@ import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueDTO;
 import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueMessageDTO;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
-import org.springframework.util.FileCopyUtils;
 
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -27,24 +23,7 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class OpenRouterPromptBuilder {
 
-    private static final String TEMPLATE_PATH = "templates/openrouter-system.template";
-    private String promptTemplate;
-
-    /**
-     * Loads the prompt template from resources
-     * @return The prompt template string
-     */
-    private String getPromptTemplate() {
-        if (promptTemplate == null) {
-            ClassPathResource resource = new ClassPathResource(TEMPLATE_PATH);
-            try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
-                promptTemplate = FileCopyUtils.copyToString(reader);
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to load prompt template", e);
-            }
-        }
-        return promptTemplate;
-    }
+    private final PromptTemplateRegistry templateRegistry;
 
     /**
      * Builds a list of chat messages for a dialogue based on the provided command and character information.
@@ -74,15 +53,38 @@ public class OpenRouterPromptBuilder {
         return messages;
     }
 
+    /**
+     * Creates an incremental prompt context for a dialogue. System messages for all characters are
+     * rendered once here, and messages already present in the dialogue are replayed into the context.
+     *
+     * @param dialogueDTO The dialogue to build the context for
+     * @return A new prompt context; callers add each finished utterance with {@link PromptContext#addMessage}
+     */
+    public PromptContext createContext(DialogueDTO dialogueDTO) {
+        log.debug("Creating prompt context for dialogue: {}", dialogueDTO.id());
+
+        Map<Long, String> characterNames = new HashMap<>();
+        Map<Long, ChatMessage> systemMessages = new HashMap<>();
+        for (DialogueCharacterConfigDTO characterConfig : dialogueDTO.characterConfigs()) {
+            CharacterDTO character = characterConfig.character();
+            characterNames.put(character.id(), character.name());
+            systemMessages.put(character.id(), buildSystemMessage(dialogueDTO, characterConfig));
+        }
+
+        PromptContext context = new PromptContext(dialogueDTO.id(), characterNames, systemMessages);
+        if (dialogueDTO.messages() != null) {
+            for (DialogueMessageDTO message : dialogueDTO.messages()) {
+                context.addMessage(message.characterId(), message.content());
+            }
+        }
+        return context;
+    }
+
     private ChatMessage buildSystemMessage(
             DialogueDTO dialogueDTO,
             DialogueCharacterConfigDTO activeCharacterConfig) {
         
-        String template = getPromptTemplate();
-        
-        // Prepare placeholders
-        String characterName = activeCharacterConfig.character().name();
-        String characterDescription = activeCharacterConfig.character().description();
+        PromptTemplate template = templateRegistry.getOrDefault(dialogueDTO.promptTemplate());
         
         // Build other characters string
         String otherCharacters = dialogueDTO.characterConfigs().stream()
@@ -90,12 +92,14 @@ public class OpenRouterPromptBuilder {
                 .map(characterConfig -> characterConfig.character().name() + " : " + characterConfig.character().shortDescription())
                 .collect(Collectors.joining(", "));
         
-        // Replace placeholders in template
-        String systemPrompt = template
-                .replace("${character_name}", characterName)
-                .replace("${character_description}", characterDescription)
-                .replace("${other_characters}", otherCharacters)
-                .replace("${scene_description}", dialogueDTO.sceneDescription());
+        // Prepare placeholders
+        Map<String, String> values = new HashMap<>(8);
+        values.put("character_name", activeCharacterConfig.character().name());
+        values.put("character_description", activeCharacterConfig.character().description());
+        values.put("other_characters", otherCharacters);
+        values.put("scene_description", dialogueDTO.sceneDescription());
+        
+        String systemPrompt = template.render(values);
         
         return new ChatMessage(ChatMessage.ROLE_SYSTEM, systemPrompt);
     }
@@ -129,7 +133,7 @@ public class OpenRouterPromptBuilder {
                         .filter(config -> config.id().equals(message.characterId()))
                         .findFirst()
                         .orElseThrow(() -> new RuntimeException("Character not found"));
-                content = "Wypowiedź " + character.name() + " : \"" + message.content() + "\"";
+                content = formatOtherCharacterMessage(character.name(), message.content());
             }
             
             messages.add(new ChatMessage(role, content));
@@ -137,4 +141,11 @@ public class OpenRouterPromptBuilder {
         
         return messages;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Formats an utterance of another character as seen by the character being prompted
+     */
+    static String formatOtherCharacterMessage(String characterName, String content) {
+        return "Wypowiedź " + characterName + " : \"" + content + "\"";
+    }
+}
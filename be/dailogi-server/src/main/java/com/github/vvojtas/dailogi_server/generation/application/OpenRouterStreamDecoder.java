@@ -0,0 +1,323 @@
+package com.github.vvojtas.dailogi_server.generation.application;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.vvojtas.dailogi_server.generation.application.model.StreamChunk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Decodes the server-sent event stream of a chat completion straight from the response's byte buffers.
+ * <p>
+ * Bytes are appended to a per-stream line buffer that is reused for the whole response, and each
+ * {@code data:} line is fed in place to a non-blocking {@link JsonParser}, created once per stream,
+ * that picks out {@code choices[0].delta.content}, {@code finish_reason}, {@code usage} and
+ * {@code error} and skips everything else. Decoded chunks are emitted into a per-stream list that
+ * is reused for every buffer. No intermediate strings or JSON trees are built; the token text and
+ * its chunk are the only allocations per chunk.
+ */
+@Slf4j
+@Component
+public class OpenRouterStreamDecoder {
+
+    private static final byte[] DATA_PREFIX = "data:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DONE = "[DONE]".getBytes(StandardCharsets.US_ASCII);
+    private static final int INITIAL_LINE_CAPACITY = 1024;
+
+    private final JsonFactory jsonFactory;
+
+    public OpenRouterStreamDecoder(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Decodes a response body into its chunks. The buffers are released once read.
+     *
+     * @param body Raw response body
+     * @return Chunks carrying content, a finish reason or usage, in order
+     * @throws RuntimeException (as an error signal) if the stream reports an upstream error
+     */
+    public Flux<StreamChunk> decode(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            LineDecoder decoder = new LineDecoder();
+            // concatMapIterable maps the next buffer only once the chunks of the previous one were
+            // drained, so one list can collect the chunks of every buffer
+            List<StreamChunk> decoded = new ArrayList<>();
+            return body
+                    .concatMapIterable(buffer -> {
+                        decoded.clear();
+                        try {
+                            decoder.feed(buffer, decoded::add);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                        return decoded;
+                    })
+                    .concatWith(Mono.fromRunnable(() -> {
+                        decoded.clear();
+                        decoder.finish(decoded::add);
+                    }).thenMany(Flux.fromIterable(decoded)))
+                    .doFinally(signal -> decoder.close());
+        });
+    }
+
+    /**
+     * Reads the JSON payload of one {@code data:} line, which the parser was just fed completely.
+     *
+     * @return The chunk, or null if the payload has nothing of interest
+     * @throws IOException if the payload is not valid JSON
+     */
+    private static StreamChunk parseChunk(JsonParser parser) throws IOException {
+        String content = null;
+        String finishReason = null;
+        StreamChunk.Usage usage = null;
+        String error = null;
+
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Chunk is not a JSON object");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "choices" -> {
+                    if (value != JsonToken.START_ARRAY) {
+                        parser.skipChildren();
+                        break;
+                    }
+                    // Only the first choice is used
+                    if (parser.nextToken() == JsonToken.START_OBJECT) {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String choiceField = parser.currentName();
+                            JsonToken choiceValue = parser.nextToken();
+                            if ("delta".equals(choiceField) || "message".equals(choiceField)) {
+                                String text = readContent(parser, choiceValue);
+                                if (text != null) {
+                                    content = text;
+                                }
+                            } else if ("finish_reason".equals(choiceField) && choiceValue == JsonToken.VALUE_STRING) {
+                                finishReason = parser.getText();
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    }
+                    while (parser.currentToken() != JsonToken.END_ARRAY && parser.nextToken() != JsonToken.END_ARRAY) {
+                        if (parser.currentToken() == JsonToken.NOT_AVAILABLE) {
+                            throw new JsonParseException(parser, "Incomplete chunk");
+                        }
+                        parser.skipChildren();
+                    }
+                }
+                case "usage" -> usage = readUsage(parser, value);
+                case "error" -> error = readErrorMessage(parser, value);
+                default -> parser.skipChildren();
+            }
+        }
+        // The non-blocking parser reports a truncated payload as missing input
+        if (parser.currentToken() != JsonToken.END_OBJECT) {
+            throw new JsonParseException(parser, "Incomplete chunk");
+        }
+
+        if (error != null) {
+            throw new RuntimeException("Upstream error: " + error);
+        }
+        if (content == null && finishReason == null && usage == null) {
+            return null;
+        }
+        return new StreamChunk(content, finishReason, usage);
+    }
+
+    private static String readContent(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String content = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken fieldValue = parser.nextToken();
+            if ("content".equals(field) && fieldValue == JsonToken.VALUE_STRING) {
+                content = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return content;
+    }
+
+    private static StreamChunk.Usage readUsage(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        int promptTokens = 0;
+        int completionTokens = 0;
+        int totalTokens = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken fieldValue = parser.nextToken();
+            if (fieldValue != JsonToken.VALUE_NUMBER_INT) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "prompt_tokens" -> promptTokens = parser.getIntValue();
+                case "completion_tokens" -> completionTokens = parser.getIntValue();
+                case "total_tokens" -> totalTokens = parser.getIntValue();
+                default -> { }
+            }
+        }
+        return new StreamChunk.Usage(promptTokens, completionTokens, totalTokens);
+    }
+
+    private static String readErrorMessage(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String message = "unknown error";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken fieldValue = parser.nextToken();
+            if ("message".equals(field) && fieldValue == JsonToken.VALUE_STRING) {
+                message = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return message;
+    }
+
+    /**
+     * Splits the byte stream of one response into lines, which may span several buffers, and parses
+     * their payloads. Holds the bytes of the line being assembled and the stream's JSON parser;
+     * not thread-safe, used by a single stream.
+     */
+    private class LineDecoder {
+
+        private byte[] line = new byte[INITIAL_LINE_CAPACITY];
+        private int length;
+        private JsonParser parser;
+        private ByteArrayFeeder feeder;
+
+        void feed(DataBuffer buffer, Consumer<StreamChunk> sink) {
+            int readable = buffer.readableByteCount();
+            ensureCapacity(length + readable);
+            int scanFrom = length;
+            buffer.read(line, length, readable);
+            length += readable;
+
+            int lineStart = 0;
+            for (int i = scanFrom; i < length; i++) {
+                if (line[i] == '\n') {
+                    decodeLine(lineStart, i, sink);
+                    lineStart = i + 1;
+                }
+            }
+            // Keep the incomplete tail for the next buffer
+            if (lineStart > 0) {
+                System.arraycopy(line, lineStart, line, 0, length - lineStart);
+                length -= lineStart;
+            }
+        }
+
+        /**
+         * Decodes a last line not terminated by a newline.
+         */
+        void finish(Consumer<StreamChunk> sink) {
+            if (length > 0) {
+                decodeLine(0, length, sink);
+                length = 0;
+            }
+        }
+
+        void close() {
+            if (parser != null) {
+                try {
+                    parser.close();
+                } catch (IOException e) {
+                    log.debug("Failed to close stream parser: {}", e.getMessage());
+                }
+                parser = null;
+            }
+        }
+
+        private void decodeLine(int start, int end, Consumer<StreamChunk> sink) {
+            if (end > start && line[end - 1] == '\r') {
+                end--;
+            }
+            // Comments (": OPENROUTER PROCESSING"), event fields and blank separators carry no data
+            if (!startsWith(start, end, DATA_PREFIX)) {
+                return;
+            }
+            int payload = start + DATA_PREFIX.length;
+            while (payload < end && line[payload] == ' ') {
+                payload++;
+            }
+            if (payload == end || Arrays.equals(line, payload, end, DONE, 0, DONE.length)) {
+                return;
+            }
+            StreamChunk chunk = parse(payload, end);
+            if (chunk != null) {
+                sink.accept(chunk);
+            }
+        }
+
+        /**
+         * Feeds one payload to the stream's parser. A payload that is not a single complete object
+         * leaves the parser in an unknown state, so it is replaced for the next payload.
+         *
+         * @return The chunk, or null if the payload has nothing of interest or cannot be parsed
+         */
+        private StreamChunk parse(int start, int end) {
+            try {
+                if (parser == null) {
+                    parser = jsonFactory.createNonBlockingByteArrayParser();
+                    feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+                }
+                feeder.feedInput(line, start, end);
+                StreamChunk chunk = parseChunk(parser);
+                // Consumes trailing whitespace; the parser must be out of input for the next payload
+                if (parser.nextToken() != JsonToken.NOT_AVAILABLE || !feeder.needMoreInput()) {
+                    throw new JsonParseException(parser, "Unexpected content after chunk");
+                }
+                return chunk;
+            } catch (IOException e) {
+                log.error("Failed to parse streaming response: {}", new String(line, start, end - start, StandardCharsets.UTF_8), e);
+                close();
+                return null;
+            }
+        }
+
+        private boolean startsWith(int start, int end, byte[] prefix) {
+            return end - start >= prefix.length
+                    && Arrays.equals(line, start, start + prefix.length, prefix, 0, prefix.length);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > line.length) {
+                line = Arrays.copyOf(line, Math.max(capacity, line.length * 2));
+            }
+        }
+    }
+}
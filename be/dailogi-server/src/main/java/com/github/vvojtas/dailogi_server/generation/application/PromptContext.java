@@ -0,0 +1,109 @@
+package com.github.vvojtas.dailogi_server.generation.application;
+
+import com.github.vvojtas.dailogi_server.generation.api.ChatMessage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-dialogue prompt state that is built incrementally.
+ * Every character's system message is rendered once when the context is created, and each
+ * character keeps its own list of chat messages that is only appended to as the dialogue progresses,
+ * so assembling the prompt for the next turn does not depend on the length of the dialogue.
+ * <p>
+ * Instances are created by {@link OpenRouterPromptBuilder#createContext} and are not thread-safe;
+ * a dialogue generates one character turn at a time, which is the only access pattern supported.
+ */
+public class PromptContext {
+
+    // Rough per-message overhead: ChatMessage record, its String objects and the list slot
+    private static final int MESSAGE_OVERHEAD_BYTES = 96;
+
+    private final long dialogueId;
+    private final Map<Long, String> characterNames;
+    private final Map<Long, List<ChatMessage>> characterMessages;
+    private int messageCount;
+    private long contentChars;
+
+    PromptContext(long dialogueId, Map<Long, String> characterNames, Map<Long, ChatMessage> systemMessages) {
+        this.dialogueId = dialogueId;
+        this.characterNames = characterNames;
+        this.characterMessages = new HashMap<>(systemMessages.size() * 2);
+        systemMessages.forEach((characterId, systemMessage) -> {
+            List<ChatMessage> messages = new ArrayList<>();
+            messages.add(systemMessage);
+            characterMessages.put(characterId, messages);
+            messageCount++;
+            contentChars += systemMessage.content().length();
+        });
+    }
+
+    /**
+     * Returns the messages to send when the given character speaks next.
+     * The returned list is an immutable snapshot, unaffected by later calls to {@link #addMessage},
+     * because requests are serialized lazily and may be resent (retries, hedged fallback).
+     *
+     * @param characterId The ID of the character about to speak
+     * @return System message followed by the conversation as seen by that character
+     * @throws IllegalArgumentException if the character does not take part in the dialogue
+     */
+    public List<ChatMessage> messagesFor(long characterId) {
+        return List.copyOf(messagesOf(characterId));
+    }
+
+    /**
+     * Appends a finished utterance to every character's view of the conversation.
+     * The speaker sees it as its own (assistant) message, the other characters as a user message.
+     *
+     * @param speakerId The ID of the character who said it
+     * @param content The content of the utterance
+     * @throws IllegalArgumentException if the character does not take part in the dialogue
+     */
+    public void addMessage(long speakerId, String content) {
+        String speakerName = characterNames.get(speakerId);
+        if (speakerName == null) {
+            throw new IllegalArgumentException("Character not found: " + speakerId);
+        }
+        ChatMessage own = new ChatMessage(ChatMessage.ROLE_ASSISTANT, content);
+        ChatMessage heard = new ChatMessage(ChatMessage.ROLE_USER,
+                OpenRouterPromptBuilder.formatOtherCharacterMessage(speakerName, content));
+
+        for (Map.Entry<Long, List<ChatMessage>> entry : characterMessages.entrySet()) {
+            ChatMessage message = entry.getKey() == speakerId ? own : heard;
+            entry.getValue().add(message);
+            messageCount++;
+            contentChars += message.content().length();
+        }
+    }
+
+    public long getDialogueId() {
+        return dialogueId;
+    }
+
+    /**
+     * @return Total number of chat messages held for all characters, including system messages
+     */
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * Estimates the heap retained by this context. Contents are counted as two bytes per char,
+     * which is an upper bound for compact strings.
+     *
+     * @return Approximate memory footprint in bytes
+     */
+    public long estimateMemoryBytes() {
+        return contentChars * 2 + (long) messageCount * MESSAGE_OVERHEAD_BYTES;
+    }
+
+    private List<ChatMessage> messagesOf(long characterId) {
+        List<ChatMessage> messages = characterMessages.get(characterId);
+        if (messages == null) {
+            throw new IllegalArgumentException("Character not found: " + characterId);
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.vvojtas.dailogi_server.generation.application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Prompt template compiled into alternating literal and placeholder segments.
+ * Placeholders have the form {@code ${name}}. Templates are parsed once and are immutable,
+ * so a single instance can be rendered concurrently; rendering writes every segment once
+ * into a builder sized up front.
+ */
+public final class PromptTemplate {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([a-zA-Z0-9_]+)}");
+
+    private final String name;
+    // literals.length == placeholders.length + 1: literal, placeholder, literal, ..., literal
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int literalLength;
+
+    private PromptTemplate(String name, String[] literals, String[] placeholders) {
+        this.name = name;
+        this.literals = literals;
+        this.placeholders = placeholders;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Parses template source into segments.
+     *
+     * @param name The name the template is registered under
+     * @param source The template text
+     * @return The compiled template
+     */
+    public static PromptTemplate compile(String name, String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        Matcher matcher = PLACEHOLDER.matcher(source);
+        int position = 0;
+        while (matcher.find()) {
+            literals.add(source.substring(position, matcher.start()));
+            placeholders.add(matcher.group(1));
+            position = matcher.end();
+        }
+        literals.add(source.substring(position));
+        return new PromptTemplate(name, literals.toArray(String[]::new), placeholders.toArray(String[]::new));
+    }
+
+    /**
+     * Renders the template. Placeholders without a value are left as they are in the template,
+     * null values render as empty text.
+     *
+     * @param values Placeholder values by placeholder name
+     * @return The rendered text
+     */
+    public String render(Map<String, String> values) {
+        String[] resolved = new String[placeholders.length];
+        int length = literalLength;
+        for (int i = 0; i < placeholders.length; i++) {
+            String value;
+            if (values.containsKey(placeholders[i])) {
+                value = values.get(placeholders[i]);
+                value = value != null ? value : "";
+            } else {
+                value = "${" + placeholders[i] + "}";
+            }
+            resolved[i] = value;
+            length += value.length();
+        }
+
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < placeholders.length; i++) {
+            builder.append(literals[i]).append(resolved[i]);
+        }
+        builder.append(literals[placeholders.length]);
+        return builder.toString();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Placeholder names in order of appearance, including repeats
+     */
+    public List<String> getPlaceholders() {
+        return List.of(placeholders);
+    }
+}
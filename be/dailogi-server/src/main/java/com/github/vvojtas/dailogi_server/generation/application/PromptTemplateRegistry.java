@@ -0,0 +1,172 @@
+package com.github.vvojtas.dailogi_server.generation.application;
+
+import com.github.vvojtas.dailogi_server.properties.PromptTemplateProperties;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileCopyUtils;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of compiled prompt templates, e.g. one per language or scene type.
+ * All {@code *.template} files from the configured location are compiled at startup and
+ * registered under their file name without extension. Templates can be reloaded at runtime;
+ * a reload compiles everything first and then swaps the whole set at once, so readers never
+ * observe a partially loaded registry and a broken reload keeps the previous templates.
+ */
+@Slf4j
+@Component
+public class PromptTemplateRegistry {
+
+    private static final String TEMPLATE_EXTENSION = ".template";
+
+    private final PromptTemplateProperties properties;
+    private final ResourcePatternResolver resourceResolver = new PathMatchingResourcePatternResolver();
+    private volatile Map<String, PromptTemplate> templates = Map.of();
+    private ScheduledExecutorService reloadScheduler;
+
+    public PromptTemplateRegistry(PromptTemplateProperties properties) {
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void init() {
+        templates = loadTemplates();
+        if (!templates.containsKey(properties.getDefaultTemplate())) {
+            throw new IllegalStateException("Default prompt template not found: " + properties.getDefaultTemplate());
+        }
+        log.info("Registered prompt templates: {}", templates.keySet());
+
+        long intervalMs = properties.getReloadInterval().toMillis();
+        if (intervalMs > 0) {
+            reloadScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "PromptTemplateReload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reloadScheduler.scheduleWithFixedDelay(this::reload, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+            log.info("Prompt templates will be reloaded every {}", properties.getReloadInterval());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (reloadScheduler != null) {
+            reloadScheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Recompiles all templates from the configured location and replaces the registered set.
+     * If loading fails, or the default template disappears, the current templates are kept.
+     *
+     * @return true if the templates were replaced
+     */
+    public boolean reload() {
+        try {
+            Map<String, PromptTemplate> reloaded = loadTemplates();
+            if (!reloaded.containsKey(properties.getDefaultTemplate())) {
+                log.warn("Prompt template reload skipped: default template {} missing", properties.getDefaultTemplate());
+                return false;
+            }
+            templates = reloaded;
+            log.debug("Reloaded {} prompt templates", reloaded.size());
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Prompt template reload failed, keeping previous templates", e);
+            return false;
+        }
+    }
+
+    /**
+     * @param name The template name
+     * @return The compiled template
+     * @throws IllegalArgumentException if no template with that name is registered
+     */
+    public PromptTemplate get(String name) {
+        PromptTemplate template = templates.get(name);
+        if (template == null) {
+            throw new IllegalArgumentException("Prompt template not found: " + name);
+        }
+        return template;
+    }
+
+    /**
+     * @return The template configured for character system prompts
+     */
+    public PromptTemplate getDefault() {
+        return get(properties.getDefaultTemplate());
+    }
+
+    /**
+     * Resolves the template selected for a dialogue. A template removed by a reload after the
+     * dialogue was created falls back to the default one.
+     *
+     * @param name The template name, or null for the default template
+     * @return The named template if registered, the default template otherwise
+     */
+    public PromptTemplate getOrDefault(String name) {
+        if (name == null) {
+            return getDefault();
+        }
+        PromptTemplate template = templates.get(name);
+        if (template == null) {
+            log.warn("Prompt template {} not found, using default template", name);
+            return getDefault();
+        }
+        return template;
+    }
+
+    /**
+     * @param name The template name
+     * @return Whether a template with that name is registered
+     */
+    public boolean contains(String name) {
+        return templates.containsKey(name);
+    }
+
+    /**
+     * @return Names of all registered templates
+     */
+    public Set<String> getNames() {
+        return templates.keySet();
+    }
+
+    private Map<String, PromptTemplate> loadTemplates() {
+        String pattern = properties.getLocation().endsWith("/")
+                ? properties.getLocation() + "*" + TEMPLATE_EXTENSION
+                : properties.getLocation() + "/*" + TEMPLATE_EXTENSION;
+        Map<String, PromptTemplate> loaded = new HashMap<>();
+        try {
+            for (Resource resource : resourceResolver.getResources(pattern)) {
+                String filename = resource.getFilename();
+                if (filename == null || !resource.isReadable()) {
+                    continue;
+                }
+                String name = filename.substring(0, filename.length() - TEMPLATE_EXTENSION.length());
+                try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+                    loaded.put(name, PromptTemplate.compile(name, FileCopyUtils.copyToString(reader)));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load prompt templates from " + pattern, e);
+        }
+        log.debug("Loaded prompt templates {} from {}", loaded.keySet(), pattern);
+        return Map.copyOf(loaded);
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.vvojtas.dailogi_server.generation.application.model;
+
+/**
+ * Fields of a single streamed chat completion chunk that the client uses.
+ * Any of them may be null, e.g. the final chunk carries only the finish reason and usage.
+ */
+public record StreamChunk(
+        String content,
+        String finishReason,
+        Usage usage
+) {
+    /**
+     * Token usage of the whole completion, sent with the last chunk
+     */
+    public record Usage(
+            int promptTokens,
+            int completionTokens,
+            int totalTokens
+    ) {}
+}
@@ -0,0 +1,143 @@
+package com.github.vvojtas.dailogi_server.generation.application.replay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.vvojtas.dailogi_server.exception.UpstreamRateLimitException;
+import com.github.vvojtas.dailogi_server.exception.UpstreamUnavailableException;
+import com.github.vvojtas.dailogi_server.generation.api.ChatMessage;
+import com.github.vvojtas.dailogi_server.generation.api.OpenRouterInterface;
+import com.github.vvojtas.dailogi_server.generation.application.upstream.UpstreamGuard;
+import com.github.vvojtas.dailogi_server.generation.application.upstream.UpstreamPermit;
+import com.github.vvojtas.dailogi_server.properties.OpenRouterProperties;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementation of OpenRouterInterface for load tests, playing back streams recorded by
+ * {@link StreamRecorder} instead of calling the upstream.
+ * <p>
+ * Tokens are sent with their recorded timing, scaled by the configured speed. Requests go through
+ * the {@link UpstreamGuard} like real ones, so rate limits, the circuit breaker and retries are
+ * exercised; a configurable fraction of requests is answered with 429 or fails with a server error,
+ * before or in the middle of the stream.
+ * <p>
+ * The recording played for a request depends only on the seed, the model and the prompt. Injected
+ * failures depend on the seed and the order of requests, so a run sending one request at a time
+ * is reproduced exactly by the same seed.
+ */
+@Service
+@Slf4j
+@ConditionalOnExpression("${openrouter.api.replay.enabled:false} and !${openrouter.api.mock-enabled:false}")
+public class OpenRouterReplay implements OpenRouterInterface {
+
+    private final OpenRouterProperties.Replay properties;
+    private final UpstreamGuard upstreamGuard;
+    private final RecordingLibrary library;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger activeStreams = new AtomicInteger();
+
+    @Autowired
+    public OpenRouterReplay(OpenRouterProperties properties, UpstreamGuard upstreamGuard, ObjectMapper objectMapper) {
+        this(properties, upstreamGuard,
+                RecordingLibrary.load(Path.of(properties.getReplay().getDirectory()), objectMapper));
+    }
+
+    OpenRouterReplay(OpenRouterProperties properties, UpstreamGuard upstreamGuard, RecordingLibrary library) {
+        this.properties = properties.getReplay();
+        this.upstreamGuard = upstreamGuard;
+        this.library = library;
+        log.info("Replaying {} recorded streams of {} models (speed {}, seed {}, 429 rate {}, error rate {})",
+                library.size(), library.modelCount(), this.properties.getSpeed(), this.properties.getSeed(),
+                this.properties.getRateLimitRate(), this.properties.getErrorRate());
+    }
+
+    @Override
+    public Flux<String> streamTokens(
+            String openRouterIdentifier,
+            List<ChatMessage> messages,
+            String apiKey) {
+
+        long promptKey = properties.getSeed() ^ promptHash(openRouterIdentifier, messages);
+        return Flux.defer(() -> {
+            AtomicBoolean started = new AtomicBoolean();
+            return upstreamGuard.acquire(apiKey, openRouterIdentifier)
+                    .flatMapMany(permit -> replay(openRouterIdentifier, promptKey, permit))
+                    .doOnNext(token -> started.set(true))
+                    .retryWhen(upstreamGuard.retrySpec(openRouterIdentifier, started::get));
+        })
+        .doOnSubscribe(subscription -> activeStreams.incrementAndGet())
+        .doFinally(signal -> activeStreams.decrementAndGet());
+    }
+
+    @Override
+    public int getActiveCallCount() {
+        return activeStreams.get();
+    }
+
+    /**
+     * Plays one attempt back, reporting its outcome to the permit like a real request
+     */
+    private Flux<String> replay(String model, long promptKey, UpstreamPermit permit) {
+        StreamRecording recording = library.choose(model, promptKey);
+        if (recording == null) {
+            permit.onCancel();
+            return Flux.error(new IllegalStateException("No recordings to replay in " + properties.getDirectory()));
+        }
+
+        SplittableRandom random = new SplittableRandom(properties.getSeed() + sequence.getAndIncrement());
+        if (random.nextDouble() < properties.getRateLimitRate()) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(properties.getRetryAfter().toSeconds()));
+            Duration retryAfter = permit.onRateLimited(headers);
+            return Flux.error(new UpstreamRateLimitException(model, retryAfter));
+        }
+
+        List<StreamRecording.RecordedToken> tokens = recording.tokens();
+        int failAt = random.nextDouble() < properties.getErrorRate() ? random.nextInt(tokens.size() + 1) : -1;
+        Flux<String> stream = Flux.fromIterable(failAt < 0 ? tokens : tokens.subList(0, failAt))
+                .concatMap(this::delayed);
+        if (failAt >= 0) {
+            stream = stream.concatWith(Flux.error(() ->
+                    new UpstreamUnavailableException(model, "Injected server error after " + failAt + " tokens", null)));
+        }
+        return stream
+                .doOnComplete(permit::onSuccess)
+                .doOnError(error -> permit.onFailure())
+                .doOnCancel(permit::onCancel);
+    }
+
+    private Mono<String> delayed(StreamRecording.RecordedToken token) {
+        double speed = properties.getSpeed();
+        if (speed <= 0 || token.delayMicros() <= 0) {
+            return Mono.just(token.text());
+        }
+        return Mono.just(token.text()).delayElement(Duration.ofNanos((long) (token.delayMicros() * 1000 / speed)));
+    }
+
+    /**
+     * Stable across runs, unlike identity-based hashes
+     */
+    static long promptHash(String model, List<ChatMessage> messages) {
+        long hash = model.hashCode();
+        if (messages != null) {
+            for (ChatMessage message : messages) {
+                hash = 31 * hash + String.valueOf(message.role()).hashCode();
+                hash = 31 * hash + String.valueOf(message.content()).hashCode();
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.vvojtas.dailogi_server.generation.application.replay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Recordings available for replay, by model. Loaded once and never modified; recordings are kept
+ * in file name order, so the same seed picks the same recordings on every run.
+ */
+@Slf4j
+class RecordingLibrary {
+
+    private final List<StreamRecording> all;
+    private final Map<String, List<StreamRecording>> byModel;
+
+    RecordingLibrary(List<StreamRecording> recordings) {
+        this.all = List.copyOf(recordings);
+        Map<String, List<StreamRecording>> grouped = new HashMap<>();
+        for (StreamRecording recording : recordings) {
+            grouped.computeIfAbsent(recording.model(), model -> new ArrayList<>()).add(recording);
+        }
+        this.byModel = Map.copyOf(grouped);
+    }
+
+    /**
+     * Reads every recording in the directory and its subdirectories. Unreadable files are skipped.
+     */
+    static RecordingLibrary load(Path directory, ObjectMapper objectMapper) {
+        if (!Files.isDirectory(directory)) {
+            log.warn("Recording directory {} does not exist", directory.toAbsolutePath());
+            return new RecordingLibrary(List.of());
+        }
+        List<StreamRecording> recordings = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(".json")).sorted().toList()) {
+                try {
+                    StreamRecording recording = objectMapper.readValue(file.toFile(), StreamRecording.class);
+                    if (recording.model() != null && recording.tokens() != null) {
+                        recordings.add(recording);
+                    }
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable recording {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read recordings from " + directory, e);
+        }
+        return new RecordingLibrary(recordings);
+    }
+
+    /**
+     * Picks a recording of the model, or of any model if the model has none.
+     *
+     * @param key Selects the recording; the same key always selects the same recording
+     * @return The recording, null if there are no recordings at all
+     */
+    StreamRecording choose(String model, long key) {
+        List<StreamRecording> candidates = byModel.getOrDefault(model, all);
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        return candidates.get((int) Math.floorMod(key, (long) candidates.size()));
+    }
+
+    int size() {
+        return all.size();
+    }
+
+    int modelCount() {
+        return byModel.size();
+    }
+}
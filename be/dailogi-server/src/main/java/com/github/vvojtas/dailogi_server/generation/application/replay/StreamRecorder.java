@@ -0,0 +1,82 @@
+package com.github.vvojtas.dailogi_server.generation.application.replay;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.vvojtas.dailogi_server.properties.OpenRouterProperties;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Records upstream streams to files for {@link OpenRouterReplay}.
+ * <p>
+ * Every token is kept with the time since the previous one; a stream that completes is saved as one
+ * JSON file in a directory of its model. Streams that fail or are cancelled are not saved. Files are
+ * written off the stream's thread. Recording keeps a whole completion in memory until it is saved,
+ * so it is meant for collecting samples, not for constant use in production.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "openrouter.api.recording", name = "enabled", havingValue = "true")
+public class StreamRecorder {
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+
+    public StreamRecorder(OpenRouterProperties properties, ObjectMapper objectMapper) {
+        this.directory = Path.of(properties.getRecording().getDirectory());
+        this.objectMapper = objectMapper;
+        log.info("Recording upstream streams to {}", directory.toAbsolutePath());
+    }
+
+    /**
+     * Records the tokens of a stream as they pass. The timing starts at subscription.
+     */
+    public Flux<String> record(String model, Flux<String> tokens) {
+        return Flux.defer(() -> {
+            Instant recordedAt = Instant.now();
+            long[] lastNanos = {System.nanoTime()};
+            List<StreamRecording.RecordedToken> recorded = new ArrayList<>();
+            return tokens
+                    .doOnNext(token -> {
+                        long now = System.nanoTime();
+                        recorded.add(new StreamRecording.RecordedToken((now - lastNanos[0]) / 1000, token));
+                        lastNanos[0] = now;
+                    })
+                    .doOnComplete(() -> {
+                        StreamRecording recording = new StreamRecording(model, recordedAt, List.copyOf(recorded));
+                        Schedulers.boundedElastic().schedule(() -> save(recording));
+                    });
+        });
+    }
+
+    void save(StreamRecording recording) {
+        Path modelDirectory = directory.resolve(fileName(recording.model()));
+        Path file = modelDirectory.resolve(recording.recordedAt().toEpochMilli() + "-"
+                + UUID.randomUUID().toString().substring(0, 8) + ".json");
+        try {
+            Files.createDirectories(modelDirectory);
+            objectMapper.writeValue(file.toFile(), recording);
+            log.debug("Recorded {} tokens of model {} to {}", recording.tokens().size(), recording.model(), file);
+        } catch (IOException e) {
+            log.warn("Could not save recording of model {} to {}: {}", recording.model(), file, e.getMessage());
+        }
+    }
+
+    /**
+     * Model identifiers contain slashes, e.g. openai/gpt-4o
+     */
+    static String fileName(String model) {
+        return model.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.vvojtas.dailogi_server.generation.application.replay;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A recorded upstream stream: the tokens of one completion and when each of them arrived.
+ *
+ * @param model      The model that generated the stream
+ * @param recordedAt When the request was sent
+ * @param tokens     The tokens in the order they arrived
+ */
+public record StreamRecording(
+    @JsonProperty("model") String model,
+    @JsonProperty("recorded_at") Instant recordedAt,
+    @JsonProperty("tokens") List<RecordedToken> tokens
+) {
+
+    /**
+     * @param delayMicros Time since the previous token, or since the request was sent for the first token
+     * @param text        The token text
+     */
+    public record RecordedToken(
+        @JsonProperty("delay_us") long delayMicros,
+        @JsonProperty("text") String text
+    ) {}
+}
@@ -0,0 +1,114 @@
+package com.github.vvojtas.dailogi_server.generation.application.upstream;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free circuit breaker of a single model.
+ * <p>
+ * A closed circuit lets every request through and counts consecutive failures. Reaching the
+ * threshold opens it, rejecting requests for the open duration. After that the circuit is half
+ * open: exactly one probe request is let through, and its outcome closes the circuit again or
+ * reopens it for another open duration.
+ */
+final class CircuitBreaker {
+
+    /**
+     * How long requests wait for the probe of a half open circuit before checking again
+     */
+    private static final long PROBE_POLL_NANOS = Duration.ofSeconds(1).toNanos();
+
+    enum Status { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicReference<State> state = new AtomicReference<>(new State(Status.CLOSED, 0, 0));
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Asks to send a request. When the open duration has passed, the first caller becomes the probe.
+     *
+     * @return 0 if the request may be sent, otherwise the nanoseconds until it is worth asking again
+     */
+    long tryAcquirePermission() {
+        while (true) {
+            State current = state.get();
+            switch (current.status()) {
+                case CLOSED -> {
+                    return 0;
+                }
+                case HALF_OPEN -> {
+                    return Math.min(PROBE_POLL_NANOS, openNanos);
+                }
+                case OPEN -> {
+                    long remaining = current.openedAtNanos() + openNanos - nanoClock.getAsLong();
+                    if (remaining > 0) {
+                        return remaining;
+                    }
+                    if (state.compareAndSet(current, new State(Status.HALF_OPEN, current.failures(), current.openedAtNanos()))) {
+                        return 0;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a request that reached a healthy upstream, closing the circuit.
+     */
+    void onSuccess() {
+        State current = state.get();
+        while (current.status() != Status.CLOSED || current.failures() > 0) {
+            if (state.compareAndSet(current, new State(Status.CLOSED, 0, 0))) {
+                return;
+            }
+            current = state.get();
+        }
+    }
+
+    /**
+     * Records a failed request, opening the circuit at the threshold or when the probe failed.
+     *
+     * @return true if this failure opened the circuit
+     */
+    boolean onFailure() {
+        while (true) {
+            State current = state.get();
+            State next = switch (current.status()) {
+                case OPEN -> current;
+                case HALF_OPEN -> new State(Status.OPEN, current.failures() + 1, nanoClock.getAsLong());
+                case CLOSED -> current.failures() + 1 >= failureThreshold
+                        ? new State(Status.OPEN, current.failures() + 1, nanoClock.getAsLong())
+                        : new State(Status.CLOSED, current.failures() + 1, 0);
+            };
+            if (next == current || state.compareAndSet(current, next)) {
+                return next.status() == Status.OPEN && current.status() != Status.OPEN;
+            }
+        }
+    }
+
+    /**
+     * Records a request that ended without telling whether the upstream is healthy, e.g. because
+     * it was cancelled or rate limited. A probe ending like this lets the next request probe instead.
+     */
+    void onInconclusive() {
+        State current = state.get();
+        if (current.status() == Status.HALF_OPEN) {
+            state.compareAndSet(current, new State(Status.OPEN, current.failures(), nanoClock.getAsLong() - openNanos));
+        }
+    }
+
+    Status getStatus() {
+        return state.get().status();
+    }
+
+    private record State(Status status, int failures, long openedAtNanos) {
+    }
+}
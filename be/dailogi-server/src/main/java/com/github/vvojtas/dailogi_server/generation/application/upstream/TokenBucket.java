@@ -0,0 +1,125 @@
+package com.github.vvojtas.dailogi_server.generation.application.upstream;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Lock-free token bucket refilling continuously up to its capacity.
+ * <p>
+ * The whole state is an immutable snapshot swapped with compare-and-set, so concurrent callers
+ * never block each other. The bucket starts with configured limits and then follows what the
+ * upstream reports: its request limit becomes the capacity, the remaining requests cap the tokens,
+ * and an exhausted limit or a Retry-After blocks the bucket until the upstream's reset time.
+ */
+final class TokenBucket {
+
+    private final long periodNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicReference<State> state;
+
+    TokenBucket(int capacity, Duration period, LongSupplier nanoClock) {
+        this.periodNanos = period.toNanos();
+        this.nanoClock = nanoClock;
+        long now = nanoClock.getAsLong();
+        this.state = new AtomicReference<>(new State(capacity, capacity, now, now));
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @return 0 if a token was taken, otherwise the nanoseconds until the next one is available
+     */
+    long tryAcquire() {
+        while (true) {
+            long now = nanoClock.getAsLong();
+            State current = state.get();
+            State refilled = current.refill(now, periodNanos);
+            if (now < refilled.blockedUntilNanos()) {
+                return refilled.blockedUntilNanos() - now;
+            }
+            if (refilled.tokens() < 1) {
+                double tokensPerNano = (double) refilled.capacity() / periodNanos;
+                return Math.max(1, (long) Math.ceil((1 - refilled.tokens()) / tokensPerNano));
+            }
+            if (state.compareAndSet(current, refilled.withTokens(refilled.tokens() - 1))) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Returns a token taken by a request that was not sent.
+     */
+    void release() {
+        update(current -> current.withTokens(Math.min(current.capacity(), current.tokens() + 1)));
+    }
+
+    /**
+     * Adopts the rate limit reported by the upstream; null values are ignored.
+     *
+     * @param limit      Requests allowed per period
+     * @param remaining  Requests left in the current period
+     * @param resetNanos When the period resets, on the bucket's clock
+     */
+    void observe(Integer limit, Integer remaining, Long resetNanos) {
+        update(current -> {
+            State next = current;
+            if (limit != null && limit > 0) {
+                next = new State(limit, Math.min(next.tokens(), limit), next.updatedNanos(), next.blockedUntilNanos());
+            }
+            if (remaining != null) {
+                next = next.withTokens(Math.min(next.tokens(), Math.max(0, remaining)));
+                if (remaining <= 0 && resetNanos != null) {
+                    next = next.blockedUntil(resetNanos);
+                }
+            }
+            return next;
+        });
+    }
+
+    /**
+     * Stops handing out tokens for the given time, e.g. after the upstream sent Retry-After.
+     */
+    void blockFor(Duration duration) {
+        long until = nanoClock.getAsLong() + duration.toNanos();
+        update(current -> current.withTokens(0).blockedUntil(until));
+    }
+
+    int getCapacity() {
+        return state.get().capacity();
+    }
+
+    private void update(UnaryOperator<State> change) {
+        while (true) {
+            long now = nanoClock.getAsLong();
+            State current = state.get();
+            if (state.compareAndSet(current, change.apply(current.refill(now, periodNanos)))) {
+                return;
+            }
+        }
+    }
+
+    private record State(int capacity, double tokens, long updatedNanos, long blockedUntilNanos) {
+
+        State refill(long now, long periodNanos) {
+            long elapsed = now - updatedNanos;
+            if (elapsed <= 0) {
+                return this;
+            }
+            // Nothing refills while the upstream asked us to wait
+            long refillFrom = Math.max(updatedNanos, Math.min(now, blockedUntilNanos));
+            double refilled = tokens + (double) (now - refillFrom) * capacity / periodNanos;
+            return new State(capacity, Math.min(capacity, refilled), now, blockedUntilNanos);
+        }
+
+        State withTokens(double newTokens) {
+            return new State(capacity, newTokens, updatedNanos, blockedUntilNanos);
+        }
+
+        State blockedUntil(long nanos) {
+            return new State(capacity, tokens, updatedNanos, Math.max(blockedUntilNanos, nanos));
+        }
+    }
+}
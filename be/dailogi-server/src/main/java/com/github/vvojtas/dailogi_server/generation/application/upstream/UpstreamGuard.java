@@ -0,0 +1,150 @@
+package com.github.vvojtas.dailogi_server.generation.application.upstream;
+
+import com.github.vvojtas.dailogi_server.exception.UpstreamRateLimitException;
+import com.github.vvojtas.dailogi_server.exception.UpstreamUnavailableException;
+import com.github.vvojtas.dailogi_server.properties.OpenRouterProperties;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Protects the upstream from requests it would reject and dialogues from failing on them.
+ * <p>
+ * Each request needs a token from the bucket of its API key and from the bucket of the API key and
+ * model, and permission from the circuit breaker of the model. A request that cannot get them is
+ * queued - delayed without holding a thread - until it can, for at most the configured maximum wait.
+ * Requests rejected by the upstream before producing any output are retried with jittered backoff.
+ * <p>
+ * API keys are only kept as fingerprints. The buckets and circuits live for the life of the application;
+ * there is one per API key and model in use, which stays small.
+ */
+@Slf4j
+@Component
+public class UpstreamGuard {
+
+    private final OpenRouterProperties.RateLimit rateLimit;
+    private final OpenRouterProperties.CircuitBreaker circuitBreaker;
+    private final OpenRouterProperties.Retry retry;
+    private final LongSupplier nanoClock;
+
+    private final Map<String, TokenBucket> keyBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> modelBuckets = new ConcurrentHashMap<>();
+    private final Map<String, CircuitBreaker> circuits = new ConcurrentHashMap<>();
+
+    @Autowired
+    public UpstreamGuard(OpenRouterProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    UpstreamGuard(OpenRouterProperties properties, LongSupplier nanoClock) {
+        this.rateLimit = properties.getRateLimit();
+        this.circuitBreaker = properties.getCircuitBreaker();
+        this.retry = properties.getRetry();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Waits until a request to the model may be sent with the API key.
+     *
+     * @return Mono emitting the permit of the request, or an {@link UpstreamRateLimitException} or
+     * {@link UpstreamUnavailableException} if the request cannot be sent within the maximum wait
+     */
+    public Mono<UpstreamPermit> acquire(String apiKey, String model) {
+        String keyId = fingerprint(apiKey);
+        return Mono.defer(() -> acquire(keyId, model, nanoClock.getAsLong() + rateLimit.getMaxWait().toNanos()));
+    }
+
+    /**
+     * Retries a request rejected before it produced any output: rate limited, failed with a server
+     * error or a connection failure, or not sent because the circuit of its model stayed open.
+     *
+     * @param started Tells whether the request already produced output, which is never repeated
+     */
+    public RetryBackoffSpec retrySpec(String model, BooleanSupplier started) {
+        return Retry.backoff(retry.getMaxAttempts(), retry.getMinBackoff())
+                .maxBackoff(retry.getMaxBackoff())
+                .jitter(retry.getJitter())
+                .filter(error -> !started.getAsBoolean() && isRetryable(error))
+                .doBeforeRetry(signal -> log.warn("Retrying request to model {} (attempt {}) after: {}",
+                        model, signal.totalRetries() + 1, signal.failure().getMessage()))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    CircuitBreaker.Status getCircuitStatus(String model) {
+        CircuitBreaker circuit = circuits.get(model);
+        return circuit == null ? CircuitBreaker.Status.CLOSED : circuit.getStatus();
+    }
+
+    private Mono<UpstreamPermit> acquire(String keyId, String model, long deadlineNanos) {
+        TokenBucket keyBucket = keyBuckets.computeIfAbsent(keyId,
+                id -> new TokenBucket(rateLimit.getKeyRequests(), rateLimit.getPeriod(), nanoClock));
+        TokenBucket modelBucket = modelBuckets.computeIfAbsent(keyId + '/' + model,
+                id -> new TokenBucket(rateLimit.getModelRequests(), rateLimit.getPeriod(), nanoClock));
+        CircuitBreaker circuit = circuits.computeIfAbsent(model,
+                id -> new CircuitBreaker(circuitBreaker.getFailureThreshold(), circuitBreaker.getOpenDuration(), nanoClock));
+
+        long rateLimitWait = keyBucket.tryAcquire();
+        if (rateLimitWait == 0) {
+            rateLimitWait = modelBucket.tryAcquire();
+            if (rateLimitWait > 0) {
+                keyBucket.release();
+            }
+        }
+        if (rateLimitWait > 0) {
+            long wait = rateLimitWait;
+            return waitAndAcquire(keyId, model, wait, deadlineNanos,
+                    () -> new UpstreamRateLimitException(model, Duration.ofNanos(wait)));
+        }
+
+        // Asked last, so a request becoming the probe of a half open circuit is sent for sure
+        long circuitWait = circuit.tryAcquirePermission();
+        if (circuitWait > 0) {
+            keyBucket.release();
+            modelBucket.release();
+            return waitAndAcquire(keyId, model, circuitWait, deadlineNanos,
+                    () -> new UpstreamUnavailableException(model, "Circuit open for model " + model, Duration.ofNanos(circuitWait)));
+        }
+        return Mono.just(new UpstreamPermit(model, keyBucket, modelBucket, circuit, nanoClock));
+    }
+
+    private Mono<UpstreamPermit> waitAndAcquire(String keyId, String model, long waitNanos, long deadlineNanos,
+                                                Supplier<RuntimeException> rejection) {
+        if (nanoClock.getAsLong() + waitNanos > deadlineNanos) {
+            return Mono.error(rejection.get());
+        }
+        log.debug("Request to model {} queued for {} ms", model, Duration.ofNanos(waitNanos).toMillis());
+        return Mono.delay(Duration.ofNanos(waitNanos))
+                .then(Mono.defer(() -> acquire(keyId, model, deadlineNanos)));
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        return error instanceof UpstreamRateLimitException
+                || error instanceof UpstreamUnavailableException
+                || error instanceof WebClientRequestException;
+    }
+
+    private static String fingerprint(String apiKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(apiKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.vvojtas.dailogi_server.generation.application.upstream;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Permission to send one upstream request, granted by {@link UpstreamGuard}.
+ * <p>
+ * The request reports back through the permit: the rate limit headers of its response and exactly
+ * one outcome, which the circuit breaker of the model uses. Outcomes after the first are ignored.
+ */
+@Slf4j
+public final class UpstreamPermit {
+
+    static final String LIMIT_HEADER = "X-RateLimit-Limit";
+    static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+    static final String RESET_HEADER = "X-RateLimit-Reset";
+
+    @Getter
+    private final String model;
+    private final TokenBucket keyBucket;
+    private final TokenBucket modelBucket;
+    private final CircuitBreaker circuit;
+    private final LongSupplier nanoClock;
+    private final AtomicBoolean settled = new AtomicBoolean();
+
+    UpstreamPermit(String model, TokenBucket keyBucket, TokenBucket modelBucket, CircuitBreaker circuit, LongSupplier nanoClock) {
+        this.model = model;
+        this.keyBucket = keyBucket;
+        this.modelBucket = modelBucket;
+        this.circuit = circuit;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Adopts the rate limit the upstream reports for the API key in its response headers.
+     */
+    public void onResponseHeaders(HttpHeaders headers) {
+        Integer limit = intHeader(headers, LIMIT_HEADER);
+        Integer remaining = intHeader(headers, REMAINING_HEADER);
+        Long resetEpochMillis = longHeader(headers, RESET_HEADER);
+        if (limit == null && remaining == null) {
+            return;
+        }
+        Long resetNanos = resetEpochMillis == null ? null
+                : nanoClock.getAsLong() + Duration.ofMillis(resetEpochMillis - System.currentTimeMillis()).toNanos();
+        keyBucket.observe(limit, remaining, resetNanos);
+    }
+
+    /**
+     * The upstream answered 429: the model's bucket is blocked for the Retry-After time, if given.
+     *
+     * @return The Retry-After time, null if the upstream did not send one
+     */
+    public Duration onRateLimited(HttpHeaders headers) {
+        onResponseHeaders(headers);
+        Long retryAfterSeconds = longHeader(headers, HttpHeaders.RETRY_AFTER);
+        Duration retryAfter = retryAfterSeconds != null && retryAfterSeconds > 0 ? Duration.ofSeconds(retryAfterSeconds) : null;
+        if (retryAfter != null) {
+            modelBucket.blockFor(retryAfter);
+        }
+        if (settled.compareAndSet(false, true)) {
+            circuit.onInconclusive();
+        }
+        return retryAfter;
+    }
+
+    /**
+     * The upstream is healthy: it streamed the response or rejected the request for a client-side reason.
+     */
+    public void onSuccess() {
+        if (settled.compareAndSet(false, true)) {
+            circuit.onSuccess();
+        }
+    }
+
+    /**
+     * The upstream failed: a server error, a connection failure or a broken stream.
+     */
+    public void onFailure() {
+        if (settled.compareAndSet(false, true) && circuit.onFailure()) {
+            log.warn("Circuit opened for model {} after consecutive upstream failures", model);
+        }
+    }
+
+    /**
+     * The request was cancelled before telling whether the upstream is healthy.
+     */
+    public void onCancel() {
+        if (settled.compareAndSet(false, true)) {
+            circuit.onInconclusive();
+        }
+    }
+
+    private static Integer intHeader(HttpHeaders headers, String name) {
+        Long value = longHeader(headers, name);
+        return value == null ? null : (int) Math.min(Integer.MAX_VALUE, value);
+    }
+
+    private static Long longHeader(HttpHeaders headers, String name) {
+        String value = headers.getFirst(name);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            // Retry-After may also be an HTTP date, which is not worth parsing here
+            return null;
+        }
+    }
+}
@@ -7,7 +7,8 @@ import lombok.RequiredArgsConstructor;
 @Getter
 public enum Role {
     USER("ROLE_USER"),
-    SPECIAL("ROLE_SPECIAL");
+    SPECIAL("ROLE_SPECIAL"),
+    ADMIN("ROLE_ADMIN");
 
     private final String name;
 } 
\ No newline at end of file
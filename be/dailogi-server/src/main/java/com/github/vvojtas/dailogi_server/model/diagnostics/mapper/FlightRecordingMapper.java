@@ -0,0 +1,38 @@
+package com.github.vvojtas.dailogi_server.model.diagnostics.mapper;
+
+import com.github.vvojtas.dailogi_server.model.diagnostics.response.FlightRecordingDTO;
+import jdk.jfr.Recording;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Mapper for Flight Recorder recordings
+ */
+@Component
+public class FlightRecordingMapper {
+
+    /**
+     * Maps a recording to a DTO with a snapshot of its state
+     *
+     * @param recording The recording to map
+     * @return A FlightRecordingDTO representing the recording
+     */
+    public FlightRecordingDTO toDTO(Recording recording) {
+        return new FlightRecordingDTO(
+            recording.getId(),
+            recording.getName(),
+            recording.getState().name(),
+            recording.getDuration() != null ? recording.getDuration().toSeconds() : null,
+            recording.getSize(),
+            toOffsetDateTime(recording.getStartTime()),
+            toOffsetDateTime(recording.getStopTime())
+        );
+    }
+
+    private static OffsetDateTime toOffsetDateTime(Instant instant) {
+        return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.vvojtas.dailogi_server.model.diagnostics.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+
+/**
+ * Request model for starting a Flight Recorder recording
+ */
+@Schema(description = "Request to start a Flight Recorder recording")
+public record StartRecordingRequest(
+    @Schema(description = "JDK recording settings: 'default' for low overhead, 'profile' for more detail",
+           example = "default",
+           defaultValue = "default",
+           allowableValues = {"default", "profile"},
+           requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @Pattern(regexp = "default|profile", message = "Settings must be 'default' or 'profile'")
+    @JsonProperty("settings") String settings,
+
+    @Schema(description = "Seconds to record for before the recording stops by itself; capped and defaulted by the server's maximum",
+           example = "300",
+           requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @Min(value = 1, message = "Duration must be at least 1 second")
+    @JsonProperty("duration_seconds") Long durationSeconds
+) {}
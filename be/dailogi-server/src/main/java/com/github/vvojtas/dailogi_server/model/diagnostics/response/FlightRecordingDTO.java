@@ -0,0 +1,32 @@
+package com.github.vvojtas.dailogi_server.model.diagnostics.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.OffsetDateTime;
+
+/**
+ * DTO for a Flight Recorder recording
+ */
+@Schema(description = "Flight Recorder recording held by the server")
+public record FlightRecordingDTO(
+    @Schema(description = "Identifier of the recording", example = "3", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("id") long id,
+
+    @Schema(description = "Name of the recording", example = "dailogi-default-3", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("name") String name,
+
+    @Schema(description = "State of the recording (RUNNING, STOPPED, CLOSED)", example = "RUNNING", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("state") String state,
+
+    @Schema(description = "Seconds the recording runs for before stopping by itself", example = "300", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @JsonProperty("duration_seconds") Long durationSeconds,
+
+    @Schema(description = "Bytes of recording data written to disk so far", example = "1048576", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("size_bytes") long sizeBytes,
+
+    @Schema(description = "Timestamp when the recording started", example = "2023-10-26T10:15:00Z", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @JsonProperty("started_at") OffsetDateTime startedAt,
+
+    @Schema(description = "Timestamp when the recording stopped", example = "2023-10-26T10:20:00Z", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @JsonProperty("stopped_at") OffsetDateTime stoppedAt
+) {}
@@ -0,0 +1,73 @@
+package com.github.vvojtas.dailogi_server.model.dialogue.mapper;
+
+import com.github.vvojtas.dailogi_server.dialogue.batch.api.BatchItemStatus;
+import com.github.vvojtas.dailogi_server.dialogue.batch.application.DialogueBatchItem;
+import com.github.vvojtas.dailogi_server.dialogue.batch.application.DialogueBatchJob;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueBatchDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueBatchItemDTO;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Mapper for batch dialogue generation jobs
+ */
+@Component
+public class DialogueBatchMapper {
+
+    /**
+     * Maps a batch job to a DTO with a snapshot of its progress
+     *
+     * @param job The job to map
+     * @return A DialogueBatchDTO representing the job
+     */
+    public DialogueBatchDTO toDTO(DialogueBatchJob job) {
+        Instant now = Instant.now();
+        List<DialogueBatchItemDTO> items = job.getItems().stream()
+            .map(this::toItemDTO)
+            .toList();
+        return new DialogueBatchDTO(
+            job.getId(),
+            job.getStatus().name(),
+            job.isGlobal(),
+            items.size(),
+            count(items, BatchItemStatus.QUEUED),
+            count(items, BatchItemStatus.RUNNING),
+            count(items, BatchItemStatus.COMPLETED),
+            count(items, BatchItemStatus.FAILED),
+            count(items, BatchItemStatus.CANCELLED),
+            job.getGeneratedTokens(),
+            job.getDialoguesPerMinute(now),
+            job.getTokensPerSecond(now),
+            toOffsetDateTime(job.getCreatedAt()),
+            toOffsetDateTime(job.getStartedAt()),
+            toOffsetDateTime(job.getFinishedAt()),
+            items
+        );
+    }
+
+    private DialogueBatchItemDTO toItemDTO(DialogueBatchItem item) {
+        return new DialogueBatchItemDTO(
+            item.getIndex(),
+            item.getDialogueId(),
+            item.getStatus().name(),
+            item.getGeneratedTokens(),
+            item.getError(),
+            toOffsetDateTime(item.getStartedAt()),
+            toOffsetDateTime(item.getFinishedAt())
+        );
+    }
+
+    // Counted from the mapped items, so the counts add up within one snapshot
+    private static int count(List<DialogueBatchItemDTO> items, BatchItemStatus status) {
+        String name = status.name();
+        return (int) items.stream().filter(item -> item.status().equals(name)).count();
+    }
+
+    private static OffsetDateTime toOffsetDateTime(Instant instant) {
+        return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
+    }
+}
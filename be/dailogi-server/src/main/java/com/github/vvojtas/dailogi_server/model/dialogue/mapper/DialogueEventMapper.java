@@ -20,7 +20,19 @@ public class DialogueEventMapper {
         return new DialogueStartEventDto(
                 apiEvent.dialogueId(), 
                 apiEvent.characterConfigs(), 
-                apiEvent.turnCount()
+                apiEvent.turnCount(),
+                apiEvent.id()
+        );
+    }
+
+    public DialogueQueuedEventDto toDialogueQueuedEventDto(com.github.vvojtas.dailogi_server.dialogue.stream.api.event.DialogueQueuedEventDto apiEvent) {
+        if (apiEvent == null) {
+            return null;
+        }
+        return new DialogueQueuedEventDto(
+                apiEvent.dialogueId(), 
+                apiEvent.position(), 
+                apiEvent.id()
         );
     }
 
@@ -31,6 +43,8 @@ public class DialogueEventMapper {
          // Assuming CharacterConfigDto doesn't need mapping for now
         return new CharacterStartEventDto(
                 apiEvent.getCharacterConfig(), 
+                apiEvent.getFallbackModel(),
+                apiEvent.getTtftBudgetMs(),
                 apiEvent.getEventId()
         );
     }
@@ -53,6 +67,9 @@ public class DialogueEventMapper {
         return new CharacterCompleteEventDto(
                 apiEvent.characterId(), 
                 apiEvent.tokenCount(), 
+                apiEvent.model(),
+                apiEvent.fallbackUsed(),
+                apiEvent.ttftMs(),
                 apiEvent.id()
         );
     }
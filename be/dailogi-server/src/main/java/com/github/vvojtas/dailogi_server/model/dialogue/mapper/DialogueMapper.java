@@ -2,9 +2,11 @@ package com.github.vvojtas.dailogi_server.model.dialogue.mapper;
 
 import com.github.vvojtas.dailogi_server.db.entity.Dialogue;
 import com.github.vvojtas.dailogi_server.db.entity.DialogueCharacterConfig;
+import com.github.vvojtas.dailogi_server.db.entity.DialogueMessage;
 import com.github.vvojtas.dailogi_server.model.character.mapper.CharacterMapper;
 import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueCharacterConfigDTO;
 import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueMessageDTO;
 import com.github.vvojtas.dailogi_server.model.llm.mapper.LLMMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
@@ -47,7 +49,39 @@ public class DialogueMapper {
             dialogue.getCreatedAt(),
             dialogue.getUpdatedAt(),
             configDTOs,
-            new ArrayList<>() // Empty messages list, as we haven't loaded them
+            new ArrayList<>(), // Empty messages list, as we haven't loaded them
+            dialogue.getPromptTemplate()
+        );
+    }
+
+    /**
+     * Maps a Dialogue entity with its messages to a DialogueDTO
+     *
+     * @param dialogue The dialogue entity to map
+     * @param characterConfigs The character configurations for this dialogue
+     * @param messages The messages of this dialogue, in the order they were said
+     * @return A DialogueDTO representing the dialogue and its messages
+     */
+    public DialogueDTO toDTO(Dialogue dialogue, List<DialogueCharacterConfig> characterConfigs, List<DialogueMessage> messages) {
+        DialogueDTO dto = toDTO(dialogue, characterConfigs);
+        if (dto == null) {
+            return null;
+        }
+
+        List<DialogueMessageDTO> messageDTOs = messages.stream()
+            .map(this::toDialogueMessageDTO)
+            .collect(Collectors.toList());
+
+        return new DialogueDTO(
+            dto.id(),
+            dto.name(),
+            dto.sceneDescription(),
+            dto.status(),
+            dto.createdAt(),
+            dto.updatedAt(),
+            dto.characterConfigs(),
+            messageDTOs,
+            dto.promptTemplate()
         );
     }
     
@@ -68,4 +102,19 @@ public class DialogueMapper {
             llmMapper.toDTO(config.getLlm())
         );
     }
+
+    /**
+     * Maps a DialogueMessage entity to a DialogueMessageDTO
+     *
+     * @param message The message entity to map
+     * @return A DialogueMessageDTO
+     */
+    private DialogueMessageDTO toDialogueMessageDTO(DialogueMessage message) {
+        return new DialogueMessageDTO(
+            message.getId(),
+            message.getTurnNumber(),
+            message.getCharacterId(),
+            message.getContent()
+        );
+    }
 } 
\ No newline at end of file
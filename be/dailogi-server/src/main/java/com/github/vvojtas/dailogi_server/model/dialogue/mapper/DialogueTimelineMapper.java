@@ -0,0 +1,47 @@
+package com.github.vvojtas.dailogi_server.model.dialogue.mapper;
+
+import com.github.vvojtas.dailogi_server.dialogue.timeline.application.DialogueTimeline;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueTimelineDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueTimelineEntryDTO;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Mapper for dialogue execution timelines
+ */
+@Component
+public class DialogueTimelineMapper {
+
+    /**
+     * Maps a timeline to a DTO with a snapshot of its entries
+     *
+     * @param timeline The timeline to map
+     * @return A DialogueTimelineDTO representing the timeline
+     */
+    public DialogueTimelineDTO toDTO(DialogueTimeline timeline) {
+        long dropped = timeline.getDropped();
+        List<DialogueTimelineEntryDTO> entries = timeline.getEntries().stream()
+            .map(entry -> new DialogueTimelineEntryDTO(
+                entry.stage().name(),
+                toOffsetDateTime(timeline.timeOf(entry)),
+                entry.offsetNanos() / 1_000_000.0,
+                entry.characterId() != 0 ? entry.characterId() : null,
+                entry.stage().describe(entry.value())))
+            .toList();
+        return new DialogueTimelineDTO(
+            timeline.getDialogueId(),
+            toOffsetDateTime(timeline.getStartedAt()),
+            toOffsetDateTime(timeline.getFinishedAt()),
+            dropped,
+            entries
+        );
+    }
+
+    private static OffsetDateTime toOffsetDateTime(Instant instant) {
+        return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
+    }
+}
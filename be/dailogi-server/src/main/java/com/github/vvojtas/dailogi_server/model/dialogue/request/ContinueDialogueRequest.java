@@ -0,0 +1,28 @@
+package com.github.vvojtas.dailogi_server.model.dialogue.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+/**
+ * Request model for continuing a dialogue stream with SSE
+ */
+@Schema(description = "Request to stream more turns of an existing dialogue")
+public record ContinueDialogueRequest(
+    @Schema(description = "Number of turns to add to the dialogue (1-50)",
+           example = "5",
+           minimum = "1",
+           maximum = "50",
+           defaultValue = "5",
+           requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @Min(value = 1, message = "Turns must be at least 1")
+    @Max(value = 50, message = "Turns must not exceed 50")
+    @JsonProperty("turns") Integer turns,
+
+    @Schema(description = "Token event batching for this stream; omit to use the server defaults",
+           requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @Valid
+    @JsonProperty("token_coalescing") TokenCoalescingDTO tokenCoalescing
+) {}
@@ -0,0 +1,25 @@
+package com.github.vvojtas.dailogi_server.model.dialogue.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import java.util.List;
+
+/**
+ * Request model for starting a batch dialogue generation job
+ */
+@Schema(description = "Request to generate a batch of dialogues in the background")
+public record StartDialogueBatchRequest(
+    @Schema(description = "Dialogues to generate; the maximum number per batch is configured on the server",
+           requiredMode = Schema.RequiredMode.REQUIRED)
+    @NotEmpty(message = "At least one dialogue is required")
+    @Valid
+    @JsonProperty("dialogues") List<DialogueBatchItemRequest> dialogues,
+
+    @Schema(description = "Whether the generated dialogues are visible to all users",
+           example = "true",
+           defaultValue = "false",
+           requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @JsonProperty("is_global") Boolean isGlobal
+) {}
@@ -39,5 +39,16 @@ public record StartDialogueStreamRequest(
            requiredMode = Schema.RequiredMode.NOT_REQUIRED)
     @Min(value = 1, message = "Length must be at least 1")
     @Max(value = 50, message = "Length must not exceed 50")
-    @JsonProperty("length") Integer length
+    @JsonProperty("length") Integer length,
+
+    @Schema(description = "Token event batching for this stream; omit to use the server defaults",
+           requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @Valid
+    @JsonProperty("token_coalescing") TokenCoalescingDTO tokenCoalescing,
+
+    @Schema(description = "Name of the prompt template used for the characters' system prompts; omit to use the default template",
+           example = "openrouter-system",
+           requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @Size(max = 100, message = "Prompt template name must not exceed 100 characters")
+    @JsonProperty("prompt_template") String promptTemplate
 ) {} 
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.github.vvojtas.dailogi_server.model.dialogue.request;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+/**
+ * DTO for per-request token coalescing settings of a dialogue stream.
+ * Fields left empty fall back to the server defaults.
+ */
+@Schema(description = "Batching of token events; tokens are sent together every max_tokens tokens, every max_delay_ms milliseconds or when the speaking character changes, whichever comes first")
+public record TokenCoalescingDTO(
+    @Schema(description = "Whether token events are batched; set to false for one event per token",
+           example = "true",
+           requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @JsonProperty("enabled") Boolean enabled,
+
+    @Schema(description = "Maximum number of tokens in one batched event (1-256)",
+           example = "16",
+           minimum = "1",
+           maximum = "256",
+           requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @Min(value = 1, message = "Max tokens must be at least 1")
+    @Max(value = 256, message = "Max tokens must not exceed 256")
+    @JsonProperty("max_tokens") Integer maxTokens,
+
+    @Schema(description = "Maximum time in milliseconds a token waits before being sent (1-1000)",
+           example = "50",
+           minimum = "1",
+           maximum = "1000",
+           requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @Min(value = 1, message = "Max delay must be at least 1 ms")
+    @Max(value = 1000, message = "Max delay must not exceed 1000 ms")
+    @JsonProperty("max_delay_ms") Integer maxDelayMs
+) {}
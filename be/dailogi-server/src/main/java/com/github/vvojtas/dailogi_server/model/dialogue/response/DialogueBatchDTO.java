@@ -0,0 +1,61 @@
+package com.github.vvojtas.dailogi_server.model.dialogue.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * DTO for a batch dialogue generation job with its progress
+ */
+@Schema(description = "Batch dialogue generation job with its progress and throughput")
+public record DialogueBatchDTO(
+    @Schema(description = "Unique identifier for the batch", example = "3f2b8c1e-5d4a-4e8b-9c1d-2a6f7e8b9c0d", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("id") UUID id,
+
+    @Schema(description = "Status of the batch (QUEUED, RUNNING, CANCELLING, COMPLETED, CANCELLED)", example = "RUNNING", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("status") String status,
+
+    @Schema(description = "Whether the generated dialogues are visible to all users", example = "true", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("is_global") boolean isGlobal,
+
+    @Schema(description = "Number of dialogues in the batch", example = "100", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("total") int total,
+
+    @Schema(description = "Number of dialogues waiting for a free worker", example = "80", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("queued") int queued,
+
+    @Schema(description = "Number of dialogues being generated", example = "4", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("running") int running,
+
+    @Schema(description = "Number of dialogues generated successfully", example = "15", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("completed") int completed,
+
+    @Schema(description = "Number of dialogues that failed", example = "1", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("failed") int failed,
+
+    @Schema(description = "Number of dialogues cancelled", example = "0", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("cancelled") int cancelled,
+
+    @Schema(description = "Number of tokens generated across the batch", example = "48210", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("generated_tokens") long generatedTokens,
+
+    @Schema(description = "Dialogues completed per minute since the batch started", example = "3.2", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("dialogues_per_minute") double dialoguesPerMinute,
+
+    @Schema(description = "Tokens generated per second since the batch started", example = "41.7", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("tokens_per_second") double tokensPerSecond,
+
+    @Schema(description = "Timestamp when the batch was submitted", example = "2023-10-26T10:15:00Z", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("created_at") OffsetDateTime createdAt,
+
+    @Schema(description = "Timestamp when the first dialogue started", example = "2023-10-26T10:15:01Z", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @JsonProperty("started_at") OffsetDateTime startedAt,
+
+    @Schema(description = "Timestamp when the last dialogue finished", example = "2023-10-26T10:45:00Z", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @JsonProperty("finished_at") OffsetDateTime finishedAt,
+
+    @Schema(description = "Progress of each dialogue of the batch", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("items") List<DialogueBatchItemDTO> items
+) {}
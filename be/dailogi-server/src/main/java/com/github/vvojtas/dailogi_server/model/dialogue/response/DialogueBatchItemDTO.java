@@ -0,0 +1,32 @@
+package com.github.vvojtas.dailogi_server.model.dialogue.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.OffsetDateTime;
+
+/**
+ * DTO for a single dialogue of a batch job
+ */
+@Schema(description = "Progress of a single dialogue of a batch")
+public record DialogueBatchItemDTO(
+    @Schema(description = "Position of the dialogue in the batch request", example = "0", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("index") int index,
+
+    @Schema(description = "ID of the generated dialogue, once created", example = "42", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @JsonProperty("dialogue_id") Long dialogueId,
+
+    @Schema(description = "Status of the dialogue (QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED)", example = "COMPLETED", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("status") String status,
+
+    @Schema(description = "Number of tokens generated so far", example = "512", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("generated_tokens") long generatedTokens,
+
+    @Schema(description = "Reason the dialogue failed", example = "Circuit open for model openai/gpt-4o", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @JsonProperty("error") String error,
+
+    @Schema(description = "Timestamp when generation of the dialogue started", example = "2023-10-26T10:15:30Z", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @JsonProperty("started_at") OffsetDateTime startedAt,
+
+    @Schema(description = "Timestamp when the dialogue finished", example = "2023-10-26T10:16:30Z", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @JsonProperty("finished_at") OffsetDateTime finishedAt
+) {}
@@ -32,5 +32,8 @@ public record DialogueDTO(
     @JsonProperty("character_configs") List<DialogueCharacterConfigDTO> characterConfigs, 
 
     @Schema(description = "List of messages exchanged in the dialogue", requiredMode = Schema.RequiredMode.REQUIRED) // Can be empty
-    @JsonProperty("messages") List<DialogueMessageDTO> messages 
+    @JsonProperty("messages") List<DialogueMessageDTO> messages,
+
+    @Schema(description = "Name of the prompt template used for the characters' system prompts, null for the default template", example = "openrouter-system", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @JsonProperty("prompt_template") String promptTemplate
 ) {} 
@@ -0,0 +1,18 @@
+package com.github.vvojtas.dailogi_server.model.dialogue.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * DTO for the homepage showcase of global dialogues
+ */
+@Schema(description = "Example global dialogues shown on the homepage")
+public record DialogueShowcaseDTO(
+    @Schema(description = "Most recently completed global dialogues, with their messages", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("dialogues") List<DialogueDTO> dialogues,
+
+    @Schema(description = "Timestamp when the showcase was last refreshed", example = "2023-10-26T10:20:00Z", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("refreshed_at") OffsetDateTime refreshedAt
+) {}
@@ -0,0 +1,27 @@
+package com.github.vvojtas.dailogi_server.model.dialogue.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * DTO for the execution timeline of a dialogue
+ */
+@Schema(description = "Execution timeline of a dialogue, for reconstructing what happened during its generation")
+public record DialogueTimelineDTO(
+    @Schema(description = "Identifier of the dialogue", example = "1", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("dialogue_id") long dialogueId,
+
+    @Schema(description = "Timestamp when the timeline started", example = "2023-10-26T10:15:00Z", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("started_at") OffsetDateTime startedAt,
+
+    @Schema(description = "Timestamp when the generation ended, absent while it is running", example = "2023-10-26T10:16:00Z", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @JsonProperty("finished_at") OffsetDateTime finishedAt,
+
+    @Schema(description = "Number of oldest entries overwritten because the timeline was full", example = "0", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("dropped_entries") long droppedEntries,
+
+    @Schema(description = "Retained entries, oldest first", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("entries") List<DialogueTimelineEntryDTO> entries
+) {}
@@ -0,0 +1,27 @@
+package com.github.vvojtas.dailogi_server.model.dialogue.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.OffsetDateTime;
+
+/**
+ * DTO for an entry of a dialogue's execution timeline
+ */
+@Schema(description = "Point reached in the execution of a dialogue")
+public record DialogueTimelineEntryDTO(
+    @Schema(description = "Stage reached (STREAM_OPENED, CLIENT_RESUMED, GENERATION_STARTED, PROMPT_BUILT, UPSTREAM_REQUEST, FIRST_TOKEN, CHARACTER_COMPLETE, MESSAGES_WRITTEN, COMPLETED, FAILED, CANCELLED, ABANDONED, STORED_COMPLETED, STORED_FAILED)",
+            example = "FIRST_TOKEN", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("stage") String stage,
+
+    @Schema(description = "Timestamp when the stage was reached", example = "2023-10-26T10:15:01.250Z", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("at") OffsetDateTime at,
+
+    @Schema(description = "Milliseconds since the timeline started", example = "1250.4", requiredMode = Schema.RequiredMode.REQUIRED)
+    @JsonProperty("offset_ms") double offsetMs,
+
+    @Schema(description = "Character the stage belongs to, absent for stages of the whole dialogue", example = "1", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @JsonProperty("character_id") Long characterId,
+
+    @Schema(description = "Details of the stage, such as the turn or the number of tokens", example = "turn 2", requiredMode = Schema.RequiredMode.NOT_REQUIRED)
+    @JsonProperty("detail") String detail
+) {}
@@ -8,5 +8,8 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public record CharacterCompleteEventDto(
     @JsonProperty("character_id") Long characterId,
     @JsonProperty("token_count") int tokenCount,
+    @JsonProperty("model") String model,
+    @JsonProperty("fallback_used") boolean fallbackUsed,
+    @JsonProperty("ttft_ms") Long ttftMs,
     @JsonProperty("id") String id
 ) {} 
\ No newline at end of file
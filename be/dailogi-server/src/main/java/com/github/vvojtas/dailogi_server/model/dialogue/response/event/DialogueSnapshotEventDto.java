@@ -0,0 +1,15 @@
+package com.github.vvojtas.dailogi_server.model.dialogue.response.event;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Event DTO sent to a spectator joining a dialogue stream: the messages completed so far, followed
+ * in the stream by the events of the turn in progress. Also sent to a spectator that missed tokens
+ * of a message, with just that message.
+ */
+public record DialogueSnapshotEventDto(
+    @JsonProperty("messages") List<SnapshotMessageDto> messages,
+    @JsonProperty("id") String id
+) {}
@@ -11,5 +11,6 @@ import java.util.List;
 public record DialogueStartEventDto(
     @JsonProperty("dialogue_id") Long dialogueId,
     @JsonProperty("character_configs") List<CharacterConfigDTO> characterConfigs,
-    @JsonProperty("turn_count") int turnCount
+    @JsonProperty("turn_count") int turnCount,
+    @JsonProperty("id") String id
 ) {} 
\ No newline at end of file
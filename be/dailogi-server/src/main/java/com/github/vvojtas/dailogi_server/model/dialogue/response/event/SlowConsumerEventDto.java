@@ -0,0 +1,11 @@
+package com.github.vvojtas.dailogi_server.model.dialogue.response.event;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Event DTO sent before closing the stream of a spectator that could not keep up with the dialogue.
+ * The spectator can reconnect with {@code last_event_id} as its Last-Event-ID to resume.
+ */
+public record SlowConsumerEventDto(
+    @JsonProperty("last_event_id") String lastEventId
+) {}
@@ -0,0 +1,12 @@
+package com.github.vvojtas.dailogi_server.model.dialogue.response.event;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A completed message of a dialogue, as included in a snapshot event
+ */
+public record SnapshotMessageDto(
+    @JsonProperty("character_id") Long characterId,
+    @JsonProperty("content") String content,
+    @JsonProperty("id") String id
+) {}
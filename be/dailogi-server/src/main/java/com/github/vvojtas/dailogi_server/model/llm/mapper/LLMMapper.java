@@ -13,7 +13,9 @@ public class LLMMapper {
         return new LLMDTO(
             llm.getId(),
             llm.getName(),
-            llm.getOpenrouterIdentifier()
+            llm.getOpenrouterIdentifier(),
+            llm.getTtftBudgetMs(),
+            llm.getFallbackOpenrouterIdentifier()
         );
     }
 
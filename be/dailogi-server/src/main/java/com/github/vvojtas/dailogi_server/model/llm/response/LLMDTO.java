@@ -15,5 +15,18 @@ public record LLMDTO(
     @JsonProperty("name") String name,
 
     @Schema(description = "Identifier used by OpenRouter for this LLM", example = "openai/gpt-4", requiredMode = Schema.RequiredMode.REQUIRED)
-    @JsonProperty("openrouter_identifier") String openrouterIdentifier
-) {} 
+    @JsonProperty("openrouter_identifier") String openrouterIdentifier,
+
+    @Schema(description = "Milliseconds to wait for the first token before also asking the fallback model, null if not hedged", example = "8000")
+    @JsonProperty("ttft_budget_ms") Integer ttftBudgetMs,
+
+    @Schema(description = "OpenRouter identifier of the fallback model, null if not hedged", example = "openai/gpt-4.1")
+    @JsonProperty("fallback_openrouter_identifier") String fallbackOpenrouterIdentifier
+) {
+    /**
+     * Creates a DTO of an LLM without a fallback model
+     */
+    public LLMDTO(Long id, String name, String openrouterIdentifier) {
+        this(id, name, openrouterIdentifier, null, null);
+    }
+} 
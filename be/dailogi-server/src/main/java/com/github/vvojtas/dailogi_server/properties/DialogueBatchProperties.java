@@ -0,0 +1,43 @@
+package com.github.vvojtas.dailogi_server.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for batch dialogue generation
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "dailogi.dialogue.batch")
+@Validated
+public class DialogueBatchProperties {
+
+    /**
+     * Number of batch dialogues generated at the same time, across all jobs
+     */
+    @Min(1)
+    private int parallelism = 4;
+
+    /**
+     * Maximum number of dialogues in a single job
+     */
+    @Min(1)
+    private int maxItemsPerJob = 500;
+
+    /**
+     * How long finished jobs are kept for status queries
+     */
+    @NotNull
+    private Duration retention = Duration.ofHours(24);
+
+    /**
+     * Thread name prefix for batch generation threads
+     */
+    private String threadNamePrefix = "DialogueBatch-";
+}
@@ -0,0 +1,51 @@
+package com.github.vvojtas.dailogi_server.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Configuration properties for the dialogue execution engine
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "dailogi.dialogue.execution")
+@Validated
+public class DialogueExecutionProperties {
+
+    /**
+     * Run each dialogue on its own virtual thread instead of a platform thread
+     */
+    private boolean virtualThreads = true;
+
+    /**
+     * Maximum number of dialogues generated at the same time
+     */
+    @Min(1)
+    private int maxConcurrentDialogues = 1000;
+
+    /**
+     * Maximum number of dialogues a regular user can have generating at the same time
+     */
+    @Min(1)
+    private int maxConcurrentDialoguesPerUser = 2;
+
+    /**
+     * Maximum number of dialogues a user can have waiting for a generation slot
+     */
+    @Min(0)
+    private int maxQueuedDialoguesPerUser = 10;
+
+    /**
+     * Weight of special users: multiplies both their round-robin share and their concurrency cap
+     */
+    @Min(1)
+    private int specialUserWeight = 2;
+
+    /**
+     * Thread name prefix for dialogue generation threads
+     */
+    private String threadNamePrefix = "DialogExecutor-";
+}
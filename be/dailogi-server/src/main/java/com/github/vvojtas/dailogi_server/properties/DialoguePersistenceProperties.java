@@ -0,0 +1,56 @@
+package com.github.vvojtas.dailogi_server.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the write-behind persistence of generated dialogue messages
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "dailogi.dialogue.persistence")
+@Validated
+public class DialoguePersistenceProperties {
+
+    /**
+     * Maximum number of rows written in a single JDBC batch
+     */
+    @Min(1)
+    private int batchSize = 200;
+
+    /**
+     * Maximum time a pending message waits before its batch is written, even if the batch is not full
+     */
+    @NotNull
+    private Duration flushInterval = Duration.ofMillis(250);
+
+    /**
+     * Maximum number of messages waiting to be written; dialogues wait for room once it is reached
+     */
+    @Min(1)
+    private int queueCapacity = 10000;
+
+    /**
+     * How long a dialogue waits for room in a full queue before its message is dropped
+     */
+    @NotNull
+    private Duration enqueueTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Number of times a failed batch is retried before its rows are written one by one
+     */
+    @Min(0)
+    private int maxRetries = 3;
+
+    /**
+     * Delay between retries of a failed batch
+     */
+    @NotNull
+    private Duration retryDelay = Duration.ofSeconds(1);
+}
@@ -0,0 +1,44 @@
+package com.github.vvojtas.dailogi_server.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the homepage showcase of global dialogues
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "dailogi.dialogue.showcase")
+@Validated
+public class DialogueShowcaseProperties {
+
+    /**
+     * Number of most recently completed global dialogues in the showcase
+     */
+    @Min(1)
+    private int maxDialogues = 12;
+
+    /**
+     * Delay between a dialogue status change and the showcase refresh, so bursts of changes cause one refresh
+     */
+    @NotNull
+    private Duration refreshDelay = Duration.ofSeconds(2);
+
+    /**
+     * Interval of checks for changes made without a status change event, e.g. by another instance
+     */
+    @NotNull
+    private Duration checkInterval = Duration.ofMinutes(5);
+
+    /**
+     * How long clients and proxies may use a showcase response without revalidating it
+     */
+    @NotNull
+    private Duration maxAge = Duration.ofMinutes(1);
+}
@@ -0,0 +1,202 @@
+package com.github.vvojtas.dailogi_server.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Configuration properties for dialogue streaming endpoints
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "dailogi.dialogue.stream")
+@Validated
+public class DialogueStreamProperties {
+
+    /**
+     * Implementation serving {@code POST /api/dialogues/stream}
+     */
+    private Mode mode = Mode.EMITTER;
+
+    /**
+     * Default token coalescing, clients can override it per request
+     */
+    @Valid
+    private TokenCoalescing tokenCoalescing = new TokenCoalescing();
+
+    /**
+     * Buffering of stream events for clients that reconnect with Last-Event-ID
+     */
+    @Valid
+    private Resume resume = new Resume();
+
+    /**
+     * Sharing of dialogue streams between the instances of the server
+     */
+    @Valid
+    private Cluster cluster = new Cluster();
+
+    /**
+     * Delivery of dialogue streams to spectators
+     */
+    @Valid
+    private Spectators spectators = new Spectators();
+
+    public enum Mode {
+        /**
+         * SseEmitter fed by the orchestrator running on the dialogue executor
+         */
+        EMITTER,
+        /**
+         * Flux of server-sent events composed turn by turn, no thread held per dialogue
+         */
+        REACTIVE
+    }
+
+    @Getter
+    @Setter
+    public static class TokenCoalescing {
+
+        /**
+         * Batch token events instead of sending one event per token; off by default because batched
+         * events change the wire format, clients opt in per request
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of tokens in one batched event
+         */
+        @Min(1)
+        private int maxTokens = 16;
+
+        /**
+         * Maximum time a token waits in the batch before being sent
+         */
+        private Duration maxDelay = Duration.ofMillis(50);
+    }
+
+    @Getter
+    @Setter
+    public static class Resume {
+
+        /**
+         * Number of most recent events kept per dialogue for replay
+         */
+        @Min(1)
+        private int bufferSize = 2048;
+
+        /**
+         * How long generation continues while no client is attached to the stream
+         */
+        private Duration gracePeriod = Duration.ofSeconds(60);
+
+        /**
+         * How long the events of a finished dialogue stay available for replay
+         */
+        private Duration retention = Duration.ofMinutes(5);
+
+        /**
+         * Maximum number of dialogue streams kept; the oldest finished ones are evicted first
+         */
+        @Min(1)
+        private int maxSessions = 10000;
+
+        /**
+         * How often expired streams are evicted
+         */
+        private Duration evictionInterval = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Cluster {
+
+        public static final String CHANNEL_PATTERN = "[a-z_][a-z0-9_]*";
+
+        /**
+         * Event bus relaying dialogue streams between instances
+         */
+        private Bus bus = Bus.IN_MEMORY;
+
+        /**
+         * Identifier of this instance on the bus, unique across the cluster
+         */
+        @NotBlank
+        private String nodeId = UUID.randomUUID().toString();
+
+        /**
+         * PostgreSQL notification channel of the postgres bus; lowercase, as {@code pg_notify} takes the
+         * name literally while an unquoted {@code LISTEN} would fold it to lowercase
+         */
+        @NotBlank
+        @Pattern(regexp = CHANNEL_PATTERN)
+        private String channel = "dailogi_dialogue_events";
+
+        /**
+         * Delay before the postgres bus reconnects its listening connection after losing it
+         */
+        private Duration reconnectDelay = Duration.ofSeconds(5);
+
+        /**
+         * Number of messages the postgres bus queues for publishing; token events that do not fit are dropped
+         */
+        @Min(1)
+        private int outboxCapacity = 10000;
+
+        /**
+         * How often the instance generating a dialogue tells the others it is still live, while its stream is quiet
+         */
+        private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+        /**
+         * How long a replica stays live without any message about its dialogue before it is failed
+         */
+        private Duration replicaTimeout = Duration.ofSeconds(60);
+
+        public enum Bus {
+            /**
+             * Streams stay on the instance generating them; for single instance deployments
+             */
+            IN_MEMORY,
+            /**
+             * Streams are relayed to all instances with PostgreSQL LISTEN/NOTIFY
+             */
+            POSTGRES
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class Spectators {
+
+        /**
+         * Number of live events queued per spectator before the slow consumer policy applies
+         */
+        @Min(1)
+        private int bufferSize = 256;
+
+        /**
+         * What happens to a spectator whose queue is full
+         */
+        private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.DISCONNECT;
+
+        public enum SlowConsumerPolicy {
+            /**
+             * Token events that do not fit are skipped; the spectator gets the whole message in a snapshot event once the turn completes
+             */
+            DROP,
+            /**
+             * The queued events are discarded and the stream is closed with a hint to resume from the last event sent
+             */
+            DISCONNECT
+        }
+    }
+}
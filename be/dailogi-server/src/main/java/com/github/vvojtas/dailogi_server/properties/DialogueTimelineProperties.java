@@ -0,0 +1,49 @@
+package com.github.vvojtas.dailogi_server.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the execution timelines recorded per dialogue
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "dailogi.dialogue.timeline")
+@Validated
+public class DialogueTimelineProperties {
+
+    /**
+     * Record a timeline for every dialogue
+     */
+    private boolean enabled = true;
+
+    /**
+     * Entries kept per dialogue; once full, the oldest entries are overwritten
+     */
+    @Min(8)
+    private int capacity = 128;
+
+    /**
+     * How long timelines of finished dialogues are kept
+     */
+    @NotNull
+    private Duration retention = Duration.ofMinutes(15);
+
+    /**
+     * Timelines kept at most; the oldest are evicted above this count, finished ones first
+     */
+    @Min(1)
+    private int maxDialogues = 5000;
+
+    /**
+     * Interval of evicting expired timelines
+     */
+    @NotNull
+    private Duration evictionInterval = Duration.ofMinutes(1);
+}
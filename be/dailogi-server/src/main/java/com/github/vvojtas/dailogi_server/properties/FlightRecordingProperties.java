@@ -0,0 +1,50 @@
+package com.github.vvojtas.dailogi_server.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for Flight Recorder recordings started through the admin API
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "dailogi.diagnostics.recording")
+@Validated
+public class FlightRecordingProperties {
+
+    /**
+     * Whether recordings can be started through the admin API
+     */
+    private boolean enabled = false;
+
+    /**
+     * Recordings held at once, running or stopped; further recordings are rejected until one is deleted
+     */
+    @Min(1)
+    private int maxRecordings = 2;
+
+    /**
+     * Older recording data is discarded, so a forgotten recording cannot fill the disk
+     */
+    @NotNull
+    private Duration maxAge = Duration.ofMinutes(30);
+
+    /**
+     * Recording data kept per recording on disk
+     */
+    @NotNull
+    private DataSize maxSize = DataSize.ofMegabytes(250);
+
+    /**
+     * Longest recording that can be requested; recordings stop by themselves after their duration
+     */
+    @NotNull
+    private Duration maxDuration = Duration.ofHours(1);
+}
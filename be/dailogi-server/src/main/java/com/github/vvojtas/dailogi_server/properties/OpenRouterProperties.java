@@ -5,6 +5,8 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Configuration properties for OpenRouter API integration
@@ -34,4 +36,235 @@ public class OpenRouterProperties {
      */
     private boolean mockEnabled = false;
 
-} 
\ No newline at end of file
+    /**
+     * Latency and length of the streams generated by the mock
+     */
+    private Mock mock = new Mock();
+
+    /**
+     * Time-to-first-token hedging with the fallback models configured on LLMs
+     */
+    private Hedging hedging = new Hedging();
+
+    /**
+     * Client-side request rate limits per API key and per model
+     */
+    private RateLimit rateLimit = new RateLimit();
+
+    /**
+     * Circuit breaker stopping requests to a failing model
+     */
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    /**
+     * Retries of requests rejected by the rate limits or the circuit breaker
+     */
+    private Retry retry = new Retry();
+
+    /**
+     * Recording of real upstream streams for replay in load tests
+     */
+    private Recording recording = new Recording();
+
+    /**
+     * Replay of recorded streams instead of calling the upstream, for load tests
+     */
+    private Replay replay = new Replay();
+
+    @Getter
+    @Setter
+    public static class Hedging {
+
+        /**
+         * Send a request to an LLM's fallback model when the first token does not arrive within the LLM's budget
+         */
+        private boolean enabled = true;
+    }
+
+    @Getter
+    @Setter
+    public static class RateLimit {
+
+        /**
+         * Requests allowed per API key in each period, until the upstream reports its own limit
+         */
+        private int keyRequests = 200;
+
+        /**
+         * Requests allowed per API key and model in each period, until the upstream reports its own limit
+         */
+        private int modelRequests = 200;
+
+        /**
+         * Period in which the request limits refill
+         */
+        private Duration period = Duration.ofSeconds(10);
+
+        /**
+         * Longest time a request is queued waiting for the rate limits before it is rejected
+         */
+        private Duration maxWait = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class CircuitBreaker {
+
+        /**
+         * Consecutive failed requests to a model that open its circuit
+         */
+        private int failureThreshold = 5;
+
+        /**
+         * Time an open circuit rejects requests before a single probe request is let through
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter
+    public static class Retry {
+
+        /**
+         * Retries of a request that was rate limited or rejected before producing any token
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * Delay before the first retry, doubled for each following one
+         */
+        private Duration minBackoff = Duration.ofSeconds(1);
+
+        /**
+         * Upper bound of the delay between retries
+         */
+        private Duration maxBackoff = Duration.ofSeconds(20);
+
+        /**
+         * Random spread of the retry delays, as a fraction of the delay (0-1)
+         */
+        private double jitter = 0.5;
+    }
+
+    @Getter
+    @Setter
+    public static class Recording {
+
+        /**
+         * Save every completed upstream stream - its tokens and their timing - to a file
+         */
+        private boolean enabled = false;
+
+        /**
+         * Directory the recordings are saved to, one subdirectory per model
+         */
+        private String directory = "recordings/openrouter";
+    }
+
+    @Getter
+    @Setter
+    public static class Replay {
+
+        /**
+         * Play recorded streams back instead of calling the upstream; ignored when mock-enabled is set
+         */
+        private boolean enabled = false;
+
+        /**
+         * Directory the recordings are read from
+         */
+        private String directory = "recordings/openrouter";
+
+        /**
+         * Playback speed relative to the recorded timing, e.g. 2 plays twice as fast; 0 sends tokens without delays
+         */
+        private double speed = 1.0;
+
+        /**
+         * Seed of the choice of recordings and of injected failures, so runs can be reproduced
+         */
+        private long seed = 42;
+
+        /**
+         * Fraction of requests answered with 429 Too Many Requests (0-1)
+         */
+        private double rateLimitRate = 0.0;
+
+        /**
+         * Retry-After time sent with injected 429 responses
+         */
+        private Duration retryAfter = Duration.ofSeconds(1);
+
+        /**
+         * Fraction of requests failing with a server error, before or in the middle of the stream (0-1)
+         */
+        private double errorRate = 0.0;
+    }
+
+    @Getter
+    @Setter
+    public static class Mock {
+
+        /**
+         * Resolution of the timer wheel scheduling mock tokens
+         */
+        private Duration tick = Duration.ofMillis(5);
+
+        /**
+         * Threads delivering mock tokens to consumers, 0 for one per processor
+         */
+        private int dispatchThreads = 0;
+
+        /**
+         * Profile of models without a profile of their own
+         */
+        private Profile defaultProfile = new Profile();
+
+        /**
+         * Profiles by model identifier; identifiers with slashes need brackets, e.g. "[openai/gpt-4o]"
+         */
+        private Map<String, Profile> profiles = new HashMap<>();
+
+        /**
+         * @return The profile of the model
+         */
+        public Profile profileOf(String model) {
+            return profiles.getOrDefault(model, defaultProfile);
+        }
+
+        @Getter
+        @Setter
+        public static class Profile {
+
+            /**
+             * Median time to first token; times are log-normally distributed
+             */
+            private Duration ttftMedian = Duration.ofMillis(400);
+
+            /**
+             * 95th percentile of the time to first token
+             */
+            private Duration ttftP95 = Duration.ofMillis(1500);
+
+            /**
+             * Average tokens generated per second after the first token
+             */
+            private double tokensPerSecond = 40;
+
+            /**
+             * Random spread of the delay between tokens, as a fraction of the delay (0-1)
+             */
+            private double tokenJitter = 0.3;
+
+            /**
+             * Fewest tokens in a message
+             */
+            private int minTokens = 30;
+
+            /**
+             * Most tokens in a message
+             */
+            private int maxTokens = 120;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.vvojtas.dailogi_server.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for prompt templates
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "dailogi.prompt.templates")
+@Validated
+public class PromptTemplateProperties {
+
+    /**
+     * Location scanned for {@code *.template} files; each file is registered under its name without extension
+     */
+    @NotBlank
+    private String location = "classpath:templates/";
+
+    /**
+     * Name of the template used for character system prompts
+     */
+    @NotBlank
+    private String defaultTemplate = "openrouter-system";
+
+    /**
+     * How often templates are reloaded from the location, zero disables hot reload
+     */
+    private Duration reloadInterval = Duration.ZERO;
+}
@@ -33,6 +33,9 @@ public class AppUserDetailsService implements UserDetailsService {
         if (appUser.getIsSpecialUser()) {
             authorities.add(new SimpleGrantedAuthority(Role.SPECIAL.getName()));
         }
+        if (Boolean.TRUE.equals(appUser.getIsAdmin())) {
+            authorities.add(new SimpleGrantedAuthority(Role.ADMIN.getName()));
+        }
         
         return new User(
                 appUser.getName(),
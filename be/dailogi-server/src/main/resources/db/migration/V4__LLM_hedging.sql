@@ -0,0 +1,4 @@
+-- Time-to-first-token hedging: when a model produces no token within its budget,
+-- the same prompt is also sent to the fallback model and the first to answer is used
+alter table if exists llm add column ttft_budget_ms integer;
+alter table if exists llm add column fallback_openrouter_identifier varchar(100);
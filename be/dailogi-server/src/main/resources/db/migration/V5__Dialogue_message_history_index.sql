@@ -0,0 +1,2 @@
+-- Continuing a dialogue reads its whole history in turn order with a single index scan
+create index if not exists idx_dialogue_message_history on dialogue_message (dialogue_id, turn_number, id);
@@ -0,0 +1,2 @@
+-- Dialogues may render their system prompts with a named template instead of the default one
+alter table dialogue add column if not exists prompt_template varchar(100);
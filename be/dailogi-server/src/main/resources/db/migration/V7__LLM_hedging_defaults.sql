@@ -0,0 +1,5 @@
+-- Hedge the models whose first token is often slow with a faster seeded model
+update llm set ttft_budget_ms = 8000, fallback_openrouter_identifier = 'openai/gpt-4.1'
+where openrouter_identifier = 'meta-llama/llama-3-70b-instruct';
+update llm set ttft_budget_ms = 8000, fallback_openrouter_identifier = 'mistralai/mistral-medium-3'
+where openrouter_identifier = 'deepseek/deepseek-chat-v3-0324';
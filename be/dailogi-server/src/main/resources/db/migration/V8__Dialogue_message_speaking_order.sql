@@ -0,0 +1,11 @@
+-- Messages keep the position of their speaker within the turn, so the history is read in the order
+-- the characters spoke even when a retried batch stored them out of order.
+-- Existing messages take the order in which they were stored.
+alter table dialogue_message add column if not exists speaking_order integer;
+update dialogue_message m set speaking_order = o.position
+from (select id, row_number() over (partition by dialogue_id, turn_number order by id) as position from dialogue_message) o
+where m.id = o.id;
+alter table dialogue_message alter column speaking_order set not null;
+
+drop index if exists idx_dialogue_message_history;
+create index if not exists idx_dialogue_message_history on dialogue_message (dialogue_id, turn_number, speaking_order, id);
@@ -0,0 +1,3 @@
+-- Administrators may use the diagnostics endpoints; being a special user only raises quotas
+alter table app_user add column if not exists is_admin boolean not null default false;
+update app_user set is_admin = true where name = 'Admin';
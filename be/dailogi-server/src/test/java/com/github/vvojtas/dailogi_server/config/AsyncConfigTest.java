@@ -0,0 +1,56 @@
+package com.github.vvojtas.dailogi_server.config;
+
+import com.github.vvojtas.dailogi_server.properties.DialogueBatchProperties;
+import com.github.vvojtas.dailogi_server.properties.DialogueExecutionProperties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncConfigTest {
+
+    private DialogueExecutionProperties properties;
+    private AsyncConfig asyncConfig;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DialogueExecutionProperties();
+        asyncConfig = new AsyncConfig(properties, new DialogueBatchProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("dialogueExecutor should run tasks on virtual threads with the caller's security context")
+    void dialogueExecutorShouldRunTasksOnVirtualThreadsWithSecurityContext() throws Exception {
+        // Arrange
+        Authentication authentication = new UsernamePasswordAuthenticationToken("user", null, java.util.List.of());
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        SimpleAsyncTaskExecutor executor = asyncConfig.dialogueExecutor();
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+        CompletableFuture<Authentication> seenAuthentication = new CompletableFuture<>();
+
+        // Act
+        executor.execute(() -> {
+            virtual.complete(Thread.currentThread().isVirtual());
+            seenAuthentication.complete(SecurityContextHolder.getContext().getAuthentication());
+        });
+
+        // Assert
+        assertTrue(virtual.get(5, TimeUnit.SECONDS));
+        assertSame(authentication, seenAuthentication.get(5, TimeUnit.SECONDS));
+    }
+}
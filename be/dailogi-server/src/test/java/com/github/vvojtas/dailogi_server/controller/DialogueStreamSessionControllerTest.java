@@ -0,0 +1,98 @@
+package com.github.vvojtas.dailogi_server.controller;
+
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.DialogueStreamService;
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.ReactiveDialogueStreamService;
+import com.github.vvojtas.dailogi_server.service.auth.JwtTokenProvider;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(
+        controllers = {DialogueStreamController.class, ReactiveDialogueStreamController.class, DialogueStreamSessionController.class},
+        properties = "dailogi.dialogue.stream.mode=reactive")
+@ActiveProfiles("test")
+class DialogueStreamSessionControllerTest {
+
+    @TestConfiguration
+    static class TestConfig {
+        @Bean
+        public JwtTokenProvider jwtTokenProvider() {
+            return mock(JwtTokenProvider.class);
+        }
+
+        @Bean
+        public UserDetailsService userDetailsService() {
+            return mock(UserDetailsService.class);
+        }
+
+        @Bean
+        public SecurityFilterChain testSecurityFilterChain(HttpSecurity http) throws Exception {
+            http
+                .csrf(csrf -> csrf.disable())
+                .authorizeHttpRequests(auth -> auth.anyRequest().authenticated())
+                .exceptionHandling(ex -> ex
+                    .authenticationEntryPoint((request, response, authException) ->
+                        response.sendError(HttpServletResponse.SC_UNAUTHORIZED, authException.getMessage()))
+                );
+
+            return http.build();
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private DialogueStreamService dialogueStreamService;
+
+    @MockitoBean
+    private ReactiveDialogueStreamService reactiveDialogueStreamService;
+
+    @Test
+    @DisplayName("Should cancel a dialogue stream in reactive mode")
+    @WithMockUser
+    void shouldCancelStreamInReactiveMode() throws Exception {
+        // Act & Assert
+        mockMvc.perform(delete("/api/dialogues/5/stream"))
+                .andExpect(status().isNoContent());
+        verify(dialogueStreamService).cancelDialogue(5L);
+    }
+
+    @Test
+    @DisplayName("Should resume and spectate dialogue streams in reactive mode")
+    @WithMockUser
+    void shouldResumeAndSpectateInReactiveMode() throws Exception {
+        // Arrange
+        when(dialogueStreamService.resumeDialogue(eq(5L), any())).thenReturn(new SseEmitter());
+        when(dialogueStreamService.spectateDialogue(eq(5L), any())).thenReturn(new SseEmitter());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/dialogues/5/stream").header("Last-Event-ID", "5:3"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/dialogues/5/spectate"))
+                .andExpect(status().isOk());
+        verify(dialogueStreamService).resumeDialogue(5L, "5:3");
+        verify(dialogueStreamService).spectateDialogue(5L, null);
+    }
+}
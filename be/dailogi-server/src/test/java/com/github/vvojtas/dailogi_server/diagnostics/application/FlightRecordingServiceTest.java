@@ -0,0 +1,124 @@
+package com.github.vvojtas.dailogi_server.diagnostics.application;
+
+import com.github.vvojtas.dailogi_server.diagnostics.api.SseWriteEvent;
+import com.github.vvojtas.dailogi_server.exception.RecordingLimitExceededException;
+import com.github.vvojtas.dailogi_server.exception.ResourceNotFoundException;
+import com.github.vvojtas.dailogi_server.properties.FlightRecordingProperties;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlightRecordingServiceTest {
+
+    private FlightRecordingProperties properties;
+    private FlightRecordingService service;
+
+    @BeforeEach
+    void setUp() {
+        properties = new FlightRecordingProperties();
+        service = new FlightRecordingService(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.closeAll();
+    }
+
+    @Test
+    @DisplayName("dump should contain the application events recorded while running")
+    void dumpShouldContainApplicationEvents(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Recording recording = service.start(FlightRecordingService.DEFAULT_SETTINGS, Duration.ofMinutes(1));
+        SseWriteEvent event = new SseWriteEvent();
+        event.begin();
+        event.dialogueId = 42;
+        event.eventName = "token";
+        event.eventId = "7";
+        event.commit();
+        service.stop(recording.getId());
+
+        // Act
+        Path file = tempDir.resolve("dump.jfr");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            service.dump(recording.getId(), out);
+        }
+
+        // Assert
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(recorded -> recorded.getEventType().getName().equals("dailogi.SseWrite"))
+                .toList();
+        assertEquals(1, events.size());
+        assertEquals(42L, events.get(0).getLong("dialogueId"));
+        assertEquals("token", events.get(0).getString("eventName"));
+        assertEquals(RecordingState.STOPPED, recording.getState());
+    }
+
+    @Test
+    @DisplayName("dump should not contain the environment, system properties or JVM arguments")
+    void dumpShouldLeaveOutSensitiveEvents(@TempDir Path tempDir) throws Exception {
+        // Arrange
+        Recording recording = service.start(FlightRecordingService.PROFILE_SETTINGS, Duration.ofMinutes(1));
+        service.stop(recording.getId());
+
+        // Act
+        Path file = tempDir.resolve("dump.jfr");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            service.dump(recording.getId(), out);
+        }
+
+        // Assert
+        assertTrue(RecordingFile.readAllEvents(file).stream()
+                .map(recorded -> recorded.getEventType().getName())
+                .noneMatch(FlightRecordingService.SENSITIVE_EVENTS::contains));
+        FlightRecordingService.SENSITIVE_EVENTS.forEach(name ->
+                assertEquals("false", recording.getSettings().get(name + "#enabled")));
+    }
+
+    @Test
+    @DisplayName("start should cap the duration and reject recordings above the limit")
+    void startShouldCapDurationAndRejectAboveLimit() {
+        // Arrange
+        properties.setMaxRecordings(1);
+        properties.setMaxDuration(Duration.ofMinutes(5));
+
+        // Act
+        Recording recording = service.start(FlightRecordingService.PROFILE_SETTINGS, Duration.ofHours(2));
+
+        // Assert
+        assertEquals(Duration.ofMinutes(5), recording.getDuration());
+        assertEquals(RecordingState.RUNNING, recording.getState());
+        assertThrows(RecordingLimitExceededException.class,
+                () -> service.start(FlightRecordingService.DEFAULT_SETTINGS, null));
+    }
+
+    @Test
+    @DisplayName("delete should close the recording and free its slot")
+    void deleteShouldCloseRecordingAndFreeSlot() {
+        // Arrange
+        properties.setMaxRecordings(1);
+        Recording recording = service.start(FlightRecordingService.DEFAULT_SETTINGS, null);
+
+        // Act
+        service.delete(recording.getId());
+
+        // Assert
+        assertEquals(RecordingState.CLOSED, recording.getState());
+        assertTrue(service.getRecordings().isEmpty());
+        assertThrows(ResourceNotFoundException.class, () -> service.getRecording(recording.getId()));
+        assertDoesNotThrow(() -> service.start(FlightRecordingService.DEFAULT_SETTINGS, null));
+    }
+}
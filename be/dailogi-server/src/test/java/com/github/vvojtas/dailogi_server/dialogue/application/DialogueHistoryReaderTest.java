@@ -0,0 +1,118 @@
+package com.github.vvojtas.dailogi_server.dialogue.application;
+
+import com.github.vvojtas.dailogi_server.db.entity.AppUser;
+import com.github.vvojtas.dailogi_server.db.entity.Character;
+import com.github.vvojtas.dailogi_server.db.entity.Dialogue;
+import com.github.vvojtas.dailogi_server.db.entity.DialogueMessage;
+import com.github.vvojtas.dailogi_server.db.entity.DialogueStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(DialogueHistoryReader.class)
+class DialogueHistoryReaderTest {
+
+    @Autowired
+    private DialogueHistoryReader historyReader;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private Dialogue dialogue;
+    private Character alice;
+    private Character bob;
+
+    @BeforeEach
+    void setUp() {
+        AppUser user = AppUser.builder()
+                .name("historyUser")
+                .passwordHash("hashedPassword")
+                .build();
+        entityManager.persist(user);
+
+        alice = character("Alice", user);
+        bob = character("Bob", user);
+
+        dialogue = Dialogue.builder()
+                .user(user)
+                .name("History")
+                .sceneDescription("A scene")
+                .isGlobal(false)
+                .status(DialogueStatus.COMPLETED)
+                .build();
+        entityManager.persist(dialogue);
+    }
+
+    @Test
+    @DisplayName("read should pass messages ordered by turn and then by the order the characters spoke")
+    void readShouldStreamMessagesInSpeakingOrder() {
+        // Arrange - written out of order, as a retried batch could
+        message(bob, 1, 2, "Hi Alice");
+        message(alice, 2, 1, "How are you?");
+        message(bob, 2, 2, "Fine");
+        entityManager.flush();
+        // Alice spoke first in turn 1, but her message was stored last
+        message(alice, 1, 1, "Hi Bob");
+        entityManager.flush();
+        entityManager.clear();
+        List<String> read = new ArrayList<>();
+
+        // Act
+        int lastTurn = historyReader.read(dialogue.getId(),
+                (characterId, turnNumber, content) -> read.add(turnNumber + ":" + characterId + ":" + content));
+
+        // Assert
+        assertEquals(2, lastTurn);
+        assertEquals(List.of(
+                "1:" + alice.getId() + ":Hi Bob",
+                "1:" + bob.getId() + ":Hi Alice",
+                "2:" + alice.getId() + ":How are you?",
+                "2:" + bob.getId() + ":Fine"), read);
+    }
+
+    @Test
+    @DisplayName("read should return 0 for a dialogue without messages")
+    void readShouldReturnZeroForEmptyDialogue() {
+        // Act
+        int lastTurn = historyReader.read(dialogue.getId(), (characterId, turnNumber, content) -> fail("No messages expected"));
+
+        // Assert
+        assertEquals(0, lastTurn);
+    }
+
+    private Character character(String name, AppUser user) {
+        Character character = Character.builder()
+                .name(name)
+                .description("Description for " + name)
+                .shortDescription("Short desc for " + name)
+                .user(user)
+                .isGlobal(false)
+                .build();
+        entityManager.persist(character);
+        return character;
+    }
+
+    private void message(Character character, int turnNumber, int speakingOrder, String content) {
+        entityManager.persist(DialogueMessage.builder()
+                .dialogue(dialogue)
+                .character(character)
+                .turnNumber(turnNumber)
+                .speakingOrder(speakingOrder)
+                .content(content)
+                .build());
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.vvojtas.dailogi_server.dialogue.application;
+
+import com.github.vvojtas.dailogi_server.db.entity.DialogueStatus;
+import com.github.vvojtas.dailogi_server.dialogue.api.DialogueStatusChangedEvent;
+import com.github.vvojtas.dailogi_server.properties.DialoguePersistenceProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DialogueMessageWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DialoguePersistenceProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DialoguePersistenceProperties();
+        properties.setRetryDelay(Duration.ZERO);
+    }
+
+    @Test
+    @DisplayName("flush should write messages of several dialogues in one batch before their statuses")
+    @SuppressWarnings("unchecked")
+    void flushShouldBatchMessagesAcrossDialoguesBeforeStatuses() {
+        // Arrange
+        DialogueMessageWriter writer = new DialogueMessageWriter(jdbcTemplate, transactionManager, properties, event -> { });
+        writer.append(1L, 10L, 1, 1, "first");
+        writer.append(2L, 20L, 1, 1, "second");
+        writer.append(1L, 11L, 1, 2, "third");
+        writer.markCompleted(1L);
+        writer.markFailed(2L);
+
+        // Act
+        int written = writer.flush();
+
+        // Assert
+        assertEquals(5, written);
+        assertEquals(0, writer.getPendingCount());
+        ArgumentCaptor<Collection<Object>> messages = ArgumentCaptor.forClass(Collection.class);
+        ArgumentCaptor<Collection<Object>> statuses = ArgumentCaptor.forClass(Collection.class);
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).batchUpdate(eq(DialogueMessageWriter.INSERT_MESSAGE_SQL), messages.capture(), eq(3),
+                any(ParameterizedPreparedStatementSetter.class));
+        inOrder.verify(jdbcTemplate).batchUpdate(eq(DialogueMessageWriter.UPDATE_STATUS_SQL), statuses.capture(), eq(2),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(3, messages.getValue().size());
+        assertEquals(2, statuses.getValue().size());
+    }
+
+    @Test
+    @DisplayName("append should drop the message when the queue stays full and accept again once flushed")
+    void appendShouldApplyBackpressureWhenQueueIsFull() {
+        // Arrange
+        properties.setQueueCapacity(2);
+        properties.setEnqueueTimeout(Duration.ofMillis(10));
+        DialogueMessageWriter writer = new DialogueMessageWriter(jdbcTemplate, transactionManager, properties, event -> { });
+        assertTrue(writer.append(1L, 10L, 1, 1, "first"));
+        assertTrue(writer.append(1L, 11L, 1, 2, "second"));
+
+        // Act
+        boolean droppedWhileFull = writer.append(1L, 10L, 2, 1, "third");
+        writer.flush();
+        boolean acceptedAfterFlush = writer.append(1L, 10L, 2, 1, "third");
+
+        // Assert
+        assertFalse(droppedWhileFull);
+        assertTrue(acceptedAfterFlush);
+        assertEquals(1, writer.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("flush should retry a failing batch and then write its rows one by one")
+    @SuppressWarnings("unchecked")
+    void flushShouldFallBackToSingleRowsWhenBatchKeepsFailing() {
+        // Arrange
+        properties.setMaxRetries(1);
+        DialogueMessageWriter writer = new DialogueMessageWriter(jdbcTemplate, transactionManager, properties, event -> { });
+        writer.append(1L, 10L, 1, 1, "first");
+        writer.append(2L, 20L, 1, 1, "second");
+        when(jdbcTemplate.batchUpdate(eq(DialogueMessageWriter.INSERT_MESSAGE_SQL), anyCollection(), eq(2),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("database down"));
+
+        // Act
+        writer.flush();
+
+        // Assert
+        verify(jdbcTemplate, times(2)).batchUpdate(eq(DialogueMessageWriter.INSERT_MESSAGE_SQL), anyCollection(), eq(2),
+                any(ParameterizedPreparedStatementSetter.class));
+        verify(jdbcTemplate, times(2)).batchUpdate(eq(DialogueMessageWriter.INSERT_MESSAGE_SQL), anyCollection(), eq(1),
+                any(ParameterizedPreparedStatementSetter.class));
+        verify(jdbcTemplate, never()).batchUpdate(eq(DialogueMessageWriter.UPDATE_STATUS_SQL), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    @DisplayName("markUnfinished should keep a completed dialogue completed and mark any other dialogue as failed")
+    void markUnfinishedShouldRestoreCompletedStatus() {
+        // Arrange
+        List<Object> events = new ArrayList<>();
+        DialogueMessageWriter writer = new DialogueMessageWriter(jdbcTemplate, transactionManager, properties, events::add);
+        writer.markUnfinished(1L, DialogueStatus.COMPLETED);
+        writer.markUnfinished(2L, DialogueStatus.IN_PROGRESS);
+        writer.markUnfinished(3L, null);
+
+        // Act
+        writer.flush();
+
+        // Assert
+        assertEquals(List.of(
+                new DialogueStatusChangedEvent(1L, DialogueStatus.COMPLETED),
+                new DialogueStatusChangedEvent(2L, DialogueStatus.FAILED),
+                new DialogueStatusChangedEvent(3L, DialogueStatus.FAILED)), events);
+    }
+}
@@ -0,0 +1,170 @@
+package com.github.vvojtas.dailogi_server.dialogue.batch.application;
+
+import com.github.vvojtas.dailogi_server.apikey.application.ApiKeyQueryService;
+import com.github.vvojtas.dailogi_server.db.entity.AppUser;
+import com.github.vvojtas.dailogi_server.dialogue.api.CreateDialogueCommand;
+import com.github.vvojtas.dailogi_server.dialogue.application.DialogueCommandService;
+import com.github.vvojtas.dailogi_server.dialogue.batch.api.BatchItemStatus;
+import com.github.vvojtas.dailogi_server.dialogue.batch.api.BatchJobStatus;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueEventHandler;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.StreamDialogueCommand;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.DialogueCompleteEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.TokenEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.DialogueGenerationOrchestrator;
+import com.github.vvojtas.dailogi_server.exception.DialogueBatchTooLargeException;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueDTO;
+import com.github.vvojtas.dailogi_server.properties.DialogueBatchProperties;
+import com.github.vvojtas.dailogi_server.service.auth.CurrentUserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DialogueBatchServiceTest {
+
+    @Mock
+    private DialogueGenerationOrchestrator orchestrator;
+    @Mock
+    private DialogueCommandService dialogueCommandService;
+    @Mock
+    private ApiKeyQueryService apiKeyQueryService;
+    @Mock
+    private CurrentUserService currentUserService;
+    @Mock
+    private TaskScheduler scheduler;
+
+    private final List<Runnable> submittedToExecutor = new ArrayList<>();
+    private DialogueBatchProperties properties;
+    private DialogueBatchService batchService;
+    private AppUser user;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DialogueBatchProperties();
+        properties.setMaxItemsPerJob(3);
+        batchService = new DialogueBatchService(orchestrator, dialogueCommandService, apiKeyQueryService,
+                currentUserService, properties, submittedToExecutor::add, scheduler);
+        user = AppUser.builder().id(7L).name("seeder").isSpecialUser(true).build();
+        when(currentUserService.getCurrentAppUser()).thenReturn(user);
+    }
+
+    private static StreamDialogueCommand command(Integer length) {
+        return new StreamDialogueCommand("Batch", "A scene", List.of(), length, null, null);
+    }
+
+    private void runAll() {
+        submittedToExecutor.forEach(Runnable::run);
+        submittedToExecutor.clear();
+    }
+
+    @Test
+    @DisplayName("submit should reject users who are not special users")
+    void submitShouldRejectRegularUsers() {
+        // Arrange
+        user.setIsSpecialUser(false);
+
+        // Act & Assert
+        assertThrows(AccessDeniedException.class, () -> batchService.submit(List.of(command(null)), true));
+        assertTrue(submittedToExecutor.isEmpty());
+    }
+
+    @Test
+    @DisplayName("submit should reject jobs with more dialogues than allowed")
+    void submitShouldRejectTooLargeJobs() {
+        // Arrange
+        List<StreamDialogueCommand> commands = List.of(command(null), command(null), command(null), command(null));
+
+        // Act & Assert
+        assertThrows(DialogueBatchTooLargeException.class, () -> batchService.submit(commands, false));
+        verifyNoInteractions(apiKeyQueryService);
+    }
+
+    @Test
+    @DisplayName("submitted dialogues should be created, generated with their length and counted")
+    void submittedDialoguesShouldBeGeneratedAndCounted() {
+        // Arrange
+        when(apiKeyQueryService.getDecryptedApiKey()).thenReturn("key");
+        when(dialogueCommandService.createDialogue(any(CreateDialogueCommand.class))).thenReturn(
+                new DialogueDTO(100L, "Batch", "A scene", "IN_PROGRESS", null, null, List.of(), List.of(), null),
+                new DialogueDTO(101L, "Batch", "A scene", "IN_PROGRESS", null, null, List.of(), List.of(), null));
+        doAnswer(invocation -> {
+            DialogueEventHandler handler = invocation.getArgument(3);
+            handler.onToken(new TokenEventDto(null, "Hi", "1"));
+            handler.onToken(new TokenEventDto(null, "!", "2"));
+            handler.onDialogueComplete(new DialogueCompleteEventDto("completed", invocation.getArgument(1), "3"));
+            return null;
+        }).when(orchestrator).generateDialogue(any(), anyInt(), anyString(), any(), any(), any());
+
+        // Act
+        DialogueBatchJob job = batchService.submit(List.of(command(8), command(null)), true);
+        assertEquals(BatchJobStatus.QUEUED, job.getStatus());
+        runAll();
+
+        // Assert
+        assertEquals(BatchJobStatus.COMPLETED, job.getStatus());
+        assertEquals(2, job.count(BatchItemStatus.COMPLETED));
+        assertEquals(4, job.getGeneratedTokens());
+        assertEquals(2, job.getItems().get(0).getGeneratedTokens());
+        assertEquals(101L, job.getItems().get(1).getDialogueId());
+        verify(orchestrator).generateDialogue(any(), eq(8), eq("key"), any(), any(), any());
+        verify(orchestrator).generateDialogue(any(), eq(5), eq("key"), any(), any(), any());
+        verify(dialogueCommandService, times(2)).createDialogue(argThat(CreateDialogueCommand::isGlobal));
+        assertEquals(0, batchService.getRunningCount());
+    }
+
+    @Test
+    @DisplayName("cancelJob should finish queued dialogues without generating them")
+    void cancelJobShouldSkipQueuedDialogues() {
+        // Arrange
+        when(apiKeyQueryService.getDecryptedApiKey()).thenReturn("key");
+        DialogueBatchJob job = batchService.submit(List.of(command(null), command(null)), false);
+
+        // Act
+        batchService.cancelJob(job.getId());
+        runAll();
+
+        // Assert
+        assertEquals(BatchJobStatus.CANCELLED, job.getStatus());
+        assertEquals(2, job.count(BatchItemStatus.CANCELLED));
+        verifyNoInteractions(dialogueCommandService, orchestrator);
+    }
+
+    @Test
+    @DisplayName("a dialogue that ends without completing should be marked as failed with its error")
+    void dialogueEndingWithErrorShouldFail() {
+        // Arrange
+        when(apiKeyQueryService.getDecryptedApiKey()).thenReturn("key");
+        when(dialogueCommandService.createDialogue(any(CreateDialogueCommand.class))).thenReturn(
+                new DialogueDTO(100L, "Batch", "A scene", "IN_PROGRESS", null, null, List.of(), List.of(), null));
+        doAnswer(invocation -> {
+            DialogueEventHandler handler = invocation.getArgument(3);
+            handler.onError(100L, new IllegalStateException("Upstream failed"));
+            return null;
+        }).when(orchestrator).generateDialogue(any(), anyInt(), anyString(), any(), any(), any());
+
+        // Act
+        DialogueBatchJob job = batchService.submit(List.of(command(null)), false);
+        runAll();
+
+        // Assert
+        DialogueBatchItem item = job.getItems().get(0);
+        assertEquals(BatchItemStatus.FAILED, item.getStatus());
+        assertEquals("Upstream failed", item.getError());
+        assertEquals(BatchJobStatus.COMPLETED, job.getStatus());
+    }
+}
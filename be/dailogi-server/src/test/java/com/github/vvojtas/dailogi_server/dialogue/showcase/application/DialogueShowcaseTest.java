@@ -0,0 +1,119 @@
+package com.github.vvojtas.dailogi_server.dialogue.showcase.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.vvojtas.dailogi_server.db.entity.DialogueStatus;
+import com.github.vvojtas.dailogi_server.dialogue.api.DialogueStatusChangedEvent;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueMessageDTO;
+import com.github.vvojtas.dailogi_server.properties.DialogueShowcaseProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DialogueShowcaseTest {
+
+    private static final ShowcaseVersion VERSION = new ShowcaseVersion(1, OffsetDateTime.parse("2024-01-01T10:00:00Z"));
+
+    @Mock
+    private ShowcaseLoader loader;
+    @Mock
+    private TaskScheduler scheduler;
+
+    private DialogueShowcase showcase;
+
+    @BeforeEach
+    void setUp() {
+        showcase = new DialogueShowcase(loader, new ObjectMapper().findAndRegisterModules(),
+                new DialogueShowcaseProperties(), scheduler);
+    }
+
+    private static DialogueDTO dialogue(long id) {
+        return new DialogueDTO(id, "Example", "A scene", "COMPLETED", null, null, List.of(),
+                List.of(new DialogueMessageDTO(1L, 1, 5L, "Hello")), null);
+    }
+
+    @Test
+    @DisplayName("refreshIfChanged should serve the loaded dialogues pre-serialized and compressed")
+    void refreshShouldBuildCompressedSnapshot() throws IOException {
+        // Arrange
+        when(loader.readVersion()).thenReturn(VERSION);
+        when(loader.load(anyInt())).thenReturn(List.of(dialogue(3L)));
+        String emptyEtag = showcase.getGallery().etag();
+
+        // Act
+        showcase.refreshIfChanged();
+
+        // Assert
+        ShowcaseResource gallery = showcase.getGallery();
+        assertNotEquals(emptyEtag, gallery.etag());
+        assertTrue(new String(gallery.json()).contains("\"content\":\"Hello\""));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gallery.gzip()))) {
+            assertArrayEquals(gallery.json(), in.readAllBytes());
+        }
+        assertTrue(showcase.findDialogue(3L).isPresent());
+        assertTrue(showcase.findDialogue(4L).isEmpty());
+        assertTrue(gallery.matches("W/" + gallery.gzipEtag()));
+        assertFalse(gallery.matches(emptyEtag));
+    }
+
+    @Test
+    @DisplayName("refreshIfChanged should not reload while the version of the global dialogues is unchanged")
+    void refreshShouldSkipUnchangedVersion() {
+        // Arrange
+        when(loader.readVersion()).thenReturn(VERSION);
+        when(loader.load(anyInt())).thenReturn(List.of(dialogue(3L)));
+        showcase.refreshIfChanged();
+        ShowcaseResource gallery = showcase.getGallery();
+
+        // Act
+        showcase.refreshIfChanged();
+
+        // Assert
+        verify(loader, times(1)).load(anyInt());
+        assertSame(gallery, showcase.getGallery());
+    }
+
+    @Test
+    @DisplayName("refreshIfChanged should keep the current snapshot when loading fails")
+    void refreshShouldKeepSnapshotOnFailure() {
+        // Arrange
+        when(loader.readVersion()).thenReturn(VERSION);
+        when(loader.load(anyInt())).thenThrow(new IllegalStateException("Database down"));
+        ShowcaseResource gallery = showcase.getGallery();
+
+        // Act
+        showcase.refreshIfChanged();
+
+        // Assert
+        assertSame(gallery, showcase.getGallery());
+    }
+
+    @Test
+    @DisplayName("status changes should schedule one refresh per burst, ignoring unrelated failures")
+    void statusChangesShouldScheduleOneRefresh() {
+        // Act
+        showcase.onDialogueStatusChanged(new DialogueStatusChangedEvent(9L, DialogueStatus.FAILED));
+        showcase.onDialogueStatusChanged(new DialogueStatusChangedEvent(10L, DialogueStatus.COMPLETED));
+        showcase.onDialogueStatusChanged(new DialogueStatusChangedEvent(11L, DialogueStatus.COMPLETED));
+
+        // Assert
+        verify(scheduler, times(1)).schedule(any(Runnable.class), any(Instant.class));
+    }
+}
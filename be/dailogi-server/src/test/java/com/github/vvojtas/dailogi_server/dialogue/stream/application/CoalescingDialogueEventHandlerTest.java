@@ -0,0 +1,112 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueEventHandler;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.CharacterCompleteEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.TokenEventDto;
+import com.github.vvojtas.dailogi_server.model.dialogue.request.CharacterConfigDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CoalescingDialogueEventHandlerTest {
+
+    private static final CharacterConfigDTO FIRST = new CharacterConfigDTO(1L, 1L);
+    private static final CharacterConfigDTO SECOND = new CharacterConfigDTO(2L, 1L);
+
+    @Mock
+    private DialogueEventHandler delegate;
+
+    @Mock
+    private TaskScheduler scheduler;
+
+    @Mock
+    private ScheduledFuture<Object> scheduledFuture;
+
+    private CoalescingDialogueEventHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        lenient().doReturn(scheduledFuture).when(scheduler).schedule(any(Runnable.class), any(Instant.class));
+        handler = new CoalescingDialogueEventHandler(10L, delegate, scheduler, 3, Duration.ofMillis(50));
+    }
+
+    private TokenEventDto token(CharacterConfigDTO config, String text, String id) {
+        return new TokenEventDto(config, text, id);
+    }
+
+    @Test
+    @DisplayName("onToken should send one batched event once max tokens are buffered")
+    void onTokenShouldSendBatchWhenMaxTokensBuffered() {
+        // Act
+        handler.onToken(token(FIRST, "a", "1"));
+        handler.onToken(token(FIRST, "b", "2"));
+        handler.onToken(token(FIRST, "c", "3"));
+
+        // Assert
+        ArgumentCaptor<TokenEventDto> captor = ArgumentCaptor.forClass(TokenEventDto.class);
+        verify(delegate).onToken(captor.capture());
+        assertEquals("abc", captor.getValue().token());
+        assertEquals("3", captor.getValue().id());
+        verify(scheduledFuture).cancel(false);
+    }
+
+    @Test
+    @DisplayName("timer should flush tokens buffered for longer than max delay")
+    void timerShouldFlushBufferedTokens() {
+        // Arrange
+        ArgumentCaptor<Runnable> timer = ArgumentCaptor.forClass(Runnable.class);
+        handler.onToken(token(FIRST, "a", "1"));
+        verify(scheduler).schedule(timer.capture(), any(Instant.class));
+        verifyNoInteractions(delegate);
+
+        // Act
+        timer.getValue().run();
+
+        // Assert
+        verify(delegate).onToken(token(FIRST, "a", "1"));
+    }
+
+    @Test
+    @DisplayName("buffered tokens should be sent before character boundary events")
+    void bufferedTokensShouldBeSentBeforeCharacterBoundary() {
+        // Arrange
+        CharacterCompleteEventDto complete = new CharacterCompleteEventDto(1L, 2, "ab", "test/model", false, null, "c1");
+
+        // Act
+        handler.onToken(token(FIRST, "a", "1"));
+        handler.onToken(token(FIRST, "b", "2"));
+        handler.onCharacterComplete(complete);
+
+        // Assert
+        InOrder inOrder = inOrder(delegate);
+        inOrder.verify(delegate).onToken(token(FIRST, "ab", "2"));
+        inOrder.verify(delegate).onCharacterComplete(complete);
+    }
+
+    @Test
+    @DisplayName("tokens of different characters should never be merged")
+    void tokensOfDifferentCharactersShouldNotBeMerged() {
+        // Act
+        handler.onToken(token(FIRST, "a", "1"));
+        handler.onToken(token(SECOND, "b", "2"));
+
+        // Assert
+        verify(delegate).onToken(token(FIRST, "a", "1"));
+        verify(delegate, never()).onToken(token(SECOND, "b", "2"));
+    }
+}
@@ -0,0 +1,186 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueEventHandler;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.DialogueQueuedEventDto;
+import com.github.vvojtas.dailogi_server.exception.DialogueQueueFullException;
+import com.github.vvojtas.dailogi_server.properties.DialogueExecutionProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DialogueAdmissionSchedulerTest {
+
+    private static final long USER_A = 1L;
+    private static final long USER_B = 2L;
+
+    @Mock
+    private DialogueEventHandler eventHandler;
+
+    private final List<Runnable> submittedToExecutor = new ArrayList<>();
+    private final List<Long> startedDialogues = new ArrayList<>();
+    private DialogueExecutionProperties properties;
+    private DialogueAdmissionScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DialogueExecutionProperties();
+        properties.setMaxConcurrentDialogues(1);
+        properties.setMaxConcurrentDialoguesPerUser(5);
+        scheduler = new DialogueAdmissionScheduler(submittedToExecutor::add, properties);
+    }
+
+    private void submit(long dialogueId, long userId, boolean specialUser) {
+        scheduler.submit(dialogueId, userId, specialUser, eventHandler, new DialogueEventSequence(dialogueId),
+                () -> startedDialogues.add(dialogueId));
+    }
+
+    private void finishNext() {
+        submittedToExecutor.remove(0).run();
+    }
+
+    @Test
+    @DisplayName("submit should start the dialogue immediately when a slot is free")
+    void submitShouldStartImmediatelyWhenSlotFree() {
+        // Act
+        submit(10L, USER_A, false);
+        finishNext();
+
+        // Assert
+        assertEquals(List.of(10L), startedDialogues);
+        verify(eventHandler, never()).onQueued(any());
+        assertEquals(0, scheduler.getRunningCount());
+    }
+
+    @Test
+    @DisplayName("submit should queue the dialogue and send its position when no slot is free")
+    void submitShouldQueueAndSendPositionWhenNoSlotFree() {
+        // Arrange
+        submit(10L, USER_A, false);
+
+        // Act
+        submit(11L, USER_B, false);
+
+        // Assert
+        ArgumentCaptor<DialogueQueuedEventDto> captor = ArgumentCaptor.forClass(DialogueQueuedEventDto.class);
+        verify(eventHandler).onQueued(captor.capture());
+        assertEquals(11L, captor.getValue().dialogueId());
+        assertEquals(1, captor.getValue().position());
+        assertEquals(1, scheduler.getQueuedCount());
+        assertEquals(1, submittedToExecutor.size());
+    }
+
+    @Test
+    @DisplayName("released slots should be handed out round-robin between users")
+    void releasedSlotsShouldBeHandedOutRoundRobin() {
+        // Arrange
+        submit(1L, USER_A, false);
+        submit(2L, USER_A, false);
+        submit(3L, USER_A, false);
+        submit(4L, USER_A, false);
+        submit(5L, USER_B, false);
+
+        // Act
+        while (!submittedToExecutor.isEmpty()) {
+            finishNext();
+        }
+
+        // Assert
+        assertEquals(List.of(1L, 2L, 5L, 3L, 4L), startedDialogues);
+    }
+
+    @Test
+    @DisplayName("special users should get a weighted share of released slots")
+    void specialUsersShouldGetWeightedShare() {
+        // Arrange
+        submit(1L, USER_B, false);
+        submit(2L, USER_A, true);
+        submit(3L, USER_A, true);
+        submit(4L, USER_A, true);
+        submit(5L, USER_B, false);
+        submit(6L, USER_B, false);
+
+        // Act
+        while (!submittedToExecutor.isEmpty()) {
+            finishNext();
+        }
+
+        // Assert
+        assertEquals(List.of(1L, 2L, 3L, 5L, 4L, 6L), startedDialogues);
+    }
+
+    @Test
+    @DisplayName("users at their concurrency cap should not block other users")
+    void usersAtCapShouldNotBlockOthers() {
+        // Arrange
+        properties.setMaxConcurrentDialogues(10);
+        properties.setMaxConcurrentDialoguesPerUser(1);
+
+        // Act
+        submit(1L, USER_A, false);
+        submit(2L, USER_A, false);
+        submit(3L, USER_B, false);
+
+        // Assert
+        assertEquals(2, scheduler.getRunningCount());
+        assertEquals(1, scheduler.getQueuedCount());
+    }
+
+    @Test
+    @DisplayName("cancel should remove a waiting dialogue so it never starts")
+    void cancelShouldRemoveWaitingDialogue() {
+        // Arrange
+        submit(1L, USER_A, false);
+        submit(2L, USER_B, false);
+
+        // Act
+        boolean cancelled = scheduler.cancel(2L);
+        finishNext();
+
+        // Assert
+        assertTrue(cancelled);
+        assertEquals(List.of(1L), startedDialogues);
+        assertTrue(submittedToExecutor.isEmpty());
+        assertFalse(scheduler.cancel(1L));
+    }
+
+    @Test
+    @DisplayName("submit should throw when the user's queue is full")
+    void submitShouldThrowWhenUserQueueFull() {
+        // Arrange
+        properties.setMaxQueuedDialoguesPerUser(1);
+        submit(1L, USER_A, false);
+        submit(2L, USER_A, false);
+
+        // Act & Assert
+        assertThrows(DialogueQueueFullException.class, () -> submit(3L, USER_A, false));
+        assertEquals(1, scheduler.getQueuedCount());
+    }
+
+    @Test
+    @DisplayName("checkCapacity should throw only once the user's queue is full")
+    void checkCapacityShouldThrowWhenUserQueueFull() {
+        // Arrange
+        properties.setMaxQueuedDialoguesPerUser(1);
+        submit(1L, USER_A, false);
+        scheduler.checkCapacity(USER_A);
+        scheduler.checkCapacity(USER_B);
+        submit(2L, USER_A, false);
+
+        // Act & Assert
+        assertThrows(DialogueQueueFullException.class, () -> scheduler.checkCapacity(USER_A));
+        scheduler.checkCapacity(USER_B);
+        assertEquals(1, scheduler.getQueuedCount());
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DialogueCancellationTest {
+
+    @Test
+    @DisplayName("cancel should run registered callbacks once, except removed ones")
+    void cancelShouldRunRegisteredCallbacksOnce() {
+        // Arrange
+        DialogueCancellation cancellation = new DialogueCancellation(1L);
+        List<String> calls = new ArrayList<>();
+        cancellation.onCancel(() -> calls.add("current turn"));
+        cancellation.onCancel(() -> calls.add("finished turn")).remove();
+
+        // Act
+        boolean first = cancellation.cancel();
+        boolean second = cancellation.cancel();
+
+        // Assert
+        assertTrue(first);
+        assertFalse(second);
+        assertTrue(cancellation.isCancelled());
+        assertEquals(List.of("current turn"), calls);
+    }
+
+    @Test
+    @DisplayName("onCancel should run the callback immediately when already cancelled")
+    void onCancelShouldRunImmediatelyWhenAlreadyCancelled() {
+        // Arrange
+        DialogueCancellation cancellation = new DialogueCancellation(1L);
+        cancellation.cancel();
+        List<String> calls = new ArrayList<>();
+
+        // Act
+        cancellation.onCancel(() -> calls.add("late turn"));
+
+        // Assert
+        assertEquals(List.of("late turn"), calls);
+    }
+
+    @Test
+    @DisplayName("generation progress should extrapolate the average turn length to the skipped turns")
+    void generationProgressShouldEstimateRemainingTokens() {
+        // Arrange
+        GenerationProgress progress = new GenerationProgress(4);
+        for (int i = 0; i < 10; i++) {
+            progress.tokenGenerated();
+        }
+        progress.turnCompleted();
+        for (int i = 0; i < 3; i++) {
+            progress.tokenGenerated();
+        }
+
+        // Act
+        long remaining = progress.estimateRemainingTokens();
+
+        // Assert
+        // 3 turns of ~10 tokens left, 3 tokens of the interrupted turn already received
+        assertEquals(27, remaining);
+        assertEquals(13, progress.getGeneratedTokens());
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DialogueEventSequenceTest {
+
+    @Test
+    @DisplayName("next should return monotonic IDs prefixed with the dialogue ID")
+    void nextShouldReturnMonotonicIds() {
+        // Arrange
+        DialogueEventSequence sequence = new DialogueEventSequence(42L);
+
+        // Act
+        String first = sequence.next();
+        String second = sequence.next();
+
+        // Assert
+        assertEquals("42:1", first);
+        assertEquals("42:2", second);
+        assertEquals(2, sequence.current());
+    }
+
+    @Test
+    @DisplayName("continuing should issue IDs after those of an earlier run of the dialogue")
+    void continuingShouldIssueIdsAfterEarlierRun() {
+        // Arrange
+        Instant start = Instant.parse("2025-01-01T00:00:00Z");
+        DialogueEventSequence earlier = DialogueEventSequence.continuing(42L, start);
+        for (int i = 0; i < 300; i++) {
+            earlier.next();
+        }
+        String lastOfEarlier = earlier.next();
+
+        // Act
+        String first = DialogueEventSequence.continuing(42L, start.plusMillis(1)).next();
+
+        // Assert
+        assertTrue(DialogueEventSequence.parseSequence(42L, first) > DialogueEventSequence.parseSequence(42L, lastOfEarlier));
+        assertTrue(DialogueEventSequence.parseSequence(42L, first) > 300);
+    }
+
+    @Test
+    @DisplayName("parseSequence should extract the sequence of an ID from the same dialogue")
+    void parseSequenceShouldExtractSequence() {
+        // Act & Assert
+        assertEquals(17, DialogueEventSequence.parseSequence(42L, "42:17"));
+        assertEquals(-1, DialogueEventSequence.parseSequence(42L, "43:17"));
+        assertEquals(-1, DialogueEventSequence.parseSequence(42L, "42:"));
+        assertEquals(-1, DialogueEventSequence.parseSequence(42L, "not-an-id"));
+        assertEquals(-1, DialogueEventSequence.parseSequence(42L, null));
+    }
+}
@@ -0,0 +1,146 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import com.github.vvojtas.dailogi_server.db.entity.DialogueStatus;
+import com.github.vvojtas.dailogi_server.dialogue.application.DialogueHistoryReader;
+import com.github.vvojtas.dailogi_server.dialogue.application.DialogueMessageWriter;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueEventHandler;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.CharacterCompleteEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.event.CharacterStartEventDto;
+import com.github.vvojtas.dailogi_server.dialogue.timeline.application.DialogueTimelineRecorder;
+import com.github.vvojtas.dailogi_server.generation.api.OpenRouterInterface;
+import com.github.vvojtas.dailogi_server.generation.application.HedgedGeneration;
+import com.github.vvojtas.dailogi_server.generation.application.OpenRouterPromptBuilder;
+import com.github.vvojtas.dailogi_server.generation.application.PromptTemplateRegistry;
+import com.github.vvojtas.dailogi_server.model.character.response.CharacterDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueCharacterConfigDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueDTO;
+import com.github.vvojtas.dailogi_server.model.llm.response.LLMDTO;
+import com.github.vvojtas.dailogi_server.properties.DialogueTimelineProperties;
+import com.github.vvojtas.dailogi_server.properties.OpenRouterProperties;
+import com.github.vvojtas.dailogi_server.properties.PromptTemplateProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DialogueGenerationOrchestratorTest {
+
+    @Mock
+    private OpenRouterInterface openRouterInterface;
+
+    @Mock
+    private DialogueMessageWriter messageWriter;
+
+    @Mock
+    private DialogueHistoryReader historyReader;
+
+    @Mock
+    private DialogueEventHandler eventHandler;
+
+    @Mock
+    private TaskScheduler scheduler;
+
+    private DialogueGenerationOrchestrator orchestrator;
+
+    @BeforeEach
+    void setUp() {
+        PromptTemplateRegistry templateRegistry = new PromptTemplateRegistry(new PromptTemplateProperties());
+        templateRegistry.init();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        orchestrator = new DialogueGenerationOrchestrator(
+                new HedgedGeneration(openRouterInterface, new OpenRouterProperties(), meterRegistry),
+                new OpenRouterPromptBuilder(templateRegistry),
+                messageWriter,
+                new DialogueCancellationMetrics(meterRegistry),
+                new DialogueMetrics(meterRegistry),
+                historyReader,
+                new DialogueTimelineRecorder(new DialogueTimelineProperties(), scheduler));
+    }
+
+    @Test
+    @DisplayName("generateDialogue should finish a turn with the fallback model when the primary stays silent past its budget")
+    void generateDialogueShouldUseFallbackForSilentPrimary() {
+        // Arrange
+        LLMDTO hedged = new LLMDTO(1L, "Primary", "primary/model", 20, "fallback/model");
+        LLMDTO plain = new LLMDTO(2L, "Plain", "plain/model");
+        CharacterDTO first = new CharacterDTO(1L, "First", "short", "desc", false, null, false, 1L, null, null);
+        CharacterDTO second = new CharacterDTO(2L, "Second", "short", "desc", false, null, false, 2L, null, null);
+        DialogueDTO dialogue = new DialogueDTO(10L, "Dialogue", "Scene", "IN_PROGRESS", null, null,
+                List.of(new DialogueCharacterConfigDTO(first, hedged), new DialogueCharacterConfigDTO(second, plain)),
+                new ArrayList<>(), null);
+
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+        when(openRouterInterface.streamTokens(eq("primary/model"), any(), anyString()))
+                .thenReturn(Flux.<String>never().doOnCancel(() -> primaryCancelled.set(true)));
+        when(openRouterInterface.streamTokens(eq("fallback/model"), any(), anyString()))
+                .thenReturn(Flux.just("Hel", "lo"));
+        when(openRouterInterface.streamTokens(eq("plain/model"), any(), anyString()))
+                .thenReturn(Flux.just("Hi"));
+
+        // Act
+        orchestrator.generateDialogue(dialogue, 1, "key", eventHandler,
+                new DialogueEventSequence(10L), new DialogueCancellation(10L));
+
+        // Assert
+        ArgumentCaptor<CharacterStartEventDto> starts = ArgumentCaptor.forClass(CharacterStartEventDto.class);
+        ArgumentCaptor<CharacterCompleteEventDto> completes = ArgumentCaptor.forClass(CharacterCompleteEventDto.class);
+        verify(eventHandler, times(2)).onCharacterStart(starts.capture());
+        verify(eventHandler, times(2)).onCharacterComplete(completes.capture());
+
+        assertEquals("fallback/model", starts.getAllValues().get(0).getFallbackModel());
+        assertEquals(20L, starts.getAllValues().get(0).getTtftBudgetMs());
+        assertNull(starts.getAllValues().get(1).getFallbackModel());
+
+        CharacterCompleteEventDto hedgedTurn = completes.getAllValues().get(0);
+        assertEquals("fallback/model", hedgedTurn.model());
+        assertTrue(hedgedTurn.fallbackUsed());
+        assertEquals("Hello", hedgedTurn.messageContent());
+        assertTrue(primaryCancelled.get());
+
+        CharacterCompleteEventDto plainTurn = completes.getAllValues().get(1);
+        assertEquals("plain/model", plainTurn.model());
+        assertFalse(plainTurn.fallbackUsed());
+
+        verify(messageWriter).append(10L, 1L, 1, 1, "Hello");
+        verify(messageWriter).append(10L, 2L, 1, 2, "Hi");
+        verify(messageWriter).markCompleted(10L);
+        verify(eventHandler, never()).onError(anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("continueDialogue should leave a completed dialogue completed when the continuation is cancelled")
+    void continueDialogueShouldRestoreCompletedStatusWhenCancelled() {
+        // Arrange
+        LLMDTO llm = new LLMDTO(1L, "Plain", "plain/model");
+        CharacterDTO first = new CharacterDTO(1L, "First", "short", "desc", false, null, false, 1L, null, null);
+        DialogueDTO dialogue = new DialogueDTO(10L, "Dialogue", "Scene", "COMPLETED", null, null,
+                List.of(new DialogueCharacterConfigDTO(first, llm)), new ArrayList<>(), null);
+        DialogueCancellation cancellation = new DialogueCancellation(10L);
+        cancellation.cancel();
+
+        // Act
+        orchestrator.continueDialogue(dialogue, 2, "key", eventHandler, new DialogueEventSequence(10L), cancellation);
+
+        // Assert
+        verify(messageWriter).markUnfinished(10L, DialogueStatus.COMPLETED);
+        verify(messageWriter, never()).markFailed(anyLong());
+        verify(openRouterInterface, never()).streamTokens(anyString(), any(), anyString());
+    }
+}
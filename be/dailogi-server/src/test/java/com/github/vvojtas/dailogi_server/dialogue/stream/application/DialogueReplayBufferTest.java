@@ -0,0 +1,50 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.DialogueReplayBuffer.BufferedEvent;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DialogueReplayBufferTest {
+
+    private static BufferedEvent event(long sequence) {
+        return new BufferedEvent(sequence, "1:" + sequence, "token", "data" + sequence);
+    }
+
+    @Test
+    @DisplayName("eventsAfter should return events newer than the given sequence in order")
+    void eventsAfterShouldReturnNewerEventsInOrder() {
+        // Arrange
+        DialogueReplayBuffer buffer = new DialogueReplayBuffer(5);
+        for (long i = 1; i <= 4; i++) {
+            buffer.append(event(i));
+        }
+
+        // Act
+        List<BufferedEvent> events = buffer.eventsAfter(2);
+
+        // Assert
+        assertEquals(List.of(event(3), event(4)), events);
+        assertEquals(4, buffer.eventsAfter(0).size());
+    }
+
+    @Test
+    @DisplayName("append should overwrite the oldest events once the buffer is full")
+    void appendShouldOverwriteOldestEventsWhenFull() {
+        // Arrange
+        DialogueReplayBuffer buffer = new DialogueReplayBuffer(3);
+
+        // Act
+        for (long i = 1; i <= 5; i++) {
+            buffer.append(event(i));
+        }
+
+        // Assert
+        assertEquals(3, buffer.size());
+        assertEquals(3, buffer.oldestSequence());
+        assertEquals(List.of(event(3), event(4), event(5)), buffer.eventsAfter(0));
+    }
+}
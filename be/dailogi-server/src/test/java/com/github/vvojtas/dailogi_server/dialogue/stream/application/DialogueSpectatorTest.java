@@ -0,0 +1,306 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.bus.InMemoryDialogueEventBus;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.event.SnapshotMessageDto;
+import com.github.vvojtas.dailogi_server.properties.DialogueStreamProperties;
+import com.github.vvojtas.dailogi_server.properties.DialogueStreamProperties.Spectators.SlowConsumerPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DialogueSpectatorTest {
+
+    private static final long DIALOGUE_ID = 7L;
+    private static final long CHARACTER_ID = 3L;
+
+    @Mock
+    private TaskScheduler scheduler;
+
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final DialogueEventSequence sequence = new DialogueEventSequence(DIALOGUE_ID);
+    private DialogueStreamProperties.Spectators properties;
+
+    @BeforeEach
+    void setUp() {
+        // Drain tasks run when the test says so
+        lenient().doAnswer(invocation -> {
+            tasks.add(invocation.getArgument(0));
+            return null;
+        })
+                .when(scheduler).schedule(any(Runnable.class), any(Instant.class));
+        properties = new DialogueStreamProperties.Spectators();
+    }
+
+    private DialogueStreamSession newSession() {
+        return newSession(0);
+    }
+
+    private DialogueStreamSession newSession(int priorMessages) {
+        DialogueMetrics metrics = new DialogueMetrics(new SimpleMeterRegistry());
+        return new DialogueStreamSession(DIALOGUE_ID, 1L, priorMessages, 100, scheduler, Duration.ofSeconds(60), id -> { },
+                metrics, new InMemoryDialogueEventBus(), "node", false,
+                new DialogueSpectators(new ObjectMapper(), scheduler, metrics, properties));
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.removeFirst().run();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> sentEvents(SseEmitter emitter) throws IOException {
+        ArgumentCaptor<Set<DataWithMediaType>> frames = ArgumentCaptor.forClass(Set.class);
+        verify(emitter, atLeast(0)).send(frames.capture());
+        return frames.getAllValues().stream()
+                .map(frame -> frame.stream().map(data -> data.getData().toString()).collect(Collectors.joining()))
+                .toList();
+    }
+
+    private String publishToken(DialogueStreamSession session, String token) {
+        String id = sequence.next();
+        session.publish("token", id, Map.of("token", token));
+        return id;
+    }
+
+    @Test
+    @DisplayName("live event should be serialized once and written to every spectator")
+    @SuppressWarnings("unchecked")
+    void liveEventShouldBeSerializedOnceForAllSpectators() throws IOException {
+        // Arrange
+        DialogueStreamSession session = newSession();
+        SseEmitter first = mock(SseEmitter.class);
+        SseEmitter second = mock(SseEmitter.class);
+        session.spectate(first, 0, List.of());
+        session.spectate(second, 0, List.of());
+        runTasks();
+
+        // Act
+        publishToken(session, "Hello");
+        runTasks();
+
+        // Assert
+        ArgumentCaptor<Set<DataWithMediaType>> firstFrames = ArgumentCaptor.forClass(Set.class);
+        ArgumentCaptor<Set<DataWithMediaType>> secondFrames = ArgumentCaptor.forClass(Set.class);
+        verify(first, times(2)).send(firstFrames.capture());
+        verify(second, times(2)).send(secondFrames.capture());
+        assertSame(firstFrames.getAllValues().get(1), secondFrames.getAllValues().get(1));
+        assertTrue(sentEvents(first).get(1).contains("\"token\":\"Hello\""));
+        assertEquals(2, session.getSpectatorCount());
+    }
+
+    @Test
+    @DisplayName("late joiner should get a snapshot of completed messages followed by the turn in progress")
+    void lateJoinerShouldGetSnapshotAndLiveTail() throws IOException {
+        // Arrange
+        DialogueStreamSession session = newSession();
+        session.publish("character-start", sequence.next(), Map.of("turn", 1));
+        publishToken(session, "Hi ");
+        publishToken(session, "there");
+        String completeId = sequence.next();
+        session.publish("character-complete", completeId, Map.of("turn", 1));
+        session.recordMessage(new SnapshotMessageDto(CHARACTER_ID, "Hi there", completeId));
+        session.publish("character-start", sequence.next(), Map.of("turn", 2));
+        publishToken(session, "Well");
+        SseEmitter emitter = mock(SseEmitter.class);
+
+        // Act
+        session.spectate(emitter, 0, List.of());
+        runTasks();
+
+        // Assert
+        List<String> events = sentEvents(emitter);
+        assertEquals(3, events.size());
+        assertTrue(events.get(0).contains("event:snapshot"));
+        assertTrue(events.get(0).contains("\"content\":\"Hi there\""));
+        assertTrue(events.get(0).contains("id:" + completeId));
+        assertTrue(events.get(1).contains("event:character-start"));
+        assertTrue(events.get(2).contains("\"token\":\"Well\""));
+        verify(emitter, never()).complete();
+    }
+
+    @Test
+    @DisplayName("spectator reconnecting with a buffered event ID should get the missed events instead of a snapshot")
+    void reconnectingSpectatorShouldGetMissedEvents() throws IOException {
+        // Arrange
+        DialogueStreamSession session = newSession();
+        publishToken(session, "a");
+        publishToken(session, "b");
+        publishToken(session, "c");
+        SseEmitter emitter = mock(SseEmitter.class);
+
+        // Act
+        session.spectate(emitter, 2, List.of());
+        runTasks();
+
+        // Assert
+        List<String> events = sentEvents(emitter);
+        assertEquals(1, events.size());
+        assertTrue(events.getFirst().contains("\"token\":\"c\""));
+    }
+
+    @Test
+    @DisplayName("slow spectator should be disconnected with the ID of the last event it received")
+    void slowSpectatorShouldBeDisconnectedWithResumeHint() throws IOException {
+        // Arrange
+        properties.setBufferSize(2);
+        properties.setSlowConsumerPolicy(SlowConsumerPolicy.DISCONNECT);
+        DialogueStreamSession session = newSession();
+        SseEmitter emitter = mock(SseEmitter.class);
+        session.spectate(emitter, 0, List.of());
+        String lastReceivedId = publishToken(session, "a");
+        runTasks();
+
+        // Act
+        publishToken(session, "b");
+        publishToken(session, "c");
+        publishToken(session, "d");
+        runTasks();
+
+        // Assert
+        List<String> events = sentEvents(emitter);
+        assertTrue(events.getLast().contains("event:slow-consumer"));
+        assertTrue(events.getLast().contains("\"last_event_id\":\"" + lastReceivedId + "\""));
+        assertTrue(events.stream().noneMatch(event -> event.contains("\"token\":\"b\"")));
+        verify(emitter).complete();
+        assertEquals(0, session.getSpectatorCount());
+        assertTrue(session.isLive());
+    }
+
+    @Test
+    @DisplayName("spectator missing tokens under the drop policy should get the completed message in a snapshot")
+    void droppedTokensShouldBeMadeUpWithSnapshot() throws IOException {
+        // Arrange
+        properties.setBufferSize(1);
+        properties.setSlowConsumerPolicy(SlowConsumerPolicy.DROP);
+        DialogueStreamSession session = newSession();
+        SseEmitter emitter = mock(SseEmitter.class);
+        session.spectate(emitter, 0, List.of());
+        runTasks();
+        publishToken(session, "Hi ");
+        publishToken(session, "there");
+        String completeId = sequence.next();
+
+        // Act
+        session.publish("character-complete", completeId, Map.of("turn", 1));
+        session.recordMessage(new SnapshotMessageDto(CHARACTER_ID, "Hi there", completeId));
+        runTasks();
+
+        // Assert
+        List<String> events = sentEvents(emitter);
+        assertEquals(4, events.size());
+        assertTrue(events.get(1).contains("\"token\":\"Hi \""));
+        assertTrue(events.get(2).contains("event:character-complete"));
+        assertTrue(events.get(3).contains("event:snapshot"));
+        assertTrue(events.get(3).contains("\"content\":\"Hi there\""));
+        assertEquals(1, session.getSpectatorCount());
+    }
+
+    @Test
+    @DisplayName("finished dialogue should complete spectator streams after the queued events")
+    void finishShouldCompleteSpectatorsAfterQueuedEvents() throws IOException {
+        // Arrange
+        DialogueStreamSession session = newSession();
+        SseEmitter emitter = mock(SseEmitter.class);
+        session.spectate(emitter, 0, List.of());
+        publishToken(session, "a");
+
+        // Act
+        session.complete();
+        runTasks();
+
+        // Assert
+        assertEquals(2, sentEvents(emitter).size());
+        verify(emitter).complete();
+        assertEquals(0, session.getSpectatorCount());
+    }
+
+    @Test
+    @DisplayName("spectator resuming from the slow consumer hint while tokens keep arriving should catch up and stay connected")
+    void spectatorResumingFromHintShouldCatchUp() throws IOException {
+        // Arrange
+        properties.setBufferSize(2);
+        properties.setSlowConsumerPolicy(SlowConsumerPolicy.DISCONNECT);
+        DialogueStreamSession session = newSession();
+        SseEmitter slow = mock(SseEmitter.class);
+        session.spectate(slow, 0, List.of());
+        String lastReceivedId = publishToken(session, "a");
+        runTasks();
+        for (String token : List.of("b", "c", "d", "e", "f")) {
+            publishToken(session, token);
+        }
+        runTasks();
+        assertTrue(sentEvents(slow).getLast().contains("\"last_event_id\":\"" + lastReceivedId + "\""));
+        SseEmitter resumed = mock(SseEmitter.class);
+        long afterSequence = DialogueEventSequence.parseSequence(DIALOGUE_ID, lastReceivedId);
+
+        // Act
+        session.spectate(resumed, afterSequence, List.of());
+        publishToken(session, "g");
+        runTasks();
+
+        // Assert
+        List<String> events = sentEvents(resumed);
+        assertEquals(6, events.size());
+        assertTrue(events.getFirst().contains("\"token\":\"b\""));
+        assertTrue(events.getLast().contains("\"token\":\"g\""));
+        assertTrue(events.stream().noneMatch(event -> event.contains("event:slow-consumer")));
+        verify(resumed, never()).complete();
+        assertEquals(1, session.getSpectatorCount());
+    }
+
+    @Test
+    @DisplayName("snapshot should start with the persisted messages and end with the messages not persisted yet")
+    void snapshotShouldJoinPersistedAndStreamMessages() throws IOException {
+        // Arrange
+        DialogueStreamSession session = newSession(2);
+        String firstId = sequence.next();
+        session.publish("character-complete", firstId, Map.of("turn", 3));
+        session.recordMessage(new SnapshotMessageDto(CHARACTER_ID, "Third", firstId));
+        String secondId = sequence.next();
+        session.publish("character-complete", secondId, Map.of("turn", 3));
+        session.recordMessage(new SnapshotMessageDto(CHARACTER_ID, "Fourth", secondId));
+        List<SnapshotMessageDto> persisted = List.of(
+                new SnapshotMessageDto(CHARACTER_ID, "First", null),
+                new SnapshotMessageDto(CHARACTER_ID, "Second", null),
+                new SnapshotMessageDto(CHARACTER_ID, "Third", null));
+        SseEmitter emitter = mock(SseEmitter.class);
+
+        // Act
+        session.spectate(emitter, 0, persisted);
+        runTasks();
+
+        // Assert
+        String snapshot = sentEvents(emitter).getFirst();
+        assertTrue(snapshot.contains("event:snapshot"));
+        assertTrue(snapshot.indexOf("First") < snapshot.indexOf("Second"));
+        assertTrue(snapshot.indexOf("Second") < snapshot.indexOf("Third"));
+        assertTrue(snapshot.indexOf("Third") < snapshot.indexOf("Fourth"));
+        assertEquals(1, snapshot.split("\"content\":\"Third\"", -1).length - 1);
+        assertTrue(snapshot.contains("\"id\":\"" + firstId + "\""));
+        assertTrue(snapshot.contains("id:" + secondId));
+    }
+}
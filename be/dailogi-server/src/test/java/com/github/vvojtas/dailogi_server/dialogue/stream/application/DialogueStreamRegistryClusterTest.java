@@ -0,0 +1,219 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.bus.InMemoryDialogueEventBus;
+import com.github.vvojtas.dailogi_server.properties.DialogueStreamProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DialogueStreamRegistryClusterTest {
+
+    private static final long DIALOGUE_ID = 7L;
+    private static final long OWNER_ID = 1L;
+
+    @Mock
+    private TaskScheduler scheduler;
+
+    @Mock
+    private ScheduledFuture<Object> graceTimer;
+
+    private final List<Long> abandoned = new ArrayList<>();
+    private DialogueStreamRegistry generating;
+    private DialogueStreamRegistry other;
+
+    @BeforeEach
+    void setUp() {
+        lenient().doReturn(graceTimer).when(scheduler).schedule(any(Runnable.class), any(Instant.class));
+        InMemoryDialogueEventBus bus = new InMemoryDialogueEventBus();
+        DialogueMetrics metrics = new DialogueMetrics(new SimpleMeterRegistry());
+        generating = new DialogueStreamRegistry(properties("node-a"), scheduler, metrics, bus, new ObjectMapper());
+        other = new DialogueStreamRegistry(properties("node-b"), scheduler, metrics, bus, new ObjectMapper());
+        generating.init();
+        other.init();
+    }
+
+    private static DialogueStreamProperties properties(String nodeId) {
+        DialogueStreamProperties properties = new DialogueStreamProperties();
+        properties.getCluster().setNodeId(nodeId);
+        return properties;
+    }
+
+    @Test
+    @DisplayName("other instance should replicate the stream and replay it to a resuming client")
+    void otherInstanceShouldReplicateStream() throws IOException {
+        // Arrange
+        DialogueStreamSession session = generating.create(DIALOGUE_ID, OWNER_ID, 0, abandoned::add);
+        DialogueEventSequence sequence = new DialogueEventSequence(DIALOGUE_ID);
+        session.publish("token", sequence.next(), "t1");
+        session.publish("token", sequence.next(), "t2");
+        SseEmitter emitter = mock(SseEmitter.class);
+
+        // Act
+        DialogueStreamSession replica = other.find(DIALOGUE_ID).orElseThrow();
+        replica.attach(emitter, 0);
+        session.complete();
+
+        // Assert
+        assertTrue(replica.isReplica());
+        assertEquals(OWNER_ID, replica.getOwnerId());
+        verify(emitter, times(2)).send(any(SseEmitter.SseEventBuilder.class));
+        verify(emitter).complete();
+        assertEquals(DialogueStreamSession.State.COMPLETED, replica.getState());
+    }
+
+    @Test
+    @DisplayName("cancelling through the other instance should cancel the generation")
+    void cancelThroughOtherInstanceShouldCancelGeneration() {
+        // Arrange
+        DialogueStreamSession session = generating.create(DIALOGUE_ID, OWNER_ID, 0, abandoned::add);
+        DialogueStreamSession replica = other.find(DIALOGUE_ID).orElseThrow();
+
+        // Act
+        replica.cancel();
+
+        // Assert
+        assertTrue(session.getCancellation().isCancelled());
+        assertEquals(DialogueStreamSession.State.CANCELLED, session.getState());
+        assertEquals(DialogueStreamSession.State.CANCELLED, replica.getState());
+    }
+
+    @Test
+    @DisplayName("client attached to the other instance should keep the dialogue from being abandoned")
+    void remoteClientShouldPreventAbandon() throws IOException {
+        // Arrange
+        DialogueStreamSession session = generating.create(DIALOGUE_ID, OWNER_ID, 0, abandoned::add);
+        SseEmitter local = mock(SseEmitter.class);
+        session.attach(local, 0);
+        other.find(DIALOGUE_ID).orElseThrow().attach(mock(SseEmitter.class), 0);
+        doThrow(new IOException("Broken pipe")).when(local).send(any(SseEmitter.SseEventBuilder.class));
+
+        // Act
+        session.publish("token", new DialogueEventSequence(DIALOGUE_ID).next(), "t1");
+
+        // Assert
+        verify(scheduler, never()).schedule(any(Runnable.class), any(Instant.class));
+        assertTrue(session.isLive());
+        assertTrue(abandoned.isEmpty());
+    }
+
+    @Test
+    @DisplayName("dialogue should be abandoned once the client of the other instance leaves too")
+    void dialogueShouldBeAbandonedWhenRemoteClientLeaves() throws IOException {
+        // Arrange
+        DialogueStreamSession session = generating.create(DIALOGUE_ID, OWNER_ID, 0, abandoned::add);
+        DialogueStreamSession replica = other.find(DIALOGUE_ID).orElseThrow();
+        SseEmitter remote = mock(SseEmitter.class);
+        replica.attach(remote, 0);
+        doThrow(new IOException("Broken pipe")).when(remote).send(any(SseEmitter.SseEventBuilder.class));
+        session.publish("token", new DialogueEventSequence(DIALOGUE_ID).next(), "t1");
+        ArgumentCaptor<Runnable> timer = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(timer.capture(), any(Instant.class));
+
+        // Act
+        timer.getValue().run();
+
+        // Assert
+        assertEquals(List.of(DIALOGUE_ID), abandoned);
+        assertEquals(DialogueStreamSession.State.ABANDONED, session.getState());
+        assertEquals(DialogueStreamSession.State.ABANDONED, replica.getState());
+    }
+
+    @Test
+    @DisplayName("replica hearing nothing from the generating instance should be failed and later evicted")
+    void staleReplicaShouldBeFailedAndEvicted() throws IOException {
+        // Arrange
+        generating.create(DIALOGUE_ID, OWNER_ID, 0, abandoned::add);
+        DialogueStreamSession replica = other.find(DIALOGUE_ID).orElseThrow();
+        SseEmitter emitter = mock(SseEmitter.class);
+        replica.attach(emitter, 0);
+
+        // Act
+        other.evict(Instant.now().plusSeconds(90));
+        DialogueStreamSession.State stateAfterTimeout = replica.getState();
+        other.evict(Instant.now().plus(Duration.ofMinutes(10)));
+
+        // Assert
+        assertEquals(DialogueStreamSession.State.FAILED, stateAfterTimeout);
+        verify(emitter).completeWithError(any(IllegalStateException.class));
+        assertTrue(other.find(DIALOGUE_ID).isEmpty());
+    }
+
+    @Test
+    @DisplayName("heartbeat of a quiet dialogue should keep its replica live")
+    void heartbeatShouldKeepReplicaLive() throws InterruptedException {
+        // Arrange
+        DialogueStreamProperties properties = properties("node-a");
+        properties.getCluster().setHeartbeatInterval(Duration.ZERO);
+        InMemoryDialogueEventBus bus = new InMemoryDialogueEventBus();
+        DialogueMetrics metrics = new DialogueMetrics(new SimpleMeterRegistry());
+        DialogueStreamRegistry quiet = new DialogueStreamRegistry(properties, scheduler, metrics, bus, new ObjectMapper());
+        DialogueStreamRegistry replicating = new DialogueStreamRegistry(properties("node-b"), scheduler, metrics, bus, new ObjectMapper());
+        quiet.init();
+        replicating.init();
+        quiet.create(DIALOGUE_ID, OWNER_ID, 0, abandoned::add);
+        DialogueStreamSession replica = replicating.find(DIALOGUE_ID).orElseThrow();
+        Instant openedHeard = replica.getLastBusActivity();
+        Thread.sleep(5);
+
+        // Act
+        quiet.heartbeat();
+
+        // Assert
+        assertTrue(replica.getLastBusActivity().isAfter(openedHeard));
+        replicating.evict(openedHeard.plus(Duration.ofSeconds(60)).plusMillis(2));
+        assertTrue(replica.isLive());
+    }
+
+    @Test
+    @DisplayName("replica should rebuild completed messages from token events for the snapshot of its spectators")
+    @SuppressWarnings("unchecked")
+    void replicaShouldRebuildMessagesFromTokens() throws IOException {
+        // Arrange
+        DialogueStreamSession session = generating.create(DIALOGUE_ID, OWNER_ID, 0, abandoned::add);
+        DialogueEventSequence sequence = new DialogueEventSequence(DIALOGUE_ID);
+        session.publish("character-start", sequence.next(), Map.of("turn", 1));
+        session.publish("token", sequence.next(), Map.of("character_id", 3L, "token", "Hi "));
+        session.publish("token", sequence.next(), Map.of("character_id", 3L, "token", "there"));
+        session.publish("character-complete", sequence.next(), Map.of("character_id", 3L));
+        SseEmitter emitter = mock(SseEmitter.class);
+        DialogueStreamSession replica = other.find(DIALOGUE_ID).orElseThrow();
+
+        // Act
+        replica.spectate(emitter, 0, List.of());
+        ArgumentCaptor<Runnable> drain = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(drain.capture(), any(Instant.class));
+        drain.getValue().run();
+
+        // Assert
+        ArgumentCaptor<Set<DataWithMediaType>> frames = ArgumentCaptor.forClass(Set.class);
+        verify(emitter).send(frames.capture());
+        String snapshot = frames.getValue().stream().map(data -> data.getData().toString()).collect(Collectors.joining());
+        assertTrue(snapshot.contains("event:snapshot"));
+        assertTrue(snapshot.contains("\"content\":\"Hi there\""));
+        assertTrue(snapshot.contains("\"character_id\":3"));
+    }
+}
@@ -0,0 +1,190 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.vvojtas.dailogi_server.dialogue.stream.application.bus.InMemoryDialogueEventBus;
+import com.github.vvojtas.dailogi_server.properties.DialogueStreamProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DialogueStreamSessionTest {
+
+    private static final long DIALOGUE_ID = 7L;
+
+    @Mock
+    private TaskScheduler scheduler;
+
+    @Mock
+    private ScheduledFuture<Object> graceTimer;
+
+    private final List<Long> abandoned = new ArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private DialogueStreamSession session;
+
+    @BeforeEach
+    void setUp() {
+        lenient().doReturn(graceTimer).when(scheduler).schedule(any(Runnable.class), any(Instant.class));
+        meterRegistry = new SimpleMeterRegistry();
+        DialogueMetrics metrics = new DialogueMetrics(meterRegistry);
+        session = new DialogueStreamSession(DIALOGUE_ID, 1L, 0, 100, scheduler, Duration.ofSeconds(60), abandoned::add,
+                metrics, new InMemoryDialogueEventBus(), "node", false,
+                new DialogueSpectators(new ObjectMapper(), scheduler, metrics, new DialogueStreamProperties.Spectators()));
+    }
+
+    private void publish(int count) {
+        DialogueEventSequence sequence = new DialogueEventSequence(DIALOGUE_ID);
+        for (int i = 0; i < count; i++) {
+            session.publish("token", sequence.next(), "t" + i);
+        }
+    }
+
+    @Test
+    @DisplayName("attach should replay only events after the given sequence")
+    void attachShouldReplayEventsAfterSequence() throws IOException {
+        // Arrange
+        publish(5);
+        SseEmitter emitter = mock(SseEmitter.class);
+
+        // Act
+        session.attach(emitter, 3);
+
+        // Assert
+        verify(emitter, times(2)).send(any(SseEmitter.SseEventBuilder.class));
+        verify(emitter, never()).complete();
+    }
+
+    @Test
+    @DisplayName("attached client should receive live events")
+    void attachedClientShouldReceiveLiveEvents() throws IOException {
+        // Arrange
+        SseEmitter emitter = mock(SseEmitter.class);
+        session.attach(emitter, 0);
+
+        // Act
+        publish(2);
+
+        // Assert
+        verify(emitter, times(2)).send(any(SseEmitter.SseEventBuilder.class));
+        assertTrue(session.isAttached());
+        assertEquals(2, meterRegistry.timer(DialogueMetrics.SSE_WRITE, "event", "token").count());
+    }
+
+    @Test
+    @DisplayName("failed write should be counted and detach the client")
+    void failedWriteShouldBeCountedAndDetachClient() throws IOException {
+        // Arrange
+        SseEmitter emitter = mock(SseEmitter.class);
+        doThrow(new IOException("Broken pipe")).when(emitter).send(any(SseEmitter.SseEventBuilder.class));
+        session.attach(emitter, 0);
+
+        // Act
+        publish(2);
+
+        // Assert
+        assertFalse(session.isAttached());
+        assertTrue(session.isLive());
+        // Only the first event reached the broken client
+        assertEquals(1.0, meterRegistry.counter(DialogueMetrics.SSE_WRITE_FAILURES, "event", "token").count());
+        assertEquals(0, meterRegistry.timer(DialogueMetrics.SSE_WRITE, "event", "token").count());
+    }
+
+    @Test
+    @DisplayName("session should be abandoned when no client reconnects within the grace period")
+    void sessionShouldBeAbandonedAfterGracePeriod() throws IOException {
+        // Arrange
+        SseEmitter emitter = mock(SseEmitter.class);
+        doThrow(new IOException("Broken pipe")).when(emitter).send(any(SseEmitter.SseEventBuilder.class));
+        session.attach(emitter, 0);
+        publish(1);
+        ArgumentCaptor<Runnable> timer = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(timer.capture(), any(Instant.class));
+
+        // Act
+        timer.getValue().run();
+
+        // Assert
+        assertEquals(List.of(DIALOGUE_ID), abandoned);
+        assertEquals(DialogueStreamSession.State.ABANDONED, session.getState());
+        assertFalse(session.isLive());
+        assertTrue(session.getCancellation().isCancelled());
+    }
+
+    @Test
+    @DisplayName("cancel should complete the attached stream and cancel the generation")
+    void cancelShouldCompleteStreamAndCancelGeneration() {
+        // Arrange
+        SseEmitter emitter = mock(SseEmitter.class);
+        session.attach(emitter, 0);
+        List<String> cancelledTurns = new ArrayList<>();
+        session.getCancellation().onCancel(() -> cancelledTurns.add("turn"));
+
+        // Act
+        boolean cancelled = session.cancel();
+        boolean cancelledAgain = session.cancel();
+
+        // Assert
+        assertTrue(cancelled);
+        assertFalse(cancelledAgain);
+        assertEquals(DialogueStreamSession.State.CANCELLED, session.getState());
+        assertEquals(List.of("turn"), cancelledTurns);
+        verify(emitter).complete();
+        assertTrue(abandoned.isEmpty());
+    }
+
+    @Test
+    @DisplayName("reconnecting within the grace period should keep the session live")
+    void reconnectingWithinGracePeriodShouldKeepSessionLive() throws IOException {
+        // Arrange
+        SseEmitter broken = mock(SseEmitter.class);
+        doThrow(new IOException("Broken pipe")).when(broken).send(any(SseEmitter.SseEventBuilder.class));
+        session.attach(broken, 0);
+        publish(1);
+        ArgumentCaptor<Runnable> timer = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(timer.capture(), any(Instant.class));
+
+        // Act
+        session.attach(mock(SseEmitter.class), 1);
+        timer.getValue().run();
+
+        // Assert
+        verify(graceTimer).cancel(false);
+        assertTrue(abandoned.isEmpty());
+        assertTrue(session.isLive());
+    }
+
+    @Test
+    @DisplayName("attach should replay and complete the stream of a finished dialogue")
+    void attachShouldReplayAndCompleteFinishedDialogue() throws IOException {
+        // Arrange
+        publish(2);
+        session.complete();
+        SseEmitter emitter = mock(SseEmitter.class);
+
+        // Act
+        session.attach(emitter, 0);
+
+        // Assert
+        verify(emitter, times(2)).send(any(SseEmitter.SseEventBuilder.class));
+        verify(emitter).complete();
+        assertNotNull(session.getFinishedAt());
+    }
+}
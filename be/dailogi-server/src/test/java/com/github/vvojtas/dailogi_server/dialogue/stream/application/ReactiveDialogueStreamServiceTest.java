@@ -0,0 +1,342 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application;
+
+import com.github.vvojtas.dailogi_server.apikey.application.ApiKeyQueryService;
+import com.github.vvojtas.dailogi_server.db.entity.AppUser;
+import com.github.vvojtas.dailogi_server.dialogue.application.DialogueCommandService;
+import com.github.vvojtas.dailogi_server.dialogue.application.DialogueMessageWriter;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueEventHandler;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.StreamDialogueCommand;
+import com.github.vvojtas.dailogi_server.dialogue.timeline.api.TimelineStage;
+import com.github.vvojtas.dailogi_server.dialogue.timeline.application.DialogueTimeline;
+import com.github.vvojtas.dailogi_server.dialogue.timeline.application.DialogueTimelineRecorder;
+import com.github.vvojtas.dailogi_server.exception.NoApiKeyException;
+import com.github.vvojtas.dailogi_server.generation.api.OpenRouterInterface;
+import com.github.vvojtas.dailogi_server.generation.application.HedgedGeneration;
+import com.github.vvojtas.dailogi_server.generation.application.OpenRouterPromptBuilder;
+import com.github.vvojtas.dailogi_server.generation.application.PromptTemplateRegistry;
+import com.github.vvojtas.dailogi_server.model.character.response.CharacterDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.mapper.DialogueEventMapper;
+import com.github.vvojtas.dailogi_server.model.dialogue.request.CharacterConfigDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.request.TokenCoalescingDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueCharacterConfigDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.event.CharacterCompleteEventDto;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.event.DialogueQueuedEventDto;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.event.TokenEventDto;
+import com.github.vvojtas.dailogi_server.model.llm.response.LLMDTO;
+import com.github.vvojtas.dailogi_server.properties.DialogueExecutionProperties;
+import com.github.vvojtas.dailogi_server.properties.DialogueStreamProperties;
+import com.github.vvojtas.dailogi_server.properties.DialogueTimelineProperties;
+import com.github.vvojtas.dailogi_server.properties.OpenRouterProperties;
+import com.github.vvojtas.dailogi_server.properties.PromptTemplateProperties;
+import com.github.vvojtas.dailogi_server.service.auth.CurrentUserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.security.core.Authentication;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.Disposable;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveDialogueStreamServiceTest {
+
+    @Mock
+    private OpenRouterInterface openRouterInterface;
+
+    @Mock
+    private ApiKeyQueryService apiKeyQueryService;
+
+    @Mock
+    private DialogueCommandService dialogueCommandService;
+
+    @Mock
+    private DialogueMessageWriter messageWriter;
+
+    @Mock
+    private Authentication authentication;
+
+    @Mock
+    private TaskScheduler scheduler;
+
+    @Mock
+    private CurrentUserService currentUserService;
+
+    private final List<Runnable> submittedToExecutor = new ArrayList<>();
+    private DialogueExecutionProperties executionProperties;
+    private DialogueAdmissionScheduler admissionScheduler;
+    private SimpleMeterRegistry meterRegistry;
+    private DialogueTimelineRecorder timelineRecorder;
+    private ReactiveDialogueStreamService service;
+    private StreamDialogueCommand command;
+
+    @BeforeEach
+    void setUp() {
+        DialogueStreamProperties streamProperties = new DialogueStreamProperties();
+        streamProperties.getTokenCoalescing().setEnabled(false);
+        PromptTemplateRegistry templateRegistry = new PromptTemplateRegistry(new PromptTemplateProperties());
+        templateRegistry.init();
+        meterRegistry = new SimpleMeterRegistry();
+        timelineRecorder = new DialogueTimelineRecorder(new DialogueTimelineProperties(), scheduler);
+        executionProperties = new DialogueExecutionProperties();
+        admissionScheduler = new DialogueAdmissionScheduler(submittedToExecutor::add, executionProperties);
+        service = new ReactiveDialogueStreamService(
+                new HedgedGeneration(openRouterInterface, new OpenRouterProperties(), meterRegistry),
+                new OpenRouterPromptBuilder(templateRegistry),
+                new DialogueEventMapper(),
+                apiKeyQueryService,
+                dialogueCommandService,
+                streamProperties,
+                messageWriter,
+                new DialogueCancellationMetrics(meterRegistry),
+                new DialogueMetrics(meterRegistry),
+                timelineRecorder,
+                admissionScheduler,
+                currentUserService);
+
+        LLMDTO llm = new LLMDTO(1L, "Test LLM", "test/model");
+        CharacterDTO first = new CharacterDTO(1L, "First", "short", "desc", false, null, false, 1L, null, null);
+        CharacterDTO second = new CharacterDTO(2L, "Second", "short", "desc", false, null, false, 1L, null, null);
+        DialogueDTO dialogue = new DialogueDTO(10L, "Dialogue", "Scene", "IN_PROGRESS", null, null,
+                List.of(new DialogueCharacterConfigDTO(first, llm), new DialogueCharacterConfigDTO(second, llm)),
+                new ArrayList<>(), null);
+
+        command = new StreamDialogueCommand(null, "Scene",
+                List.of(new CharacterConfigDTO(1L, 1L), new CharacterConfigDTO(2L, 1L)), 2, null, null);
+
+        lenient().when(authentication.getName()).thenReturn("user");
+        lenient().when(currentUserService.getCurrentAppUser()).thenReturn(AppUser.builder().id(1L).name("user").build());
+        lenient().when(dialogueCommandService.createDialogue(any())).thenReturn(dialogue);
+    }
+
+    @Test
+    @DisplayName("streamDialogue should emit events turn by turn for every character")
+    void streamDialogueShouldEmitEventsTurnByTurn() {
+        // Arrange
+        when(apiKeyQueryService.getDecryptedApiKey()).thenReturn("key");
+        when(openRouterInterface.streamTokens(anyString(), any(), anyString()))
+                .thenAnswer(invocation -> Flux.just("Hello ", "there"));
+
+        // Act
+        List<ServerSentEvent<Object>> events = service.streamDialogue(command, authentication).collectList().block();
+
+        // Assert
+        assertNotNull(events);
+        // dialogue-start + 2 turns * 2 characters * (start + 2 tokens + complete) + dialogue-complete
+        assertEquals(18, events.size());
+        assertEquals("dialogue-start", events.get(0).event());
+        assertEquals("character-start", events.get(1).event());
+        assertEquals("token", events.get(2).event());
+        assertEquals("character-complete", events.get(4).event());
+        assertEquals(2, ((CharacterCompleteEventDto) events.get(4).data()).tokenCount());
+        assertEquals("dialogue-complete", events.get(17).event());
+        assertEquals("10:1", events.get(0).id());
+        assertEquals("10:18", events.get(17).id());
+        verify(openRouterInterface, times(4)).streamTokens(anyString(), any(), anyString());
+        verify(messageWriter).append(10L, 1L, 1, 1, "Hello there");
+        verify(messageWriter).append(10L, 2L, 2, 2, "Hello there");
+        verify(messageWriter, times(4)).append(eq(10L), anyLong(), anyInt(), anyInt(), eq("Hello there"));
+        verify(messageWriter).markCompleted(10L);
+        assertEquals(1.0, meterRegistry.counter(DialogueMetrics.DIALOGUES, "mode", "reactive", "outcome", "completed").count());
+        List<DialogueTimeline.Entry> timeline = timelineRecorder.getTimeline(10L).getEntries();
+        assertEquals(TimelineStage.STREAM_OPENED, timeline.get(0).stage());
+        assertEquals(List.of(TimelineStage.UPSTREAM_REQUEST, TimelineStage.FIRST_TOKEN, TimelineStage.CHARACTER_COMPLETE),
+                timeline.subList(3, 6).stream().map(DialogueTimeline.Entry::stage).toList());
+        assertEquals(TimelineStage.COMPLETED, timeline.get(timeline.size() - 1).stage());
+        assertEquals(3 + 4 * 3 + 1, timeline.size());
+    }
+
+    @Test
+    @DisplayName("streamDialogue should batch tokens when the request enables coalescing")
+    void streamDialogueShouldBatchTokensWhenCoalescingEnabled() {
+        // Arrange
+        when(apiKeyQueryService.getDecryptedApiKey()).thenReturn("key");
+        when(openRouterInterface.streamTokens(anyString(), any(), anyString()))
+                .thenAnswer(invocation -> Flux.just("a ", "b ", "c"));
+        StreamDialogueCommand coalescingCommand = new StreamDialogueCommand(null, "Scene", command.characterConfigs(), 1,
+                new TokenCoalescingDTO(true, 2, 1000), null);
+
+        // Act
+        List<ServerSentEvent<Object>> events = service.streamDialogue(coalescingCommand, authentication).collectList().block();
+
+        // Assert
+        assertNotNull(events);
+        // dialogue-start + 2 characters * (start + 2 batches + complete) + dialogue-complete
+        assertEquals(10, events.size());
+        assertEquals("a b ", ((TokenEventDto) events.get(2).data()).token());
+        assertEquals("c", ((TokenEventDto) events.get(3).data()).token());
+        assertEquals(3, ((CharacterCompleteEventDto) events.get(4).data()).tokenCount());
+    }
+
+    @Test
+    @DisplayName("streamDialogue should hold a timed out batch until the client asks for more events")
+    void streamDialogueShouldHoldTimedOutBatchWithoutDemand() throws Exception {
+        // Arrange
+        when(apiKeyQueryService.getDecryptedApiKey()).thenReturn("key");
+        when(openRouterInterface.streamTokens(anyString(), any(), anyString()))
+                .thenAnswer(invocation -> Flux.concat(Flux.just("a ", "b "),
+                        Mono.delay(Duration.ofMillis(30)).thenMany(Flux.just("c"))));
+        StreamDialogueCommand coalescingCommand = new StreamDialogueCommand(null, "Scene", command.characterConfigs(), 1,
+                new TokenCoalescingDTO(true, 10, 10), null);
+        List<ServerSentEvent<Object>> events = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        // Act
+        service.streamDialogue(coalescingCommand, authentication).subscribe(new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(ServerSentEvent<Object> event) {
+                events.add(event);
+                // The batch of the late token times out while no event is requested
+                Schedulers.parallel().schedule(() -> request(1), 100, TimeUnit.MILLISECONDS);
+            }
+
+            @Override
+            protected void hookOnComplete() {
+                done.complete(null);
+            }
+
+            @Override
+            protected void hookOnError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+        });
+        done.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        List<String> names = events.stream().map(ServerSentEvent::event).toList();
+        assertFalse(names.contains("error"));
+        assertEquals("dialogue-complete", names.getLast());
+        assertEquals("a b ", ((TokenEventDto) events.get(2).data()).token());
+        assertEquals("c", ((TokenEventDto) events.get(3).data()).token());
+    }
+
+    @Test
+    @DisplayName("streamDialogue should cancel the upstream stream when the client cancels")
+    void streamDialogueShouldCancelUpstreamWhenClientCancels() {
+        // Arrange
+        AtomicBoolean upstreamCancelled = new AtomicBoolean();
+        when(apiKeyQueryService.getDecryptedApiKey()).thenReturn("key");
+        when(openRouterInterface.streamTokens(anyString(), any(), anyString()))
+                .thenReturn(Flux.<String>never().doOnCancel(() -> upstreamCancelled.set(true)));
+
+        // Act
+        Disposable subscription = service.streamDialogue(command, authentication).subscribe();
+        subscription.dispose();
+
+        // Assert
+        assertTrue(upstreamCancelled.get());
+        assertEquals(1.0, meterRegistry.counter(DialogueCancellationMetrics.CANCELLED, "mode", "reactive").count());
+        assertEquals(4.0, meterRegistry.counter(DialogueCancellationMetrics.TURNS_SKIPPED, "mode", "reactive").count());
+        assertEquals(1.0, meterRegistry.counter(DialogueMetrics.DIALOGUES, "mode", "reactive", "outcome", "cancelled").count());
+        verify(messageWriter).markFailed(10L);
+    }
+
+    @Test
+    @DisplayName("streamDialogue should wait for a free slot and report the queue position meanwhile")
+    void streamDialogueShouldWaitForFreeSlot() throws Exception {
+        // Arrange
+        executionProperties.setMaxConcurrentDialoguesPerUser(1);
+        admissionScheduler.submit(99L, 1L, false, mock(DialogueEventHandler.class),
+                new DialogueEventSequence(99L), () -> { });
+        when(apiKeyQueryService.getDecryptedApiKey()).thenReturn("key");
+        when(openRouterInterface.streamTokens(anyString(), any(), anyString()))
+                .thenAnswer(invocation -> Flux.just("Hello"));
+        List<ServerSentEvent<Object>> events = new ArrayList<>();
+
+        // Act
+        CompletableFuture<Void> done = service.streamDialogue(command, authentication)
+                .doOnNext(events::add)
+                .then()
+                .toFuture();
+        List<ServerSentEvent<Object>> whileQueued = List.copyOf(events);
+        submittedToExecutor.remove(0).run();
+        done.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(1, whileQueued.size());
+        assertEquals("queued", whileQueued.get(0).event());
+        assertEquals(1, ((DialogueQueuedEventDto) whileQueued.get(0).data()).position());
+        assertEquals("dialogue-start", events.get(1).event());
+        assertEquals("dialogue-complete", events.get(events.size() - 1).event());
+        verify(openRouterInterface, times(4)).streamTokens(anyString(), any(), anyString());
+        assertEquals(0, admissionScheduler.getRunningCount());
+    }
+
+    @Test
+    @DisplayName("streamDialogue should leave the queue when the client cancels while waiting")
+    void streamDialogueShouldLeaveQueueWhenCancelledWhileWaiting() {
+        // Arrange
+        executionProperties.setMaxConcurrentDialoguesPerUser(1);
+        admissionScheduler.submit(99L, 1L, false, mock(DialogueEventHandler.class),
+                new DialogueEventSequence(99L), () -> { });
+        when(apiKeyQueryService.getDecryptedApiKey()).thenReturn("key");
+
+        // Act
+        Disposable subscription = service.streamDialogue(command, authentication).subscribe();
+        subscription.dispose();
+        submittedToExecutor.remove(0).run();
+
+        // Assert
+        assertEquals(0, admissionScheduler.getQueuedCount());
+        verify(messageWriter).markFailed(10L);
+        verifyNoInteractions(openRouterInterface);
+    }
+
+    @Test
+    @DisplayName("streamDialogue should emit an error event when upstream fails")
+    void streamDialogueShouldEmitErrorEventWhenUpstreamFails() {
+        // Arrange
+        when(apiKeyQueryService.getDecryptedApiKey()).thenReturn("key");
+        when(openRouterInterface.streamTokens(anyString(), any(), anyString()))
+                .thenReturn(Flux.error(new RuntimeException("boom")));
+
+        // Act
+        List<ServerSentEvent<Object>> events = service.streamDialogue(command, authentication).collectList().block();
+
+        // Assert
+        assertNotNull(events);
+        assertEquals("error", events.get(events.size() - 1).event());
+        assertEquals(1.0, meterRegistry.counter(DialogueMetrics.DIALOGUES, "mode", "reactive", "outcome", "failed").count());
+    }
+
+    @Test
+    @DisplayName("streamDialogue should throw when user has no API key")
+    void streamDialogueShouldThrowWhenNoApiKey() {
+        // Arrange
+        when(apiKeyQueryService.getDecryptedApiKey()).thenReturn(null);
+
+        // Act & Assert
+        assertThrows(NoApiKeyException.class, () -> service.streamDialogue(command, authentication));
+        verifyNoInteractions(dialogueCommandService, openRouterInterface);
+    }
+}
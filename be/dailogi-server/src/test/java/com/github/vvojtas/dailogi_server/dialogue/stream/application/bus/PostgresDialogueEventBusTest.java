@@ -0,0 +1,111 @@
+package com.github.vvojtas.dailogi_server.dialogue.stream.application.bus;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.vvojtas.dailogi_server.dialogue.stream.api.DialogueBusMessage;
+import com.github.vvojtas.dailogi_server.properties.DialogueStreamProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostgresDialogueEventBusTest {
+
+    private PostgresDialogueEventBus bus;
+
+    @BeforeEach
+    void setUp() {
+        bus = new PostgresDialogueEventBus(null, new ObjectMapper(), new DialogueStreamProperties());
+    }
+
+    @Test
+    @DisplayName("short message should be sent as one payload")
+    void shortMessageShouldBeSentAsOnePayload() throws Exception {
+        // Arrange
+        DialogueBusMessage message = DialogueBusMessage.event("node-a", 7L, "token", "7:1", Map.of("content", "Hello"));
+
+        // Act
+        List<String> payloads = bus.encode(message);
+        Optional<DialogueBusMessage> decoded = bus.decode(payloads.getFirst());
+
+        // Assert
+        assertEquals(1, payloads.size());
+        assertTrue(decoded.isPresent());
+        assertEquals(DialogueBusMessage.Type.EVENT, decoded.get().type());
+        assertEquals("7:1", decoded.get().id());
+        assertEquals("Hello", ((JsonNode) decoded.get().data()).get("content").asText());
+    }
+
+    @Test
+    @DisplayName("long message should be split into parts within the payload limit and joined again")
+    void longMessageShouldBeSplitAndJoined() throws Exception {
+        // Arrange
+        String content = "Zażółć gęślą jaźń 😀 ".repeat(600);
+        DialogueBusMessage message = DialogueBusMessage.event("node-a", 7L, "character-complete", "7:9", Map.of("content", content));
+
+        // Act
+        List<String> payloads = bus.encode(message);
+        Optional<DialogueBusMessage> decoded = Optional.empty();
+        for (String payload : payloads) {
+            assertTrue(decoded.isEmpty());
+            assertTrue(payload.getBytes(StandardCharsets.UTF_8).length < 8000);
+            decoded = bus.decode(payload);
+        }
+
+        // Assert
+        assertTrue(payloads.size() > 1);
+        assertTrue(decoded.isPresent());
+        assertEquals(content, ((JsonNode) decoded.get().data()).get("content").asText());
+    }
+
+    @Test
+    @DisplayName("parts of a message whose beginning was missed should be discarded")
+    void partsWithoutBeginningShouldBeDiscarded() throws Exception {
+        // Arrange
+        DialogueBusMessage message = DialogueBusMessage.event("node-a", 7L, "character-complete", "7:9",
+                Map.of("content", "x".repeat(5000)));
+        List<String> payloads = bus.encode(message);
+
+        // Act & Assert
+        for (String payload : payloads.subList(1, payloads.size())) {
+            assertTrue(bus.decode(payload).isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("full outbox should drop token events but keep the other messages")
+    void fullOutboxShouldDropTokensOnly() {
+        // Arrange
+        DialogueStreamProperties properties = new DialogueStreamProperties();
+        properties.getCluster().setOutboxCapacity(2);
+        PostgresDialogueEventBus bounded = new PostgresDialogueEventBus(null, new ObjectMapper(), properties);
+
+        // Act
+        for (int i = 1; i <= 5; i++) {
+            bounded.publish(DialogueBusMessage.event("node-a", 7L, "token", "7:" + i, Map.of("token", "t" + i)));
+        }
+        bounded.publish(DialogueBusMessage.event("node-a", 7L, "character-complete", "7:6", Map.of("content", "t1t2")));
+        bounded.publish(DialogueBusMessage.of("node-a", 7L, DialogueBusMessage.Type.COMPLETED, null));
+
+        // Assert
+        assertEquals(4, bounded.getQueuedCount());
+    }
+
+    @Test
+    @DisplayName("channel that is not a lowercase identifier should be rejected")
+    void invalidChannelShouldBeRejected() {
+        // Arrange
+        DialogueStreamProperties properties = new DialogueStreamProperties();
+        properties.getCluster().setChannel("Dialogue_Events");
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> new PostgresDialogueEventBus(null, new ObjectMapper(), properties));
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.vvojtas.dailogi_server.dialogue.timeline.application;
+
+import com.github.vvojtas.dailogi_server.db.entity.DialogueStatus;
+import com.github.vvojtas.dailogi_server.dialogue.api.DialogueMessagesWrittenEvent;
+import com.github.vvojtas.dailogi_server.dialogue.api.DialogueStatusChangedEvent;
+import com.github.vvojtas.dailogi_server.dialogue.timeline.api.TimelineStage;
+import com.github.vvojtas.dailogi_server.exception.ResourceNotFoundException;
+import com.github.vvojtas.dailogi_server.properties.DialogueTimelineProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class DialogueTimelineRecorderTest {
+
+    @Mock
+    private TaskScheduler scheduler;
+
+    private DialogueTimelineProperties properties;
+    private DialogueTimelineRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DialogueTimelineProperties();
+        recorder = new DialogueTimelineRecorder(properties, scheduler);
+    }
+
+    @Test
+    @DisplayName("timeline should overwrite the oldest entries once full and count them as dropped")
+    void timelineShouldOverwriteOldestEntriesWhenFull() {
+        // Arrange
+        properties.setCapacity(8);
+        DialogueTimeline timeline = recorder.start(1L);
+
+        // Act
+        timeline.record(TimelineStage.STREAM_OPENED);
+        for (int turn = 1; turn <= 4; turn++) {
+            timeline.record(TimelineStage.UPSTREAM_REQUEST, 10L, turn);
+            timeline.record(TimelineStage.CHARACTER_COMPLETE, 10L, 42);
+        }
+        timeline.record(TimelineStage.COMPLETED);
+
+        // Assert
+        List<DialogueTimeline.Entry> entries = timeline.getEntries();
+        assertEquals(8, entries.size());
+        assertEquals(2, timeline.getDropped());
+        assertEquals(TimelineStage.CHARACTER_COMPLETE, entries.get(0).stage());
+        assertEquals(new DialogueTimeline.Entry(TimelineStage.UPSTREAM_REQUEST, entries.get(1).offsetNanos(), 10L, 2),
+                entries.get(1));
+        assertEquals(TimelineStage.COMPLETED, entries.get(7).stage());
+        assertTrue(entries.get(7).offsetNanos() >= entries.get(0).offsetNanos());
+        assertNotNull(timeline.getFinishedAt());
+    }
+
+    @Test
+    @DisplayName("write events should be recorded only on timelines already started")
+    void writeEventsShouldBeRecordedOnStartedTimelines() {
+        // Arrange
+        DialogueTimeline timeline = recorder.start(1L);
+
+        // Act
+        recorder.onMessagesWritten(new DialogueMessagesWrittenEvent(1L, 3));
+        recorder.onDialogueStatusChanged(new DialogueStatusChangedEvent(1L, DialogueStatus.COMPLETED));
+        recorder.onMessagesWritten(new DialogueMessagesWrittenEvent(2L, 1));
+
+        // Assert
+        List<DialogueTimeline.Entry> entries = timeline.getEntries();
+        assertEquals(TimelineStage.MESSAGES_WRITTEN, entries.get(0).stage());
+        assertEquals(3, entries.get(0).value());
+        assertEquals(TimelineStage.STORED_COMPLETED, entries.get(1).stage());
+        assertThrows(ResourceNotFoundException.class, () -> recorder.getTimeline(2L));
+    }
+
+    @Test
+    @DisplayName("evict should remove expired timelines and then the oldest above the limit, finished first")
+    void evictShouldRemoveExpiredAndOldestTimelines() {
+        // Arrange
+        properties.setRetention(Duration.ZERO);
+        properties.setMaxDialogues(1);
+        recorder.start(1L).record(TimelineStage.COMPLETED);
+        recorder.start(2L);
+        recorder.start(3L);
+
+        // Act
+        recorder.evict();
+
+        // Assert
+        assertEquals(1, recorder.size());
+        assertThrows(ResourceNotFoundException.class, () -> recorder.getTimeline(1L));
+        assertThrows(ResourceNotFoundException.class, () -> recorder.getTimeline(2L));
+        assertNotNull(recorder.getTimeline(3L));
+    }
+
+    @Test
+    @DisplayName("start should return a timeline ignoring entries when timelines are disabled")
+    void startShouldIgnoreEntriesWhenDisabled() {
+        // Arrange
+        properties.setEnabled(false);
+
+        // Act
+        DialogueTimeline timeline = recorder.start(1L);
+        timeline.record(TimelineStage.STREAM_OPENED);
+
+        // Assert
+        assertTrue(timeline.getEntries().isEmpty());
+        assertEquals(0, recorder.size());
+    }
+}
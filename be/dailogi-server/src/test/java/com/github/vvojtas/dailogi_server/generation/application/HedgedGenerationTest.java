@@ -0,0 +1,225 @@
+package com.github.vvojtas.dailogi_server.generation.application;
+
+import com.github.vvojtas.dailogi_server.generation.api.HedgeOutcome;
+import com.github.vvojtas.dailogi_server.generation.api.OpenRouterInterface;
+import com.github.vvojtas.dailogi_server.model.llm.response.LLMDTO;
+import com.github.vvojtas.dailogi_server.properties.OpenRouterProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HedgedGenerationTest {
+
+    private static final LLMDTO HEDGED_LLM = new LLMDTO(1L, "Primary", "primary/model", 50, "fallback/model");
+
+    @Mock
+    private OpenRouterInterface openRouterInterface;
+
+    private SimpleMeterRegistry meterRegistry;
+    private HedgedGeneration hedgedGeneration;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        hedgedGeneration = new HedgedGeneration(openRouterInterface, new OpenRouterProperties(), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("streamTokens should never ask the fallback model when the primary answers within the budget")
+    void streamTokensShouldNotHedgeFastPrimary() {
+        // Arrange
+        when(openRouterInterface.streamTokens(eq("primary/model"), any(), anyString()))
+                .thenReturn(Flux.just("a", "b"));
+        AtomicReference<HedgeOutcome> outcome = new AtomicReference<>();
+
+        // Act
+        List<String> tokens = hedgedGeneration.streamTokens(HEDGED_LLM, List.of(), "key", outcome::set)
+                .collectList().block(Duration.ofSeconds(5));
+
+        // Assert
+        assertEquals(List.of("a", "b"), tokens);
+        assertEquals("primary/model", outcome.get().model());
+        assertFalse(outcome.get().fallbackUsed());
+        assertFalse(outcome.get().hedged());
+        verify(openRouterInterface, never()).streamTokens(eq("fallback/model"), any(), anyString());
+        assertEquals(1.0, meterRegistry.counter(HedgedGeneration.TURNS, "result", "primary").count());
+    }
+
+    @Test
+    @DisplayName("streamTokens should switch to the fallback model and cancel the primary when no token arrives within the budget")
+    void streamTokensShouldUseFallbackForSlowPrimary() {
+        // Arrange
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+        when(openRouterInterface.streamTokens(eq("primary/model"), any(), anyString()))
+                .thenReturn(Flux.<String>never().doOnCancel(() -> primaryCancelled.set(true)));
+        when(openRouterInterface.streamTokens(eq("fallback/model"), any(), anyString()))
+                .thenReturn(Flux.just("x", "y"));
+        AtomicReference<HedgeOutcome> outcome = new AtomicReference<>();
+
+        // Act
+        List<String> tokens = hedgedGeneration.streamTokens(HEDGED_LLM, List.of(), "key", outcome::set)
+                .collectList().block(Duration.ofSeconds(5));
+
+        // Assert
+        assertEquals(List.of("x", "y"), tokens);
+        assertEquals("fallback/model", outcome.get().model());
+        assertTrue(outcome.get().fallbackUsed());
+        assertTrue(outcome.get().hedged());
+        assertTrue(primaryCancelled.get());
+        assertEquals(1.0, meterRegistry.counter(HedgedGeneration.TURNS, "result", "fallback").count());
+    }
+
+    @Test
+    @DisplayName("streamTokens should never ask the fallback model when the primary ends without a token within the budget")
+    void streamTokensShouldNotHedgeWhenPrimaryEndsEarly() throws InterruptedException {
+        // Arrange
+        when(openRouterInterface.streamTokens(eq("primary/model"), any(), anyString()))
+                .thenReturn(Flux.empty())
+                .thenReturn(Flux.error(new RuntimeException("boom")));
+
+        // Act
+        List<String> tokens = hedgedGeneration.streamTokens(HEDGED_LLM, List.of(), "key", outcome -> { })
+                .collectList().block(Duration.ofSeconds(5));
+        assertThrows(RuntimeException.class,
+                () -> hedgedGeneration.streamTokens(HEDGED_LLM, List.of(), "key", outcome -> { }).blockLast(Duration.ofSeconds(5)));
+        // Well past the budget
+        Thread.sleep(150);
+
+        // Assert
+        assertEquals(List.of(), tokens);
+        verify(openRouterInterface, never()).streamTokens(eq("fallback/model"), any(), anyString());
+    }
+
+    @Test
+    @DisplayName("streamTokens should keep waiting for the fallback when the primary fails without a token after the budget")
+    void streamTokensShouldIgnoreFailedPrimaryAfterBudget() {
+        // Arrange
+        when(openRouterInterface.streamTokens(eq("primary/model"), any(), anyString()))
+                .thenReturn(Flux.<String>error(new RuntimeException("boom")).delaySubscription(Duration.ofMillis(100)));
+        when(openRouterInterface.streamTokens(eq("fallback/model"), any(), anyString()))
+                .thenReturn(Flux.just("x", "y").delaySubscription(Duration.ofMillis(150)));
+        AtomicReference<HedgeOutcome> outcome = new AtomicReference<>();
+
+        // Act
+        List<String> tokens = hedgedGeneration.streamTokens(HEDGED_LLM, List.of(), "key", outcome::set)
+                .collectList().block(Duration.ofSeconds(5));
+
+        // Assert
+        assertEquals(List.of("x", "y"), tokens);
+        assertEquals("fallback/model", outcome.get().model());
+        assertTrue(outcome.get().fallbackUsed());
+        assertEquals(1.0, meterRegistry.counter(HedgedGeneration.TURNS, "result", "fallback").count());
+    }
+
+    @Test
+    @DisplayName("streamTokens should fail the turn when both models end without a token")
+    void streamTokensShouldFailWhenBothModelsFail() {
+        // Arrange
+        when(openRouterInterface.streamTokens(eq("primary/model"), any(), anyString()))
+                .thenReturn(Flux.<String>error(new RuntimeException("boom")).delaySubscription(Duration.ofMillis(100)));
+        when(openRouterInterface.streamTokens(eq("fallback/model"), any(), anyString()))
+                .thenReturn(Flux.<String>error(new RuntimeException("fallback down")).delaySubscription(Duration.ofMillis(150)));
+
+        // Act
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> hedgedGeneration.streamTokens(HEDGED_LLM, List.of(), "key", outcome -> { }).blockLast(Duration.ofSeconds(5)));
+
+        // Assert
+        assertEquals("fallback down", error.getMessage());
+    }
+
+    @Test
+    @DisplayName("streamTokens should keep waiting for the primary when the fallback fails without a token")
+    void streamTokensShouldIgnoreFailedFallback() {
+        // Arrange
+        when(openRouterInterface.streamTokens(eq("primary/model"), any(), anyString()))
+                .thenReturn(Flux.just("a").delaySubscription(Duration.ofMillis(150)));
+        when(openRouterInterface.streamTokens(eq("fallback/model"), any(), anyString()))
+                .thenReturn(Flux.error(new RuntimeException("fallback down")));
+        AtomicReference<HedgeOutcome> outcome = new AtomicReference<>();
+
+        // Act
+        List<String> tokens = hedgedGeneration.streamTokens(HEDGED_LLM, List.of(), "key", outcome::set)
+                .collectList().block(Duration.ofSeconds(5));
+
+        // Assert
+        assertEquals(List.of("a"), tokens);
+        assertEquals("primary/model", outcome.get().model());
+        assertTrue(outcome.get().hedged());
+    }
+
+    @Test
+    @DisplayName("streamTokens should record token gaps, token rate and turn outcome per model")
+    void streamTokensShouldRecordTokenMetricsPerModel() {
+        // Arrange
+        LLMDTO plain = new LLMDTO(2L, "Plain", "plain/model");
+        when(openRouterInterface.streamTokens(eq("plain/model"), any(), anyString()))
+                .thenReturn(Flux.just("a", "b", "c").delayElements(Duration.ofMillis(5)))
+                .thenReturn(Flux.error(new RuntimeException("boom")));
+
+        // Act
+        hedgedGeneration.streamTokens(plain, List.of(), "key", outcome -> { }).blockLast(Duration.ofSeconds(5));
+        assertThrows(RuntimeException.class,
+                () -> hedgedGeneration.streamTokens(plain, List.of(), "key", outcome -> { }).blockLast(Duration.ofSeconds(5)));
+
+        // Assert
+        assertEquals(2, meterRegistry.timer(HedgedGeneration.INTER_TOKEN_LATENCY, "model", "plain/model").count());
+        assertEquals(1, meterRegistry.summary(HedgedGeneration.TOKENS_PER_SECOND, "model", "plain/model").count());
+        assertEquals(3.0, meterRegistry.counter(HedgedGeneration.TOKENS, "model", "plain/model").count());
+        assertEquals(1.0, meterRegistry.counter(HedgedGeneration.TURNS_FINISHED,
+                "model", "plain/model", "outcome", "completed").count());
+        assertEquals(1.0, meterRegistry.counter(HedgedGeneration.TURNS_FINISHED,
+                "model", "plain/model", "outcome", "failed").count());
+    }
+
+    @Test
+    @DisplayName("planFor should not hedge LLMs without a fallback model or when hedging is disabled")
+    void planForShouldRequireFallbackAndEnabledHedging() {
+        // Arrange
+        OpenRouterProperties disabled = new OpenRouterProperties();
+        disabled.getHedging().setEnabled(false);
+        HedgedGeneration disabledGeneration = new HedgedGeneration(openRouterInterface, disabled, meterRegistry);
+
+        // Act & Assert
+        assertNull(hedgedGeneration.planFor(new LLMDTO(2L, "Plain", "plain/model")));
+        assertNull(disabledGeneration.planFor(HEDGED_LLM));
+        assertEquals(Duration.ofMillis(50), hedgedGeneration.planFor(HEDGED_LLM).ttftBudget());
+    }
+
+    @Test
+    @DisplayName("streamTokens should record every turn of a model on the same meters")
+    void streamTokensShouldReuseMetersPerModel() {
+        // Arrange
+        LLMDTO plain = new LLMDTO(2L, "Plain", "plain/model");
+        when(openRouterInterface.streamTokens(eq("plain/model"), any(), anyString()))
+                .thenAnswer(invocation -> Flux.just("a", "b", "c"));
+
+        // Act
+        hedgedGeneration.streamTokens(plain, List.of(), "key", outcome -> { }).blockLast(Duration.ofSeconds(5));
+        hedgedGeneration.streamTokens(plain, List.of(), "key", outcome -> { }).blockLast(Duration.ofSeconds(5));
+
+        // Assert
+        assertEquals(1, meterRegistry.find(HedgedGeneration.TIME_TO_FIRST_TOKEN).timers().size());
+        assertEquals(2, meterRegistry.timer(HedgedGeneration.TIME_TO_FIRST_TOKEN, "model", "plain/model").count());
+        assertEquals(4, meterRegistry.timer(HedgedGeneration.INTER_TOKEN_LATENCY, "model", "plain/model").count());
+        assertEquals(6.0, meterRegistry.counter(HedgedGeneration.TOKENS, "model", "plain/model").count());
+        assertEquals(2.0, meterRegistry.counter(HedgedGeneration.TURNS_FINISHED, "model", "plain/model", "outcome", "completed").count());
+    }
+}
@@ -0,0 +1,150 @@
+package com.github.vvojtas.dailogi_server.generation.application;
+
+import com.github.vvojtas.dailogi_server.generation.api.ChatMessage;
+import com.github.vvojtas.dailogi_server.properties.OpenRouterProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenRouterMockTest {
+
+    private static final List<ChatMessage> PROMPT = List.of(new ChatMessage(ChatMessage.ROLE_USER, "Hello"));
+
+    private OpenRouterProperties properties;
+    private OpenRouterMock mock;
+
+    @BeforeEach
+    void setUp() {
+        properties = new OpenRouterProperties();
+        properties.getMock().setTick(Duration.ofMillis(1));
+        properties.getMock().setDispatchThreads(2);
+        properties.getMock().setDefaultProfile(profile(Duration.ofMillis(2), 1000, 5, 10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (mock != null) {
+            mock.shutdown();
+        }
+    }
+
+    private static OpenRouterProperties.Mock.Profile profile(Duration ttft, double tokensPerSecond, int minTokens, int maxTokens) {
+        OpenRouterProperties.Mock.Profile profile = new OpenRouterProperties.Mock.Profile();
+        profile.setTtftMedian(ttft);
+        profile.setTtftP95(ttft.multipliedBy(2));
+        profile.setTokensPerSecond(tokensPerSecond);
+        profile.setMinTokens(minTokens);
+        profile.setMaxTokens(maxTokens);
+        return profile;
+    }
+
+    @Test
+    @DisplayName("streamTokens should emit a message with a length within the model's profile")
+    void streamTokensShouldFollowModelProfile() {
+        // Arrange
+        properties.getMock().getProfiles().put("fast/model", profile(Duration.ofMillis(1), 2000, 3, 3));
+        mock = new OpenRouterMock(properties);
+
+        // Act
+        List<String> defaultTokens = mock.streamTokens("any/model", PROMPT, null).collectList().block(Duration.ofSeconds(5));
+        List<String> profiledTokens = mock.streamTokens("fast/model", PROMPT, null).collectList().block(Duration.ofSeconds(5));
+
+        // Assert
+        assertNotNull(defaultTokens);
+        assertTrue(defaultTokens.size() >= 5 && defaultTokens.size() <= 10);
+        assertNotNull(profiledTokens);
+        assertEquals(3, profiledTokens.size());
+        assertTrue(profiledTokens.stream().allMatch(token -> token.endsWith(" ")));
+    }
+
+    @Test
+    @DisplayName("streamTokens should deliver tokens of many concurrent streams and complete each exactly once")
+    void streamTokensShouldCompleteConcurrentStreams() throws InterruptedException {
+        // Arrange
+        mock = new OpenRouterMock(properties);
+        int streams = 2000;
+        CountDownLatch completed = new CountDownLatch(streams);
+        AtomicInteger tokens = new AtomicInteger();
+
+        // Act
+        for (int i = 0; i < streams; i++) {
+            mock.streamTokens("any/model", PROMPT, null).subscribe(token -> tokens.incrementAndGet(), error -> { }, completed::countDown);
+        }
+
+        // Assert
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        assertTrue(tokens.get() >= streams * 5 && tokens.get() <= streams * 10);
+        assertEquals(0, mock.getActiveCallCount());
+    }
+
+    @Test
+    @DisplayName("cancelling the subscription should stop a stream without completing it")
+    void cancellingSubscriptionShouldStopStream() throws InterruptedException {
+        // Arrange
+        properties.getMock().setDefaultProfile(profile(Duration.ofMillis(200), 10, 50, 50));
+        mock = new OpenRouterMock(properties);
+        AtomicInteger tokens = new AtomicInteger();
+        CountDownLatch completed = new CountDownLatch(1);
+        Disposable subscription = mock.streamTokens("any/model", PROMPT, null)
+                .subscribe(token -> tokens.incrementAndGet(), error -> completed.countDown(), completed::countDown);
+
+        // Act
+        subscription.dispose();
+
+        // Assert
+        assertEquals(0, mock.getActiveCallCount());
+        assertFalse(completed.await(500, TimeUnit.MILLISECONDS));
+        assertEquals(0, tokens.get());
+    }
+
+    @Test
+    @DisplayName("a consumer failing on a token should stop the stream and release it")
+    void failingConsumerShouldStopAndReleaseStream() throws InterruptedException {
+        // Arrange
+        properties.getMock().setDefaultProfile(profile(Duration.ofMillis(1), 1000, 20, 20));
+        mock = new OpenRouterMock(properties);
+        AtomicInteger tokens = new AtomicInteger();
+        CountDownLatch failed = new CountDownLatch(1);
+
+        // Act - a plain subscriber lets the exception reach the stream instead of Reactor's operators
+        mock.streamTokens("any/model", PROMPT, null).subscribe(new Subscriber<>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(String token) {
+                tokens.incrementAndGet();
+                failed.countDown();
+                throw new IllegalStateException("consumer failed");
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        // Assert
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(0, mock.getActiveCallCount());
+        assertEquals(1, tokens.get());
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.vvojtas.dailogi_server.generation.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.vvojtas.dailogi_server.generation.application.model.StreamChunk;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenRouterStreamDecoderTest {
+
+    private final OpenRouterStreamDecoder decoder = new OpenRouterStreamDecoder(new ObjectMapper());
+
+    private static Flux<DataBuffer> body(String... parts) {
+        return Flux.fromIterable(Arrays.stream(parts)
+                .map(part -> (DataBuffer) DefaultDataBufferFactory.sharedInstance.wrap(part.getBytes(StandardCharsets.UTF_8)))
+                .toList());
+    }
+
+    @Test
+    @DisplayName("decode should read content of data lines split across buffers and skip comments and [DONE]")
+    void decodeShouldReadContentAcrossBuffers() {
+        // Arrange
+        Flux<DataBuffer> body = body(
+                ": OPENROUTER PROCESSING\n\n",
+                "data: {\"id\":\"gen-1\",\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":\"Cze",
+                "ść\"},\"finish_reason\":null}]}\r\n\r\n",
+                "data: {\"choices\":[{\"delta\":{\"content\":\" \\\"hej\\\"\"}},{\"delta\":{\"content\":\"ignored\"}}]}\n\n",
+                "data: [DONE]\n");
+
+        // Act
+        List<String> contents = decoder.decode(body).map(StreamChunk::content).collectList().block();
+
+        // Assert
+        assertEquals(List.of("Cześć", " \"hej\""), contents);
+    }
+
+    @Test
+    @DisplayName("decode should read finish reason and usage of the final chunk without a trailing newline")
+    void decodeShouldReadFinishReasonAndUsage() {
+        // Arrange
+        Flux<DataBuffer> body = body(
+                "data: {\"choices\":[{\"delta\":{},\"finish_reason\":\"stop\"}],",
+                "\"usage\":{\"prompt_tokens\":12,\"completion_tokens\":34,\"total_tokens\":46,\"cost\":0.1}}");
+
+        // Act
+        StreamChunk chunk = decoder.decode(body).single().block();
+
+        // Assert
+        assertNotNull(chunk);
+        assertNull(chunk.content());
+        assertEquals("stop", chunk.finishReason());
+        assertEquals(new StreamChunk.Usage(12, 34, 46), chunk.usage());
+    }
+
+    @Test
+    @DisplayName("decode should skip malformed payloads and keep decoding the chunks after them")
+    void decodeShouldSkipMalformedPayloads() {
+        // Arrange
+        Flux<DataBuffer> body = body(
+                "data: {\"choices\":[{\"delta\":{\"content\":\"a\"}}]}\n"
+                        + "data: {\"choices\":[{\"delta\":{\"content\n"
+                        + "data: 42\n"
+                        + "data: {\"choices\":[{\"delta\":{\"content\":\"b\"}}]}  \n",
+                "data: {\"choices\":[{\"delta\":{\"content\":\"c\"}}]}\n");
+
+        // Act
+        List<String> contents = decoder.decode(body).map(StreamChunk::content).collectList().block();
+
+        // Assert
+        assertEquals(List.of("a", "b", "c"), contents);
+    }
+
+    @Test
+    @DisplayName("decode should signal an error when the stream reports an upstream error")
+    void decodeShouldSignalUpstreamError() {
+        // Arrange
+        Flux<DataBuffer> body = body(
+                "data: {\"choices\":[{\"delta\":{\"content\":\"Hi\"}}]}\n\n",
+                "data: {\"error\":{\"code\":502,\"message\":\"Provider returned error\"}}\n\n");
+
+        // Act
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> decoder.decode(body).collectList().block());
+
+        // Assert
+        assertEquals("Upstream error: Provider returned error", exception.getMessage());
+    }
+}
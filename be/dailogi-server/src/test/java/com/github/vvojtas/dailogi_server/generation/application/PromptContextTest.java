@@ -0,0 +1,142 @@
+package com.github.vvojtas.dailogi_server.generation.application;
+
+import com.github.vvojtas.dailogi_server.generation.api.ChatMessage;
+import com.github.vvojtas.dailogi_server.model.character.response.CharacterDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueCharacterConfigDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueDTO;
+import com.github.vvojtas.dailogi_server.model.dialogue.response.DialogueMessageDTO;
+import com.github.vvojtas.dailogi_server.model.llm.response.LLMDTO;
+import com.github.vvojtas.dailogi_server.properties.PromptTemplateProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptContextTest {
+
+    private OpenRouterPromptBuilder promptBuilder;
+    private DialogueCharacterConfigDTO firstConfig;
+    private DialogueCharacterConfigDTO secondConfig;
+
+    @BeforeEach
+    void setUp() {
+        PromptTemplateRegistry templateRegistry = new PromptTemplateRegistry(new PromptTemplateProperties());
+        templateRegistry.init();
+        promptBuilder = new OpenRouterPromptBuilder(templateRegistry);
+        LLMDTO llm = new LLMDTO(1L, "Test LLM", "test/model");
+        firstConfig = new DialogueCharacterConfigDTO(
+                new CharacterDTO(1L, "First", "short first", "desc first", false, null, false, 1L, null, null), llm);
+        secondConfig = new DialogueCharacterConfigDTO(
+                new CharacterDTO(2L, "Second", "short second", "desc second", false, null, false, 1L, null, null), llm);
+    }
+
+    private DialogueDTO dialogue(List<DialogueMessageDTO> messages) {
+        return new DialogueDTO(10L, "Dialogue", "Scene", "IN_PROGRESS", null, null,
+                List.of(firstConfig, secondConfig), messages, null);
+    }
+
+    @Test
+    @DisplayName("messagesFor should match a full rebuild after messages are appended")
+    void messagesForShouldMatchFullRebuild() {
+        // Arrange
+        List<DialogueMessageDTO> history = List.of(
+                new DialogueMessageDTO(1L, 1, 1L, "Hello"),
+                new DialogueMessageDTO(2L, 1, 2L, "Hi"),
+                new DialogueMessageDTO(3L, 2, 1L, "How are you?"));
+        PromptContext context = promptBuilder.createContext(dialogue(List.of()));
+
+        // Act
+        history.forEach(message -> context.addMessage(message.characterId(), message.content()));
+
+        // Assert
+        assertEquals(promptBuilder.buildDialogueMessages(dialogue(history), firstConfig), context.messagesFor(1L));
+        assertEquals(promptBuilder.buildDialogueMessages(dialogue(history), secondConfig), context.messagesFor(2L));
+    }
+
+    @Test
+    @DisplayName("createContext should replay messages already present in the dialogue")
+    void createContextShouldReplayExistingMessages() {
+        // Arrange
+        List<DialogueMessageDTO> history = List.of(new DialogueMessageDTO(1L, 1, 2L, "Hi"));
+
+        // Act
+        PromptContext context = promptBuilder.createContext(dialogue(history));
+
+        // Assert
+        List<ChatMessage> messages = context.messagesFor(1L);
+        assertEquals(2, messages.size());
+        assertEquals(ChatMessage.ROLE_SYSTEM, messages.get(0).role());
+        assertEquals(new ChatMessage(ChatMessage.ROLE_USER, "Wypowiedź Second : \"Hi\""), messages.get(1));
+        assertEquals(4, context.getMessageCount());
+    }
+
+    @Test
+    @DisplayName("messagesFor should return a snapshot unaffected by later messages")
+    void messagesForShouldReturnSnapshot() {
+        // Arrange
+        PromptContext context = promptBuilder.createContext(dialogue(List.of()));
+        List<ChatMessage> messages = context.messagesFor(1L);
+
+        // Act
+        context.addMessage(2L, "Hello");
+
+        // Assert
+        assertEquals(1, messages.size());
+        assertEquals(2, context.messagesFor(1L).size());
+        assertThrows(UnsupportedOperationException.class, () -> messages.add(messages.get(0)));
+    }
+
+    @Test
+    @DisplayName("createContext should render system messages with the dialogue's prompt template")
+    void createContextShouldUseDialoguePromptTemplate(@TempDir Path templateDir) throws IOException {
+        // Arrange
+        Files.writeString(templateDir.resolve("openrouter-system.template"), "Default ${character_name}");
+        Files.writeString(templateDir.resolve("scene-en.template"), "You are ${character_name} in ${scene_description}");
+        PromptTemplateProperties properties = new PromptTemplateProperties();
+        properties.setLocation(templateDir.toUri().toString());
+        PromptTemplateRegistry templateRegistry = new PromptTemplateRegistry(properties);
+        templateRegistry.init();
+        DialogueDTO dialogue = new DialogueDTO(10L, "Dialogue", "Scene", "IN_PROGRESS", null, null,
+                List.of(firstConfig, secondConfig), List.of(), "scene-en");
+
+        // Act
+        PromptContext context = new OpenRouterPromptBuilder(templateRegistry).createContext(dialogue);
+
+        // Assert
+        assertEquals(new ChatMessage(ChatMessage.ROLE_SYSTEM, "You are First in Scene"), context.messagesFor(1L).get(0));
+        assertEquals(new ChatMessage(ChatMessage.ROLE_SYSTEM, "You are Second in Scene"), context.messagesFor(2L).get(0));
+    }
+
+    @Test
+    @DisplayName("estimateMemoryBytes should grow as messages are appended")
+    void estimateMemoryBytesShouldGrowWithMessages() {
+        // Arrange
+        PromptContext context = promptBuilder.createContext(dialogue(List.of()));
+        long initial = context.estimateMemoryBytes();
+
+        // Act
+        context.addMessage(1L, "Hello");
+
+        // Assert
+        assertTrue(initial > 0);
+        assertTrue(context.estimateMemoryBytes() > initial);
+    }
+
+    @Test
+    @DisplayName("addMessage should reject unknown characters")
+    void addMessageShouldRejectUnknownCharacters() {
+        // Arrange
+        PromptContext context = promptBuilder.createContext(dialogue(List.of()));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> context.addMessage(99L, "Hello"));
+        assertThrows(IllegalArgumentException.class, () -> context.messagesFor(99L));
+    }
+}
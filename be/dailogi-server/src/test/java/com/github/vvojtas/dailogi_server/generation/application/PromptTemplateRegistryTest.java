@@ -0,0 +1,71 @@
+package com.github.vvojtas.dailogi_server.generation.application;
+
+import com.github.vvojtas.dailogi_server.properties.PromptTemplateProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptTemplateRegistryTest {
+
+    @TempDir
+    Path templateDir;
+
+    private PromptTemplateRegistry registry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(templateDir.resolve("openrouter-system.template"), "Default ${name}");
+        Files.writeString(templateDir.resolve("scene-en.template"), "English ${name}");
+        PromptTemplateProperties properties = new PromptTemplateProperties();
+        properties.setLocation(templateDir.toUri().toString());
+        registry = new PromptTemplateRegistry(properties);
+        registry.init();
+    }
+
+    @Test
+    @DisplayName("init should register every template under its file name")
+    void initShouldRegisterTemplatesByName() {
+        // Assert
+        assertEquals(Set.of("openrouter-system", "scene-en"), registry.getNames());
+        assertEquals("English Bob", registry.get("scene-en").render(Map.of("name", "Bob")));
+        assertEquals("Default Bob", registry.getDefault().render(Map.of("name", "Bob")));
+        assertThrows(IllegalArgumentException.class, () -> registry.get("missing"));
+    }
+
+    @Test
+    @DisplayName("reload should pick up changed templates")
+    void reloadShouldPickUpChangedTemplates() throws IOException {
+        // Arrange
+        Files.writeString(templateDir.resolve("openrouter-system.template"), "Changed ${name}");
+
+        // Act
+        boolean reloaded = registry.reload();
+
+        // Assert
+        assertTrue(reloaded);
+        assertEquals("Changed Bob", registry.getDefault().render(Map.of("name", "Bob")));
+    }
+
+    @Test
+    @DisplayName("reload should keep previous templates when the default template is missing")
+    void reloadShouldKeepPreviousTemplatesWhenDefaultMissing() throws IOException {
+        // Arrange
+        Files.delete(templateDir.resolve("openrouter-system.template"));
+
+        // Act
+        boolean reloaded = registry.reload();
+
+        // Assert
+        assertFalse(reloaded);
+        assertEquals("Default Bob", registry.getDefault().render(Map.of("name", "Bob")));
+    }
+}
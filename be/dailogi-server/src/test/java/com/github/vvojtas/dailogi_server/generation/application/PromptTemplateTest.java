@@ -0,0 +1,53 @@
+package com.github.vvojtas.dailogi_server.generation.application;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptTemplateTest {
+
+    @Test
+    @DisplayName("render should substitute every placeholder occurrence")
+    void renderShouldSubstituteEveryPlaceholder() {
+        // Arrange
+        PromptTemplate template = PromptTemplate.compile("test", "Hi ${name}, ${name}! Scene: ${scene}.");
+
+        // Act
+        String result = template.render(Map.of("name", "Ala", "scene", "forest"));
+
+        // Assert
+        assertEquals("Hi Ala, Ala! Scene: forest.", result);
+        assertEquals(List.of("name", "name", "scene"), template.getPlaceholders());
+    }
+
+    @Test
+    @DisplayName("render should keep unknown placeholders and render null values as empty text")
+    void renderShouldKeepUnknownPlaceholdersAndRenderNullsAsEmpty() {
+        // Arrange
+        PromptTemplate template = PromptTemplate.compile("test", "${known}|${unknown}|${empty}");
+        Map<String, String> values = new HashMap<>();
+        values.put("known", "value");
+        values.put("empty", null);
+
+        // Act
+        String result = template.render(values);
+
+        // Assert
+        assertEquals("value|${unknown}|", result);
+    }
+
+    @Test
+    @DisplayName("render should return the source unchanged when the template has no placeholders")
+    void renderShouldReturnSourceWithoutPlaceholders() {
+        // Arrange
+        PromptTemplate template = PromptTemplate.compile("test", "Just text $ { not a placeholder }");
+
+        // Act & Assert
+        assertEquals("Just text $ { not a placeholder }", template.render(Map.of()));
+    }
+}
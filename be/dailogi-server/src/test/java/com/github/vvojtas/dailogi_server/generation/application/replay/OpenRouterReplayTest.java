@@ -0,0 +1,92 @@
+package com.github.vvojtas.dailogi_server.generation.application.replay;
+
+import com.github.vvojtas.dailogi_server.exception.UpstreamRateLimitException;
+import com.github.vvojtas.dailogi_server.exception.UpstreamUnavailableException;
+import com.github.vvojtas.dailogi_server.generation.api.ChatMessage;
+import com.github.vvojtas.dailogi_server.generation.application.upstream.UpstreamGuard;
+import com.github.vvojtas.dailogi_server.properties.OpenRouterProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenRouterReplayTest {
+
+    private static final String MODEL = "test/model";
+    private static final List<ChatMessage> PROMPT = List.of(new ChatMessage(ChatMessage.ROLE_USER, "Hello"));
+
+    private OpenRouterProperties properties;
+    private RecordingLibrary library;
+
+    @BeforeEach
+    void setUp() {
+        properties = new OpenRouterProperties();
+        properties.getReplay().setSpeed(0);
+        properties.getRetry().setMaxAttempts(0);
+        library = new RecordingLibrary(List.of(
+                recording(MODEL, "Hi", " there"),
+                recording(MODEL, "Good", " day", "!"),
+                recording("other/model", "Other")));
+    }
+
+    private static StreamRecording recording(String model, String... tokens) {
+        return new StreamRecording(model, Instant.EPOCH, Arrays.stream(tokens)
+                .map(token -> new StreamRecording.RecordedToken(1000, token))
+                .toList());
+    }
+
+    private OpenRouterReplay replay() {
+        return new OpenRouterReplay(properties, new UpstreamGuard(properties), library);
+    }
+
+    @Test
+    @DisplayName("streamTokens should replay a recording of the model, the same one for the same seed and prompt")
+    void streamTokensShouldReplayRecordingDeterministically() {
+        // Act
+        List<String> first = replay().streamTokens(MODEL, PROMPT, "key").collectList().block();
+        List<String> second = replay().streamTokens(MODEL, PROMPT, "key").collectList().block();
+
+        // Assert
+        assertNotNull(first);
+        assertTrue(first.equals(List.of("Hi", " there")) || first.equals(List.of("Good", " day", "!")));
+        assertEquals(first, second);
+    }
+
+    @Test
+    @DisplayName("streamTokens should fall back to recordings of other models")
+    void streamTokensShouldFallBackToOtherModels() {
+        // Act
+        List<String> tokens = replay().streamTokens("unknown/model", PROMPT, "key").collectList().block();
+
+        // Assert
+        assertNotNull(tokens);
+        assertFalse(tokens.isEmpty());
+    }
+
+    @Test
+    @DisplayName("streamTokens should inject 429 responses at the configured rate")
+    void streamTokensShouldInjectRateLimits() {
+        // Arrange
+        properties.getReplay().setRateLimitRate(1.0);
+
+        // Act & Assert
+        assertThrows(UpstreamRateLimitException.class,
+                () -> replay().streamTokens(MODEL, PROMPT, "key").collectList().block());
+    }
+
+    @Test
+    @DisplayName("streamTokens should inject server errors at the configured rate")
+    void streamTokensShouldInjectServerErrors() {
+        // Arrange
+        properties.getReplay().setErrorRate(1.0);
+
+        // Act & Assert
+        assertThrows(UpstreamUnavailableException.class,
+                () -> replay().streamTokens(MODEL, PROMPT, "key").collectList().block());
+    }
+}
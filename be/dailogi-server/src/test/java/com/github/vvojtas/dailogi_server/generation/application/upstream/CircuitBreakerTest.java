@@ -0,0 +1,69 @@
+package com.github.vvojtas.dailogi_server.generation.application.upstream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final CircuitBreaker circuit = new CircuitBreaker(2, Duration.ofSeconds(30), clock::get);
+
+    @Test
+    @DisplayName("Consecutive failures should open the circuit until the open duration has passed")
+    void failuresShouldOpenCircuit() {
+        // Act
+        boolean openedByFirst = circuit.onFailure();
+        boolean openedBySecond = circuit.onFailure();
+
+        // Assert
+        assertFalse(openedByFirst);
+        assertTrue(openedBySecond);
+        assertEquals(CircuitBreaker.Status.OPEN, circuit.getStatus());
+        assertEquals(Duration.ofSeconds(30).toNanos(), circuit.tryAcquirePermission());
+    }
+
+    @Test
+    @DisplayName("A half open circuit should let a single probe through and close when it succeeds")
+    void halfOpenCircuitShouldProbeOnce() {
+        // Arrange
+        circuit.onFailure();
+        circuit.onFailure();
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        // Act
+        long probe = circuit.tryAcquirePermission();
+        long other = circuit.tryAcquirePermission();
+
+        // Assert
+        assertEquals(0, probe);
+        assertTrue(other > 0);
+        assertEquals(CircuitBreaker.Status.HALF_OPEN, circuit.getStatus());
+
+        circuit.onSuccess();
+        assertEquals(CircuitBreaker.Status.CLOSED, circuit.getStatus());
+        assertEquals(0, circuit.tryAcquirePermission());
+    }
+
+    @Test
+    @DisplayName("A failed probe should reopen the circuit and an inconclusive one should let the next request probe")
+    void probeOutcomeShouldDecideNextState() {
+        // Arrange
+        circuit.onFailure();
+        circuit.onFailure();
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        // Act & Assert
+        assertEquals(0, circuit.tryAcquirePermission());
+        circuit.onInconclusive();
+        assertEquals(0, circuit.tryAcquirePermission());
+
+        circuit.onFailure();
+        assertEquals(CircuitBreaker.Status.OPEN, circuit.getStatus());
+        assertEquals(Duration.ofSeconds(30).toNanos(), circuit.tryAcquirePermission());
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.vvojtas.dailogi_server.generation.application.upstream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    @Test
+    @DisplayName("tryAcquire should hand out the capacity at once and then refill over the period")
+    void tryAcquireShouldRefillOverPeriod() {
+        // Arrange
+        TokenBucket bucket = new TokenBucket(2, Duration.ofSeconds(10), clock::get);
+
+        // Act & Assert
+        assertEquals(0, bucket.tryAcquire());
+        assertEquals(0, bucket.tryAcquire());
+        long wait = bucket.tryAcquire();
+        assertEquals(Duration.ofSeconds(5).toNanos(), wait);
+
+        clock.addAndGet(wait);
+        assertEquals(0, bucket.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("observe should adopt the upstream limit and block until the reset when no requests remain")
+    void observeShouldFollowUpstreamLimit() {
+        // Arrange
+        TokenBucket bucket = new TokenBucket(100, Duration.ofSeconds(10), clock::get);
+        long reset = clock.get() + Duration.ofSeconds(3).toNanos();
+
+        // Act
+        bucket.observe(20, 0, reset);
+
+        // Assert
+        assertEquals(20, bucket.getCapacity());
+        assertEquals(Duration.ofSeconds(3).toNanos(), bucket.tryAcquire());
+        clock.set(reset);
+        // Nothing refilled while blocked
+        assertTrue(bucket.tryAcquire() > 0);
+        clock.addAndGet(Duration.ofMillis(500).toNanos());
+        assertEquals(0, bucket.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("blockFor should reject requests for the Retry-After time")
+    void blockForShouldRejectUntilRetryAfter() {
+        // Arrange
+        TokenBucket bucket = new TokenBucket(10, Duration.ofSeconds(1), clock::get);
+
+        // Act
+        bucket.blockFor(Duration.ofSeconds(2));
+
+        // Assert
+        assertEquals(Duration.ofSeconds(2).toNanos(), bucket.tryAcquire());
+        clock.addAndGet(Duration.ofSeconds(2).plusMillis(100).toNanos());
+        assertEquals(0, bucket.tryAcquire());
+    }
+}